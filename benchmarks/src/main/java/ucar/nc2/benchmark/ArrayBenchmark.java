@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ucar.ma2.Array operations used on every read: section, copy, and iteration over contiguous and strided views.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArrayBenchmark {
+  private static final int[] SHAPE = {10, 361, 720};
+
+  private Array data;
+  private Array strided;
+  private Index index;
+
+  @Setup
+  public void setup() throws InvalidRangeException {
+    data = Array.factory(DataType.FLOAT, SHAPE);
+    IndexIterator ii = data.getIndexIterator();
+    int count = 0;
+    while (ii.hasNext())
+      ii.setFloatNext(count++ % 1000);
+
+    strided = data.section(new int[] {0, 0, 0}, new int[] {10, 181, 360}, new int[] {1, 2, 2});
+    index = data.getIndex();
+  }
+
+  @Benchmark
+  public Array sectionBox() throws InvalidRangeException {
+    return data.section(new int[] {2, 100, 200}, new int[] {4, 100, 200});
+  }
+
+  @Benchmark
+  public Array sectionBoxCopy() throws InvalidRangeException {
+    return data.section(new int[] {2, 100, 200}, new int[] {4, 100, 200}).copy();
+  }
+
+  @Benchmark
+  public Array copy() {
+    return data.copy();
+  }
+
+  @Benchmark
+  public Array copyStrided() {
+    return strided.copy();
+  }
+
+  @Benchmark
+  public double iterate() {
+    double sum = 0;
+    IndexIterator ii = data.getIndexIterator();
+    while (ii.hasNext())
+      sum += ii.getFloatNext();
+    return sum;
+  }
+
+  @Benchmark
+  public double iterateStrided() {
+    double sum = 0;
+    IndexIterator ii = strided.getIndexIterator();
+    while (ii.hasNext())
+      sum += ii.getFloatNext();
+    return sum;
+  }
+
+  @Benchmark
+  public double getFloatIndexed() {
+    double sum = 0;
+    for (int t = 0; t < SHAPE[0]; t++)
+      for (int y = 0; y < SHAPE[1]; y++)
+        for (int x = 0; x < SHAPE[2]; x++)
+          sum += data.getFloat(index.set(t, y, x));
+    return sum;
+  }
+
+  @Benchmark
+  public Object get1DJavaArrayStrided() {
+    return strided.get1DJavaArray(DataType.FLOAT);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing udunit time strings into a CalendarDateUnit, and converting coordinate values to CalendarDates.
+ * Done for every time coordinate of every dataset opened.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalendarDateUnitBenchmark {
+
+  @Param({"hours since 1970-01-01T00:00:00Z", "days since 1850-1-1 0:0:0", "secs since 2018-10-18 12:34:56.789"})
+  String udunits;
+
+  @Param({"gregorian", "noleap"})
+  String calendar;
+
+  private CalendarDateUnit unit;
+  private double value = 10000.5;
+
+  @Setup
+  public void setup() {
+    unit = CalendarDateUnit.of(calendar, udunits);
+  }
+
+  @Benchmark
+  public CalendarDateUnit parse() {
+    return CalendarDateUnit.of(calendar, udunits);
+  }
+
+  @Benchmark
+  public CalendarDate makeCalendarDate() {
+    return unit.makeCalendarDate(value);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.nc2.grib.grib2.Grib2Record;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.SyntheticGrib2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unpacking a GRIB2 field with Grib2Record.readData(), for the common packing templates.
+ * The field is written by SyntheticGrib2, from the grib tests, at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Grib2UnpackBenchmark {
+
+  @Param({"0", "2", "3"})
+  int template;
+
+  @Param({"720x361"})
+  String grid;
+
+  private File file;
+  private RandomAccessFile raf;
+  private int nx, ny;
+  private int[] rows, cols;
+  private float[] window;
+
+  @Setup
+  public void setup() throws IOException {
+    String[] dims = grid.split("x");
+    nx = Integer.parseInt(dims[0]);
+    ny = Integer.parseInt(dims[1]);
+
+    file = File.createTempFile("Grib2UnpackBenchmark", ".grib2");
+    SyntheticGrib2.write(file, template, SyntheticGrib2.makeField(nx, ny));
+    raf = new RandomAccessFile(file.getPath(), "r");
+
+    // a 10 x 10 box in the middle of the grid
+    rows = new int[10];
+    cols = new int[10];
+    for (int i = 0; i < 10; i++) {
+      rows[i] = ny / 2 + i;
+      cols[i] = nx / 2 + i;
+    }
+    window = new float[100];
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    raf.close();
+    if (!file.delete())
+      file.deleteOnExit();
+  }
+
+  @Benchmark
+  public float[] readData() throws IOException {
+    return Grib2Record.readData(raf, 0, 0, nx * ny, 0, nx, ny, null);
+  }
+
+  @Benchmark
+  public float[] readDataWindow() throws IOException {
+    Grib2Record.readDataWindow(raf, 0, 0, nx * ny, 0, nx, rows, cols, window, 0);
+    return window;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.*;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.nc2.stream.NcStreamCompression;
+import ucar.nc2.stream.NcStreamWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NcStreamWriter.sendData(), which is what cdmremote uses to send data, reading from a netCDF-3 file written at setup.
+ * The output is discarded, so this measures reading the variable plus encoding (and optionally compressing) it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NcStreamWriterBenchmark {
+
+  @Param({"none", "deflate"})
+  String compression;
+
+  private File file;
+  private NetcdfFile ncfile;
+  private NcStreamWriter writer;
+  private Variable v;
+  private Section all, box;
+  private NcStreamCompression compress;
+  private OutputStream out = ByteStreams.nullOutputStream();
+
+  @Setup
+  public void setup() throws IOException, InvalidRangeException {
+    file = File.createTempFile("NcStreamWriterBenchmark", ".nc");
+    try (NetcdfFileWriter ncwriter = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      ncwriter.addDimension("time", 10);
+      ncwriter.addDimension("y", 361);
+      ncwriter.addDimension("x", 720);
+      Variable temp = ncwriter.addVariable("temperature", DataType.FLOAT, "time y x");
+      ncwriter.create();
+
+      Array data = Array.factory(DataType.FLOAT, temp.getShape());
+      IndexIterator ii = data.getIndexIterator();
+      int count = 0;
+      while (ii.hasNext())
+        ii.setFloatNext((float) (280.0 + 10.0 * Math.sin(count++ / 50.0)));
+      ncwriter.write(temp, data);
+    }
+
+    ncfile = NetcdfFile.open(file.getPath());
+    writer = new NcStreamWriter(ncfile, file.getPath());
+    v = ncfile.findVariable("temperature");
+    all = v.getShapeAsSection();
+    box = new Section(new int[] {2, 100, 200}, new int[] {4, 100, 200});
+    compress = compression.equals("deflate") ? NcStreamCompression.deflate() : NcStreamCompression.none();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    ncfile.close();
+    if (!file.delete())
+      file.deleteOnExit();
+  }
+
+  @Benchmark
+  public long sendAll() throws IOException, InvalidRangeException {
+    return writer.sendData(v, all, out, compress);
+  }
+
+  @Benchmark
+  public long sendBox() throws IOException, InvalidRangeException {
+    return writer.sendData(v, box, out, compress);
+  }
+}
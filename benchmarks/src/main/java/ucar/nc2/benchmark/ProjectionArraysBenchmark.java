@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.ProjectionImpl;
+import ucar.unidata.geoloc.ProjectionPointImpl;
+import ucar.unidata.geoloc.projection.LambertConformal;
+import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.Stereographic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computing the 2D lat/lon of a projected grid, as CFGridWriter2 and CFGridCoverageWriter2 do:
+ * one point at a time, with the bulk array conversion, and with the bulk conversion split into parallel blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionArraysBenchmark {
+  private static final int NX = 1000, NY = 1000;
+
+  @Param({"LambertConformal", "Stereographic", "Mercator"})
+  String projection;
+
+  private ProjectionImpl proj;
+  private double[][] from;
+  private double[][] to;
+
+  @Setup
+  public void setup() {
+    switch (projection) {
+      case "LambertConformal":
+        proj = new LambertConformal(25, 265, 25, 25);
+        break;
+      case "Stereographic":
+        proj = new Stereographic(90, 255, .933);
+        break;
+      default:
+        proj = new Mercator(255, 20);
+    }
+
+    // a 1000 x 1000 grid at 5 km, centered on the projection origin
+    from = new double[2][NX * NY];
+    for (int j = 0; j < NY; j++) {
+      for (int i = 0; i < NX; i++) {
+        from[0][j * NX + i] = (i - NX / 2) * 5.0;
+        from[1][j * NX + i] = (j - NY / 2) * 5.0;
+      }
+    }
+    to = new double[2][NX * NY];
+  }
+
+  @Benchmark
+  public double[][] perPoint() {
+    ProjectionPointImpl ppt = new ProjectionPointImpl();
+    LatLonPointImpl llpt = new LatLonPointImpl();
+    for (int i = 0; i < from[0].length; i++) {
+      ppt.setLocation(from[0][i], from[1][i]);
+      proj.projToLatLon(ppt, llpt);
+      to[0][i] = llpt.getLatitude();
+      to[1][i] = llpt.getLongitude();
+    }
+    return to;
+  }
+
+  @Benchmark
+  public double[][] bulk() {
+    return proj.projToLatLon(from, to);
+  }
+
+  @Benchmark
+  public double[][] parallel() {
+    return proj.projToLatLonParallel(from, to);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Primitive reads through ucar.unidata.io.RandomAccessFile: sequential scalar and array reads, and small reads
+ * at random positions, for a range of buffer sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomAccessFileBenchmark {
+  private static final int FILE_SIZE = 16 * 1024 * 1024;
+  private static final int NRANDOM = 10000;
+
+  @Param({"8092", "65536"})  // 8092 is the RandomAccessFile default
+  int bufferSize;
+
+  private File file;
+  private RandomAccessFile raf;
+  private int[] ints = new int[FILE_SIZE / 4];
+  private float[] floats = new float[FILE_SIZE / 4];
+  private byte[] block = new byte[4096];
+  private long[] randomPos = new long[NRANDOM];
+
+  @Setup
+  public void setup() throws IOException {
+    file = File.createTempFile("RandomAccessFileBenchmark", ".bin");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      for (int i = 0; i < FILE_SIZE / 4; i++)
+        out.writeInt(i);
+    }
+    Random random = new Random(17);
+    for (int i = 0; i < NRANDOM; i++)
+      randomPos[i] = random.nextInt(FILE_SIZE - block.length);
+
+    raf = new RandomAccessFile(file.getPath(), "r", bufferSize);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    raf.close();
+    if (!file.delete())
+      file.deleteOnExit();
+  }
+
+  @Benchmark
+  public long readIntSequential() throws IOException {
+    raf.seek(0);
+    long sum = 0;
+    for (int i = 0; i < FILE_SIZE / 4; i++)
+      sum += raf.readInt();
+    return sum;
+  }
+
+  @Benchmark
+  public int[] readIntArray() throws IOException {
+    raf.seek(0);
+    raf.readInt(ints, 0, ints.length);
+    return ints;
+  }
+
+  @Benchmark
+  public float[] readFloatArray() throws IOException {
+    raf.seek(0);
+    raf.readFloat(floats, 0, floats.length);
+    return floats;
+  }
+
+  @Benchmark
+  public void readIntRandom(Blackhole bh) throws IOException {
+    for (long pos : randomPos) {
+      raf.seek(pos);
+      bh.consume(raf.readInt());
+    }
+  }
+
+  @Benchmark
+  public void readFullyRandom(Blackhole bh) throws IOException {
+    for (long pos : randomPos) {
+      raf.seek(pos);
+      raf.readFully(block);
+      bh.consume(block);
+    }
+  }
+}
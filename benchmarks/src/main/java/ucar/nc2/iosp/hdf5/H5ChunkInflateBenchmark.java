@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp.hdf5;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Undoing the deflate and shuffle filters on an HDF5 chunk, as H5tiledLayoutBB does for each filtered chunk.
+ * The chunk is a float field, shuffled and deflated at setup the same way the HDF5 library writes it.
+ * This is in the hdf5 package because H5tiledLayoutBB is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class H5ChunkInflateBenchmark {
+
+  @Param({"65536", "1048576"})
+  int chunkBytes;
+
+  @Param({"512", "8192"})  // 512 is H5tiledLayoutBB.DEFAULTZIPBUFFERSIZE
+  int inflateBufferSize;
+
+  private byte[] shuffled;
+  private byte[] compressed;
+
+  @Setup
+  public void setup() throws IOException {
+    int nfloats = chunkBytes / 4;
+    ByteBuffer bb = ByteBuffer.allocate(chunkBytes);
+    for (int i = 0; i < nfloats; i++)
+      bb.putFloat((float) (280.0 + 10.0 * Math.sin(i / 50.0)));
+    byte[] raw = bb.array();
+
+    // shuffle filter: byte k of every element goes in the k-th block
+    shuffled = new byte[raw.length];
+    for (int i = 0; i < nfloats; i++)
+      for (int k = 0; k < 4; k++)
+        shuffled[k * nfloats + i] = raw[i * 4 + k];
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    try (DeflaterOutputStream out = new DeflaterOutputStream(bout)) {
+      out.write(shuffled);
+    }
+    compressed = bout.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] inflate() throws IOException {
+    return H5tiledLayoutBB.inflate(compressed, inflateBufferSize);
+  }
+
+  @Benchmark
+  public byte[] inflateAndUnshuffle() throws IOException {
+    return H5tiledLayoutBB.shuffle(H5tiledLayoutBB.inflate(compressed, inflateBufferSize), 4);
+  }
+
+  @Benchmark
+  public byte[] unshuffle() {
+    return H5tiledLayoutBB.shuffle(shuffled, 4);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.ft.coverage;
+
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft2.coverage.*;
+import ucar.nc2.ft2.coverage.writer.CFGridCoverageWriter2;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.util.Optional;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare CFGridCoverageWriter2.writeStream against the netcdf-3 file written by writeOrTestSize.
+ *
+ * @since 10/18/2026
+ */
+@RunWith(Parameterized.class)
+@Category(NeedsCdmUnitTest.class)
+public class TestCoverageStreamWriter {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Parameterized.Parameters(name = "{0}")
+  public static List<Object[]> getTestParameters() {
+    List<Object[]> result = new ArrayList<>();
+
+    result.add(new Object[]{TestDir.cdmUnitTestDir + "ncss/GFS/CONUS_80km/GFS_CONUS_80km_20120227_0000.grib1", Lists.newArrayList("Temperature_isobaric"),
+            new SubsetParams().set(SubsetParams.timePresent, true), true});   // 2D lat/lon added
+    result.add(new Object[]{TestDir.cdmUnitTestDir + "ft/coverage/03061219_ruc.nc", Lists.newArrayList("P_sfc", "P_trop", "T"), null, false});
+    result.add(new Object[]{TestDir.cdmUnitTestDir + "ft/coverage/ECME_RIZ_201201101200_00600_GB", Lists.newArrayList("Surface_pressure_surface"), null, false});  // scalar runtime, ens coord
+    result.add(new Object[]{TestDir.cdmUnitTestDir + "ft/coverage/testCFwriter.nc", Lists.newArrayList("PS", "Temperature"), null, false});  // both x,y and lat,lon
+    result.add(new Object[]{"../grib/src/test/data/rap-native.grib2", Lists.newArrayList("Temperature_surface"), null, true});  // grid mapping variable is filled
+
+    return result;
+  }
+
+  String endpoint;
+  List<String> covList;
+  SubsetParams params;
+  boolean addLatLon;
+
+  public TestCoverageStreamWriter(String endpoint, List<String> covList, SubsetParams params, boolean addLatLon) {
+    this.endpoint = endpoint;
+    this.covList = covList;
+    this.params = (params != null) ? params : new SubsetParams();
+    this.addLatLon = addLatLon;
+  }
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void compareWithFile() throws IOException, InvalidRangeException {
+    File tempFile = tempFolder.newFile();
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    AtomicLong announcedSize = new AtomicLong(-1);
+
+    try (FeatureDatasetCoverage cc = CoverageDatasetFactory.open(endpoint)) {
+      Assert.assertNotNull(endpoint, cc);
+      CoverageCollection gcs = cc.findCoverageDataset(FeatureType.GRID);
+
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, tempFile.getPath(), null);
+      Optional<Long> fileo = CFGridCoverageWriter2.writeOrTestSize(gcs, covList, params, addLatLon, false, writer);
+      Assert.assertTrue(fileo.getErrorMessage(), fileo.isPresent());
+
+      Optional<Long> streamo = CFGridCoverageWriter2.writeStream(gcs, covList, params, addLatLon, announcedSize::set, bos);
+      Assert.assertTrue(streamo.getErrorMessage(), streamo.isPresent());
+      Assert.assertEquals(bos.size(), (long) streamo.get());
+    }
+    // the size is known before any data is written
+    Assert.assertEquals(bos.size(), announcedSize.get());
+
+    try (NetcdfFile ncfile = NetcdfFile.open(tempFile.getPath());
+         NetcdfFile ncstream = NetcdfFile.openInMemory("stream.nc", bos.toByteArray())) {
+      Formatter f = new Formatter();
+      CompareNetcdf2 compare = new CompareNetcdf2(f, false, false, true);
+      boolean ok = compare.compareVariables(ncfile, ncstream);
+      if (!ok) logger.debug("{}", f);
+      Assert.assertTrue(endpoint, ok);
+
+      for (String covName : covList)
+        Assert.assertNotNull(covName, ncstream.findVariable(covName));
+    }
+  }
+}
@@ -7,6 +7,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.constants.FeatureType;
@@ -18,7 +19,9 @@ import ucar.nc2.util.CompareNetcdf2;
 import ucar.unidata.util.test.TestDir;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Formatter;
@@ -79,6 +82,38 @@ public class TestCFPointWriter {
     assert count == countExpected : "count ="+count+" expected "+countExpected;
   }
 
+  @Test
+  public void testWrite3stream() throws IOException {
+    Assume.assumeTrue("Only point and station can be streamed", ftype == FeatureType.POINT || ftype == FeatureType.STATION);
+
+    File fileOut = tempFolder.newFile();
+    writeDataset(location, ftype, new CFPointWriterConfig(NetcdfFileWriter.Version.netcdf3), show, fileOut);
+
+    File streamOut = tempFolder.newFile();
+    Formatter errlog = new Formatter();
+    try (FeatureDataset fdataset = FeatureDatasetFactoryManager.open(ftype, location, null, errlog);
+         OutputStream os = new FileOutputStream(streamOut)) {
+      Assert.assertNotNull(errlog.toString(), fdataset);
+      int count = CFPointWriter.writeFeatureCollection((FeatureDatasetPoint) fdataset, os);
+      System.out.printf("%s netcdf3 stream count=%d%n", location, count);
+      Assert.assertEquals(countExpected, count);
+    }
+
+    // same variables and data as the file, with the number of records found from the file length
+    try (NetcdfFile ncfile = NetcdfFile.open(fileOut.getPath());
+         NetcdfFile ncstream = NetcdfFile.open(streamOut.getPath())) {
+      Formatter f = new Formatter();
+      boolean ok = new CompareNetcdf2(f, false, false, true).compareVariables(ncfile, ncstream);
+      if (!ok) System.out.printf("%s%n", f);
+      Assert.assertTrue(location, ok);
+    }
+
+    try (FeatureDataset result = FeatureDatasetFactoryManager.open(ftype, streamOut.getPath(), null, errlog)) {
+      Assert.assertNotNull(errlog.toString(), result);
+      Assert.assertTrue("npoints", 0 < TestPointDatasets.checkPointFeatureDataset(result, show));
+    }
+  }
+
   @Test
   public void testWrite4classic() throws IOException {
     // Ignore this test if NetCDF-4 isn't present.
@@ -14,19 +14,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.featurecollection.FeatureCollectionType;
+import thredds.filesystem.MFileOS;
+import thredds.inventory.CollectionSingleFile;
+import thredds.inventory.CollectionSpecParser;
 import thredds.inventory.CollectionUpdateType;
+import thredds.inventory.MCollection;
+import thredds.inventory.filter.StreamFilter;
+import thredds.inventory.partition.FilePartition;
 import ucar.nc2.Dimension;
 import ucar.nc2.Group;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
+import ucar.coord.Coordinate;
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribCollectionImmutable;
+import ucar.nc2.grib.collection.PartitionCollectionImmutable;
+import ucar.nc2.util.Indent;
 import ucar.unidata.util.test.category.NeedsCdmUnitTest;
 import ucar.unidata.util.test.TestDir;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
 import java.util.List;
 
 /**
@@ -102,6 +115,92 @@ public class TestGribCdmIndexUpdating {
     testRemoveFileFromCollection(CollectionUpdateType.testIndexOnly, orgLen, orgLen);
   }
 
+  @Test
+  public void testRemoveFileFromCollectionAppend() throws IOException {
+    GribCdmIndex.setAppendPartitions(true);
+    try {
+      testRemoveFileFromCollection(CollectionUpdateType.test, orgLen, remLen);
+    } finally {
+      GribCdmIndex.setAppendPartitions(false);
+    }
+  }
+
+  // appending the new partition must give the same index as rebuilding from all of the partitions
+  @Test
+  public void testAppendSameAsRebuild() throws IOException {
+    File newModelFile = new File(dataDir + newModel);
+    File newModelFileSave = new File(dataDir + newModel + ".save");
+    if (!newModelFile.exists() && newModelFileSave.exists())
+      Assert.assertTrue(newModelFileSave.renameTo(newModelFile));
+
+    try {
+      // index without the new partition
+      if (!newModelFile.renameTo(newModelFileSave))
+        throw new IOException("cant rename file " + newModelFile);
+      GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger);
+
+      // new file arrives
+      if (!newModelFileSave.renameTo(newModelFile))
+        throw new IOException("cant rename file " + newModelFileSave);
+      String errs = appendPartition(newModelFile);
+      Assert.assertTrue(errs, errs.contains(" INFO appended"));
+      String appended = showIndex();
+
+      GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger);
+      Assert.assertEquals(showIndex(), appended);
+
+    } finally {  // leave it it the way we found it
+      if (newModelFileSave.exists())
+        newModelFileSave.renameTo(newModelFile);
+    }
+  }
+
+  // the coordinates, records and run2part of the partition index
+  private String showIndex() throws IOException {
+    Formatter f = new Formatter();
+    try (GribCollectionImmutable gc = GribCdmIndex.openCdmIndex(dataDir + indexFile, config, false, logger)) {
+      Assert.assertTrue(gc instanceof PartitionCollectionImmutable);
+      PartitionCollectionImmutable pc = (PartitionCollectionImmutable) gc;
+      pc.getMasterRuntime().showCoords(f);
+      f.format("run2part=%s%n", Arrays.toString(pc.getRun2part()));
+
+      for (GribCollectionImmutable.Dataset ds : pc.getDatasets()) {
+        f.format("Dataset %s%n", ds.getType());
+        for (GribCollectionImmutable.GroupGC g : ds.getGroups()) {
+          f.format(" Group %s%n", g.getId());
+          for (Coordinate coord : g.getCoordinates())
+            coord.showInfo(f, new Indent(2));
+          for (GribCollectionImmutable.VariableIndex vi : g.getVariables()) {
+            f.format("  %s coords=%s%n", vi.toStringFrom(), vi.getCoordinateIndex());
+            ((PartitionCollectionImmutable.VariableIndexPartitioned) vi).show(f);
+          }
+        }
+      }
+    }
+    return f.toString();
+  }
+
+  // index the new file, then update the partition index in append mode, returning the errlog
+  private String appendPartition(File newFile) throws IOException {
+    boolean isGrib1 = config.type == FeatureCollectionType.GRIB1;
+    Formatter errlog = new Formatter();
+    MCollection part = new CollectionSingleFile(new MFileOS(newFile), logger);
+    part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+    GribCdmIndex.updateGribCollection(isGrib1, part, CollectionUpdateType.test, FeatureCollectionConfig.PartitionType.file, logger, errlog);
+
+    CollectionSpecParser specp = config.getCollectionSpecParser(errlog);
+    try (FilePartition partition = new FilePartition(config.collectionName, Paths.get(specp.getRootDir()), true, config.olderThan, logger)) {
+      partition.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+      if (specp.getFilter() != null)
+        partition.setStreamFilter(new StreamFilter(specp.getFilter(), specp.getFilterOnName()));
+      GribCdmIndex.setAppendPartitions(true);
+      GribCdmIndex.updateGribCollectionFromPCollection(isGrib1, partition, CollectionUpdateType.test, errlog, logger);
+    } finally {
+      GribCdmIndex.setAppendPartitions(false);
+    }
+    return errlog.toString();
+  }
+
     // test when a file gets removed from a collection, ie GribCollectionBuilder
   private void testRemoveFileFromCollection(CollectionUpdateType updateType, int orgLen, int remLen) throws IOException {
 
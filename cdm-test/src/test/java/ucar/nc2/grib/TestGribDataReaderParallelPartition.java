@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.grib.collection.GribDataReader;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Parallel reading of a partitioned GRIB collection must give the same result as serial reading. */
+@Category(NeedsCdmUnitTest.class)
+public class TestGribDataReaderParallelPartition {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int maxVars = 8;
+  private static final int maxTimes = 6; // along each of the outer dimensions
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void setup() {
+    executor = Executors.newFixedThreadPool(3);
+  }
+
+  @AfterClass
+  public static void teardown() {
+    GribDataReader.setExecutor(null, 1);
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPartition() throws IOException, InvalidRangeException {
+    String filename = TestDir.cdmUnitTestDir + "gribCollections/gfs_2p5deg/gfs_2p5deg.ncx4";
+    Map<String, float[]> serial = new LinkedHashMap<>();
+
+    GribDataReader.setExecutor(null, 1);
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      for (Variable v : nc.getVariables()) {
+        if (v.getRank() < 4) continue; // coordinates, or only one record per time
+        serial.put(v.getFullName(), read(v));
+        if (serial.size() >= maxVars) break;
+      }
+    }
+    Assert.assertFalse(serial.isEmpty());
+
+    GribDataReader.setExecutor(executor, 4);
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      for (Map.Entry<String, float[]> entry : serial.entrySet()) {
+        Variable v = nc.findVariable(entry.getKey());
+        Assert.assertNotNull(entry.getKey(), v);
+        float[] got = read(v);
+        logger.debug("compare {} len={}", v.getFullName(), got.length);
+        Assert.assertArrayEquals(v.getFullName(), entry.getValue(), got, 0.0f);
+      }
+    }
+  }
+
+  // the first few records along the outer (time, ensemble or vertical) dimensions
+  private float[] read(Variable v) throws IOException, InvalidRangeException {
+    int[] shape = v.getShape();
+    for (int i = 0; i < shape.length - 2; i++)
+      shape[i] = Math.min(shape[i], maxTimes);
+    return (float[]) v.read(new int[shape.length], shape).get1DJavaArray(float.class);
+  }
+}
@@ -4,6 +4,8 @@
  */
 package ucar.nc2.stream;
 
+import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -12,19 +14,26 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
 import ucar.nc2.FileWriter2;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Structure;
 import ucar.nc2.iosp.netcdf3.N3channelWriter;
 import ucar.nc2.iosp.netcdf3.N3outputStreamWriter;
+import ucar.nc2.util.CompareNetcdf2;
 import ucar.unidata.util.test.category.NeedsCdmUnitTest;
 import ucar.unidata.util.test.TestDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Formatter;
 import java.util.List;
 
 /**
@@ -114,4 +123,48 @@ public class TestStreamWriter {
     System.out.println("N3streamWriter took " + took + " msecs");
   }
 
+  @Test
+  public void testNcStreamStructureChunks() throws IOException, InvalidRangeException {
+    try (NetcdfFile fileIn = NetcdfFile.open(endpoint)) {
+      fileIn.sendIospMessage(NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+      Structure record = (Structure) fileIn.findVariable("record");
+      Assume.assumeNotNull(record);
+      Array org = record.read();
+
+      NcStreamWriter.setMaxChunk(10 * 1000); // many messages
+      try {
+        NcStreamWriter writer = new NcStreamWriter(fileIn, null);
+        Section section = record.getShapeAsSection();
+
+        // by default one message, for readers that dont put the pieces together
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        writer.sendData2(record, section, bos, NcStreamCompression.none());
+        ByteArrayInputStream bis1 = new ByteArrayInputStream(bos.toByteArray());
+        Assert.assertEquals(org.getSize(), new NcStreamReader().readData(bis1, fileIn, endpoint).data.getSize());
+        Assert.assertEquals(0, bis1.available());
+
+        writer.setChunkStructures(true);
+        bos = new ByteArrayOutputStream();
+        writer.sendData2(record, section, bos, NcStreamCompression.none());
+        writer.sendData(record, section, bos, NcStreamCompression.none());
+
+        ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
+        NcStreamReader reader = new NcStreamReader();
+        for (int i = 0; i < 2; i++) {
+          NcStreamReader.DataResult result = reader.readData(bis, fileIn, endpoint, section);
+          Assert.assertEquals(org.getSize(), result.data.getSize());
+
+          Formatter f = new Formatter();
+          boolean ok = new CompareNetcdf2(f, false, false, true).compareData(record.getShortName(), org, result.data);
+          if (!ok) System.out.printf("%s%n", f);
+          Assert.assertTrue(f.toString(), ok);
+        }
+        Assert.assertEquals(0, bis.available());
+
+      } finally {
+        NcStreamWriter.setMaxChunk(1000 * 1000);
+      }
+    }
+  }
+
 }
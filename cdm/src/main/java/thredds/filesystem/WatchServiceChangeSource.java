@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package thredds.filesystem;
+
+import thredds.inventory.InventoryChangeSource;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * InventoryChangeSource using a java.nio WatchService on each directory of the collections.
+ * New subdirectories are watched as they are created. Works on local file systems;
+ * on NFS and other network file systems, changes made by other hosts are usually not seen, so use a JournalChangeSource.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class WatchServiceChangeSource implements InventoryChangeSource {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(WatchServiceChangeSource.class);
+
+  private final WatchService watcher;
+  private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+
+  public WatchServiceChangeSource() throws IOException {
+    this.watcher = FileSystems.getDefault().newWatchService();
+  }
+
+  @Override
+  public void watch(Path topDir) throws IOException {
+    registerAll(topDir, null);
+  }
+
+  // register dir and its subdirectories; if changes != null, add the files found, which may have been missed
+  private void registerAll(Path start, final List<Change> changes) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        WatchKey key = dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        keys.put(key, dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (changes != null)
+          changes.add(new Change(Kind.created, file));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException exc) {
+        logger.warn("WatchServiceChangeSource cant read {}: {}", file, exc.getMessage());
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @Override
+  public List<Change> poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+    List<Change> result = new ArrayList<>();
+    WatchKey key = watcher.poll(timeout, unit);
+    while (key != null) {
+      processKey(key, result);
+      key = watcher.poll(); // take everything that is waiting
+    }
+    return result;
+  }
+
+  private void processKey(WatchKey key, List<Change> result) throws IOException {
+    Path dir = keys.get(key);
+    if (dir == null) {
+      key.cancel();
+      return;
+    }
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      WatchEvent.Kind<?> kind = event.kind();
+      if (kind == OVERFLOW) {
+        result.add(new Change(Kind.overflow, dir));
+        continue;
+      }
+
+      Path child = dir.resolve((Path) event.context());
+      if (kind == ENTRY_CREATE) {
+        result.add(new Change(Kind.created, child));
+        if (Files.isDirectory(child, NOFOLLOW_LINKS)) {
+          try {
+            registerAll(child, result);
+          } catch (IOException ioe) {
+            logger.warn("WatchServiceChangeSource failed to watch {}: {}", child, ioe.getMessage());
+            result.add(new Change(Kind.overflow, child));
+          }
+        }
+      } else if (kind == ENTRY_MODIFY) {
+        result.add(new Change(Kind.modified, child));
+      } else if (kind == ENTRY_DELETE) {
+        result.add(new Change(Kind.deleted, child));
+      }
+    }
+
+    if (!key.reset())  // directory was deleted
+      keys.remove(key);
+  }
+
+  @Override
+  public long getPosition() {
+    return -1;
+  }
+
+  @Override
+  public void setPosition(long position) {
+    // events are not kept by the WatchService
+  }
+
+  @Override
+  public void close() throws IOException {
+    watcher.close();
+  }
+}
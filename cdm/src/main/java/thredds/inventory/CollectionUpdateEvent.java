@@ -2,6 +2,10 @@
 package thredds.inventory;
 
 import javax.annotation.concurrent.Immutable;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Events when a fc should be updated.
@@ -15,11 +19,22 @@ public class CollectionUpdateEvent {
   private final CollectionUpdateType type;
   private final String collectionName;
   private final String source;
+  private final Set<Path> changedDirs;  // null means the whole collection
 
   public CollectionUpdateEvent(CollectionUpdateType type, String collectionName, String source) {
+    this(type, collectionName, source, null);
+  }
+
+  /**
+   * An event for only part of a collection, eg from an InventoryChangeSource.
+   *
+   * @param changedDirs directories in which files were added, changed or deleted; null means the whole collection
+   */
+  public CollectionUpdateEvent(CollectionUpdateType type, String collectionName, String source, Set<Path> changedDirs) {
     this.type = type;
     this.collectionName = collectionName;
     this.source = source;
+    this.changedDirs = (changedDirs == null) ? null : Collections.unmodifiableSet(new HashSet<>(changedDirs));
   }
 
   public CollectionUpdateType getType() {
@@ -30,8 +45,17 @@ public class CollectionUpdateEvent {
     return collectionName;
   }
 
+  public String getSource() {
+    return source;
+  }
+
+  /** @return directories in which files changed, or null if the whole collection should be checked */
+  public Set<Path> getChangedDirs() {
+    return changedDirs;
+  }
+
   @Override
   public String toString() {
-    return collectionName+": "+ type + "source='" + source;
+    return collectionName+": "+ type + "source='" + source + (changedDirs == null ? "" : "' changedDirs=" + changedDirs);
   }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package thredds.inventory;
+
+import ucar.nc2.constants.CDM;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The last modified time and size of the files seen in an InventoryChangeSource, kept in memory and saved to disk.
+ * Used to ignore changes that don't change anything, eg the many modify events a WatchService sends while a file is
+ * written, and to keep the position in the change feed across restarts.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class FileInventory {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FileInventory.class);
+  static private final String MAGIC = "FileInventory";
+  static private final int version = 1;
+
+  /**
+   * Read a saved inventory.
+   *
+   * @param file saved with save()
+   * @return the inventory, empty if file does not exist or cannot be read
+   */
+  static public FileInventory read(Path file) {
+    FileInventory result = new FileInventory();
+    if (!Files.exists(file)) return result;
+
+    try (BufferedReader reader = Files.newBufferedReader(file, CDM.utf8Charset)) {
+      String[] header = reader.readLine().split(" ");
+      if (header.length != 3 || !header[0].equals(MAGIC) || Integer.parseInt(header[1]) != version) {
+        logger.warn("FileInventory {} has bad header, ignoring", file);
+        return result;
+      }
+      result.position = Long.parseLong(header[2]);
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] toks = line.split(" ", 3);
+        if (toks.length != 3) continue;
+        result.files.put(Paths.get(toks[2]), new Entry(Long.parseLong(toks[0]), Long.parseLong(toks[1])));
+      }
+
+    } catch (IOException | RuntimeException e) {
+      logger.warn("FileInventory failed to read {}, ignoring", file, e);
+      return new FileInventory();
+    }
+    return result;
+  }
+
+  private static class Entry {
+    final long lastModified, size;
+
+    Entry(long lastModified, long size) {
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    boolean same(Entry o) {
+      return o != null && lastModified == o.lastModified && size == o.size;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final Map<Path, Entry> files = new ConcurrentHashMap<>();
+  private volatile long position = -1;
+
+  /**
+   * Bring the inventory up to date with a change, reading the file's attributes.
+   *
+   * @param change from an InventoryChangeSource
+   * @return true if this may have changed a collection: a file was added, removed, or its size or last modified
+   *   time changed; or a directory changed; or changes were lost
+   */
+  public boolean apply(InventoryChangeSource.Change change) {
+    Path path = change.getPath();
+    if (change.getKind() == InventoryChangeSource.Kind.overflow || path == null)
+      return true;
+
+    if (change.getKind() != InventoryChangeSource.Kind.deleted) {
+      try {
+        BasicFileAttributes attr = Files.readAttributes(path, BasicFileAttributes.class);
+        if (attr.isDirectory())
+          return true;
+        Entry entry = new Entry(attr.lastModifiedTime().toMillis(), attr.size());
+        return !entry.same(files.put(path, entry));
+
+      } catch (NoSuchFileException e) {
+        // gone already, so its a delete
+      } catch (IOException e) {
+        logger.warn("FileInventory cant read {}: {}", path, e.getMessage());
+        return true;
+      }
+    }
+
+    if (files.remove(path) != null)
+      return true;
+
+    // a directory, or a file from before the inventory was started
+    Iterator<Path> iter = files.keySet().iterator();
+    while (iter.hasNext()) {
+      if (iter.next().startsWith(path))
+        iter.remove();
+    }
+    return true;
+  }
+
+  /** @return number of files in the inventory */
+  public int size() {
+    return files.size();
+  }
+
+  /** @return position in the change feed, saved with the inventory; -1 if not known */
+  public long getPosition() {
+    return position;
+  }
+
+  public void setPosition(long position) {
+    this.position = position;
+  }
+
+  /**
+   * Save the inventory. Writes to a temporary file, then replaces file with it.
+   *
+   * @param file save to this file
+   * @throws IOException on write error
+   */
+  public void save(Path file) throws IOException {
+    Path tmp = Paths.get(file.toString() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(tmp, CDM.utf8Charset)) {
+      writer.write(MAGIC + " " + version + " " + position);
+      writer.newLine();
+      for (Map.Entry<Path, Entry> e : files.entrySet()) {
+        writer.write(e.getValue().lastModified + " " + e.getValue().size + " " + e.getKey());
+        writer.newLine();
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package thredds.inventory;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A feed of changes to the files under some directories, used instead of listing the directories to find out what changed.
+ * Implementations are thredds.filesystem.WatchServiceChangeSource for local file systems, and JournalChangeSource, which
+ * reads the changes from a log written by whatever writes the files.
+ *
+ * @since 10/18/2026
+ */
+public interface InventoryChangeSource extends Closeable {
+
+  enum Kind {created, modified, deleted,
+    overflow  // changes were lost; path is the directory they were lost in, or null if not known
+  }
+
+  @Immutable
+  class Change {
+    private final Kind kind;
+    private final Path path;
+
+    public Change(Kind kind, Path path) {
+      this.kind = kind;
+      this.path = path;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    /** @return the file or directory that changed, may be null for overflow */
+    public Path getPath() {
+      return path;
+    }
+
+    @Override
+    public String toString() {
+      return kind + " " + path;
+    }
+  }
+
+  /**
+   * Follow the changes under this directory and its subdirectories.
+   *
+   * @param topDir top directory of a collection
+   * @throws IOException on read error
+   */
+  void watch(Path topDir) throws IOException;
+
+  /**
+   * Wait for changes.
+   *
+   * @param timeout how long to wait if there are no changes
+   * @param unit    units of timeout
+   * @return the changes since the last call, empty if none arrived before the timeout
+   * @throws IOException          on read error
+   * @throws InterruptedException if interrupted while waiting
+   */
+  List<Change> poll(long timeout, TimeUnit unit) throws IOException, InterruptedException;
+
+  /** @return where the source is in its feed, to be saved with the FileInventory; -1 if it cannot be resumed */
+  long getPosition();
+
+  /**
+   * Resume the feed from a position returned by getPosition(), eg after a restart.
+   *
+   * @param position from getPosition()
+   */
+  void setPosition(long position);
+}
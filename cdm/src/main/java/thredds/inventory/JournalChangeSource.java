@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package thredds.inventory;
+
+import ucar.nc2.constants.CDM;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InventoryChangeSource that follows a journal file, appended to by whatever writes the data files, eg an LDM pqact
+ * FILE action or a Lustre changelog reader. Each line is
+ * <pre>
+ *   created|modified|deleted absolutePath
+ *   overflow [absoluteDirectory]
+ * </pre>
+ * Blank lines and lines starting with '#' are ignored. Only complete lines are read, so a line being written is
+ * picked up on the next poll. If the journal gets shorter, it is assumed to have been rotated, and is read from
+ * the start, with an overflow change since some changes may have been missed.
+ *
+ * @since 10/18/2026
+ */
+public class JournalChangeSource implements InventoryChangeSource {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(JournalChangeSource.class);
+  static private final long checkEveryMsecs = 1000;
+  static private final int maxRead = 16 * 1000 * 1000; // bytes read at a time
+
+  private final Path journal;
+  private long position;
+
+  /**
+   * @param journal  the journal file, need not exist yet
+   * @param fromEnd  if true, ignore what is already in the journal
+   */
+  public JournalChangeSource(Path journal, boolean fromEnd) {
+    this.journal = journal;
+    this.position = fromEnd ? journal.toFile().length() : 0;
+  }
+
+  @Override
+  public void watch(Path topDir) {
+    // the journal has the changes for all directories
+  }
+
+  @Override
+  public synchronized List<Change> poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+    long end = System.currentTimeMillis() + unit.toMillis(timeout);
+    while (true) {
+      List<Change> result = readChanges();
+      long wait = end - System.currentTimeMillis();
+      if (!result.isEmpty() || wait <= 0)
+        return result;
+      Thread.sleep(Math.min(wait, checkEveryMsecs));
+    }
+  }
+
+  private List<Change> readChanges() throws IOException {
+    List<Change> result = new ArrayList<>();
+    long length = journal.toFile().length();
+    if (length < position) {
+      logger.info("JournalChangeSource {} was rotated", journal);
+      result.add(new Change(Kind.overflow, null));
+      position = 0;
+    }
+    if (length == position)
+      return result;
+
+    byte[] bytes;
+    try (RandomAccessFile raf = new RandomAccessFile(journal.toFile(), "r")) {
+      raf.seek(position);
+      bytes = new byte[(int) Math.min(length - position, maxRead)];
+      raf.readFully(bytes);
+    }
+
+    int start = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] != '\n') continue;
+      String line = new String(bytes, start, i - start, CDM.utf8Charset).trim();
+      Change change = parse(line);
+      if (change != null) result.add(change);
+      start = i + 1;
+    }
+    position += start;  // leave a partial last line for next time
+    return result;
+  }
+
+  // return null if not a change
+  static Change parse(String line) {
+    if (line.isEmpty() || line.startsWith("#")) return null;
+    int pos = line.indexOf(' ');
+    String kindS = (pos < 0) ? line : line.substring(0, pos);
+    String pathS = (pos < 0) ? "" : line.substring(pos + 1).trim();
+
+    Kind kind;
+    try {
+      kind = Kind.valueOf(kindS.toLowerCase());
+    } catch (IllegalArgumentException e) {
+      logger.warn("JournalChangeSource bad line '{}'", line);
+      return null;
+    }
+
+    try {
+      Path path = pathS.isEmpty() ? null : Paths.get(pathS);
+      if (path == null && kind != Kind.overflow) {
+        logger.warn("JournalChangeSource missing path '{}'", line);
+        return null;
+      }
+      return new Change(kind, path);
+
+    } catch (InvalidPathException e) {
+      logger.warn("JournalChangeSource bad path '{}'", line);
+      return null;
+    }
+  }
+
+  @Override
+  public synchronized long getPosition() {
+    return position;
+  }
+
+  @Override
+  public synchronized void setPosition(long position) {
+    if (position >= 0)
+      this.position = position;
+  }
+
+  @Override
+  public void close() {
+    // nothing open between polls
+  }
+}
@@ -51,6 +51,7 @@ import ucar.nc2.util.EscapeStrings;
 import ucar.nc2.util.IO;
 import ucar.nc2.util.Indent;
 import ucar.nc2.util.rc.RC;
+import ucar.unidata.io.CompressedRandomAccessFile;
 import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.UncompressInputStream;
 import ucar.unidata.io.bzip2.CBZip2InputStream;
@@ -126,6 +127,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
   static private boolean userLoads = false;
 
   static private StringLocker stringLocker = new StringLocker();
+  static private boolean compressedRandomAccess = false;
 
   // IOSPs are loaded by reflection
   static {
@@ -431,6 +433,17 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
     N3iosp.setProperty(name, value);
   }
 
+  /**
+   * Open files ending with ".gz", ".gzip", ".bz2" or ".zip" in place with a CompressedRandomAccessFile, instead of
+   * uncompressing them to disk first. The first open decompresses the file once to make an index, which is kept next
+   * to the file (or in the DiskCache), so later opens and reads only decompress what they need. Default is false.
+   *
+   * @param b use CompressedRandomAccessFile
+   */
+  static public void setCompressedRandomAccess(boolean b) {
+    compressedRandomAccess = b;
+  }
+
   /**
    * Open an existing netcdf file (read only).
    *
@@ -483,6 +496,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
    *                    then use the uncompressed file. It will look for the uncompressed file before it does any of that. Generally it prefers to
    *                    place the uncompressed file in the same directory as the original file. If it does not have write permission on that directory,
    *                    it will use the directory defined by ucar.nc2.util.DiskCache class.
+   *                    See setCompressedRandomAccess() to read compressed files in place instead.
    * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
    * @param cancelTask  allow task to be cancelled; may be null.
    * @param iospMessage special iosp tweaking (sent before open is called), may be null
@@ -627,6 +641,18 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
         uriString = StringUtil2.unescape(uriString.substring(5));  // 11/10/2010 from erussell@ngs.org
       }
 
+      if (compressedRandomAccess && CompressedRandomAccessFile.isCompressed(uriString) && new File(uriString).exists()) {
+        try {
+          stringLocker.control(uriString);  // only one thread makes the index
+          File indexFile = DiskCache.getFileStandardPolicy(uriString + CompressedRandomAccessFile.INDEX_SUFFIX);
+          return new CompressedRandomAccessFile(uriString, indexFile, buffer_size);
+        } catch (IOException e) {
+          log.warn("Failed to open compressed file {}, err= {}; uncompress instead.", uriString, e.getMessage());
+        } finally {
+          stringLocker.release(uriString);
+        }
+      }
+
       String uncompressedFileName = null;
       try {
         stringLocker.control(uriString);  // Avoid race condition where the decompressed file is trying to be read by one thread while another is decompressing it
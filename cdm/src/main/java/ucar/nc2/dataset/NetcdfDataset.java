@@ -19,6 +19,9 @@ import ucar.nc2.stream.CdmRemote;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.CancelTaskImpl;
 import ucar.nc2.util.cache.FileCache;
+import ucar.nc2.util.cache.FileCacheIF;
+import ucar.nc2.util.cache.FileCacheWeighted;
+import ucar.nc2.util.cache.FileCacheable;
 import ucar.nc2.util.cache.FileFactory;
 
 import java.io.IOException;
@@ -236,7 +239,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
   ////////////////////////////////////////////////////////////////////////////////////
   // NetcdfFile caching
 
-  static private ucar.nc2.util.cache.FileCache netcdfFileCache = null;
+  static private FileCacheIF netcdfFileCache = null;
   static private ucar.nc2.util.cache.FileFactory defaultNetcdfFileFactory = new MyNetcdfFileFactory();
 
   // no state, so a singleton is ok
@@ -275,6 +278,32 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
             "NetcdfFileCache ", minElementsInMemory, maxElementsInMemory, hardLimit, period);
   }
 
+  /**
+   * Enable file caching, bounded by the number of open files and by their estimated memory, using FileCacheWeighted.
+   * Use this instead of initNetcdfFileCache() when many distinct files are opened by many threads.
+   * When application terminates, call NetcdfDataset.shutdown().
+   *
+   * @param maxFiles evict least recently used files when there are more than this many open; if <= 0, no limit
+   * @param maxBytes evict least recently used files when their estimated memory is more than this; if <= 0, no limit
+   * @param period   (secs) also look for files to evict every this number of seconds. set to <= 0 to not
+   */
+  static public synchronized void initWeightedNetcdfFileCache(int maxFiles, long maxBytes, int period) {
+    netcdfFileCache = new FileCacheWeighted("NetcdfFileCache ", maxFiles, maxBytes, period, NetcdfDataset::estimateMemory);
+  }
+
+  // rough estimate of the memory held by an open file: its metadata and any cached data
+  static private long estimateMemory(FileCacheable fc) {
+    if (!(fc instanceof NetcdfFile)) return 0;
+    NetcdfFile ncfile = (NetcdfFile) fc;
+    long size = 1000 + 100 * ncfile.getDimensions().size() + 100 * ncfile.getGlobalAttributes().size();
+    for (Variable v : ncfile.getVariables()) {
+      size += 500 + 100 * v.getAttributes().size();
+      if (v.hasCachedData())
+        size += v.getSize() * v.getElementSize();
+    }
+    return size;
+  }
+
   static public synchronized void disableNetcdfFileCache() {
     if (null != netcdfFileCache) netcdfFileCache.disable();
     netcdfFileCache = null;
@@ -657,7 +686,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
    * @return NetcdfFile object
    * @throws java.io.IOException on read error
    *
-  static private NetcdfFile openOrAcquireFile(FileCache cache, FileFactory factory, Object hashKey, String orgLocation,
+  static private NetcdfFile openOrAcquireFile(FileCacheIF cache, FileFactory factory, Object hashKey, String orgLocation,
                                               int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
 
     if (orgLocation == null)
@@ -668,7 +697,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     return openOrAcquireFile(cache, factory, hashKey, durl, buffer_size, cancelTask, spiObject);
   } */
 
-  static private NetcdfFile openOrAcquireFile(FileCache cache, FileFactory factory, Object hashKey, DatasetUrl durl,
+  static private NetcdfFile openOrAcquireFile(FileCacheIF cache, FileFactory factory, Object hashKey, DatasetUrl durl,
                                               int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
 
     if (durl.serviceType != null) {
@@ -722,7 +751,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
    */
   static private final String DAP4_PATH = "dap4.cdm.nc2";
 
-  static private NetcdfFile acquireDODS(FileCache cache, FileFactory factory, Object hashKey,
+  static private NetcdfFile acquireDODS(FileCacheIF cache, FileFactory factory, Object hashKey,
                                         String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
     if (cache == null) {
       return openDodsByReflection(location, cancelTask);
@@ -732,7 +761,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     return (NetcdfFile) cache.acquire(factory, hashKey, new DatasetUrl(ServiceType.OPENDAP, location), buffer_size, cancelTask, spiObject);
   }
 
-  static private NetcdfFile acquireDap4(FileCache cache,
+  static private NetcdfFile acquireDap4(FileCacheIF cache,
                                         FileFactory factory,
                                         Object hashKey,
                                         String location,
@@ -826,7 +855,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
 
   ////////////////////////////////////////////////////////////////////////////////////
 
-  static private NetcdfFile acquireNcml(FileCache cache, FileFactory factory, Object hashKey,
+  static private NetcdfFile acquireNcml(FileCacheIF cache, FileFactory factory, Object hashKey,
                                         String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
     if (cache == null) return NcMLReader.readNcML(location, cancelTask);
 
@@ -840,7 +869,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     }
   }
 
-  static private NetcdfFile acquireCdmRemote(FileCache cache, FileFactory factory, Object hashKey,
+  static private NetcdfFile acquireCdmRemote(FileCacheIF cache, FileFactory factory, Object hashKey,
                                              String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
     if (cache == null) return new CdmRemote(location);
 
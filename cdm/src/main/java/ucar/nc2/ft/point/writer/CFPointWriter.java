@@ -17,6 +17,7 @@ import ucar.nc2.constants.*;
 import ucar.nc2.dataset.CoordinateAxis;
 import ucar.nc2.ft.*;
 import ucar.nc2.ft.point.StationPointFeature;
+import ucar.nc2.iosp.netcdf3.N3outputStreamWriter;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateFormatter;
 import ucar.nc2.time.CalendarDateUnit;
@@ -26,15 +27,15 @@ import ucar.nc2.write.Nc4ChunkingStrategy;
 import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonRect;
 
-import java.io.Closeable;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 
 /**
  * Write Point Feature Collections into netcdf3/4 files in CF 1.6 point obs conventions.
  * <ul>
  *   <li>netcdf3: use indexed ragged array representation</li>
+ *   <li>netcdf3 to an OutputStream: the "streaming" variant, where the number of records is found from the
+ *   length of the file, so each record can be sent as soon as it is written.</li>
  * </ul>
  *
  * @author caron
@@ -114,28 +115,67 @@ public abstract class CFPointWriter implements Closeable {
     return 0;
   }
 
+  /**
+   * Write a FeatureDatasetPoint to a stream, as a netcdf3 file with the "streaming" number of records.
+   * Only point and station feature collections can be streamed.
+   *
+   * @param fdpoint  the FeatureDatasetPoint; do first FeatureCollection contained within.
+   * @param out      write to this stream; it is flushed but not closed.
+   * @return  count of number of pointFeatures written.
+   *
+   * @throws IOException
+   */
+  public static int writeFeatureCollection(FeatureDatasetPoint fdpoint, OutputStream out) throws IOException {
+    CFPointWriterConfig config = new CFPointWriterConfig(NetcdfFileWriter.Version.netcdf3);
+
+    for (DsgFeatureCollection fc : fdpoint.getPointFeatureCollectionList()) {
+
+      if (fc instanceof PointFeatureCollection) {
+        PointFeatureCollection pfc = (PointFeatureCollection) fc;
+        try (WriterCFPointCollection pointWriter = new WriterCFPointCollection(out, fdpoint.getGlobalAttributes(),
+                fdpoint.getDataVariables(), pfc.getTimeUnit(), pfc.getAltUnits(), config)) {
+          return writePoints(pointWriter, pfc);
+        }
+
+      } else if (fc instanceof StationTimeSeriesFeatureCollection) {
+        StationTimeSeriesFeatureCollection sfc = (StationTimeSeriesFeatureCollection) fc;
+        try (WriterCFStationCollection cfWriter = new WriterCFStationCollection(out, fdpoint.getGlobalAttributes(),
+                fdpoint.getDataVariables(), sfc.getTimeUnit(), sfc.getAltUnits(), config)) {
+          return writeStations(cfWriter, sfc);
+        }
+
+      } else {
+        throw new UnsupportedOperationException("Cant stream " + fc.getCollectionFeatureType());
+      }
+    }
+
+    return 0;
+  }
 
   private static int writePointFeatureCollection(FeatureDatasetPoint fdpoint, PointFeatureCollection pfc, String fileOut, CFPointWriterConfig config) throws IOException {
 
     try (WriterCFPointCollection pointWriter = new WriterCFPointCollection(fileOut, fdpoint.getGlobalAttributes(), fdpoint.getDataVariables(),
             pfc.getTimeUnit(), pfc.getAltUnits(), config)) {
+      return writePoints(pointWriter, pfc);
+    }
+  }
 
-      pointWriter.setExtraVariables( pfc.getExtraVariables());
+  private static int writePoints(WriterCFPointCollection pointWriter, PointFeatureCollection pfc) throws IOException {
+    pointWriter.setExtraVariables( pfc.getExtraVariables());
 
-      int count = 0;
-      for (PointFeature pf : pfc) {
-        if (count == 0)
-          pointWriter.writeHeader(pf);
-
-        pointWriter.writeRecord(pf, pf.getFeatureData());
-        count++;
-        if (debug && count % 100 == 0) System.out.printf("%d ", count);
-        if (debug && count % 1000 == 0) System.out.printf("%n ");
-      }
+    int count = 0;
+    for (PointFeature pf : pfc) {
+      if (count == 0)
+        pointWriter.writeHeader(pf);
 
-      pointWriter.finish();
-      return count;
+      pointWriter.writeRecord(pf, pf.getFeatureData());
+      count++;
+      if (debug && count % 100 == 0) System.out.printf("%d ", count);
+      if (debug && count % 1000 == 0) System.out.printf("%n ");
     }
+
+    pointWriter.finish();
+    return count;
   }
 
   private static int writeStationFeatureCollection(FeatureDatasetPoint dataset, StationTimeSeriesFeatureCollection fc, String fileOut,
@@ -143,26 +183,29 @@ public abstract class CFPointWriter implements Closeable {
 
     try (WriterCFStationCollection cfWriter = new WriterCFStationCollection(fileOut, dataset.getGlobalAttributes(), dataset.getDataVariables(),
             fc.getTimeUnit(), fc.getAltUnits(), config)) {
+      return writeStations(cfWriter, fc);
+    }
+  }
 
-      cfWriter.setExtraVariables( fc.getExtraVariables());
+  private static int writeStations(WriterCFStationCollection cfWriter, StationTimeSeriesFeatureCollection fc) throws IOException {
+    cfWriter.setExtraVariables( fc.getExtraVariables());
 
-      ucar.nc2.ft.PointFeatureCollection pfc = fc.flatten(null, null, null); // all data, but no need to sort by station
+    ucar.nc2.ft.PointFeatureCollection pfc = fc.flatten(null, null, null); // all data, but no need to sort by station
 
-      int count = 0;
-      for (PointFeature pf : pfc) {
-        StationPointFeature spf = (StationPointFeature) pf;
-        if (count == 0)
-          cfWriter.writeHeader(fc.getStationFeatures(), spf);
-
-        cfWriter.writeRecord(spf.getStation(), pf, pf.getFeatureData());
-        count++;
-        if (debug && count % 100 == 0) System.out.printf("%d ", count);
-        if (debug && count % 1000 == 0) System.out.printf("%n ");
-      }
+    int count = 0;
+    for (PointFeature pf : pfc) {
+      StationPointFeature spf = (StationPointFeature) pf;
+      if (count == 0)
+        cfWriter.writeHeader(fc.getStationFeatures(), spf);
 
-      cfWriter.finish();
-      return count;
+      cfWriter.writeRecord(spf.getStation(), pf, pf.getFeatureData());
+      count++;
+      if (debug && count % 100 == 0) System.out.printf("%d ", count);
+      if (debug && count % 1000 == 0) System.out.printf("%n ");
     }
+
+    cfWriter.finish();
+    return count;
   }
 
   private static int writeProfileFeatureCollection(FeatureDatasetPoint fdpoint, ProfileFeatureCollection fc, String fileOut,
@@ -351,6 +394,11 @@ public abstract class CFPointWriter implements Closeable {
   protected CalendarDate minDate = null;
   protected CalendarDate maxDate = null;
 
+  // when writing to a stream, the writer only holds the metadata
+  private DataOutputStream stream;
+  private N3outputStreamWriter streamWriter;
+  private Map<Variable, Array> nonRecordData;  // held until the header is written
+
   // LOOK doesnt work
   protected CFPointWriter(String fileOut, List<Attribute> atts, NetcdfFileWriter.Version version) throws IOException {
     this(fileOut, atts, null, null, null, new CFPointWriterConfig(version));
@@ -378,6 +426,27 @@ public abstract class CFPointWriter implements Closeable {
     addNetcdf3UnknownAtts(noTimeCoverage);
   }
 
+  /**
+   * Ctor for writing a netcdf3 file to a stream, without a file on disk.
+   * The header and the feature (non-record) data are written with the first record,
+   * then each record is written as it comes.
+   * So all feature data must be written in writeHeader(), before any records.
+   *
+   * @param out                 write to this stream; it is flushed by finish() but not closed.
+   * @param atts                global attributes to be added
+   * @param config              configure, version must be netcdf3
+   * @throws IOException
+   */
+  protected CFPointWriter(OutputStream out, List<Attribute> atts, List<VariableSimpleIF> dataVars,
+                          CalendarDateUnit timeUnit, String altUnits, CFPointWriterConfig config) throws IOException {
+    this((String) null, atts, dataVars, timeUnit, altUnits, config);
+    if (writer.getVersion() != NetcdfFileWriter.Version.netcdf3)
+      throw new IllegalArgumentException("Can only stream netcdf3, not " + writer.getVersion());
+
+    this.stream = new DataOutputStream(new BufferedOutputStream(out, 64 * 1000));
+    this.nonRecordData = new HashMap<>();
+  }
+
 
   public void setFeatureAuxInfo(int nfeatures, int id_strlen) {
     this.nfeatures = nfeatures;
@@ -454,8 +523,7 @@ public abstract class CFPointWriter implements Closeable {
       makeFeatureVariables(featureData, false);
       addCoordinatesClassic(recordDim, obsCoords, dataMap);
       addDataVariablesClassic(recordDim, obsData, dataMap, coordNames);
-      writer.create();
-      record = writer.addRecordStructure(); // for netcdf3
+      createClassic();
     }
 
     writeExtraVariables();
@@ -479,11 +547,46 @@ public abstract class CFPointWriter implements Closeable {
       makeMiddleVariables(middleData, false);
       addCoordinatesClassic(recordDim, obsCoords, dataMap);
       addDataVariablesClassic(recordDim, obsData, dataMap, coordNames);
+      createClassic();
+    }
+
+    writeExtraVariables();
+  }
+
+  private void createClassic() throws IOException {
+    if (stream == null) {
       writer.create();
       record = writer.addRecordStructure(); // for netcdf3
+      return;
     }
 
-    writeExtraVariables();
+    // the header is written before the extent of the data is known, so leave out the attributes that would be wrong
+    if (llbb != null) {
+      for (Attribute att : makeBoundingBoxAtts())
+        writer.addGroupAttribute(null, att);
+    } else {
+      for (String attName : Arrays.asList(ACDD.LAT_MIN, ACDD.LAT_MAX, ACDD.LON_MIN, ACDD.LON_MAX))
+        writer.deleteGroupAttribute(null, attName);
+    }
+    writer.deleteGroupAttribute(null, ACDD.TIME_START);
+    writer.deleteGroupAttribute(null, ACDD.TIME_END);
+
+    // This is a hack to get the writer's underlying NetcdfFile while in define mode
+    streamWriter = new N3outputStreamWriter(writer.addGroup(null, null).getNetcdfFile());
+  }
+
+  // write the header and the non-record data, before the first record
+  private void startStream() throws IOException {
+    if (nonRecordData == null) return;
+
+    streamWriter.writeHeader(stream, -1);  // "streaming" numrecs
+    for (Variable v : writer.addGroup(null, null).getVariables()) {
+      if (v.isUnlimited()) continue;
+      Array data = nonRecordData.get(v);
+      if (data == null) data = Array.factory(v.getDataType(), v.getShape());
+      streamWriter.writeNonRecordData(v, stream, data);
+    }
+    nonRecordData = null;
   }
 
   protected void addExtraVariables() throws IOException {
@@ -507,6 +610,10 @@ public abstract class CFPointWriter implements Closeable {
     for (Variable v : extra) {
       Variable mv = extraMap.get(v.getShortName());
       if (mv == null) continue; // may be removed
+      if (stream != null) {
+        nonRecordData.put(mv, v.read());
+        continue;
+      }
       try {
         writer.write(mv, v.read());
       } catch (InvalidRangeException e) {
@@ -715,6 +822,9 @@ public abstract class CFPointWriter implements Closeable {
           return recno + 1;
         }
 
+      } else if (stream != null) {
+        writeStructureDataStream(varMap, recno, sdata);
+
       } else {
         writeStructureDataClassic(varMap, origin, sdata);
       }
@@ -753,6 +863,36 @@ public abstract class CFPointWriter implements Closeable {
   }
 
 
+  private void writeStructureDataStream(Map<String, Variable> varMap, int recno, StructureData sdata) throws IOException {
+    Map<Variable, Array> recordData = new HashMap<>();
+    for (StructureMembers.Member m : sdata.getMembers()) {
+      Variable mv = varMap.get(m.getName());
+      if (mv == null)
+        continue;
+
+      Array org = sdata.getArray(m);
+      if (m.getDataType() == DataType.STRING) {  // convert to ArrayChar, padded to the variable's string length
+        org = ArrayChar.makeFromStringArray((ArrayObject) org, mv.getShape(mv.getRank() - 1));
+      }
+
+      if (mv.isUnlimited()) {
+        recordData.put(mv, org);
+        continue;
+      }
+
+      // feature data goes into the non-record variables, which are only written with the header
+      if (nonRecordData == null)
+        throw new IllegalStateException("Feature data for " + mv.getShortName() + " must be written before the first record");
+      Array data = nonRecordData.computeIfAbsent(mv, v -> Array.factory(v.getDataType(), v.getShape()));
+      MAMath.copy(data.slice(0, recno), org);
+    }
+
+    if (!recordData.isEmpty()) {
+      startStream();
+      streamWriter.writeRecordData(stream, recordData);
+    }
+  }
+
   // keep track of the bounding box
   protected void trackBB(LatLonPoint loc, CalendarDate obsDate) {
     if (loc != null) {
@@ -768,12 +908,26 @@ public abstract class CFPointWriter implements Closeable {
     if ((maxDate == null) || maxDate.isBefore(obsDate)) maxDate = obsDate;
   }
 
+  private List<Attribute> makeBoundingBoxAtts() {
+    List<Attribute> result = new ArrayList<>();
+    result.add(new Attribute(ACDD.LAT_MIN, llbb.getLowerLeftPoint().getLatitude()));
+    result.add(new Attribute(ACDD.LAT_MAX, llbb.getUpperRightPoint().getLatitude()));
+    result.add(new Attribute(ACDD.LON_MIN, llbb.getLowerLeftPoint().getLongitude()));
+    result.add(new Attribute(ACDD.LON_MAX, llbb.getUpperRightPoint().getLongitude()));
+    return result;
+  }
+
   public void finish() throws IOException {
+    if (stream != null) {  // attributes were fixed when the header was written
+      if (streamWriter != null)
+        startStream();  // in case there are no records
+      stream.flush();
+      return;
+    }
+
     if (llbb != null) {
-      writer.updateAttribute(null, new Attribute(ACDD.LAT_MIN, llbb.getLowerLeftPoint().getLatitude()));
-      writer.updateAttribute(null, new Attribute(ACDD.LAT_MAX, llbb.getUpperRightPoint().getLatitude()));
-      writer.updateAttribute(null, new Attribute(ACDD.LON_MIN, llbb.getLowerLeftPoint().getLongitude()));
-      writer.updateAttribute(null, new Attribute(ACDD.LON_MAX, llbb.getUpperRightPoint().getLongitude()));
+      for (Attribute att : makeBoundingBoxAtts())
+        writer.updateAttribute(null, att);
     }
 
     if (!noTimeCoverage) {
@@ -788,6 +942,7 @@ public abstract class CFPointWriter implements Closeable {
 
   @Override
   public void close() throws IOException {
+    if (stream != null) return;  // the caller owns the stream
     writer.close();
   }
 
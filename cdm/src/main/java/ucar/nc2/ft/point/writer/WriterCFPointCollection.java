@@ -17,6 +17,7 @@ import ucar.ma2.*;
 
 import java.util.*;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Write a CF 1.6 "Discrete Sample" point file.
@@ -41,6 +42,17 @@ public class WriterCFPointCollection extends CFPointWriter {
     writer.addGroupAttribute(null, new Attribute(CF.DSG_REPRESENTATION, "Point Data, H.1"));
   }
 
+  /**
+   * Write a netcdf3 file to a stream, one record at a time. Each record is written by writeRecord(),
+   * so nothing is held in memory or on disk. The bounding box and time coverage attributes are not written.
+   */
+  public WriterCFPointCollection(OutputStream out, List<Attribute> globalAtts, List<VariableSimpleIF> dataVars,
+                                 CalendarDateUnit timeUnit, String altUnits, CFPointWriterConfig config) throws IOException {
+    super(out, globalAtts, dataVars, timeUnit, altUnits, config);
+    writer.addGroupAttribute(null, new Attribute(CF.FEATURE_TYPE, CF.FeatureType.point.name()));
+    writer.addGroupAttribute(null, new Attribute(CF.DSG_REPRESENTATION, "Point Data, H.1"));
+  }
+
   public void writeHeader(PointFeature pf) throws IOException {
     List<VariableSimpleIF> coords = new ArrayList<>();
     coords.add(VariableSimpleImpl.makeScalar(timeName, "time of measurement", timeUnit.getUdUnit(), DataType.DOUBLE)
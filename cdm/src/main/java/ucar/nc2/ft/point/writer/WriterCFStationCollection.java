@@ -18,6 +18,7 @@ import ucar.nc2.time.CalendarDateUnit;
 import ucar.unidata.geoloc.Station;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -57,6 +58,17 @@ public class WriterCFStationCollection extends CFPointWriter {
     writer.addGroupAttribute(null, new Attribute(CF.DSG_REPRESENTATION, "Timeseries of station data in the indexed ragged array representation, H.2.5"));
   }
 
+  /**
+   * Write a netcdf3 file to a stream. The station data is written with the first record,
+   * then each record is written by writeRecord(). The time coverage attributes are not written.
+   */
+  public WriterCFStationCollection(OutputStream out, List<Attribute> atts, List<VariableSimpleIF> dataVars,
+                                   CalendarDateUnit timeUnit, String altUnits, CFPointWriterConfig config) throws IOException {
+    super(out, atts, dataVars, timeUnit, altUnits, config);
+    writer.addGroupAttribute(null, new Attribute(CF.FEATURE_TYPE, CF.FeatureType.timeSeries.name()));
+    writer.addGroupAttribute(null, new Attribute(CF.DSG_REPRESENTATION, "Timeseries of station data in the indexed ragged array representation, H.2.5"));
+  }
+
   public void writeHeader(List<StationFeature> stns, StationPointFeature spf) throws IOException {
     this.stnList = stns;
 
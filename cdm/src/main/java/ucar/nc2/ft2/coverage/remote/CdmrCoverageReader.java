@@ -28,6 +28,7 @@ import ucar.nc2.ft2.coverage.CoverageReader;
 import ucar.nc2.ft2.coverage.GeoReferencedArray;
 import ucar.nc2.ft2.coverage.SubsetParams;
 import ucar.nc2.stream.NcStream;
+import ucar.nc2.stream.NcStreamProto;
 import ucar.nc2.stream.NcStreamReader;
 
 /**
@@ -38,6 +39,16 @@ import ucar.nc2.stream.NcStreamReader;
  * @since 5/5/2015
  */
 public class CdmrCoverageReader implements CoverageReader, CoordAxisReader {
+  static private NcStreamProto.Compress compressType = NcStreamProto.Compress.NONE;
+
+  /**
+   * Ask the server to compress the data with this compression type.
+   * @param type NONE, DEFLATE, LZ4 or SHUFFLE_DEFLATE
+   */
+  static public void setCompression(NcStreamProto.Compress type) {
+    compressType = type;
+  }
+
   private Escaper urlParamEscaper = UrlEscapers.urlFormParameterEscaper();
 
   String endpoint;
@@ -68,6 +79,8 @@ public class CdmrCoverageReader implements CoverageReader, CoordAxisReader {
     Formatter f = new Formatter();
     f.format("%s?", endpoint);
     subset.encodeForCdmrfDataRequest(f, coverage.getName());
+    if (compressType != NcStreamProto.Compress.NONE)
+      f.format("&compress=%s", compressType.name().toLowerCase());
 
     if (showRequest)
       System.out.printf("CdmrFeature data request for gridCoverage: %s%n url=%s", coverage.getName(), f);
@@ -13,6 +13,7 @@ import ucar.nc2.constants.FeatureType;
 import ucar.nc2.ft2.coverage.*;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.stream.NcStream;
+import ucar.nc2.stream.NcStreamCompression;
 import ucar.nc2.stream.NcStreamDataCol;
 import ucar.nc2.stream.NcStreamProto;
 import ucar.nc2.time.Calendar;
@@ -388,7 +389,13 @@ public class CdmrfWriter {
    */
 
   public CdmrFeatureProto.CoverageDataResponse encodeDataResponse(Iterable<CoverageCoordAxis> axes,
-        Iterable<CoverageCoordSys> coordSys, Iterable<CoverageTransform> transforms, List<GeoReferencedArray> arrays, boolean deflate) {
+        Iterable<CoverageCoordSys> coordSys, Iterable<CoverageTransform> transforms, List<GeoReferencedArray> arrays, boolean deflate) throws IOException {
+    return encodeDataResponse(axes, coordSys, transforms, arrays, deflate ? NcStreamCompression.deflate() : NcStreamCompression.none());
+  }
+
+  public CdmrFeatureProto.CoverageDataResponse encodeDataResponse(Iterable<CoverageCoordAxis> axes,
+        Iterable<CoverageCoordSys> coordSys, Iterable<CoverageTransform> transforms, List<GeoReferencedArray> arrays,
+        NcStreamCompression compress) throws IOException {
 
     CdmrFeatureProto.CoverageDataResponse.Builder builder = CdmrFeatureProto.CoverageDataResponse.newBuilder();
     for (CoverageCoordAxis axis : axes)
@@ -398,12 +405,12 @@ public class CdmrfWriter {
     for (CoverageTransform t : transforms)
       builder.addCoordTransforms(encodeCoordTransform(t));
     for (GeoReferencedArray array : arrays)
-      builder.addGeoArray(encodeGeoReferencedArray(array, deflate));
+      builder.addGeoArray(encodeGeoReferencedArray(array, compress));
 
     return builder.build();
   }
 
-  public CdmrFeatureProto.GeoReferencedArray.Builder encodeGeoReferencedArray(GeoReferencedArray geoArray, boolean deflate) {
+  public CdmrFeatureProto.GeoReferencedArray.Builder encodeGeoReferencedArray(GeoReferencedArray geoArray, NcStreamCompression compress) throws IOException {
     CdmrFeatureProto.GeoReferencedArray.Builder builder = CdmrFeatureProto.GeoReferencedArray.newBuilder();
     builder.setCoverageName(geoArray.getCoverageName());
     builder.setDataType(NcStream.convertDataType(geoArray.getDataType()));
@@ -419,10 +426,12 @@ public class CdmrfWriter {
 
     builder.setCoordSysName(csys.getName());
 
-    if (deflate) {
-      builder.setCompress(NcStreamProto.Compress.DEFLATE);
-      long uncompressedSize = geoArray.getData().getSizeBytes();
-      builder.setUncompressedSize(uncompressedSize);
+    if (compress.getType() != NcStreamProto.Compress.NONE) {
+      Array data = geoArray.getData();
+      byte[] uncompressed = NcStreamDataCol.copyArrayToByteString(data).toByteArray();
+      builder.setCompress(compress.getType());
+      builder.setUncompressedSize(uncompressed.length);
+      builder.setPrimdata(ByteString.copyFrom(compress.encode(uncompressed, data.getDataType().getSize())));
 
     } else {
       builder.setPrimdata(NcStreamDataCol.copyArrayToByteString( geoArray.getData()));
@@ -7,17 +7,21 @@ package ucar.nc2.ft2.coverage.writer;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
 import ucar.ma2.Section;
 import ucar.nc2.*;
 import ucar.nc2.constants.*;
 import ucar.nc2.ft2.coverage.*;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.iosp.netcdf3.N3outputStreamWriter;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.*;
 import ucar.unidata.geoloc.projection.LatLonProjection;
 
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
+import java.util.function.LongConsumer;
 
 /**
  * Write CF Compliant Grid file from a Coverage.
@@ -56,21 +60,32 @@ public class CFGridCoverageWriter2 {
     return writer2.writeFile(gdsOrg, gridNames, subset, tryToAddLatLon2D, testSizeOnly, writer);
   }
 
+  /**
+   * Write a netcdf-3/CF file from a CoverageDataset directly to a stream, without a temporary file.
+   * The header and the variable offsets are computed from the subsetted metadata, then the data is written
+   * one variable at a time, so the first bytes go out before any coverage data has been read.
+   *
+   * @param gdsOrg            the CoverageDataset
+   * @param gridNames         the list of coverage names to be written, or null for all
+   * @param subset            defines the requested subset, or null to include everything in gdsOrg
+   * @param tryToAddLatLon2D  add 2D lat/lon coordinates, if possible
+   * @param fileSize          called with the exact size of the file in bytes, before anything is written to out;
+   *                          may be null
+   * @param out               write the file to this stream; it is flushed but not closed.
+   * @return the size of the file in bytes, or empty if the subset contains no data, in which case nothing was written
+   * @throws IOException
+   * @throws InvalidRangeException
+   */
+  public static ucar.nc2.util.Optional<Long> writeStream(CoverageCollection gdsOrg, List<String> gridNames,
+          SubsetParams subset, boolean tryToAddLatLon2D, LongConsumer fileSize, OutputStream out)
+          throws IOException, InvalidRangeException {
+    CFGridCoverageWriter2 writer2 = new CFGridCoverageWriter2();
+    return writer2.streamFile(gdsOrg, gridNames, subset, tryToAddLatLon2D, fileSize, out);
+  }
+
   private ucar.nc2.util.Optional<Long> writeFile(CoverageCollection gdsOrg, List<String> gridNames,
           SubsetParams subsetParams, boolean tryToAddLatLon2D, boolean testSizeOnly, NetcdfFileWriter writer)
           throws IOException, InvalidRangeException {
-    if (gridNames == null) {  // want all of them
-      gridNames = new LinkedList<>();
-
-      for (Coverage coverage : gdsOrg.getCoverages()) {
-        gridNames.add(coverage.getName());
-      }
-    }
-
-    if (subsetParams == null) {
-      subsetParams = new SubsetParams();
-    }
-
     if (writer == null) {
       if (testSizeOnly) {
         writer = NetcdfFileWriter.createNew(null, false);  // null location. It's ok; we'll never write the file.
@@ -79,37 +94,22 @@ public class CFGridCoverageWriter2 {
       }
     }
 
-    // We need global attributes, subsetted axes, transforms, and the coverages with attributes and referencing
-    // subsetted axes.
-    Optional<CoverageCollection> opt = CoverageSubsetter2.makeCoverageDatasetSubset(gdsOrg, gridNames, subsetParams);
+    if (subsetParams == null) {
+      subsetParams = new SubsetParams();
+    }
+
+    Optional<CoverageCollection> opt = makeSubsetMetadata(gdsOrg, gridNames, subsetParams, writer);
     if (!opt.isPresent())
       return ucar.nc2.util.Optional.empty(opt.getErrorMessage());
 
     CoverageCollection subsetDataset = opt.get();
-
-    ////////////////////////////////////////////////////////////////////
-
-    addGlobalAttributes(subsetDataset, writer);
-    addDimensions(subsetDataset, writer);
-    addCoordinateAxes(subsetDataset, writer);
-    addCoverages(subsetDataset, writer);
-    addCoordTransforms(subsetDataset, writer);
-
     boolean shouldAddLatLon2D = shouldAddLatLon2D(tryToAddLatLon2D, subsetDataset);
     if (shouldAddLatLon2D) {
       addLatLon2D(subsetDataset, writer);
     }
-
     addCFAnnotations(subsetDataset, writer, shouldAddLatLon2D);
 
-    long totalSizeOfVars = 0;
-    // This is a hack to get the root group of writer's underlying NetcdfFile. See the method's Javadoc.
-    Group rootGroup = writer.addGroup(null, null);
-
-    // In this class, we've only added vars to the root group, so this is all we need to worry about for size calc.
-    for (Variable var : rootGroup.getVariables()) {
-      totalSizeOfVars += var.getSize() * var.getElementSize();
-    }
+    long totalSizeOfVars = calcSizeOfVars(writer);
 
     if (!testSizeOnly) {
       // Actually create file and write variable data to it.
@@ -129,6 +129,124 @@ public class CFGridCoverageWriter2 {
     return Optional.of(totalSizeOfVars);
   }
 
+  private ucar.nc2.util.Optional<Long> streamFile(CoverageCollection gdsOrg, List<String> gridNames,
+          SubsetParams subsetParams, boolean tryToAddLatLon2D, LongConsumer fileSize, OutputStream out)
+          throws IOException, InvalidRangeException {
+    if (subsetParams == null) {
+      subsetParams = new SubsetParams();
+    }
+
+    // the writer is only used to build the metadata, it never creates a file
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(null, false);
+    Optional<CoverageCollection> opt = makeSubsetMetadata(gdsOrg, gridNames, subsetParams, writer);
+    if (!opt.isPresent())
+      return ucar.nc2.util.Optional.empty(opt.getErrorMessage());
+
+    CoverageCollection subsetDataset = opt.get();
+    boolean shouldAddLatLon2D = shouldAddLatLon2D(tryToAddLatLon2D, subsetDataset);
+    if (shouldAddLatLon2D) {
+      addLatLon2D(subsetDataset, writer);
+    }
+    addCFAnnotations(subsetDataset, writer, shouldAddLatLon2D);
+
+    // compute the header, and so the offset of each variable, before writing anything
+    Group rootGroup = writer.addGroup(null, null);
+    N3outputStreamWriter n3writer = new N3outputStreamWriter(rootGroup.getNetcdfFile());
+    n3writer.setLargeFile(isLargeFile(calcSizeOfVars(writer)));
+    ByteArrayOutputStream header = new ByteArrayOutputStream(10 * 1000);
+    n3writer.writeHeader(new DataOutputStream(header), 0);
+    if (fileSize != null)
+      fileSize.accept(n3writer.getFileSize());
+
+    DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out, 64 * 1000));
+    header.writeTo(stream);
+
+    // no unlimited dimension, so the variables are written in the order they are in the header
+    Map<String, Array> latlon = null;
+    for (Variable v : rootGroup.getVariables()) {
+      Array data;
+      CoverageCoordAxis axis = subsetDataset.findCoordAxis(v.getShortName());
+      Coverage coverage = subsetDataset.findCoverage(v.getShortName());
+      if (axis != null) {
+        data = axis.getCoordsAsArray();
+
+      } else if (v.getShortName().endsWith(BOUNDS) && null != (axis = findBoundsAxis(subsetDataset, v))) {
+        data = axis.getCoordBoundsAsArray();
+
+      } else if (coverage != null) {
+        data = readCoverageData(gdsOrg, subsetParams, coverage);
+
+      } else if (shouldAddLatLon2D && (v.getShortName().equals("lat") || v.getShortName().equals("lon"))) {
+        if (latlon == null) latlon = makeLatLon2D(subsetDataset);
+        data = latlon.remove(v.getShortName());
+
+      } else { // coordinate transform variables are containers for attributes, and their data is not written
+        data = makeFillArray(v);
+      }
+
+      if (show) System.out.printf("CFGridCoverageWriter2 stream %s%n", v.getNameAndDimensions());
+      n3writer.writeNonRecordData(v, stream, data);
+    }
+    stream.flush();
+
+    return Optional.of(n3writer.getFileSize());
+  }
+
+  // the file writer leaves variables that are not written filled, so do the same
+  private Array makeFillArray(Variable v) {
+    Attribute att = v.findAttribute(CDM.FILL_VALUE);
+    Number fill = (att != null && !att.isString()) ? att.getNumericValue() : N3iosp.getFillValueDefault(v.getDataType());
+    Array data = Array.factory(v.getDataType(), v.getShape());
+    MAMath.setDouble(data, fill.doubleValue());
+    return data;
+  }
+
+  private CoverageCoordAxis findBoundsAxis(CoverageCollection subsetDataset, Variable v) {
+    String axisName = v.getShortName().substring(0, v.getShortName().length() - BOUNDS.length());
+    CoverageCoordAxis axis = subsetDataset.findCoordAxis(axisName);
+    return (axis != null && axis.isInterval()) ? axis : null;
+  }
+
+  // We need global attributes, subsetted axes, transforms, and the coverages with attributes and referencing
+  // subsetted axes.
+  private ucar.nc2.util.Optional<CoverageCollection> makeSubsetMetadata(CoverageCollection gdsOrg,
+          List<String> gridNames, SubsetParams subsetParams, NetcdfFileWriter writer)
+          throws IOException, InvalidRangeException {
+    if (gridNames == null) {  // want all of them
+      gridNames = new LinkedList<>();
+
+      for (Coverage coverage : gdsOrg.getCoverages()) {
+        gridNames.add(coverage.getName());
+      }
+    }
+
+    Optional<CoverageCollection> opt = CoverageSubsetter2.makeCoverageDatasetSubset(gdsOrg, gridNames, subsetParams);
+    if (!opt.isPresent())
+      return opt;
+
+    CoverageCollection subsetDataset = opt.get();
+
+    addGlobalAttributes(subsetDataset, writer);
+    addDimensions(subsetDataset, writer);
+    addCoordinateAxes(subsetDataset, writer);
+    addCoverages(subsetDataset, writer);
+    addCoordTransforms(subsetDataset, writer);
+
+    return opt;
+  }
+
+  private long calcSizeOfVars(NetcdfFileWriter writer) {
+    long totalSizeOfVars = 0;
+    // This is a hack to get the root group of writer's underlying NetcdfFile. See the method's Javadoc.
+    Group rootGroup = writer.addGroup(null, null);
+
+    // In this class, we've only added vars to the root group, so this is all we need to worry about for size calc.
+    for (Variable var : rootGroup.getVariables()) {
+      totalSizeOfVars += var.getSize() * var.getElementSize();
+    }
+    return totalSizeOfVars;
+  }
+
   /**
    * Returns {@code true} if we should add 2D latitude & longitude variables to the output file.
    * This method could return {@code false} for several reasons:
@@ -388,28 +506,45 @@ public class CFGridCoverageWriter2 {
   private void writeCoverageData(CoverageCollection gdsOrg, SubsetParams subsetParams,
           CoverageCollection subsetDataset, NetcdfFileWriter writer) throws IOException, InvalidRangeException {
     for (Coverage coverage : subsetDataset.getCoverages()) {
-      // we need to call readData on the original
-      Coverage coverageOrg = gdsOrg.findCoverage(coverage.getName());
-      GeoReferencedArray array = coverageOrg.readData(subsetParams);
-
-      // test conform to whatever axis.getCoordsAsArray() returns
-      checkConformance(coverage, array, gdsOrg.getName());
+      Array data = readCoverageData(gdsOrg, subsetParams, coverage);
 
       Variable v = writer.findVariable(coverage.getName());
       if (show) System.out.printf("CFGridCoverageWriter2 write coverage %s%n", v.getNameAndDimensions());
-      writer.write(v, array.getData());
+      writer.write(v, data);
     }
   }
 
+  private Array readCoverageData(CoverageCollection gdsOrg, SubsetParams subsetParams, Coverage coverage)
+          throws IOException, InvalidRangeException {
+    // we need to call readData on the original
+    Coverage coverageOrg = gdsOrg.findCoverage(coverage.getName());
+    GeoReferencedArray array = coverageOrg.readData(subsetParams);
+
+    // test conform to whatever axis.getCoordsAsArray() returns
+    checkConformance(coverage, array, gdsOrg.getName());
+    return array.getData();
+  }
+
   private void writeLatLon2D(CoverageCollection subsetDataset, NetcdfFileWriter writer)
           throws IOException, InvalidRangeException {
+    Map<String, Array> latlon = makeLatLon2D(subsetDataset);
+
+    Variable latVar = writer.findVariable("lat");
+    assert latVar != null : "We should have added lat var in addLatLon2D().";
+    writer.write(latVar, latlon.get("lat"));
+
+    Variable lonVar = writer.findVariable("lon");
+    assert lonVar != null : "We should have added lon var in addLatLon2D().";
+    writer.write(lonVar, latlon.get("lon"));
+  }
+
+  // 2D lat and lon data, keyed by variable name
+  private Map<String, Array> makeLatLon2D(CoverageCollection subsetDataset) {
     HorizCoordSys horizCoordSys = subsetDataset.getHorizCoordSys();
     CoverageCoordAxis1D xAxis = horizCoordSys.getXAxis();
     CoverageCoordAxis1D yAxis = horizCoordSys.getYAxis();
 
-    Projection proj = horizCoordSys.getTransform().getProjection();
-    ProjectionPointImpl projPoint = new ProjectionPointImpl();
-    LatLonPointImpl latlonPoint = new LatLonPointImpl();
+    ProjectionImpl proj = horizCoordSys.getTransform().getProjection();
 
     double[] xData = (double[]) xAxis.getCoordsAsArray().get1DJavaArray(DataType.DOUBLE);
     double[] yData = (double[]) yAxis.getCoordsAsArray().get1DJavaArray(DataType.DOUBLE);
@@ -417,28 +552,22 @@ public class CFGridCoverageWriter2 {
     int numX = xData.length;
     int numY = yData.length;
 
-    double[] latData = new double[numX * numY];
-    double[] lonData = new double[numX * numY];
-
-    // create the data
+    // create the data, converting all the points in one call
+    double[][] projData = new double[2][numX * numY];
     for (int i = 0; i < numY; i++) {
       for (int j = 0; j < numX; j++) {
-        projPoint.setLocation(xData[j], yData[i]);
-        proj.projToLatLon(projPoint, latlonPoint);
-        latData[i * numX + j] = latlonPoint.getLatitude();
-        lonData[i * numX + j] = latlonPoint.getLongitude();
+        projData[ProjectionImpl.INDEX_X][i * numX + j] = xData[j];
+        projData[ProjectionImpl.INDEX_Y][i * numX + j] = yData[i];
       }
     }
-
-    Variable latVar = writer.findVariable("lat");
-    assert latVar != null : "We should have added lat var in addLatLon2D().";
-    Array latDataArray = Array.factory(DataType.DOUBLE, new int[] { numY, numX }, latData);
-    writer.write(latVar, latDataArray);
-
-    Variable lonVar = writer.findVariable("lon");
-    assert lonVar != null : "We should have added lon var in addLatLon2D().";
-    Array lonDataArray = Array.factory(DataType.DOUBLE, new int[] { numY, numX }, lonData);
-    writer.write(lonVar, lonDataArray);
+    double[][] latlonData = proj.projToLatLonParallel(projData, new double[2][projData[0].length]);
+    double[] latData = latlonData[ProjectionImpl.INDEX_LAT];
+    double[] lonData = latlonData[ProjectionImpl.INDEX_LON];
+
+    Map<String, Array> result = new HashMap<>();
+    result.put("lat", Array.factory(DataType.DOUBLE, new int[] { numY, numX }, latData));
+    result.put("lon", Array.factory(DataType.DOUBLE, new int[] { numY, numX }, lonData));
+    return result;
   }
 
   private void checkConformance(Coverage gridSubset, GeoReferencedArray geo, String where) {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import com.google.common.cache.*;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of decompressed chunks of filtered HDF5 / netCDF-4 variables.
+ * Keyed by file, variable and chunk offset, so repeated or overlapping reads of the same chunk (eg a time series
+ * read station by station) are not read and inflated again. When all the chunks of a read are in the cache, the
+ * chunk btree is not used at all.
+ * <p>
+ * Each open file may have its own cache, which goes away when the file is closed, or all files may share a
+ * default cache, which stays around. The size is bounded by the number of bytes of data held, not the number of chunks.
+ * The per-file caches are also bounded all together: once they hold allFilesMaxBytes, chunks are not added to any
+ * of them until some are evicted or their files are closed.
+ * Uses a guava cache, so eviction is approximately LRU.
+ * <p>
+ * The chunk arrays are shared, and must not be modified.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class H5ChunkCache {
+  static private H5ChunkCache defaultCache;  // null means turned off
+  static private long perFileMaxBytes;       // 0 means no per-file cache
+  static private long allFilesMaxBytes;      // bound on the bytes of all per-file caches together
+  static private final AtomicLong allFilesBytes = new AtomicLong();
+
+  /**
+   * Turn on the cache shared by all files. Only used when there is no per-file cache.
+   * @param maxBytes maximum number of bytes of data to keep; if <= 0, turn the cache off
+   */
+  static public synchronized void initDefaultCache(long maxBytes) {
+    if (defaultCache != null)
+      defaultCache.clearCache();
+    defaultCache = (maxBytes > 0) ? new H5ChunkCache(maxBytes) : null;
+  }
+
+  /** @return the shared cache, or null if it is turned off */
+  static public H5ChunkCache getDefaultCache() {
+    return defaultCache;
+  }
+
+  /**
+   * Give each HDF5 file opened from now on its own cache.
+   * @param maxBytes maximum number of bytes of data to keep for each file; if <= 0, no per-file cache.
+   * @param allFilesMaxBytes maximum number of bytes of data to keep in all the per-file caches together.
+   */
+  static public synchronized void setPerFileMaxBytes(long maxBytes, long allFilesMaxBytes) {
+    H5ChunkCache.perFileMaxBytes = Math.max(0, maxBytes);
+    H5ChunkCache.allFilesMaxBytes = Math.max(0, allFilesMaxBytes);
+  }
+
+  /** @return the number of bytes held by all the per-file caches */
+  static public long getAllFilesBytes() {
+    return allFilesBytes.get();
+  }
+
+  static public synchronized void shutdown() {
+    initDefaultCache(0);
+    setPerFileMaxBytes(0, 0);
+  }
+
+  // the cache to use for a newly opened file, may be null
+  static synchronized H5ChunkCache makeFileCache() {
+    return (perFileMaxBytes > 0) ? new H5ChunkCache(perFileMaxBytes, allFilesBytes, allFilesMaxBytes) : defaultCache;
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final Cache<Key, byte[]> cache;
+  private final long maxBytes;
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong shared;  // bytes of all caches that share a bound with this one, may be null
+  private final long sharedMaxBytes;
+  private final AtomicLong notAdded = new AtomicLong(); // chunks not added because of the shared bound
+
+  public H5ChunkCache(long maxBytes) {
+    this(maxBytes, null, 0);
+  }
+
+  private H5ChunkCache(long maxBytes, AtomicLong shared, long sharedMaxBytes) {
+    this.maxBytes = maxBytes;
+    this.shared = shared;
+    this.sharedMaxBytes = sharedMaxBytes;
+    this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Weigher<Key, byte[]>) (key, value) -> value.length)
+            .removalListener((RemovalListener<Key, byte[]>) removal -> {
+              int len = removal.getValue().length;
+              bytes.addAndGet(-len);
+              if (shared != null) shared.addAndGet(-len);
+            })
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Find a decompressed chunk.
+   * @param fileKey identifies the file
+   * @param varName variable full name
+   * @param offset chunk offset, in the chunk dimensions
+   * @return the chunk data, or null if not in the cache. Do not modify.
+   */
+  public byte[] get(String fileKey, String varName, int[] offset) {
+    return cache.getIfPresent(new Key(fileKey, varName, offset));
+  }
+
+  /**
+   * Add a decompressed chunk. The data is kept, and must not be modified afterwards.
+   * @param fileKey identifies the file
+   * @param varName variable full name
+   * @param offset chunk offset, in the chunk dimensions
+   * @param data the chunk data
+   */
+  public void put(String fileKey, String varName, int[] offset, byte[] data) {
+    if (shared != null && !reserve(data.length)) {
+      notAdded.incrementAndGet();
+      return;
+    }
+    bytes.addAndGet(data.length);
+    cache.put(new Key(fileKey, varName, offset.clone()), data);
+  }
+
+  private boolean reserve(int len) {
+    while (true) {
+      long current = shared.get();
+      if (current + len > sharedMaxBytes)
+        return false;
+      if (shared.compareAndSet(current, current + len))
+        return true;
+    }
+  }
+
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showCache(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("H5ChunkCache: chunks=%d bytes=%d maxBytes=%d%n", cache.size(), bytes.get(), maxBytes);
+    if (shared != null)
+      f.format("  all files bytes=%d maxBytes=%d notAdded=%d%n", shared.get(), sharedMaxBytes, notAdded.get());
+    f.format("  hits=%d misses=%d hitRate=%.3f evictions=%d%n", stats.hitCount(), stats.missCount(), stats.hitRate(),
+            stats.evictionCount());
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private static class Key {
+    final String fileKey;
+    final String varName;
+    final int[] offset;
+
+    Key(String fileKey, String varName, int[] offset) {
+      this.fileKey = fileKey;
+      this.varName = varName;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return Arrays.equals(offset, key.offset) && varName.equals(key.varName) && fileKey.equals(key.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = fileKey.hashCode();
+      result = 31 * result + varName.hashCode();
+      result = 31 * result + Arrays.hashCode(offset);
+      return result;
+    }
+  }
+}
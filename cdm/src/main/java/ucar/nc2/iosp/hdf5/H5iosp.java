@@ -90,18 +90,42 @@ public class H5iosp extends AbstractIOServiceProvider {
     useHdfEos = val;
   }
 
+  /**
+   * Decompress the chunks of filtered (eg deflated) variables in parallel, using the given executor.
+   * Off by default.
+   *
+   * @param exec shared executor, or null to decompress on the calling thread
+   * @param maxThreadsPerRequest maximum number of chunks decompressed at the same time by any one read
+   */
+  public static void setChunkExecutor(java.util.concurrent.ExecutorService exec, int maxThreadsPerRequest) {
+    H5tiledLayoutBB.setExecutor(exec, maxThreadsPerRequest);
+  }
+
+  /** Show the number of chunks read and decompressed since startup, or the last reset. */
+  public static void showChunkStats(Formatter f) {
+    H5tiledLayoutBB.showStats(f);
+  }
+
+  public static void resetChunkStats() {
+    H5tiledLayoutBB.resetStats();
+  }
+
   //////////////////////////////////////////////////////////////////////////////////
 
   //private RandomAccessFile raf;
   private H5header headerParser;
   private boolean isEos;
   boolean includeOriginalAttributes = false;
+  private H5ChunkCache chunkCache;  // decompressed chunks, may be null
+  private String chunkCacheKey;     // identifies this file in the chunkCache
 
   /////////////////////////////////////////////////////////////////////////////
   // reading
 
   public void open(RandomAccessFile raf, ucar.nc2.NetcdfFile ncfile, ucar.nc2.util.CancelTask cancelTask) throws IOException {
     super.open(raf, ncfile, cancelTask);
+    chunkCache = H5ChunkCache.makeFileCache();
+    chunkCacheKey = raf.getLocation() + "#" + raf.getLastModified();
     headerParser = new H5header(this.raf, ncfile, this);
     headerParser.read(null);
 
@@ -138,7 +162,7 @@ public class H5iosp extends AbstractIOServiceProvider {
       if (debugFilter) System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = (vinfo.typeInfo.endian == 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
+      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo, chunkCache, chunkCacheKey);
       if (vinfo.typeInfo.isVString) {
         data = readFilteredStringData((LayoutBB) layout);
       } else{
@@ -559,6 +583,8 @@ public class H5iosp extends AbstractIOServiceProvider {
   public void close() throws IOException {
     super.close();
     headerParser.close();
+    if (chunkCache != null && chunkCache != H5ChunkCache.getDefaultCache())
+      chunkCache.clearCache(); // per-file cache
   }
 
   @Override
@@ -567,6 +593,11 @@ public class H5iosp extends AbstractIOServiceProvider {
     headerParser.raf = this.raf;
   }
 
+  // for testing
+  H5ChunkCache getChunkCache() {
+    return chunkCache;
+  }
+
   @Override
   public String toStringDebug(Object o) {
     if (o instanceof Variable) {
@@ -15,11 +15,15 @@ import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.util.IO;
 import ucar.unidata.io.RandomAccessFile;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -37,6 +41,44 @@ class H5tiledLayoutBB implements LayoutBB {
 
   static public boolean debugFilter = false;
 
+  // parallel decompression of the chunks of one read; default is to decompress serially on the calling thread
+  static private ExecutorService executor;
+  static private int maxThreadsPerRequest = 1;
+
+  // each executor thread keeps its own Inflater, instead of making one per chunk.
+  // a chunk read on the calling thread (executor rejected it) uses its own Inflater, which is ended right away.
+  static private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+  // stats
+  static private final AtomicLong chunksRead = new AtomicLong();
+  static private final AtomicLong bytesRead = new AtomicLong();
+  static private final AtomicLong bytesInflated = new AtomicLong();
+
+  /**
+   * Read and decompress the chunks of a single read in parallel, using the given executor.
+   * Chunks are read with RandomAccessFile.readAt() and decompressed ahead of the LayoutBB iteration,
+   * at most 2 * maxThreads at a time, and returned in order.
+   *
+   * @param exec shared executor, or null to decompress serially (default)
+   * @param maxThreads maximum number of chunks decompressed at the same time by any one read
+   */
+  static void setExecutor(ExecutorService exec, int maxThreads) {
+    executor = exec;
+    maxThreadsPerRequest = Math.max(1, maxThreads);
+  }
+
+  static void showStats(Formatter f) {
+    f.format("H5tiledLayoutBB %s: chunks read=%d bytes read=%d bytes inflated=%d%n",
+            (executor == null) ? "(serial)" : "(parallel, maxThreadsPerRequest=" + maxThreadsPerRequest + ")",
+            chunksRead.get(), bytesRead.get(), bytesInflated.get());
+  }
+
+  static void resetStats() {
+    chunksRead.set(0);
+    bytesRead.set(0);
+    bytesInflated.set(0);
+  }
+
   private LayoutBBTiled delegate;
 
   private RandomAccessFile raf;
@@ -52,6 +94,15 @@ class H5tiledLayoutBB implements LayoutBB {
 
   private int inflatebuffersize = DEFAULTZIPBUFFERSIZE;
 
+  // decompressed chunk cache, may be null
+  private H5ChunkCache chunkCache;
+  private String cacheFileKey;
+  private String varName;
+
+  // parallel only
+  private int chunkBytes;  // expected size of an unfiltered chunk, or 0 if too big for a byte array
+  private BlockingQueue<byte[]> bufferPool;  // reused buffers of chunkBytes
+
   /**
    * Constructor.
    * This is for HDF5 chunked data storage. The data is read by chunk, for efficency.
@@ -60,10 +111,13 @@ class H5tiledLayoutBB implements LayoutBB {
    * @param wantSection the wanted section of data, contains a List of Range objects. must be complete
    * @param raf the RandomAccessFile
    * @param filters set of filters that have been applied to the data
+   * @param chunkCache cache of decompressed chunks, may be null
+   * @param cacheFileKey identifies this file in the chunkCache
    * @throws InvalidRangeException if section invalid for this variable
    * @throws java.io.IOException   on io error
    */
-  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder) throws InvalidRangeException, IOException
+  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder,
+                  H5ChunkCache chunkCache, String cacheFileKey) throws InvalidRangeException, IOException
   {
     wantSection = Section.fill(wantSection, v2.getShape());
 
@@ -74,6 +128,9 @@ class H5tiledLayoutBB implements LayoutBB {
     this.raf = raf;
     this.filters = filters;
     this.byteOrder = byteOrder;
+    this.chunkCache = chunkCache;
+    this.cacheFileKey = cacheFileKey;
+    this.varName = v2.getFullName();
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, reletive
@@ -91,8 +148,21 @@ class H5tiledLayoutBB implements LayoutBB {
     this.elemSize = vinfo.storageSize[vinfo.storageSize.length - 1]; // last one is always the elements size
 
     // create the data chunk iterator
-    DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
-    DataChunkIterator dcIter = new DataChunkIterator(iter);
+    LayoutBBTiled.DataChunkIterator dcIter = (chunkCache == null) ? null : findCachedChunks();
+    ExecutorService exec = executor;
+    if (dcIter != null) {
+      // all chunks are in the cache, dont need the btree
+    } else if (exec != null && maxThreadsPerRequest > 1) {
+      DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
+      long nbytes = 1;
+      for (int size : vinfo.storageSize) nbytes *= size;
+      this.chunkBytes = (nbytes <= DataChunk.MAX_ARRAY_LEN) ? (int) nbytes : 0;
+      this.bufferPool = new ArrayBlockingQueue<>(2 * maxThreadsPerRequest + 2);
+      dcIter = new PrefetchDataChunkIterator(iter, exec, 2 * maxThreadsPerRequest);
+    } else {
+      DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
+      dcIter = new DataChunkIterator(iter);
+    }
     delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
 
     if(System.getProperty(INFLATEBUFFERSIZE) != null)  {
@@ -141,6 +211,368 @@ class H5tiledLayoutBB implements LayoutBB {
     return sbuff.toString();
   }
 
+  /**
+   * inflate data
+   *
+   * @param compressed compressed data
+   * @param inflatebuffersize size of the InflaterInputStream buffer
+   * @return uncompressed data
+   * @throws IOException on I/O error
+   */
+  static byte[] inflate(byte[] compressed, int inflatebuffersize) throws IOException {
+    // run it through the Inflator
+    ByteArrayInputStream in = new ByteArrayInputStream(compressed);
+    java.util.zip.Inflater inflater = new java.util.zip.Inflater();
+    java.util.zip.InflaterInputStream inflatestream
+      = new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
+    int len = Math.min(8 * compressed.length, DataChunk.MAX_ARRAY_LEN);
+    ByteArrayOutputStream out = new ByteArrayOutputStream(len); // Fixes KXL-349288
+    IO.copyB(inflatestream, out, len);
+    return out.toByteArray();
+  }
+
+  /**
+   * undo the HDF5 shuffle filter
+   *
+   * @param data shuffled data
+   * @param n element size in bytes
+   * @return unshuffled data
+   */
+  static byte[] shuffle(byte[] data, int n) {
+    assert data.length % n == 0;
+    if (n <= 1) return data;
+    return shuffle(data, n, new byte[data.length]);
+  }
+
+  // undo the shuffle filter into result, which must be the same length as data
+  static byte[] shuffle(byte[] data, int n, byte[] result) {
+    int m = data.length / n;
+    int[] count = new int[n];
+    for (int k = 0; k < n; k++) count[k] = k * m;
+
+    /* for (int i = 0; i < data.length; i += n) {
+      for (int k = 0; k < n; k++) {
+        result[count[k]++] = data[i + k];
+      }
+    } */
+
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        result[i*n+j] = data[i + count[j]];
+      }
+    }
+
+    return result;
+  }
+
+  static private boolean isBitSet(int val, int bitno) {
+    return ((val >>> bitno) & 1) != 0;
+  }
+
+  // the offset of this chunk, in the chunk dimensions
+  private int[] getChunkOffset(DataBTree.DataChunk dc) {
+    int[] offset = dc.offset;
+    if (offset.length > nChunkDims) { // may have to eliminate last offset
+      offset = new int[nChunkDims];
+      System.arraycopy(dc.offset, 0, offset, 0, nChunkDims);
+    }
+    return offset;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // chunk cache
+
+  private byte[] getCached(int[] offset) {
+    return (chunkCache == null) ? null : chunkCache.get(cacheFileKey, varName, offset);
+  }
+
+  private void putCached(int[] offset, byte[] data) {
+    if (chunkCache != null)
+      chunkCache.put(cacheFileKey, varName, offset, data);
+  }
+
+  private ByteBuffer wrap(byte[] data) {
+    ByteBuffer result = ByteBuffer.wrap(data);
+    result.order(byteOrder);
+    return result;
+  }
+
+  // If every chunk intersecting want is in the cache, return an iterator over them, in the same order as the btree.
+  // Otherwise return null. Chunks are on a regular grid, so the offsets can be computed without the btree.
+  private LayoutBBTiled.DataChunkIterator findCachedChunks() {
+    int[] first = new int[nChunkDims];
+    int[] last = new int[nChunkDims];
+    for (int i = 0; i < nChunkDims; i++) {
+      first[i] = (want.getRange(i).first() / chunkSize[i]) * chunkSize[i];
+      last[i] = want.getRange(i).last();
+    }
+
+    List<LayoutBBTiled.DataChunk> chunks = new ArrayList<>();
+    int[] offset = first.clone();
+    while (true) {
+      if (intersectsWant(offset)) { // strided sections may skip some chunks
+        byte[] data = getCached(offset);
+        if (data == null) return null;
+        chunks.add(new CachedDataChunk(offset.clone(), data));
+      }
+
+      // odometer, last dimension varies fastest
+      int dim = nChunkDims - 1;
+      while (dim >= 0) {
+        offset[dim] += chunkSize[dim];
+        if (offset[dim] <= last[dim]) break;
+        offset[dim] = first[dim];
+        dim--;
+      }
+      if (dim < 0) break;
+    }
+
+    Iterator<LayoutBBTiled.DataChunk> iter = chunks.iterator();
+    return new LayoutBBTiled.DataChunkIterator() {
+      public boolean hasNext() {
+        return iter.hasNext();
+      }
+
+      public LayoutBBTiled.DataChunk next() {
+        return iter.next();
+      }
+    };
+  }
+
+  private boolean intersectsWant(int[] offset) {
+    try {
+      return new Section(offset, chunkSize).intersects(want);
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private class CachedDataChunk implements LayoutBBTiled.DataChunk {
+    private final int[] offset;
+    private final byte[] data;
+
+    CachedDataChunk(int[] offset, byte[] data) {
+      this.offset = offset;
+      this.data = data;
+    }
+
+    public int[] getOffset() {
+      return offset;
+    }
+
+    public ByteBuffer getByteBuffer() {
+      return wrap(data);
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // parallel
+
+  private byte[] takeBuffer() {
+    byte[] b = bufferPool.poll();
+    return (b != null) ? b : new byte[chunkBytes];
+  }
+
+  private void recycle(byte[] b) {
+    if (b != null && chunkBytes > 0 && b.length == chunkBytes)
+      bufferPool.offer(b);
+  }
+
+  // Runs in an executor thread, so must not use the raf file position, only readAt().
+  // Same filters as DataChunk.getByteBuffer(). Intermediate buffers go back to the pool.
+  private byte[] readAndFilter(DataBTree.DataChunk dc, boolean onWorker) throws IOException {
+    ByteBuffer raw = (dc.size == chunkBytes) ? ByteBuffer.wrap(takeBuffer()) : ByteBuffer.allocate(dc.size);
+    int n = raf.readAt(dc.filePos, raw);
+    if (n < dc.size)
+      throw new EOFException("HDF5 chunk at " + dc.filePos + " size=" + dc.size + " only read " + n + " bytes");
+    chunksRead.incrementAndGet();
+    bytesRead.addAndGet(dc.size);
+    byte[] data = raw.array();
+
+    // apply filters backwards
+    for (int i = filters.length - 1; i >= 0; i--) {
+      H5header.Filter f = filters[i];
+      if (isBitSet(dc.filterMask, i))
+        continue;
+      byte[] result;
+      if (f.id == 1) {
+        result = inflatePooled(data, onWorker);
+        bytesInflated.addAndGet(result.length);
+      } else if (f.id == 2) {
+        if (f.data[0] <= 1) continue;
+        result = (data.length == chunkBytes) ? takeBuffer() : new byte[data.length];
+        shuffle(data, f.data[0], result);
+      } else if (f.id == 3) {
+        result = Arrays.copyOf(data, data.length - 4); // strip off the fletcher32 checksum
+      } else
+        throw new RuntimeException("Unknown filter type=" + f.id);
+      recycle(data);
+      data = result;
+    }
+    return data;
+  }
+
+  // Inflate directly into a pooled buffer when the uncompressed size is as expected.
+  // Truncated input is an EOFException, as from the InflaterInputStream used by inflate().
+  private byte[] inflatePooled(byte[] compressed, boolean onWorker) throws IOException {
+    if (chunkBytes == 0)
+      return inflate(compressed, inflatebuffersize);
+
+    Inflater inflater = onWorker ? inflaters.get() : new Inflater();
+    inflater.reset();
+    inflater.setInput(compressed);
+    byte[] out = takeBuffer();
+    int n = 0;
+    try {
+      while (n < out.length && !inflater.finished()) {
+        int count = inflater.inflate(out, n, out.length - n);
+        if (count == 0 && inflater.needsDictionary())
+          throw new ZipException("HDF5 chunk needs a preset dictionary");
+        if (count == 0 && inflater.needsInput())
+          throw new EOFException("Unexpected end of ZLIB input stream");
+        n += count;
+      }
+      if (n == out.length && !inflater.finished() && inflater.inflate(new byte[1]) > 0) {
+        recycle(out);  // bigger than expected, do it the general way
+        return inflate(compressed, inflatebuffersize);
+      }
+    } catch (DataFormatException e) {
+      recycle(out);
+      throw new ZipException(e.getMessage());
+    } catch (IOException e) {
+      recycle(out);
+      throw e;
+    } finally {
+      if (!onWorker)
+        inflater.end();
+    }
+
+    if (n < out.length) {
+      byte[] result = Arrays.copyOf(out, n);
+      recycle(out);
+      return result;
+    }
+    return out;
+  }
+
+  // Walks the btree on the calling thread, and submits the chunks that intersect want to the executor, up to
+  // maxAhead at a time. Stops once the submitted chunks cover want, so no unneeded chunks are read.
+  private class PrefetchDataChunkIterator implements LayoutBBTiled.DataChunkIterator {
+    private final DataBTree.DataChunkIterator delegate;
+    private final ExecutorService exec;
+    private final int maxAhead;
+    private final long wantNelems;
+    private final ArrayDeque<PrefetchDataChunk> ahead = new ArrayDeque<>();
+    private long nelemsAhead; // number of wanted elements in the chunks submitted so far
+    private byte[] current;   // data of the chunk being used by LayoutBBTiled; back to the pool when done
+
+    PrefetchDataChunkIterator(DataBTree.DataChunkIterator delegate, ExecutorService exec, int maxAhead) {
+      this.delegate = delegate;
+      this.exec = exec;
+      this.maxAhead = maxAhead;
+      this.wantNelems = want.computeSize();
+    }
+
+    private void fill() throws IOException {
+      while (ahead.size() < maxAhead && nelemsAhead < wantNelems && delegate.hasNext()) {
+        DataBTree.DataChunk dc = delegate.next();
+        try {
+          Section dataSection = new Section(getChunkOffset(dc), chunkSize);
+          if (!dataSection.intersects(want))
+            continue;
+          nelemsAhead += dataSection.intersect(want).computeSize();
+        } catch (InvalidRangeException e) {
+          throw new IllegalStateException(e);
+        }
+        PrefetchDataChunk pdc = new PrefetchDataChunk(dc);
+        pdc.cached = getCached(pdc.getOffset());
+        if (pdc.cached != null) {
+          ahead.add(pdc);
+          continue;
+        }
+        try {
+          pdc.future = exec.submit(() -> readAndFilter(dc, true));
+        } catch (RejectedExecutionException e) {
+          H5iosp.log.debug("H5tiledLayoutBB executor rejected task, reading chunk on calling thread");
+        }
+        ahead.add(pdc);
+      }
+    }
+
+    public boolean hasNext() {
+      try {
+        fill();
+      } catch (IOException | RuntimeException e) {
+        cancel();
+        throw (e instanceof RuntimeException) ? (RuntimeException) e : new IllegalStateException(e);
+      }
+      return !ahead.isEmpty();
+    }
+
+    public LayoutBBTiled.DataChunk next() throws IOException {
+      try {
+        fill();
+      } catch (IOException | RuntimeException e) {
+        cancel();
+        throw e;
+      }
+      recycle(current);
+      current = null;
+      return ahead.remove();
+    }
+
+    // the read failed, so the chunks read ahead are not needed. Ones already being read are left to finish.
+    private void cancel() {
+      for (PrefetchDataChunk pdc : ahead) {
+        if (pdc.future != null)
+          pdc.future.cancel(false);
+      }
+      ahead.clear();
+    }
+
+    private class PrefetchDataChunk extends DataChunk {
+      byte[] cached;          // found in the chunk cache
+      Future<byte[]> future;  // null if cached or it was rejected
+
+      PrefetchDataChunk(DataBTree.DataChunk delegate) {
+        super(delegate);
+      }
+
+      @Override
+      public ByteBuffer getByteBuffer() throws IOException {
+        if (cached != null)
+          return wrap(cached);
+
+        byte[] data;
+        try {
+          data = (future == null) ? readAndFilter(delegate, false) : future.get();
+        } catch (InterruptedException e) {
+          cancel();
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("interrupted waiting for HDF5 chunk");
+        } catch (ExecutionException e) {
+          cancel();
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) throw (IOException) cause;
+          if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+          if (cause instanceof Error) throw (Error) cause;
+          throw new IOException(cause);
+        } catch (IOException | RuntimeException e) {
+          cancel();
+          throw e;
+        }
+        if (chunkCache != null)
+          putCached(getOffset(), data);  // now shared, so dont recycle
+        else
+          current = data;
+        return wrap(data);
+      }
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+  // serial
+
   private class DataChunkIterator implements LayoutBBTiled.DataChunkIterator {
     DataBTree.DataChunkIterator delegate;
 
@@ -188,20 +620,21 @@ class H5tiledLayoutBB implements LayoutBB {
     }
 
     public int[] getOffset() {
-      int[] offset = delegate.offset;
-      if (offset.length > nChunkDims) { // may have to eliminate last offset
-        offset = new int[nChunkDims];
-        System.arraycopy(delegate.offset, 0, offset, 0, nChunkDims);
-      }
-      return offset;
+      return getChunkOffset(delegate);
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      byte[] cached = getCached(getOffset());
+      if (cached != null)
+        return wrap(cached);
+
       try {
         // read the data
         byte[] data = new byte[delegate.size];
         raf.seek(delegate.filePos);
         raf.readFully(data);
+        chunksRead.incrementAndGet();
+        bytesRead.addAndGet(data.length);
 
       // apply filters backwards
       for (int i = filters.length - 1; i >= 0; i--) {
@@ -222,9 +655,8 @@ class H5tiledLayoutBB implements LayoutBB {
           throw new RuntimeException("Unknown filter type="+f.id);
       }
 
-        ByteBuffer result = ByteBuffer.wrap(data);
-        result.order(byteOrder);
-        return result;
+        putCached(getOffset(), data);
+        return wrap(data);
       } catch (OutOfMemoryError e) {
         Error oom =  new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the " +
                 "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
@@ -233,24 +665,9 @@ class H5tiledLayoutBB implements LayoutBB {
       }
     }
 
-    /**
-     * inflate data
-     *
-     * @param compressed compressed data
-     * @return uncompressed data
-     * @throws IOException on I/O error
-     */
     private byte[] inflate(byte[] compressed) throws IOException {
-      // run it through the Inflator
-      ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-      java.util.zip.Inflater inflater = new java.util.zip.Inflater();
-      java.util.zip.InflaterInputStream inflatestream
-        = new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
-      int len = Math.min(8 * compressed.length, MAX_ARRAY_LEN);
-      ByteArrayOutputStream out = new ByteArrayOutputStream(len); // Fixes KXL-349288
-      IO.copyB(inflatestream, out, len);
-
-      byte[] uncomp = out.toByteArray();
+      byte[] uncomp = H5tiledLayoutBB.inflate(compressed, inflatebuffersize);
+      bytesInflated.addAndGet(uncomp.length);
       if (debug || debugFilter)
         System.out.println(" inflate bytes in= " + compressed.length + " bytes out= " + uncomp.length);
       return uncomp;
@@ -287,32 +704,7 @@ class H5tiledLayoutBB implements LayoutBB {
 
     private byte[] shuffle(byte[] data, int n) throws IOException {
       if (debug) System.out.println(" shuffle bytes in= " + data.length + " n= " + n);
-
-      assert data.length % n == 0;
-      if (n <= 1) return data;
-
-      int m = data.length / n;
-      int[] count = new int[n];
-      for (int k = 0; k < n; k++) count[k] = k * m;
-
-      byte[] result = new byte[data.length];
-      /* for (int i = 0; i < data.length; i += n) {
-        for (int k = 0; k < n; k++) {
-          result[count[k]++] = data[i + k];
-        }
-      } */
-
-      for (int i = 0; i < m; i++) {
-        for (int j = 0; j < n; j++) {
-          result[i*n+j] = data[i + count[j]];
-        }
-      }
-
-      return result;
-    }
-
-    boolean isBitSet(int val, int bitno) {
-      return ((val >>> bitno) & 1) != 0;
+      return H5tiledLayoutBB.shuffle(data, n);
     }
 
   }
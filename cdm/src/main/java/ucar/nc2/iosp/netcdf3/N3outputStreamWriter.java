@@ -9,9 +9,11 @@ package ucar.nc2.iosp.netcdf3;
 
 import ucar.ma2.*;
 import ucar.nc2.*;
+import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.IospHelper;
 
 import java.util.List;
+import java.util.Map;
 import java.io.IOException;
 import java.io.DataOutputStream;
 import java.io.FileOutputStream;
@@ -123,6 +125,63 @@ public class N3outputStreamWriter extends N3streamWriter {
     recno++;
   }
 
+  /**
+   * Write the next record, taking the values from a map instead of reading the variables.
+   * Use with writeHeader(stream, -1) to write a "streaming" file, where the number of records is not known
+   * until the end, and is found by readers from the length of the file.
+   *
+   * @param stream write to this stream.
+   * @param data   values of the record variables for this record, without the record dimension.
+   *               A record variable that is missing is written with its fill value.
+   * @throws IOException if write fails
+   */
+  public void writeRecordData(DataOutputStream stream, Map<Variable, Array> data) throws IOException {
+    long want = recStart + ((long) recno) * recSize;
+    if (debugWriteData) System.out.println("Write record at filePos= " + filePos + " should be= " + want);
+    if (filePos != want) throw new IllegalStateException();
+
+    for (Vinfo vinfo : vinfoList) {
+      if (!vinfo.isRecord) continue;
+      Variable v = vinfo.v;
+      long size = vinfo.vsize - vinfo.pad;
+
+      Array values = data.get(v);
+      long nbytes = (values == null) ? 0 : writeData(v, stream, values);
+      if (nbytes > size)
+        throw new IllegalStateException("record variable " + v.getFullName() + " has " + nbytes + " bytes, must be " + size);
+      if (nbytes < size)
+        writeFill(v, stream, (size - nbytes) / v.getElementSize());
+      if (vinfo.pad > 0) {
+        byte[] dummy = new byte[vinfo.pad];
+        stream.write(dummy);
+      }
+      filePos += vinfo.vsize;
+    }
+
+    recno++;
+  }
+
+  private void writeFill(Variable v, DataOutputStream stream, long n) throws java.io.IOException {
+    Attribute att = v.findAttribute(CDM.FILL_VALUE);
+    Number fill = (att != null && !att.isString()) ? att.getNumericValue() : N3iosp.getFillValueDefault(v.getDataType());
+    DataType dataType = v.getDataType();
+
+    for (long i = 0; i < n; i++) {
+      if ((dataType == DataType.BYTE) || (dataType == DataType.CHAR))
+        stream.write(fill.byteValue());
+      else if (dataType == DataType.SHORT)
+        stream.writeShort(fill.shortValue());
+      else if (dataType == DataType.INT)
+        stream.writeInt(fill.intValue());
+      else if (dataType == DataType.FLOAT)
+        stream.writeFloat(fill.floatValue());
+      else if (dataType == DataType.DOUBLE)
+        stream.writeDouble(fill.doubleValue());
+      else
+        throw new IllegalStateException("dataType= " + dataType);
+    }
+  }
+
   /////////////////////////////////////////////
 
 
@@ -24,20 +24,41 @@ import java.io.DataOutputStream;
  * @author john
  */
 public abstract class N3streamWriter {
+  static private final long MAX_UNSIGNED_INT = 0x00000000ffffffffL;
 
   ////////////////////////////////////////////////////////////////////////////////////////////////////////
   protected ucar.nc2.NetcdfFile ncfile;
   protected Map<Variable,Vinfo> vinfoMap = new HashMap<Variable,Vinfo>();
   protected List<Vinfo> vinfoList = new ArrayList<Vinfo>(); // output order of the variables
-  protected boolean debug=false, debugPos=true, debugWriteData = false;
-  protected int recStart, recSize;
+  protected boolean debug=false, debugPos=false, debugWriteData = false;
+  protected long recStart, recSize;
   protected boolean usePadding = true;
+  protected boolean largeFile = false;
   protected long filePos = 0;
 
   protected N3streamWriter(ucar.nc2.NetcdfFile ncfile) {
     this.ncfile = ncfile;
   }
 
+  /**
+   * Use the 64-bit offset format, needed when the file is larger than 2 Gbytes. Call before writeHeader().
+   *
+   * @param largeFile if large file format
+   */
+  public void setLargeFile(boolean largeFile) {
+    this.largeFile = largeFile;
+  }
+
+  /**
+   * The size of the file, known once the header has been written.
+   * With an unlimited dimension, this is the size with no records.
+   *
+   * @return the size of the header plus the data of the non-record variables
+   */
+  public long getFileSize() {
+    return recStart;
+  }
+
   /**
    * Write the header to a stream.
    *
@@ -51,7 +72,7 @@ public abstract class N3streamWriter {
     ncfile.finish();
 
     // magic number
-    stream.write(N3header.MAGIC);
+    stream.write(largeFile ? N3header.MAGIC_LONG : N3header.MAGIC);
     int count = N3header.MAGIC.length;
 
     // numrecs
@@ -118,7 +139,7 @@ public abstract class N3streamWriter {
 
     // now calculate where things go
     int dataStart = count; // data starts right after the header
-    int offset = dataStart; // track data offset
+    long offset = dataStart; // track data offset
     if (debug) System.out.println(" non-record vars start at "+dataStart);
 
     // do all non-record variables first
@@ -163,12 +184,12 @@ public abstract class N3streamWriter {
     if (debugPos) System.out.println("header written filePos= " + filePos+" recsize= "+recSize);
   }
 
-  private Vinfo writeVar(DataOutputStream stream, Variable var, int offset) throws IOException {
+  private Vinfo writeVar(DataOutputStream stream, Variable var, long offset) throws IOException {
     int hsize = 0;
     hsize += writeString(stream, N3iosp.makeValidNetcdfObjectName( var.getShortName()));
 
     // dimensions
-    int vsize = var.getDataType().getSize();
+    long vsize = var.getDataType().getSize();
     List<Dimension> dims = var.getDimensions();
     if (null != stream) stream.writeInt(dims.size());
     hsize += 4;
@@ -191,10 +212,13 @@ public abstract class N3streamWriter {
     int type = N3header.getType(var.getDataType());
     if (null != stream) {
       stream.writeInt(type);
-      stream.writeInt(vsize);
-      stream.writeInt(offset);
+      stream.writeInt((vsize < MAX_UNSIGNED_INT) ? (int) vsize : -1);
+      if (largeFile)
+        stream.writeLong(offset);
+      else
+        stream.writeInt((int) offset);
     }
-    hsize += 12;
+    hsize += largeFile ? 16 : 12;
 
     //if (debug) out.println(" name= "+name+" type="+type+" vsize="+vsize+" begin= "+begin+" isRecord="+isRecord+"\n");
     return new Vinfo(var, hsize, vsize, offset, pad, var.isUnlimited());
@@ -311,12 +335,12 @@ public abstract class N3streamWriter {
   static protected class Vinfo {
     Variable v;
     int hsize; // header size
-    int vsize; // size of array in bytes. if isRecord, size per record. includes padding
-    int offset; // offset of start of data from start of file
+    long vsize; // size of array in bytes. if isRecord, size per record. includes padding
+    long offset; // offset of start of data from start of file
     int pad; // number of padding bytes
     boolean isRecord; // is it a record variable?
 
-    Vinfo(Variable v, int hsize, int vsize, int offset, int pad, boolean isRecord) {
+    Vinfo(Variable v, int hsize, long vsize, long offset, int pad, boolean isRecord) {
       this.v = v;
       this.hsize = hsize;
       this.vsize = vsize;
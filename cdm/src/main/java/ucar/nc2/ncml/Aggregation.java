@@ -105,10 +105,24 @@ public abstract class Aggregation {
 
   // experimental multithreading
   static protected Executor executor;
+  static protected int maxReadThreads = 4;
   static public void setExecutor(Executor exec) {
     executor = exec;
   }
 
+  /**
+   * Read the nested datasets of an outer dimension aggregation in parallel, using the given executor.
+   * At most maxThreads nested reads of any one aggregation are running on the executor at the same time;
+   * when there are none free, the calling thread does the read itself.
+   *
+   * @param exec shared executor, or null to read serially (default)
+   * @param maxThreads maximum number of executor threads used by any one aggregation
+   */
+  static public void setExecutor(Executor exec, int maxThreads) {
+    executor = exec;
+    maxReadThreads = Math.max(1, maxThreads);
+  }
+
   static public void setTypicalDatasetMode(String mode) {
     if (mode.equalsIgnoreCase("random"))
       typicalDatasetMode = TypicalDataset.RANDOM;
@@ -6,14 +6,8 @@
 package ucar.nc2.ncml;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.channels.OverlappingFileLockException;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +35,7 @@ import ucar.nc2.util.CancelTask;
  * @author caron
  */
 public class AggregationExisting extends AggregationOuterDimension {
+  private AggregationIndex index; // ncoords and cached coordinate values of each dataset, persisted in the DiskCache2
 
   public AggregationExisting(NetcdfDataset ncd, String dimName, String recheckS) {
     super(ncd, dimName, Aggregation.Type.joinExisting, recheckS);
@@ -152,102 +147,112 @@ public class AggregationExisting extends AggregationOuterDimension {
     ncDataset.finish();
   }
 
+  @Override
+  protected void rebuildDataset() throws IOException {
+    persistRead(); // so that only new or changed datasets are opened
+    super.rebuildDataset();
+    AggregationIndex index = getIndex();
+    if (index != null)
+      updateIndex(index);
+  }
+
   /**
    * Persist info (ncoords, coordValues) from joinExisting, since that can be expensive to recreate.
+   * Only the datasets that are new or changed since the index was last written are added to the index file.
    *
    * @throws IOException
    */
   public void persistWrite() throws IOException {
-    if (diskCache2 == null)
+    AggregationIndex index = getIndex();
+    if (index == null) return;
+
+    // only write out if something changed after the cache file was last written, or if the file has been deleted
+    if (!cacheDirty && index.getFile().exists())
       return;
 
-    String cacheName = getCacheName();
-    if (cacheName == null) return;
-    if (cacheName.startsWith("file:"))      // LOOK
-      cacheName = cacheName.substring(5);
-    File cacheFile = diskCache2.getCacheFile(cacheName);
-    if (cacheFile == null) throw new IllegalStateException();
+    updateIndex(index);
+    index.write();
+    cacheDirty = false;
+  }
 
-    // only write out if something changed after the cache file was last written, or if the file has been deleted
-    if (!cacheDirty && cacheFile.exists())
+  // read info from the persistent index, if it exists, and apply it to the datasets that have not changed
+  protected void persistRead() {
+    AggregationIndex index = getIndex();
+    if (index == null) return;
+    if (index.isEmpty()) {
+      persistReadXml(); // index not written yet, use the old XML file if there is one
       return;
+    }
 
-    FileChannel channel = null;
-    try {
-      File dir = cacheFile.getParentFile();
-      if (!dir.exists()) {
-        if (!dir.mkdirs())
-          logger.error("Cant make cache directory= " + cacheFile);
+    for (Dataset ds : getDatasets()) {
+      String id = ds.getId();
+      AggregationIndex.Entry entry = index.get(id);
+      if (entry == null) continue;
+
+      DatasetOuterDimension dod = (DatasetOuterDimension) ds;
+      if (!entry.matches(dod.getMFile())) {  // skip datasets that have changed, and forget what was read from them
+        if (logger.isDebugEnabled()) logger.debug(" dataset was changed= {}", dod.getMFile());
+        for (CacheVar pv : cacheList)
+          pv.removeData(id);
+        continue;
       }
 
-      // Get a file channel for the file
-      FileOutputStream fos = new FileOutputStream(cacheFile);
-      channel = fos.getChannel();
-
-      // Try acquiring the lock without blocking. This method returns
-      // null or throws an exception if the file is already locked.
-      FileLock lock;
-      try {
-        lock = channel.tryLock();
-      } catch (OverlappingFileLockException e) {
-        // File is already locked in this thread or virtual machine
-        return; // give up
-      }
-      if (lock == null) return;
-
-      PrintWriter out = new PrintWriter(new OutputStreamWriter(fos, CDM.utf8Charset));
-      out.print("<?xml version='1.0' encoding='UTF-8'?>\n");
-      out.print("<aggregation xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2' version='3' ");
-      out.print("type='" + type + "' ");
-      if (dimName != null)
-        out.print("dimName='" + dimName + "' ");
-      if (datasetManager.getRecheck() != null)
-        out.print("recheckEvery='" + datasetManager.getRecheck() + "' ");
-      out.print(">\n");
-
-      List<Dataset> nestedDatasets = getDatasets();
-      for (Dataset dataset : nestedDatasets) {
-        DatasetOuterDimension dod = (DatasetOuterDimension) dataset;
-        if (dod.getId() == null) logger.warn("id is null");
-
-        out.print("  <netcdf id='" + dod.getId() + "' ");
-        out.print("ncoords='" + dod.getNcoords(null) + "' >\n");
-
-        for (CacheVar pv : cacheList) {
-          Array data = pv.getData(dod.getId());
-          if (data != null) {
-            out.print("    <cache varName='" + pv.varName + "' >");
-            while (data.hasNext())
-              out.printf("%s ", data.next());
-            out.print("</cache>\n");
-            if (logger.isDebugEnabled())
-              logger.debug(" wrote array = " + pv.varName + " nelems= " + data.getSize() + " for " + dataset.getLocation());
-          }
+      if (dod.ncoord == 0)
+        dod.ncoord = entry.ncoords;
+
+      for (Map.Entry<String, Array> var : entry.data.entrySet()) {
+        CacheVar pv = findCacheVariable(var.getKey());
+        if (pv != null) {
+          pv.putData(id, var.getValue());
+          countCacheUse++;
+        } else {
+          logger.warn("not a cache var=" + var.getKey());
         }
-        out.print("  </netcdf>\n");
       }
+    }
+  }
 
-      out.print("</aggregation>\n");
-      out.close(); // this also closes the  channel and releases the lock
-
-      long time = datasetManager.getLastScanned();
-      if (time == 0) time = System.currentTimeMillis(); // no scans (eg all static) will have a 0
+  // give the index the current state of the datasets; does not open any files
+  private void updateIndex(AggregationIndex index) {
+    List<AggregationIndex.Entry> current = new ArrayList<>();
+    for (Dataset ds : getDatasets()) {
+      DatasetOuterDimension dod = (DatasetOuterDimension) ds;
+      if (dod.getId() == null || dod.ncoord <= 0) continue;
+
+      Map<String, Array> data = new HashMap<>();
+      for (CacheVar pv : cacheList) {
+        Array values = pv.getData(dod.getId());
+        if (values != null)
+          data.put(pv.varName, values);
+      }
+      current.add(new AggregationIndex.Entry(dod.getId(), dod.getMFile(), dod.ncoord, data));
+    }
+    index.update(current);
+  }
 
-      if (!cacheFile.setLastModified(time))
-        logger.warn("FAIL to set lastModified on {}", cacheFile.getPath());
-      cacheDirty = false;
+  // the persistent index, read from the DiskCache2 the first time its needed
+  private AggregationIndex getIndex() {
+    if (diskCache2 == null) return null;
+    if (index != null) return index;
 
-      if (logger.isDebugEnabled())
-        logger.debug("Aggregation persisted = " + cacheFile.getPath() + " lastModified= " + new Date(datasetManager.getLastScanned()));
+    String cacheName = getCacheName();
+    if (cacheName == null) return null;
+    if (cacheName.startsWith("file:"))      // LOOK
+      cacheName = cacheName.substring(5);
+    File indexFile = diskCache2.getCacheFile(cacheName + ".aggx");
+    if (indexFile == null) throw new IllegalStateException();
 
-    } finally {
-      if (channel != null)
-        channel.close();
+    index = new AggregationIndex(indexFile);
+    try {
+      index.read();
+    } catch (IOException e) {
+      logger.warn("Error reading aggregation index " + indexFile.getPath(), e);
     }
+    return index;
   }
 
-  // read info from the persistent XML file, if it exists
-  protected void persistRead() {
+  // read info from the XML file written by earlier versions, if it exists
+  private void persistReadXml() {
     if (diskCache2 == null) return;
 
     String cacheName = getCacheName();
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.ncml;
+
+import thredds.inventory.MFile;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.*;
+
+/**
+ * Persistent binary index of the nested datasets of a joinExisting aggregation.
+ * For each dataset it keeps the lastModified and length of the file, the number of coordinates,
+ * and the values of the cached variables, so that unchanged files need not be opened.
+ * <p>
+ * New and changed entries are appended to the end of the file; when read, a later entry replaces an earlier one
+ * with the same id. The file is rewritten when more than half of its entries are stale.
+ *
+ * @since 10/18/2026
+ */
+class AggregationIndex {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AggregationIndex.class);
+  static private final int MAGIC = 0x41474758; // "AGGX"
+  static private final int VERSION = 1;
+
+  /** What is known about one nested dataset. */
+  static class Entry {
+    final String id;
+    final long lastModified, length; // of the file, 0 if not known
+    final int ncoords;
+    final Map<String, Array> data; // cached variable values, keyed by variable name
+
+    Entry(String id, MFile mfile, int ncoords, Map<String, Array> data) {
+      this(id, mfile == null ? 0 : mfile.getLastModified(), mfile == null ? 0 : mfile.getLength(), ncoords, data);
+    }
+
+    Entry(String id, long lastModified, long length, int ncoords, Map<String, Array> data) {
+      this.id = id;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.ncoords = ncoords;
+      this.data = data;
+    }
+
+    // is this entry still valid for the file?
+    boolean matches(MFile mfile) {
+      return mfile == null || (mfile.getLastModified() == lastModified && mfile.getLength() == length);
+    }
+
+    // does this entry hold the same information as that one?
+    boolean sameAs(Entry that) {
+      return lastModified == that.lastModified && length == that.length && ncoords == that.ncoords &&
+          data.keySet().equals(that.data.keySet());
+    }
+  }
+
+  private final File file;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Set<String> unwritten = new HashSet<>(); // ids of entries not yet in the file
+  private Set<String> live = new HashSet<>();            // ids of the current datasets
+  private int nrecords;          // number of entries in the file, including stale ones
+  private boolean needsRewrite;  // file is missing, old or damaged
+
+  AggregationIndex(File file) {
+    this.file = file;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  Entry get(String id) {
+    return entries.get(id);
+  }
+
+  boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * Read the index file, if it exists.
+   *
+   * @return true if the file exists and has the current version
+   */
+  boolean read() throws IOException {
+    entries.clear();
+    unwritten.clear();
+    nrecords = 0;
+    needsRewrite = true;
+    if (!file.exists()) return false;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        logger.debug("AggregationIndex {} has wrong version, will be rewritten", file);
+        return false;
+      }
+
+      while (true) {
+        int size;
+        try {
+          size = in.readInt();
+        } catch (EOFException e) {
+          break; // normal end of the file
+        }
+        byte[] record = new byte[size];
+        in.readFully(record);   // EOFException if the last record was not completely written
+        Entry entry = readEntry(new DataInputStream(new ByteArrayInputStream(record)));
+        entries.put(entry.id, entry);
+        nrecords++;
+      }
+      live = new HashSet<>(entries.keySet());
+      needsRewrite = false;
+      return true;
+
+    } catch (EOFException e) {
+      logger.warn("AggregationIndex {} is truncated, will be rewritten", file);
+      return !entries.isEmpty();
+    }
+  }
+
+  /**
+   * Update the index in memory with the current datasets. Call write() to make it persistent.
+   *
+   * @param current an entry for each dataset now in the aggregation
+   */
+  void update(List<Entry> current) {
+    Set<String> ids = new HashSet<>();
+    for (Entry entry : current) {
+      ids.add(entry.id);
+      Entry old = entries.get(entry.id);
+      if (old == null || !old.sameAs(entry)) {
+        entries.put(entry.id, entry);
+        unwritten.add(entry.id);
+      }
+    }
+    live = ids;
+  }
+
+  /**
+   * Write the new and changed entries to the end of the index file, or rewrite it if needed.
+   * Gives up if another process is writing the file.
+   *
+   * @return true if the file was written
+   */
+  boolean write() throws IOException {
+    boolean rewrite = needsRewrite || !file.exists() || (nrecords + unwritten.size() > 2 * live.size());
+    if (!rewrite && unwritten.isEmpty())
+      return false;
+
+    File dir = file.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs())
+      logger.error("Cant make cache directory= " + file);
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      FileLock lock;
+      try {
+        lock = raf.getChannel().tryLock();
+      } catch (OverlappingFileLockException e) {
+        return false; // File is already locked in this thread or virtual machine
+      }
+      if (lock == null) return false; // another process is writing it
+
+      // only truncate once we have the lock
+      if (rewrite)
+        raf.setLength(0);
+      else
+        raf.seek(raf.length());
+
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(raf.getChannel())));
+      Collection<String> ids = rewrite ? new TreeSet<>(live) : new TreeSet<>(unwritten);
+      if (rewrite) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+      }
+
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      for (String id : ids) {
+        Entry entry = entries.get(id);
+        if (entry == null) continue;
+        bout.reset();
+        writeEntry(new DataOutputStream(bout), entry);
+        out.writeInt(bout.size());
+        bout.writeTo(out);
+      }
+      out.flush(); // closing raf releases the lock
+
+      if (rewrite) {
+        entries.keySet().retainAll(live);
+        nrecords = entries.size();
+      } else {
+        nrecords += ids.size();
+      }
+      unwritten.clear();
+      needsRewrite = false;
+      if (logger.isDebugEnabled())
+        logger.debug("AggregationIndex {} {} {} entries", file, rewrite ? "rewrote" : "appended", ids.size());
+      return true;
+    }
+  }
+
+  //////////////////////////////////////////////////////////////
+
+  private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+    out.writeUTF(entry.id);
+    out.writeLong(entry.lastModified);
+    out.writeLong(entry.length);
+    out.writeInt(entry.ncoords);
+    Map<String, Array> data = new HashMap<>();
+    for (Map.Entry<String, Array> var : entry.data.entrySet()) {
+      DataType dtype = var.getValue().getDataType();
+      if (dtype.isNumeric() || dtype.isEnum() || dtype == DataType.CHAR || dtype == DataType.STRING)
+        data.put(var.getKey(), var.getValue());
+    }
+    out.writeInt(data.size());
+    for (Map.Entry<String, Array> var : data.entrySet()) {
+      out.writeUTF(var.getKey());
+      writeArray(out, var.getValue());
+    }
+  }
+
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    String id = in.readUTF();
+    long lastModified = in.readLong();
+    long length = in.readLong();
+    int ncoords = in.readInt();
+    int nvars = in.readInt();
+    Map<String, Array> data = new HashMap<>();
+    for (int i = 0; i < nvars; i++) {
+      String varName = in.readUTF();
+      data.put(varName, readArray(in));
+    }
+    return new Entry(id, lastModified, length, ncoords, data);
+  }
+
+  private static void writeArray(DataOutputStream out, Array data) throws IOException {
+    DataType dtype = data.getDataType();
+    out.writeUTF(dtype.name());
+    int[] shape = data.getShape();
+    out.writeInt(shape.length);
+    for (int len : shape)
+      out.writeInt(len);
+
+    IndexIterator ii = data.getIndexIterator();
+    while (ii.hasNext()) {
+      if (dtype.isFloatingPoint())
+        out.writeDouble(ii.getDoubleNext());
+      else if (dtype.isIntegral() || dtype.isEnum())
+        out.writeLong(ii.getLongNext());
+      else
+        out.writeUTF(ii.getObjectNext().toString());  // CHAR or STRING
+    }
+  }
+
+  private static Array readArray(DataInputStream in) throws IOException {
+    DataType dtype;
+    try {
+      dtype = DataType.valueOf(in.readUTF());
+    } catch (IllegalArgumentException e) {
+      throw new IOException("AggregationIndex has unknown data type", e);
+    }
+    int[] shape = new int[in.readInt()];
+    for (int i = 0; i < shape.length; i++)
+      shape[i] = in.readInt();
+
+    Array data = Array.factory(dtype, shape);
+    IndexIterator ii = data.getIndexIterator();
+    while (ii.hasNext()) {
+      if (dtype.isFloatingPoint())
+        ii.setDoubleNext(in.readDouble());
+      else if (dtype.isIntegral() || dtype.isEnum())
+        ii.setLongNext(in.readLong());
+      else if (dtype == DataType.CHAR)
+        ii.setCharNext(in.readUTF().charAt(0));
+      else
+        ii.setObjectNext(in.readUTF());
+    }
+    return data;
+  }
+}
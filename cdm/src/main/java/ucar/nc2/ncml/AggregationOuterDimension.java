@@ -18,9 +18,10 @@ import ucar.nc2.util.CancelTask;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * Superclass for Aggregations on the outer dimension: joinNew, joinExisting, Fmrc, FmrcSingle
@@ -40,6 +41,8 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
   protected List<CacheVar> cacheList = new ArrayList<CacheVar>(); // promote global attribute to variable
   protected boolean timeUnitsChange = false;
 
+  private Semaphore readPermits; // limits the executor threads used by this aggregation, see readNested()
+
   /**
    * Create an Aggregation for the given NetcdfDataset.
    * The following addXXXX methods are called, then finish(), before the object is ready for use.
@@ -319,12 +322,11 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
 
     List<Range> ranges = section.getRanges();
     Range joinRange = section.getRange(0);
-    List<Range> nestedSection = new ArrayList<>(ranges); // get copy
     List<Range> innerSection = ranges.subList(1, ranges.size());
 
     if (debug) System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
+    List<Callable<Array>> tasks = new ArrayList<>();
     List<Dataset> nestedDatasets = getDatasets();
     for (Dataset nested : nestedDatasets) {
       DatasetOuterDimension dod = (DatasetOuterDimension) nested;
@@ -334,18 +336,21 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
       //if (debug)
       //  System.out.println("   agg use " + nested.aggStart + ":" + nested.aggEnd + " range= " + nestedJoinRange + " file " + nested.getLocation());
 
-      Array varData;
       if ((type == Type.joinNew) || (type == Type.forecastModelRunCollection)) {
-        varData = dod.read(mainv, cancelTask, innerSection);
+        tasks.add(() -> dod.read(mainv, cancelTask, innerSection));
       } else {
+        List<Range> nestedSection = new ArrayList<>(ranges); // each task gets its own copy
         nestedSection.set(0, nestedJoinRange);
-        varData = dod.read(mainv, cancelTask, nestedSection);
+        tasks.add(() -> dod.read(mainv, cancelTask, nestedSection));
       }
+    }
 
-      if ((cancelTask != null) && cancelTask.isCancel())
-        return null;
-      varData = MAMath.convert(varData, dtype); // just in case it need to be converted
+    List<Array> results = readNested(tasks, cancelTask);
+    if (results == null)
+      return null;
 
+    for (Array varData : results) {
+      varData = MAMath.convert(varData, dtype); // just in case it need to be converted
       Array.arraycopy(varData, 0, sectionData, destPos, (int) varData.getSize());
       destPos += varData.getSize();
     }
@@ -393,73 +398,103 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     Array allData = Array.factory(dtype, mainv.getShape());
     int destPos = 0;
 
-    List<Dataset> nestedDatasets = getDatasets();
-    if (executor != null) {
-      CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
+    List<Callable<Array>> tasks = new ArrayList<>();
+    for (Dataset vnested : getDatasets())
+      tasks.add(() -> vnested.read(mainv, cancelTask));
 
-      int count = 0;
-      for (Dataset vnested : nestedDatasets)
-        completionService.submit(new ReaderTask(vnested, mainv, cancelTask, count++));
+    List<Array> results;
+    try {
+      results = readNested(tasks, cancelTask);
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e); // cant happen, whole variable is read
+    }
+    if (results == null)
+      return null;
 
-      try {
-        int n = nestedDatasets.size();
-        for (int i = 0; i < n; ++i) {
-          Result r = completionService.take().get();
-          if (r != null) {
-            r.data = MAMath.convert(r.data, dtype); // just in case it needs to be converted
-            int size = (int) r.data.getSize();
-            Array.arraycopy(r.data, 0, allData, size * r.index, size);
-          }
-        }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      } catch (ExecutionException e) {
-        throw new IOException(e.getMessage());
-      }
+    for (Array varData : results) {
+      varData = MAMath.convert(varData, dtype); // just in case it need to be converted
+      Array.arraycopy(varData, 0, allData, destPos, (int) varData.getSize());
+      destPos += varData.getSize();
+    }
 
-    } else {
+    return allData;
+  }
 
-      for (Dataset vnested : nestedDatasets) {
-        Array varData = vnested.read(mainv, cancelTask);
-        if ((cancelTask != null) && cancelTask.isCancel())
-          return null;
-        varData = MAMath.convert(varData, dtype); // just in case it need to be converted
+  /**
+   * Read from each nested dataset, in parallel if an executor has been set.
+   * Reads are submitted in order, while this aggregation has a free read permit (see Aggregation.setExecutor);
+   * when it has none, the calling thread reads the next dataset itself. The calling thread also reads any dataset
+   * it is waiting for that no pool thread has started, so nested aggregations cant deadlock on a busy pool.
+   * The nested files are acquired through the file cache by each task.
+   *
+   * @param tasks      one read per nested dataset, in aggregation order
+   * @param cancelTask allow user to cancel
+   * @return the data from each task, in the same order, or null if cancelled
+   */
+  private List<Array> readNested(List<Callable<Array>> tasks, CancelTask cancelTask) throws IOException, InvalidRangeException {
+    List<Array> results = new ArrayList<>(tasks.size());
+    List<FutureTask<Array>> futures = new ArrayList<>(tasks.size());
+    for (Callable<Array> task : tasks)
+      futures.add(new FutureTask<>(task));
+
+    boolean parallel = (executor != null) && (maxReadThreads > 1) && (tasks.size() > 1);
+    Semaphore permits = parallel ? getReadPermits() : null;
+
+    int next = 0; // next task to submit
+    try {
+      for (FutureTask<Array> future : futures) {
+        if (parallel) {
+          while (next < futures.size() && permits.tryAcquire())
+            submit(futures.get(next++), permits);
+        }
+        if (next <= results.size())
+          next++;
+        future.run(); // does nothing if a pool thread has started it
 
-        Array.arraycopy(varData, 0, allData, destPos, (int) varData.getSize());
-        destPos += varData.getSize();
+        Array data = future.get();
+        if (data == null || ((cancelTask != null) && cancelTask.isCancel()))
+          return null;
+        results.add(data);
       }
-    }
+      return results;
 
-    return allData;
-  }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
 
-  private static class ReaderTask implements Callable<Result> {
-    Dataset ds;
-    Variable mainv;
-    CancelTask cancelTask;
-    int index;
-
-    ReaderTask(Dataset ds, Variable mainv, CancelTask cancelTask, int index) {
-      this.ds = ds;
-      this.mainv = mainv;
-      this.cancelTask = cancelTask;
-      this.index = index;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof InvalidRangeException) throw (InvalidRangeException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause);
+
+    } finally {
+      for (FutureTask<Array> future : futures)
+        future.cancel(false); // dont interrupt, that would close the cached file's channel
     }
+  }
 
-    public Result call() throws Exception {
-      Array data = ds.read(mainv, cancelTask);
-      return new Result(data, index);
+  private void submit(FutureTask<Array> future, Semaphore permits) {
+    try {
+      executor.execute(() -> {
+        try {
+          future.run();
+        } finally {
+          permits.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      future.run();
     }
   }
 
-  private static class Result {
-    Array data;
-    int index;
-
-    Result(Array data, int index) {
-      this.data = data;
-      this.index = index;
-    }
+  private synchronized Semaphore getReadPermits() {
+    if (readPermits == null)
+      readPermits = new Semaphore(maxReadThreads);
+    return readPermits;
   }
 
   /* protected Array readAggCoord(Variable aggCoord, Section section, CancelTask cancelTask) throws IOException, InvalidRangeException {
@@ -929,6 +964,10 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
       dataMap.put(id, data);
     }
 
+    protected void removeData(String id) {
+      dataMap.remove(id);
+    }
+
     protected Array getData(String id) {
       return dataMap.get(id);
     }
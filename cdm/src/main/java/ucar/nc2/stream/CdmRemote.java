@@ -34,6 +34,7 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
   // static private org.slf4SCHEMEj.Logger logger = org.slf4j.LoggerFactory.getLogger(CdmRemote.class);
   static private boolean showRequest = false;
   static private boolean compress = false;
+  static private NcStreamProto.Compress compressType = null;
 
   static public void setDebugFlags(ucar.nc2.util.DebugFlags debugFlag) {
     showRequest = debugFlag.isSet("CdmRemote/showRequest");
@@ -43,6 +44,16 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
     compress = b;
   }
 
+  /**
+   * Ask the server to compress data responses with this type of compression.
+   * Overrides setAllowCompression().
+   *
+   * @param type compression type, or null to use setAllowCompression()
+   */
+  static public void setCompression(NcStreamProto.Compress type) {
+    compressType = type;
+  }
+
 
   /**
    * Create the canonical form of the URL.
@@ -129,10 +140,14 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
 
     Formatter f = new Formatter();
     f.format("%s?req=data", remoteURI);
-    if (compress)
+    if (compressType != null)
+      f.format("&compress=%s", compressType.name().toLowerCase());
+    else if (compress)
       f.format("&deflate=5");
     //f.format("&var=%s", v.getShortName());
     f.format("&var=%s", v.getFullNameEscaped());
+    if (v.getDataType() == DataType.STRUCTURE)
+      f.format("&chunk=true"); // large structure data may come in several messages, readData() puts them together
     if ((section != null) && (section.computeSize() != v.getSize()) && (v.getDataType() != DataType.SEQUENCE)) {
       f.format("(%s)", section.toString());
     }
@@ -172,7 +187,7 @@ public class CdmRemote extends ucar.nc2.NetcdfFile {
 
       InputStream is = method.getResponseAsStream();  // Closed by HTTPMethod.close().
       NcStreamReader reader = new NcStreamReader();
-      NcStreamReader.DataResult result = reader.readData(is, this, remoteURI);
+      NcStreamReader.DataResult result = reader.readData(is, this, remoteURI, (section == null) ? v.getShapeAsSection() : section);
 
       assert v.getFullNameEscaped().equals(result.varNameFullEsc);
       return result.data;
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.stream;
+
+import java.io.IOException;
+
+/**
+ * Compresses and uncompresses the data in an ncstream data message, for one of the NcStreamProto.Compress types.
+ * The built-in codecs are pure Java. Others may be registered with NcStreamCompression.registerCodec(),
+ * or listed in META-INF/services/ucar.nc2.stream.NcStreamCodec, for example to replace a built-in codec with a
+ * faster native one. They must be compatible with the built-in codec of the same type.
+ *
+ * @since 10/18/2026
+ */
+public interface NcStreamCodec {
+
+  /** The compression type written into the data message. */
+  NcStreamProto.Compress getType();
+
+  /**
+   * Compress the data.
+   *
+   * @param data     uncompressed bytes
+   * @param elemSize size in bytes of one element of the data; a hint that codecs may use
+   * @return compressed bytes
+   */
+  byte[] encode(byte[] data, int elemSize) throws IOException;
+
+  /**
+   * Uncompress the data.
+   *
+   * @param data             compressed bytes
+   * @param uncompressedSize number of bytes when uncompressed
+   * @param elemSize         size in bytes of one element of the data, same as was passed to encode()
+   * @return uncompressed bytes
+   * @throws IOException if the data is corrupted
+   */
+  byte[] decode(byte[] data, int uncompressedSize, int elemSize) throws IOException;
+}
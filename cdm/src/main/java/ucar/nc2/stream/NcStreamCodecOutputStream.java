@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.stream;
+
+import java.io.*;
+
+/**
+ * Buffers the data, then on flush() compresses it with an NcStreamCodec and writes the compressed size and bytes.
+ *
+ * @since 10/18/2026
+ */
+public class NcStreamCodecOutputStream extends DataOutputStream {
+  private final OutputStream writer;
+  private final ByteArrayOutputStream buffer;
+  private final NcStreamCodec codec;
+  private final int elemSize;
+
+  public NcStreamCodecOutputStream(OutputStream out, NcStreamCodec codec, int bufferSize, int elemSize) {
+    super(out);
+    this.writer = out;
+    this.codec = codec;
+    this.elemSize = elemSize;
+    this.buffer = new ByteArrayOutputStream(bufferSize);
+    this.out = buffer;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    byte[] compressed = codec.encode(buffer.toByteArray(), elemSize);
+    written = compressed.length;
+    written += NcStream.writeVInt(writer, compressed.length);
+    writer.write(compressed);
+    buffer.reset();
+  }
+}
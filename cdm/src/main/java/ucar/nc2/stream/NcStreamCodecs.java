@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The built-in NcStreamCodecs.
+ *
+ * @since 10/18/2026
+ */
+class NcStreamCodecs {
+
+  /** zlib deflate. */
+  static class Deflate implements NcStreamCodec {
+    private final int level;
+
+    Deflate(int level) {
+      this.level = Math.min(Math.max(level, -1), 9);
+    }
+
+    public NcStreamProto.Compress getType() {
+      return NcStreamProto.Compress.DEFLATE;
+    }
+
+    public byte[] encode(byte[] data, int elemSize) {
+      return deflate(data, level);
+    }
+
+    public byte[] decode(byte[] data, int uncompressedSize, int elemSize) throws IOException {
+      return inflate(data, uncompressedSize);
+    }
+  }
+
+  /**
+   * Group the first byte of every element together, then the second byte, etc, then deflate.
+   * Neighbouring values in gridded data usually share their high order bytes, which then compress much better.
+   */
+  static class ShuffleDeflate implements NcStreamCodec {
+    private final int level;
+
+    ShuffleDeflate(int level) {
+      this.level = Math.min(Math.max(level, -1), 9);
+    }
+
+    public NcStreamProto.Compress getType() {
+      return NcStreamProto.Compress.SHUFFLE_DEFLATE;
+    }
+
+    public byte[] encode(byte[] data, int elemSize) {
+      return deflate(shuffle(data, elemSize), level);
+    }
+
+    public byte[] decode(byte[] data, int uncompressedSize, int elemSize) throws IOException {
+      return unshuffle(inflate(data, uncompressedSize), elemSize);
+    }
+  }
+
+  /**
+   * The LZ4 block format, see https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md.
+   * Greedy matching with a single hash table; much faster than deflate, with less compression.
+   */
+  static class Lz4 implements NcStreamCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;  // the last 5 bytes are always literals
+    private static final int MF_LIMIT = 12;      // the last match must start at least 12 bytes before the end
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 14;
+
+    public NcStreamProto.Compress getType() {
+      return NcStreamProto.Compress.LZ4;
+    }
+
+    public byte[] encode(byte[] src, int elemSize) {
+      int n = src.length;
+      byte[] dst = new byte[n + n / 255 + 16];
+      int[] table = new int[1 << HASH_LOG];
+      Arrays.fill(table, -1);
+
+      int anchor = 0, ip = 0, op = 0;
+      int limit = n - MF_LIMIT;
+      while (ip < limit) {
+        int seq = readInt(src, ip);
+        int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+        int ref = table[h];
+        table[h] = ip;
+        if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+          ip += 1 + ((ip - anchor) >>> 6);  // skip faster through data that doesnt compress
+          continue;
+        }
+
+        int matchLen = MIN_MATCH;
+        int maxMatch = n - LAST_LITERALS - ip;
+        while (matchLen < maxMatch && src[ref + matchLen] == src[ip + matchLen])
+          matchLen++;
+
+        op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, matchLen);
+        ip += matchLen;
+        anchor = ip;
+      }
+
+      op = writeSequence(dst, op, src, anchor, n - anchor, 0, 0);
+      return Arrays.copyOf(dst, op);
+    }
+
+    private int writeSequence(byte[] dst, int op, byte[] src, int anchor, int litLen, int offset, int matchLen) {
+      int tokenPos = op++;
+      int token = Math.min(litLen, 15) << 4;
+      op = writeLength(dst, op, litLen);
+      System.arraycopy(src, anchor, dst, op, litLen);
+      op += litLen;
+
+      if (matchLen > 0) { // the last sequence has only literals
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        token |= Math.min(matchLen - MIN_MATCH, 15);
+        op = writeLength(dst, op, matchLen - MIN_MATCH);
+      }
+      dst[tokenPos] = (byte) token;
+      return op;
+    }
+
+    // lengths of 15 or more continue in following bytes
+    private int writeLength(byte[] dst, int op, int len) {
+      if (len < 15) return op;
+      len -= 15;
+      while (len >= 255) {
+        dst[op++] = (byte) 255;
+        len -= 255;
+      }
+      dst[op++] = (byte) len;
+      return op;
+    }
+
+    private int readInt(byte[] b, int pos) {
+      return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8 | (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+    }
+
+    public byte[] decode(byte[] src, int uncompressedSize, int elemSize) throws IOException {
+      byte[] dst = new byte[uncompressedSize];
+      int ip = 0, op = 0;
+      try {
+        while (ip < src.length) {
+          int token = src[ip++] & 0xff;
+          int litLen = token >>> 4;
+          if (litLen == 15) {
+            int b;
+            do {
+              b = src[ip++] & 0xff;
+              litLen += b;
+            } while (b == 255);
+          }
+          System.arraycopy(src, ip, dst, op, litLen);
+          ip += litLen;
+          op += litLen;
+          if (ip >= src.length) break; // last sequence
+
+          int offset = (src[ip++] & 0xff) | (src[ip++] & 0xff) << 8;
+          int matchLen = token & 0x0f;
+          if (matchLen == 15) {
+            int b;
+            do {
+              b = src[ip++] & 0xff;
+              matchLen += b;
+            } while (b == 255);
+          }
+          matchLen += MIN_MATCH;
+
+          int ref = op - offset;
+          if (offset == 0 || ref < 0)
+            throw new IOException("LZ4 data corrupted: bad offset " + offset + " at " + op);
+          for (int i = 0; i < matchLen; i++) // may overlap
+            dst[op + i] = dst[ref + i];
+          op += matchLen;
+        }
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IOException("LZ4 data corrupted", e);
+      }
+
+      if (op != uncompressedSize)
+        throw new IOException("LZ4 data corrupted: uncompressed size " + op + " != " + uncompressedSize);
+      return dst;
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////
+
+  static byte[] deflate(byte[] data, int level) {
+    Deflater deflater = new Deflater(level);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      ByteArrayOutputStream bout = new ByteArrayOutputStream(data.length / 2 + 64);
+      byte[] buffer = new byte[64 * 1024];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buffer);
+        bout.write(buffer, 0, n);
+      }
+      return bout.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  static byte[] inflate(byte[] data, int uncompressedSize) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      byte[] result = new byte[uncompressedSize];
+      int count = 0;
+      while (count < uncompressedSize) {
+        int n = inflater.inflate(result, count, uncompressedSize - count);
+        if (n == 0 && (inflater.finished() || inflater.needsInput()))
+          throw new IOException("Deflate data corrupted: uncompressed size " + count + " != " + uncompressedSize);
+        count += n;
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new IOException("Deflate data corrupted", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  // byte j of element i goes to j * nelems + i; bytes past the last whole element are left at the end
+  static byte[] shuffle(byte[] data, int elemSize) {
+    if (elemSize <= 1) return data;
+    int nelems = data.length / elemSize;
+    byte[] result = new byte[data.length];
+    for (int i = 0; i < nelems; i++)
+      for (int j = 0; j < elemSize; j++)
+        result[j * nelems + i] = data[i * elemSize + j];
+    int done = nelems * elemSize;
+    System.arraycopy(data, done, result, done, data.length - done);
+    return result;
+  }
+
+  static byte[] unshuffle(byte[] data, int elemSize) {
+    if (elemSize <= 1) return data;
+    int nelems = data.length / elemSize;
+    byte[] result = new byte[data.length];
+    for (int i = 0; i < nelems; i++)
+      for (int j = 0; j < elemSize; j++)
+        result[i * elemSize + j] = data[j * nelems + i];
+    int done = nelems * elemSize;
+    System.arraycopy(data, done, result, done, data.length - done);
+    return result;
+  }
+}
@@ -7,11 +7,78 @@ package ucar.nc2.stream;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.ServiceLoader;
 
 /**
+ * The compression used for ncstream data, and the registry of NcStreamCodecs used to uncompress it.
+ *
  * Created by rmay on 8/10/15.
  */
 public class NcStreamCompression {
+    static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(NcStreamCompression.class);
+    static private final Map<NcStreamProto.Compress, NcStreamCodec> codecs = new EnumMap<>(NcStreamProto.Compress.class);
+
+    static {
+        registerCodec(new NcStreamCodecs.Deflate(-1));
+        registerCodec(new NcStreamCodecs.Lz4());
+        registerCodec(new NcStreamCodecs.ShuffleDeflate(-1));
+        for (NcStreamCodec codec : ServiceLoader.load(NcStreamCodec.class)) {
+            logger.info("ServiceLoader NcStreamCodec {} for {}", codec.getClass().getName(), codec.getType());
+            registerCodec(codec);
+        }
+    }
+
+    /**
+     * Register a codec, replacing any existing codec for the same compression type.
+     *
+     * @param codec use this to compress and uncompress data of type codec.getType()
+     */
+    public static void registerCodec(NcStreamCodec codec) {
+        synchronized (codecs) {
+            codecs.put(codec.getType(), codec);
+        }
+    }
+
+    /**
+     * Find the codec for a compression type.
+     *
+     * @param type compression type from a data message
+     * @return the registered codec, or null if none
+     */
+    public static NcStreamCodec getCodec(NcStreamProto.Compress type) {
+        synchronized (codecs) {
+            return codecs.get(type);
+        }
+    }
+
+    /**
+     * Make an NcStreamCompression from its name, as used in a request query parameter.
+     *
+     * @param name "none", "deflate", "lz4", or "shuffle", case insensitive
+     * @param level deflate level, or -1 for the default
+     * @return NcStreamCompression, or null if the name is not known
+     */
+    public static NcStreamCompression fromName(String name, int level) {
+        if (name == null) return null;
+        switch (name.toLowerCase()) {
+            case "none":
+                return none();
+            case "deflate":
+                return deflate(level);
+            case "lz4":
+                return lz4();
+            case "shuffle":
+            case "shuffle_deflate":
+                return shuffleDeflate(level);
+            default:
+                return null;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////
+
     NcStreamProto.Compress type;
     Object compressInfo;
 
@@ -36,8 +103,58 @@ public class NcStreamCompression {
         return new NcStreamCompression(NcStreamProto.Compress.DEFLATE, level);
     }
 
+    /** Fast, with less compression than deflate. */
+    public static NcStreamCompression lz4() {
+        return new NcStreamCompression(NcStreamProto.Compress.LZ4);
+    }
+
+    /** Usually compresses floating point data better than deflate alone. */
+    public static NcStreamCompression shuffleDeflate(int level) {
+        return new NcStreamCompression(NcStreamProto.Compress.SHUFFLE_DEFLATE, new NcStreamCodecs.ShuffleDeflate(level));
+    }
+
+    public NcStreamProto.Compress getType() {
+        return type;
+    }
+
+    /**
+     * Compress with this compression's codec.
+     *
+     * @param data     uncompressed bytes
+     * @param elemSize size of one data element in bytes
+     * @return the compressed bytes, or data if this is none()
+     */
+    public byte[] encode(byte[] data, int elemSize) throws IOException {
+        if (type == NcStreamProto.Compress.NONE) return data;
+        return getCodecForWrite().encode(data, elemSize);
+    }
+
+    private NcStreamCodec getCodecForWrite() {
+        if (compressInfo instanceof NcStreamCodec)
+            return (NcStreamCodec) compressInfo;
+        if (type == NcStreamProto.Compress.DEFLATE)
+            return new NcStreamCodecs.Deflate((Integer) compressInfo);
+        NcStreamCodec codec = getCodec(type);
+        if (codec == null) throw new IllegalStateException("No codec registered for " + type);
+        return codec;
+    }
+
     public OutputStream setupStream(OutputStream out, int size)
             throws IOException
+    {
+        return setupStream(out, size, 1);
+    }
+
+    /**
+     * Set up a stream for the data of one data message. Write all the data to it, then flush it.
+     *
+     * @param out      write to this
+     * @param size     number of bytes of uncompressed data
+     * @param elemSize size of one data element in bytes
+     * @return stream to write the data to
+     */
+    public OutputStream setupStream(OutputStream out, int size, int elemSize)
+            throws IOException
     {
         switch (type) {
             // For compression (currently deflate) we compress the data, then
@@ -48,6 +165,10 @@ public class NcStreamCompression {
                 int bufferSize = Math.min(size / 2, 512 * 1024 * 1024);
                 return new NcStreamCompressedOutputStream(out, bufferSize, level);
 
+            case LZ4:
+            case SHUFFLE_DEFLATE:
+                return new NcStreamCodecOutputStream(out, getCodecForWrite(), size, elemSize);
+
             default:
                 System.out.printf(" Unknown compression type %s. Defaulting to none.%n", type);
 
@@ -58,4 +179,4 @@ public class NcStreamCompression {
                 return out;
         }
     }
-}
\ No newline at end of file
+}
@@ -16,8 +16,9 @@ import java.util.List;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
 import ucar.ma2.Array;
+import ucar.ma2.ArrayStructure;
 import ucar.ma2.ArrayStructureBB;
-import ucar.ma2.ArrayStructureBBsection;
+import ucar.ma2.ArrayStructureW;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
@@ -108,7 +109,7 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
 
       if (dataStorage.sdata != null) {
         assert (v instanceof Structure);
-        return readStructureData((Structure) v, section, dataStorage);
+        return readStructureData((Structure) v, section, storage);
       }
 
       if (dataStorage.section.intersects(section)) { // LOOK WRONG
@@ -139,14 +140,50 @@ public class NcStreamIosp extends AbstractIOServiceProvider {
     //return dataArray.sectionNoReduce(section.getRanges());
   }
 
-  private Array readStructureData(Structure v, Section section, DataStorage dataStorage) throws IOException, InvalidRangeException {
-    ByteBuffer bb = dataStorage.sdata.getData().asReadOnlyByteBuffer();
-    bb.order(dataStorage.bo);
+  // the structure data may have been written in several messages, each with a section of the outer dimension
+  private Array readStructureData(Structure v, Section section, List<DataStorage> storage) throws IOException, InvalidRangeException {
     StructureMembers sm = v.makeStructureMembers();
     ArrayStructureBB.setOffsets(sm);
+    ArrayStructure all;
+    if (storage.size() == 1) {
+      all = decodeStructureData(sm, storage.get(0));
+
+    } else {
+      // the strings of each message are indexed into its own heap, so join the StructureData, not the bytes
+      ArrayStructureW join = new ArrayStructureW(sm, v.getShape());
+      int recno = 0;
+      for (DataStorage dataStorage : storage) {  // in the order written
+        ArrayStructureBB chunk = decodeStructureData(sm, dataStorage);
+        for (int i = 0; i < chunk.getSize(); i++)
+          join.setStructureData(chunk.getStructureData(i), recno++);
+      }
+      all = join;
+    }
+
+    // ArrayStructureBBsection would lose the heap
+    return (section.computeSize() == all.getSize()) ? all : all.sectionNoReduce(section.getRanges());
+  }
+
+  // see NcStream.decodeArrayStructure()
+  private ArrayStructureBB decodeStructureData(StructureMembers sm, DataStorage dataStorage) {
+    ByteBuffer bb = dataStorage.sdata.getData().asReadOnlyByteBuffer();
+    bb.order(dataStorage.bo);
     // StructureMembers members, int[] shape, ByteBuffer bbuffer, int offset
-    ArrayStructureBB all =  new ArrayStructureBB(sm, v.getShape(), bb, 0);
-    return ArrayStructureBBsection.factory(all, section);
+    ArrayStructureBB dataBB = new ArrayStructureBB(sm, dataStorage.section.getShape(), bb, 0);
+
+    List<String> ss = dataStorage.sdata.getSdataList();
+    int scount = 0;
+    for (Integer c : dataStorage.sdata.getHeapCountList()) {
+      if (c == 1) {
+        dataBB.addObjectToHeap(ss.get(scount++));
+      } else {
+        String[] hos = new String[c];
+        for (int i = 0; i < c; i++)
+          hos[i] = ss.get(scount++);
+        dataBB.addObjectToHeap(hos);
+      }
+    }
+    return dataBB;
   }
 
   // lOOK probably desnt work
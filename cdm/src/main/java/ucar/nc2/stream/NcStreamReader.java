@@ -11,13 +11,13 @@ import ucar.nc2.NetcdfFileSubclass;
 import ucar.nc2.Structure;
 import ucar.ma2.*;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.zip.InflaterInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import ucar.nc2.constants.CDM;
@@ -117,6 +117,49 @@ public class NcStreamReader {
     throw new IOException("Data transfer corrupted on " + location);
   }
 
+  /**
+   * Read the result of a data request for one variable.
+   * Large structure data is sent as several data messages, each with a section of the outer dimension;
+   * these are read until the wanted section is complete, and reassembled into one ArrayStructure.
+   *
+   * @param is     read from input stream
+   * @param ncfile need the metadata from here to interpret structure data
+   * @param want   the section that was requested
+   * @return DataResult
+   * @throws IOException on read error
+   */
+  public DataResult readData(InputStream is, NetcdfFile ncfile, String location, Section want) throws IOException {
+    DataResult result = readData(is, ncfile, location);
+    if (result.data.getDataType() != DataType.STRUCTURE)
+      return result;
+
+    long total = want.computeSize();
+    long count = result.data.getSize();
+    if (count >= total)
+      return result;
+
+    List<ArrayStructure> chunks = new ArrayList<>();
+    chunks.add((ArrayStructure) result.data);
+    while (count < total) {
+      DataResult chunk = readData(is, ncfile, location);
+      if (!chunk.varNameFullEsc.equals(result.varNameFullEsc) || chunk.data.getDataType() != DataType.STRUCTURE)
+        throw new IOException("Data transfer corrupted on " + location);
+      chunks.add((ArrayStructure) chunk.data);
+      count += chunk.data.getSize();
+    }
+    if (count != total)
+      throw new IOException("Data transfer corrupted on " + location + ": got " + count + " structures, wanted " + total);
+
+    StructureMembers members = ((ArrayStructure) result.data).getStructureMembers();
+    ArrayStructureW data = new ArrayStructureW(members, want.getShape());
+    int recno = 0;
+    for (ArrayStructure chunk : chunks) {
+      for (int i = 0; i < chunk.getSize(); i++)
+        data.setStructureData(chunk.getStructureData(i), recno++);
+    }
+    return new DataResult(result.varNameFullEsc, data);
+  }
+
   private DataResult readData1(InputStream is, NetcdfFile ncfile) throws IOException {
     int psize = NcStream.readVInt(is);
     if (debug) System.out.println("  readData data message len= " + psize);
@@ -183,15 +226,15 @@ public class NcStreamReader {
     Array data;
     NcStreamProto.Compress compress = dproto.getCompress();
     int uncompressedSize = dproto.getUncompressedSize();
-    if (compress == NcStreamProto.Compress.DEFLATE) {
-      ByteArrayInputStream bin = new ByteArrayInputStream(datab);
-      InflaterInputStream in = new InflaterInputStream(bin);
-      byte[] resultb = new byte[uncompressedSize];
-      NcStream.readFully(in, resultb);
+    if (compress != NcStreamProto.Compress.NONE) {
+      NcStreamCodec codec = NcStreamCompression.getCodec(compress);
+      if (codec == null)
+        throw new IOException("Unknown compression " + compress + " on " + dproto.getVarName());
+      byte[] resultb = codec.decode(datab, uncompressedSize, dataType.getSize());
 
       data = Array.factory(dataType, section.getShape(), ByteBuffer.wrap(resultb)); // another copy, not sure can do anything
       if (showDeflate)
-        System.out.printf("Deflate = %d / %d = %f %n", uncompressedSize, dsize, ((float) uncompressedSize) / dsize);
+        System.out.printf("%s = %d / %d = %f %n", compress, uncompressedSize, dsize, ((float) uncompressedSize) / dsize);
       total_uncompressedSize += uncompressedSize;
       total_compressedSize += dsize;
 
@@ -10,9 +10,13 @@ import ucar.nc2.constants.CDM;
 
 import java.io.*;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Write a NetcdfFile to an OutputStream using ncstream protocol
+ * Write a NetcdfFile to an OutputStream using ncstream protocol.
+ * If setChunkStructures(true) is called, structure data larger than maxChunk is sent as several data messages,
+ * each with a section of the outer dimension.
  *
  * @author caron
  * @since Feb 7, 2009
@@ -24,6 +28,7 @@ public class NcStreamWriter {
 
   private NetcdfFile ncfile;
   private NcStreamProto.Header header;
+  private boolean chunkStructures = false;
   private boolean show = false;
 
   public NcStreamWriter(NetcdfFile ncfile, String location) throws IOException {
@@ -64,14 +69,46 @@ public class NcStreamWriter {
     return size;
   }
 
+  /**
+   * Set the maximum size of the data in one message when sending structures, and when streaming all the data.
+   *
+   * @param maxChunkBytes maximum number of bytes
+   */
+  static public void setMaxChunk(long maxChunkBytes) {
+    maxChunk = maxChunkBytes;
+  }
+
+  /**
+   * Send structure data larger than maxChunk in sendData() and sendData2() as several data messages.
+   * Only for readers that put them back together, like NcStreamReader.readData(is, ncfile, location, want).
+   * Default is false, so that each request is answered with one data message.
+   *
+   * @param chunkStructures true to split large structure data
+   */
+  public void setChunkStructures(boolean chunkStructures) {
+    this.chunkStructures = chunkStructures;
+  }
+
   public long sendData(Variable v, Section section, OutputStream out, NcStreamCompression compress) throws IOException, InvalidRangeException {
     if (show) System.out.printf(" %s section=%s%n", v.getFullName(), section);
 
+    List<Section> chunks = makeStructureChunks(v, section);
+    if (chunks != null) {
+      long size = 0;
+      for (Section chunk : chunks)
+        size += sendData(v, chunk, out, compress);
+      return size;
+    }
+
     // length of data uncompressed
     long uncompressedLength = section.computeSize();
     if ((v.getDataType() != DataType.STRING) && (v.getDataType() != DataType.OPAQUE) && !v.isVariableLength())
       uncompressedLength *= v.getElementSize(); // nelems for vdata, else nbytes
 
+    // only fixed length primitive data is compressed
+    if (!canCompress(v))
+      compress = NcStreamCompression.none();
+
     ByteOrder bo = ByteOrder.nativeOrder(); // reader makes right
     long size = 0;
     size += writeBytes(out, NcStream.MAGIC_DATA); // magic
@@ -102,7 +139,7 @@ public class NcStreamWriter {
 
     // version < 3
     if (v.getDataType() == DataType.STRUCTURE) {
-      ArrayStructure abb = (ArrayStructure) v.read();   // read all - LOOK break this up into chunks if needed
+      ArrayStructure abb = (ArrayStructure) v.read(section);
       //coverity[FB.BC_UNCONFIRMED_CAST]
       size += NcStream.encodeArrayStructure(abb, bo, out);
       if (show) System.out.printf(" NcStreamWriter sent ArrayStructure bytes = %d%n", size);
@@ -110,7 +147,7 @@ public class NcStreamWriter {
     }
 
     // Writing the size of the block is handled for us.
-    out = compress.setupStream(out, (int)uncompressedLength);
+    out = compress.setupStream(out, (int)uncompressedLength, v.getElementSize());
     size += v.readToStream(section, out);
     out.flush();
     return size;
@@ -120,6 +157,14 @@ public class NcStreamWriter {
   public long sendData2(Variable v, Section section, OutputStream out, NcStreamCompression compress) throws IOException, InvalidRangeException {
     if (show) System.out.printf(" %s section=%s%n", v.getFullName(), section);
 
+    List<Section> chunks = makeStructureChunks(v, section);
+    if (chunks != null) {
+      long size = 0;
+      for (Section chunk : chunks)
+        size += sendData2(v, chunk, out, compress);
+      return size;
+    }
+
     boolean isVlen = v.isVariableLength(); //  && v.getRank() > 1;
     if (isVlen)
       v.read(section);
@@ -138,6 +183,38 @@ public class NcStreamWriter {
     return size;
   }
 
+  /**
+   * Whether sendData() will compress the data of this variable.
+   *
+   * @param v the variable
+   * @return true if the data is fixed length primitive data
+   */
+  static public boolean canCompress(Variable v) {
+    DataType dt = v.getDataType();
+    return !v.isVariableLength() && (dt.isNumeric() || dt == DataType.CHAR || dt.isEnum());
+  }
+
+  // split a structure section along its outer dimension so each piece has at most maxChunk bytes; null if not needed
+  private List<Section> makeStructureChunks(Variable v, Section section) throws InvalidRangeException {
+    if (!chunkStructures || v.getDataType() != DataType.STRUCTURE || section.getRank() == 0)
+      return null;
+    long nbytes = section.computeSize() * v.getElementSize();
+    if (nbytes <= maxChunk)
+      return null;
+
+    Range outer = section.getRange(0);
+    long rowBytes = nbytes / outer.length();
+    int nrows = (int) Math.max(1, maxChunk / Math.max(1, rowBytes));
+
+    List<Section> result = new ArrayList<>();
+    for (int first = 0; first < outer.length(); first += nrows) {
+      int last = Math.min(first + nrows, outer.length()) - 1;
+      result.add(new Section(section).replaceRange(0, new Range(outer.getName(), outer.element(first), outer.element(last), outer.stride())));
+    }
+    if (show) System.out.printf(" %s sent in %d chunks%n", v.getFullName(), result.size());
+    return result;
+  }
+
   private int writeBytes(OutputStream out, byte[] b) throws IOException {
     out.write(b);
     return b.length;
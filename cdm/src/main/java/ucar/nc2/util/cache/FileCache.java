@@ -64,7 +64,7 @@ public class FileCache implements FileCacheIF {
   static final boolean debugPrint = false;
   static final boolean debugCleanup = false;
 
-  // Shared mutable data. Access to it is limited to the following 3 synchronized methods.
+  // Shared mutable data. Access to it is limited to the following 3 synchronized methods, also used by FileCacheWeighted.
   static private Timer timer;
 
   /**
@@ -78,14 +78,14 @@ public class FileCache implements FileCacheIF {
     timer = null;
   }
 
-  private static synchronized void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+  static synchronized void scheduleAtFixedRate(TimerTask task, long delay, long period) {
     if (timer == null) {
       timer = new Timer("FileCache");
     }
     timer.scheduleAtFixedRate(task, delay, period);
   }
 
-  private static synchronized void schedule(TimerTask task, long delay) {
+  static synchronized void schedule(TimerTask task, long delay) {
     if (timer == null) {
       timer = new Timer("FileCache");
     }
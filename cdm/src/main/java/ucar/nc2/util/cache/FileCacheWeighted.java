@@ -0,0 +1,539 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.util.CancelTask;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keep cache of open FileCacheable objects, bounded by the number of open files and by their estimated memory.
+ * <p>
+ * Same contract as FileCache, but built for many distinct files and many threads:
+ * <ul>
+ * <li>there is no global lock: acquire() and release() only lock the entry for their own key, and counts are atomic.
+ * <li>eviction is always done in the background, on the FileCache timer thread, and never blocks acquire() or release().
+ *     When a limit is passed, unlocked files are closed, least recently used first, until the cache is under 80% of
+ *     each limit. Locked files are never closed, so the limits are not strict.
+ * <li>the weigher estimates the memory held by an open file, eg its header; it is called when a file is added,
+ *     and again on each eviction pass, since it may grow as data is cached.
+ * <li>hits, misses, time spent in acquire() and evictions are counted, see showStats().
+ * </ul>
+ * Call FileCache.shutdown() when exiting the program, to shut down the timer thread.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class FileCacheWeighted implements FileCacheIF {
+  static private final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileCacheWeighted.class);
+  static private final org.slf4j.Logger cacheLog = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+
+  private final String name;
+  private final int maxFiles;
+  private final long maxBytes;
+  private final long period; // msecs
+  private final ToLongFunction<FileCacheable> weigher;
+
+  private final AtomicBoolean disabled = new AtomicBoolean(false);
+  private final AtomicBoolean evictScheduled = new AtomicBoolean(false);
+  private final Object evictLock = new Object();  // one eviction at a time
+  private volatile boolean evictInBackground = true;
+
+  private final ConcurrentHashMap<Object, Entry> cache = new ConcurrentHashMap<>(); // unique files (by key, often = filename)
+  private final ConcurrentHashMap<FileCacheable, CacheFile> files = new ConcurrentHashMap<>(); // all files in the cache
+  private final AtomicInteger nfiles = new AtomicInteger();
+  private final AtomicLong weight = new AtomicLong();
+  private final AtomicLong accessSequence = new AtomicLong(); // orders files by last access, finer than msecs
+
+  // stats
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder hitNanos = new LongAdder();
+  private final LongAdder missNanos = new LongAdder();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong evictionRuns = new AtomicLong();
+  private final AtomicLong evictionNanos = new AtomicLong();
+
+  /**
+   * Constructor.
+   *
+   * @param name     of file cache
+   * @param maxFiles evict when there are more than this many open files; if <= 0, no limit
+   * @param maxBytes evict when the weigher's estimate of memory held by open files is more than this; if <= 0, no limit
+   * @param period   if > 0, also look for files to evict every this number of seconds.
+   * @param weigher  estimate the memory held by an open file, in bytes. may be null if maxBytes <= 0
+   */
+  public FileCacheWeighted(String name, int maxFiles, long maxBytes, int period, ToLongFunction<FileCacheable> weigher) {
+    if (maxBytes > 0 && weigher == null)
+      throw new IllegalArgumentException("FileCacheWeighted " + name + " needs a weigher to limit memory");
+    this.name = name;
+    this.maxFiles = maxFiles;
+    this.maxBytes = maxBytes;
+    this.period = (long) 1000 * period;
+    this.weigher = (weigher != null) ? weigher : fc -> 0;
+
+    if (period > 0) {
+      FileCache.scheduleAtFixedRate(new EvictTask(), this.period, this.period);
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheWeighted " + name + " eviction every " + period + " secs");
+    }
+  }
+
+  @Override
+  public void disable() {
+    this.disabled.set(true);
+    clearCache(true);
+  }
+
+  @Override
+  public void enable() {
+    this.disabled.set(false);
+  }
+
+  @Override
+  public FileCacheable acquire(FileFactory factory, DatasetUrl durl) throws IOException {
+    return acquire(factory, durl.trueurl, durl, -1, null, null);
+  }
+
+  /**
+   * Acquire a FileCacheable from the cache, and lock it so no one else can use it.
+   * If not already in cache, open it with the FileFactory, and put in cache.
+   * Call FileCacheable.close() when done, and the file is then released instead of closed.
+   *
+   * @param factory     use this factory to open the file if not in the cache; may not be null
+   * @param hashKey     unique key for this file. If null, the location will be used
+   * @param location    file location, will be passed to the FileFactory
+   * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
+   * @param cancelTask  user can cancel, ok to be null.
+   * @param spiObject   passed to the factory if object needs to be recreated
+   * @return FileCacheable corresponding to location.
+   * @throws IOException on error
+   */
+  @Override
+  public FileCacheable acquire(FileFactory factory, Object hashKey, DatasetUrl location,
+                               int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
+    if (null == hashKey) hashKey = location.trueurl;
+    if (null == hashKey) throw new IllegalArgumentException();
+
+    long start = System.nanoTime();
+    FileCacheable ncfile = acquireCacheOnly(hashKey);
+    if (ncfile != null) {
+      hits.increment();
+      hitNanos.add(System.nanoTime() - start);
+      return ncfile;
+    }
+
+    ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+    misses.increment();
+    missNanos.add(System.nanoTime() - start);
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheWeighted " + name + " acquire " + hashKey + " " + ncfile.getLocation());
+
+    // user may have canceled
+    if ((cancelTask != null) && (cancelTask.isCancel())) {
+      ncfile.close();
+      return null;
+    }
+
+    if (disabled.get()) return ncfile;
+
+    CacheFile file = new CacheFile(ncfile, hashKey);
+    while (true) {
+      Entry entry = cache.computeIfAbsent(hashKey, Entry::new);
+      synchronized (entry) {
+        if (!entry.removed) {  // otherwise the evictor removed it just now; make a new one
+          // counted before it can be found in the entry, so an eject that closes it also counts it down
+          files.put(ncfile, file);
+          nfiles.incrementAndGet();
+          entry.list.add(file);
+          break;
+        }
+      }
+    }
+    file.setWeight(weigher.applyAsLong(ncfile));
+
+    if (overLimit())
+      scheduleEviction();
+    return ncfile;
+  }
+
+  private FileCacheable acquireCacheOnly(Object hashKey) {
+    if (disabled.get()) return null;
+
+    Entry entry = cache.get(hashKey);
+    if (entry == null) return null;
+
+    CacheFile want = null;
+    synchronized (entry) {
+      for (CacheFile file : entry.list) {
+        if (file.isLocked.compareAndSet(false, true)) {
+          want = file;
+          break;
+        }
+      }
+    }
+    if (want == null) return null; // no unlocked file in cache
+
+    // check if modified, remove if so
+    if (want.ncfile.getLastModified() != want.lastModified) {
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheWeighted " + name + ": acquire from cache " + hashKey + " " + want.ncfile.getLocation() + " was changed; discard");
+      remove(want);
+      return null;
+    }
+
+    try {
+      want.ncfile.reacquire(); // rehydrate
+    } catch (IOException ioe) {
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheWeighted " + name + " acquire from cache " + hashKey + " " + want.ncfile.getLocation() +
+                " failed: " + ioe.getMessage());
+      remove(want);
+      return null;
+    }
+
+    return want.ncfile;
+  }
+
+  /**
+   * Release the file. This unlocks it, updates its lastAccessed date.
+   * Normally applications need not call this, just close the file as usual.
+   *
+   * @param ncfile release this file.
+   * @return true if file was in cache, false if it was not
+   */
+  @Override
+  public boolean release(FileCacheable ncfile) throws IOException {
+    if (ncfile == null) return false;
+
+    if (disabled.get()) {
+      ncfile.setFileCache(null); // prevent infinite loops
+      ncfile.close();
+      return false;
+    }
+
+    CacheFile file = files.get(ncfile);
+    if (file == null) return false;
+
+    if (!file.isLocked.get())
+      cacheLog.warn("FileCacheWeighted " + name + " release " + ncfile.getLocation() + " not locked; hash= " + ncfile.hashCode());
+    file.lastAccessed = System.currentTimeMillis();
+    file.accessOrder = accessSequence.incrementAndGet();
+    file.countAccessed.incrementAndGet();
+    file.isLocked.set(false);
+    file.ncfile.release();
+    return true;
+  }
+
+  /**
+   * Remove all instances of object from the cache
+   *
+   * @param hashKey the object
+   */
+  @Override
+  public void eject(Object hashKey) {
+    if (disabled.get()) return;
+
+    Entry entry = cache.get(hashKey);
+    if (entry == null) return;
+
+    List<CacheFile> ejected;
+    synchronized (entry) {
+      ejected = new ArrayList<>(entry.list);
+      entry.list.clear();
+      entry.removed = true;
+      cache.remove(hashKey, entry);
+    }
+    for (CacheFile file : ejected)
+      close(file);
+  }
+
+  /**
+   * Remove all cache entries.
+   *
+   * @param force if true, remove them even if they are currently locked.
+   */
+  @Override
+  public void clearCache(boolean force) {
+    int count = 0;
+    for (CacheFile file : files.values()) {
+      boolean wasUnlocked = file.isLocked.compareAndSet(false, true);
+      if (!wasUnlocked && !force) continue;
+      if (!file.removeFromEntry()) continue;  // someone else removed it
+      if (!wasUnlocked)
+        cacheLog.warn("FileCacheWeighted " + name + " force close locked file= " + file);
+      close(file);
+      count++;
+    }
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheWeighted " + name + " clearCache force= " + force + " deleted= " + count + " left=" + files.size());
+  }
+
+  // a file in the cache that was locked by the caller
+  private void remove(CacheFile file) {
+    file.removeFromEntry();
+    close(file);
+  }
+
+  // a file that has been taken out of its entry
+  private void close(CacheFile file) {
+    if (files.remove(file.ncfile) != null) {
+      nfiles.decrementAndGet();
+      file.close();
+    }
+    try {
+      file.ncfile.setFileCache(null); // unhook the caching
+      file.ncfile.close();
+    } catch (IOException e) {
+      log.error("FileCacheWeighted " + name + " close failed on " + file.ncfile.getLocation(), e);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // eviction
+
+  private boolean overLimit() {
+    return (maxFiles > 0 && nfiles.get() > maxFiles) || (maxBytes > 0 && weight.get() > maxBytes);
+  }
+
+  // for testing: only evict when evict() is called
+  void setEvictInBackground(boolean evictInBackground) {
+    this.evictInBackground = evictInBackground;
+  }
+
+  private void scheduleEviction() {
+    if (evictInBackground && evictScheduled.compareAndSet(false, true))
+      FileCache.schedule(new EvictTask(), 0);
+  }
+
+  /**
+   * Close least recently used unlocked files until under 80% of the limits.
+   * Normally this is done in a background thread, you dont need to call.
+   */
+  void evict() {
+    synchronized (evictLock) {
+      evictLocked();
+    }
+  }
+
+  private void evictLocked() {
+    try {
+      long start = System.nanoTime();
+
+      // update the weights, they may have grown as data was cached
+      for (CacheFile file : files.values())
+        file.setWeight(weigher.applyAsLong(file.ncfile));
+      if (!overLimit()) return;
+
+      int wantFiles = (maxFiles > 0) ? nfiles.get() - (int) (0.8 * maxFiles) : 0;
+      long wantBytes = (maxBytes > 0) ? weight.get() - (long) (0.8 * maxBytes) : 0;
+
+      // oldest unlocked files first; no need to sort all of them.
+      // lastAccessed may change while in the queue, so the order is approximate
+      List<CacheFile> unlocked = new ArrayList<>(files.size());
+      for (CacheFile file : files.values())
+        if (!file.isLocked.get()) unlocked.add(file);
+      PriorityQueue<CacheFile> oldest = new PriorityQueue<>(unlocked);
+
+      int countFiles = 0;
+      long countBytes = 0;
+      while ((countFiles < wantFiles || countBytes < wantBytes) && !oldest.isEmpty()) {
+        CacheFile file = oldest.poll();
+        if (!file.isLocked.compareAndSet(false, true)) continue;  // someone got it first
+        if (!file.removeFromEntry()) continue;
+        countFiles++;
+        countBytes += file.bytes;
+        close(file);
+      }
+
+      evictions.addAndGet(countFiles);
+      evictionRuns.incrementAndGet();
+      evictionNanos.addAndGet(System.nanoTime() - start);
+      if (overLimit())
+        cacheLog.warn("FileCacheWeighted " + name + " evict couldnt get under the limits due to locked files; nfiles= " +
+                nfiles.get() + " bytes= " + weight.get());
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheWeighted {} evicted {} files {} bytes in {} msecs", name, countFiles, countBytes,
+                (System.nanoTime() - start) / 1000 / 1000);
+
+    } finally {
+      evictScheduled.set(false);
+    }
+  }
+
+  private class EvictTask extends TimerTask {
+    public void run() {
+      if (disabled.get() || !evictInBackground) return;
+      try {
+        evict();
+      } catch (Throwable t) {
+        log.error("FileCacheWeighted " + name + " evict failed", t);
+      }
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+  // stats
+
+  public int getOpenFiles() {
+    return nfiles.get();
+  }
+
+  /** @return the weigher's estimate of the memory held by the open files, as of the last eviction pass */
+  public long getEstimatedBytes() {
+    return weight.get();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return (total == 0) ? 0.0 : ((double) h) / total;
+  }
+
+  /** @return average time spent in acquire(), in msecs, including opening the file on a miss */
+  public double getAverageAcquireMillis() {
+    long total = hits.sum() + misses.sum();
+    return (total == 0) ? 0.0 : (hitNanos.sum() + missNanos.sum()) / 1.0e6 / total;
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  @Override
+  public void showCache(Formatter format) {
+    List<CacheFile> allFiles = new ArrayList<>(files.values());
+    Collections.sort(allFiles); // sort so oldest are on top
+
+    format.format("%nFileCacheWeighted %s (maxFiles=%d maxBytes=%d scour=%d secs):%n", name, maxFiles, maxBytes, period / 1000);
+    format.format(" isLocked  accesses     bytes lastAccess                   location %n");
+    for (CacheFile file : allFiles) {
+      format.format("%8s %9d %9d %s == %s %n", file.isLocked, file.countAccessed.get(), file.bytes,
+              CalendarDateFormatter.toDateTimeStringISO(file.lastAccessed), file.ncfile.getLocation());
+    }
+    showStats(format);
+  }
+
+  @Override
+  public List<String> showCache() {
+    List<CacheFile> allFiles = new ArrayList<>(files.values());
+    Collections.sort(allFiles); // sort so oldest are on top
+
+    List<String> result = new ArrayList<>(allFiles.size());
+    for (CacheFile file : allFiles)
+      result.add(file.toString());
+    return result;
+  }
+
+  @Override
+  public void showStats(Formatter format) {
+    long h = hits.sum();
+    long m = misses.sum();
+    format.format("  hits= %d miss= %d hitRate= %.3f nfiles= %d elems= %d bytes= %d%n", h, m, getHitRate(),
+            nfiles.get(), cache.size(), weight.get());
+    format.format("  acquire msecs avg: hit= %.3f miss= %.3f%n", (h == 0) ? 0.0 : hitNanos.sum() / 1.0e6 / h,
+            (m == 0) ? 0.0 : missNanos.sum() / 1.0e6 / m);
+    format.format("  evictions= %d in %d runs, total= %d msecs%n", evictions.get(), evictionRuns.get(),
+            evictionNanos.get() / 1000 / 1000);
+  }
+
+  @Override
+  public void resetTracking() {
+  }
+
+  @Override
+  public void showTracking(Formatter format) {
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////////
+
+  // all the open files with the same key
+  private static class Entry {
+    @GuardedBy("this")
+    final List<CacheFile> list = new ArrayList<>(2); // may have multiple copies of the same file opened
+    @GuardedBy("this")
+    boolean removed;  // no longer in the cache map, dont add to it
+    final Object hashKey;
+
+    Entry(Object hashKey) {
+      this.hashKey = hashKey;
+    }
+  }
+
+  private class CacheFile implements Comparable<CacheFile> {
+    final FileCacheable ncfile;
+    final Object hashKey;
+    final AtomicBoolean isLocked = new AtomicBoolean(true);
+    final AtomicInteger countAccessed = new AtomicInteger();
+    final long lastModified;
+    volatile long lastAccessed;
+    volatile long accessOrder;
+    volatile long bytes;  // estimated memory, included in the cache weight. changed only when synchronized
+    @GuardedBy("this")
+    boolean closed;
+
+    CacheFile(FileCacheable ncfile, Object hashKey) {
+      this.ncfile = ncfile;
+      this.hashKey = hashKey;
+      this.lastModified = ncfile.getLastModified();
+      this.lastAccessed = System.currentTimeMillis();
+      this.accessOrder = accessSequence.incrementAndGet();
+      ncfile.setFileCache(FileCacheWeighted.this);
+    }
+
+    // keep the cache weight in step
+    synchronized void setWeight(long w) {
+      if (closed) return;
+      weight.addAndGet(w - bytes);
+      bytes = w;
+    }
+
+    synchronized void close() {
+      closed = true;
+      weight.addAndGet(-bytes);
+    }
+
+    // take this out of its entry, and the entry out of the cache if empty; return false if it wasnt there
+    boolean removeFromEntry() {
+      Entry entry = cache.get(hashKey);
+      if (entry == null) return false;
+      synchronized (entry) {
+        if (!entry.list.remove(this)) return false;
+        if (entry.list.isEmpty()) {
+          entry.removed = true;
+          cache.remove(hashKey, entry);
+        }
+      }
+      return true;
+    }
+
+    public String toString() {
+      return isLocked + " " + countAccessed + " " + CalendarDateFormatter.toDateTimeStringISO(lastAccessed) + "   " + ncfile.getLocation();
+    }
+
+    public int compareTo(CacheFile o) {
+      return Long.compare(accessOrder, o.accessOrder);
+    }
+  }
+}
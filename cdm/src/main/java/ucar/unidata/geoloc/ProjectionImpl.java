@@ -8,6 +8,7 @@ import ucar.unidata.geoloc.projection.LatLonProjection;
 import ucar.unidata.util.*;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Superclass for our implementations of geoloc.Projection.
@@ -394,15 +395,66 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
               + "from array not same length as to array");
     }
 
+    ProjectionPointImpl ppi = new ProjectionPointImpl();
+    LatLonPointImpl llpi = new LatLonPointImpl();
+
     for (int i = 0; i < from[0].length; i++) {
-      LatLonPoint endL = projToLatLon(from[0][i], from[1][i]);
-      to[0][i] = endL.getLatitude();
-      to[1][i] = endL.getLongitude();
+      ppi.setLocation(from[0][i], from[1][i]);
+      projToLatLon(ppi, llpi);
+      to[0][i] = llpi.getLatitude();
+      to[1][i] = llpi.getLongitude();
+    }
+
+    return to;
+  }
+
+  /**
+   * Number of points in each block converted by projToLatLonParallel()
+   */
+  static public final int PARALLEL_BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Convert projection coordinates to lat/lon coordinates, splitting large arrays into blocks
+   * that are converted in parallel on the common fork/join pool.
+   * Each block uses its own copy of this projection (constructCopy), so subclasses that keep
+   * scratch state are safe. Arrays with fewer than 2 * PARALLEL_BLOCK_SIZE points are converted on this thread.
+   * The longitudes are normalized to +/- 180, as by projToLatLon(ProjectionPoint, LatLonPointImpl).
+   *
+   * @param from array of projection coordinates: from[2][n]
+   * @param to   resulting array of lat/lon coordinates: to[2][n]
+   * @return the "to" array
+   */
+  public double[][] projToLatLonParallel(double[][] from, double[][] to) {
+    int n = from[0].length;
+    if (n < 2 * PARALLEL_BLOCK_SIZE) {
+      projToLatLon(from, to);
+      lonNormal(to[INDEX_LON], 0, n);
+      return to;
+    }
+    if ((to == null) || (to.length != 2) || (to[0].length != n)) {
+      throw new IllegalArgumentException("ProjectionImpl.projToLatLonParallel:"
+              + "null array argument or wrong dimension (to)");
     }
 
+    int nblocks = (n + PARALLEL_BLOCK_SIZE - 1) / PARALLEL_BLOCK_SIZE;
+    IntStream.range(0, nblocks).parallel().forEach(block -> {
+      int start = block * PARALLEL_BLOCK_SIZE;
+      int end = Math.min(n, start + PARALLEL_BLOCK_SIZE);
+      double[][] blockFrom = new double[][]{Arrays.copyOfRange(from[0], start, end), Arrays.copyOfRange(from[1], start, end)};
+      double[][] blockTo = constructCopy().projToLatLon(blockFrom, new double[2][end - start]);
+      lonNormal(blockTo[INDEX_LON], 0, end - start);
+      System.arraycopy(blockTo[0], 0, to[0], start, end - start);
+      System.arraycopy(blockTo[1], 0, to[1], start, end - start);
+    });
     return to;
   }
 
+  // some projections' array conversions dont normalize the longitude
+  static private void lonNormal(double[] lon, int start, int end) {
+    for (int i = start; i < end; i++)
+      lon[i] = LatLonPointImpl.lonNormal(lon[i]);
+  }
+
   /**
    * Convert projection coordinates to lat/lon coordinates.
    *
@@ -640,7 +640,7 @@ public class LambertConformal extends ProjectionImpl {
       }
 
       toLatA[i] = (float) toLat;
-      toLonA[i] = (float) toLon;
+      toLonA[i] = (float) LatLonPointImpl.lonNormal(toLon);
     }
     return to;
   }
@@ -733,7 +733,7 @@ public class LambertConformal extends ProjectionImpl {
       }
 
       toLatA[i] = toLat;
-      toLonA[i] = toLon;
+      toLonA[i] = LatLonPointImpl.lonNormal(toLon);
     }
     return to;
   }
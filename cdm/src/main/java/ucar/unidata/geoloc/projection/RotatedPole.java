@@ -204,6 +204,88 @@ public class RotatedPole extends ProjectionImpl {
     return destPoint;
   }
 
+  /**
+   * Transform arrays of rotated longitude (X) and rotated latitude (Y) into "real" latitude and longitude,
+   * without creating intermediate objects.
+   *
+   * @param from array of projection coordinates: from[2][n]
+   * @param to   resulting array of lat/lon coordinates: to[2][n]
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    int cnt = from[0].length;
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+
+    for (int i = 0; i < cnt; i++) {
+      final double lonR = LatLonPointImpl.range180(fromXA[i]) * RAD_PER_DEG;
+      final double latR = fromYA[i] * RAD_PER_DEG;
+
+      double cosLat = Math.cos(latR);
+      double x0 = cosLat * Math.cos(lonR);
+      double y0 = cosLat * Math.sin(lonR);
+      double z0 = Math.sin(latR);
+
+      //	Inverse rotate around Y-axis, then Z-axis (using transposes)
+      double x1 = rotY[0][0] * x0 + rotY[1][0] * y0 + rotY[2][0] * z0;
+      double y1 = rotY[0][1] * x0 + rotY[1][1] * y0 + rotY[2][1] * z0;
+      double z1 = rotY[0][2] * x0 + rotY[1][2] * y0 + rotY[2][2] * z0;
+
+      double x2 = rotZ[0][0] * x1 + rotZ[1][0] * y1 + rotZ[2][0] * z1;
+      double y2 = rotZ[0][1] * x1 + rotZ[1][1] * y1 + rotZ[2][1] * z1;
+      double z2 = rotZ[0][2] * x1 + rotZ[1][2] * y1 + rotZ[2][2] * z1;
+
+      toLonA[i] = Math.atan2(y2, x2) * DEG_PER_RAD;
+      toLatA[i] = Math.asin(z2) * DEG_PER_RAD;
+    }
+    return to;
+  }
+
+  /**
+   * Transform arrays of "real" latitude and longitude into rotated longitude (X) and rotated latitude (Y),
+   * without creating intermediate objects.
+   *
+   * @param from     array of lat/lon coordinates: from[2][n]
+   * @param to       resulting array of projection coordinates: to[2][n]
+   * @param latIndex index of lat coordinate; must be 0 or 1
+   * @param lonIndex index of lon coordinate; must be 0 or 1
+   * @return the "to" array
+   */
+  @Override
+  public double[][] latLonToProj(double[][] from, double[][] to, int latIndex, int lonIndex) {
+    int cnt = from[0].length;
+    double[] fromLatA = from[latIndex];
+    double[] fromLonA = from[lonIndex];
+    double[] resultXA = to[INDEX_X];
+    double[] resultYA = to[INDEX_Y];
+
+    for (int i = 0; i < cnt; i++) {
+      final double lat = fromLatA[i] * RAD_PER_DEG;
+      final double lon = fromLonA[i] * RAD_PER_DEG;
+
+      double cosLat = Math.cos(lat);
+      double x0 = cosLat * Math.cos(lon);
+      double y0 = cosLat * Math.sin(lon);
+      double z0 = Math.sin(lat);
+
+      //	Rotate around Z-axis, then Y-axis
+      double x1 = rotZ[0][0] * x0 + rotZ[0][1] * y0 + rotZ[0][2] * z0;
+      double y1 = rotZ[1][0] * x0 + rotZ[1][1] * y0 + rotZ[1][2] * z0;
+      double z1 = rotZ[2][0] * x0 + rotZ[2][1] * y0 + rotZ[2][2] * z0;
+
+      double x2 = rotY[0][0] * x1 + rotY[0][1] * y1 + rotY[0][2] * z1;
+      double y2 = rotY[1][0] * x1 + rotY[1][1] * y1 + rotY[1][2] * z1;
+      double z2 = rotY[2][0] * x1 + rotY[2][1] * y1 + rotY[2][2] * z1;
+
+      resultXA[i] = LatLonPointImpl.range180(Math.atan2(y2, x2) * DEG_PER_RAD);
+      resultYA[i] = Math.asin(z2) * DEG_PER_RAD;
+    }
+    return to;
+  }
+
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
      return Math.abs(pt1.getX() - pt2.getX()) > 270.0;
   }
@@ -612,7 +612,7 @@ public class Stereographic extends ProjectionImpl {
       toLon = Math.toDegrees(lam);
 
       toLatA[i] = (float) toLat;
-      toLonA[i] = (float) toLon;
+      toLonA[i] = (float) LatLonPointImpl.lonNormal(toLon);
     }
     return to;
   }
@@ -719,7 +719,7 @@ public class Stereographic extends ProjectionImpl {
       toLon = Math.toDegrees(lam);
 
       toLatA[i] = toLat;
-      toLonA[i] = toLon;
+      toLonA[i] = LatLonPointImpl.lonNormal(toLon);
     }
     return to;
   }
@@ -0,0 +1,541 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import ucar.unidata.io.bzip2.BZip2ReadException;
+import ucar.unidata.io.bzip2.CBZip2InputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only random access to the uncompressed contents of a gzip, bzip2 or zip file, without writing the
+ * uncompressed file to disk.
+ * <p>
+ * When first opened, the whole file is decompressed once to build an index of checkpoints: for bzip2, the start of
+ * each block; for gzip and zip, a deflate block boundary every DEFAULT_SPAN bytes of output, along with the 32K of
+ * output before it, which the following blocks may refer to. The index may be saved to a file, and is used by
+ * later opens as long as the compressed file has not changed. A read then only decompresses from the nearest
+ * checkpoint before it; reads that continue where the last one ended just keep decompressing.
+ * <p>
+ * For zip files, only the first entry is read, same as NetcdfFile does when it unzips.
+ * Concatenated gzip members are handled, concatenated bzip2 streams are not.
+ * Reads are serialized, since they share the decompressor.
+ *
+ * @since 10/18/2026
+ */
+public class CompressedRandomAccessFile extends RandomAccessFile {
+  static private final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CompressedRandomAccessFile.class);
+
+  /** Suffix of the index file, added to the name of the compressed file. */
+  static public final String INDEX_SUFFIX = ".zidx";
+  /** Default spacing of gzip and zip checkpoints, in bytes of uncompressed data. */
+  static public final int DEFAULT_SPAN = 1 << 20;
+
+  static private final int INDEX_MAGIC = 0x5a494458; // "ZIDX"
+  static private final int INDEX_VERSION = 1;
+
+  private enum Format {gzip, bzip2, zip}
+
+  /**
+   * Can this class read the file, based on its suffix.
+   * @param location file location
+   * @return true if it ends with .gz, .gzip, .bz2 or .zip
+   */
+  static public boolean isCompressed(String location) {
+    return getFormat(location) != null;
+  }
+
+  static private Format getFormat(String location) {
+    int pos = location.lastIndexOf('.');
+    if (pos < 0) return null;
+    String suffix = location.substring(pos + 1);
+    if (suffix.equalsIgnoreCase("gz") || suffix.equalsIgnoreCase("gzip")) return Format.gzip;
+    if (suffix.equalsIgnoreCase("bz2")) return Format.bzip2;
+    if (suffix.equalsIgnoreCase("zip")) return Format.zip;
+    return null;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////
+
+  private final Format format;
+  private java.io.RandomAccessFile compressed;
+  private final FileChannel channel;
+  private final long compressedLength;
+  private final long compressedLastModified;
+
+  // the index
+  private long uncompressedLength;
+  private long dataStart;       // start of the deflate data of a zip entry
+  private int blockSize100k;    // bzip2 block size
+  private long[] checkpointPos;  // uncompressed position
+  private long[] checkpointBits; // bit position in the compressed file
+  private byte[][] checkpointWindow; // gzip and zip only
+
+  // the current decoder, and where it is in the uncompressed data
+  private Decoder decoder;
+  private long decoderPos;
+  private final byte[] skipBuffer = new byte[8192];
+
+  /**
+   * Open a compressed file, using a default size buffer and no index file.
+   * @param location location of the compressed file
+   * @throws IOException on read error, or if the file is not a valid compressed file
+   */
+  public CompressedRandomAccessFile(String location) throws IOException {
+    this(location, null, defaultBufferSize);
+  }
+
+  /**
+   * Open a compressed file.
+   * @param location location of the compressed file
+   * @param indexFile read the index from this file if it is up to date, otherwise write it there. May be null.
+   * @param bufferSize size of the read buffer
+   * @throws IOException on read error, or if the file is not a valid compressed file
+   */
+  public CompressedRandomAccessFile(String location, File indexFile, int bufferSize) throws IOException {
+    super(bufferSize);
+    this.location = location;
+    this.format = getFormat(location);
+    if (format == null)
+      throw new IOException("Not a gzip, bzip2 or zip file: " + location);
+
+    File cfile = new File(location);
+    this.compressed = new java.io.RandomAccessFile(cfile, "r");
+    this.channel = compressed.getChannel();
+    this.compressedLength = channel.size();
+    this.compressedLastModified = cfile.lastModified();
+
+    try {
+      if (indexFile == null || !readIndex(indexFile)) {
+        makeIndex();
+        if (indexFile != null)
+          writeIndex(indexFile);
+      }
+    } catch (IOException | RuntimeException e) {
+      compressed.close();
+      throw e;
+    }
+
+    if (debugLeaks) {
+      allFiles.add(location);
+      openFiles.add(location);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (compressed == null) return;
+    if (debugLeaks)
+      openFiles.remove(location);
+    decoder = null;
+    compressed.close();
+    compressed = null;
+  }
+
+  @Override
+  public long length() {
+    return uncompressedLength;
+  }
+
+  @Override
+  public long getLastModified() {
+    return compressedLastModified;
+  }
+
+  /** Number of checkpoints in the index. */
+  public int getNumberOfCheckpoints() {
+    return checkpointPos.length;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////
+  // reading
+
+  @Override
+  protected synchronized int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (compressed == null)
+      throw new IOException("File is closed: " + location);
+    if (pos >= uncompressedLength)
+      return -1;
+    len = (int) Math.min(len, uncompressedLength - pos);
+
+    // keep going with the current decoder if there is no closer checkpoint
+    int index = findCheckpoint(pos);
+    if (decoder == null || decoderPos > pos || checkpointPos[index] > decoderPos) {
+      decoder = openDecoder(index);
+      decoderPos = checkpointPos[index];
+    }
+
+    while (decoderPos < pos) {
+      int n = decoder.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, pos - decoderPos));
+      if (n < 0) throw new EOFException("Compressed data ended before " + pos + " in " + location);
+      decoderPos += n;
+    }
+
+    int done = 0;
+    while (done < len) {
+      int n = decoder.read(b, offset + done, len - done);
+      if (n < 0) break;
+      done += n;
+      decoderPos += n;
+    }
+    return (done == 0) ? -1 : done;
+  }
+
+  @Override
+  public int readAt(long pos, ByteBuffer dst) throws IOException {
+    if (pos < 0)
+      throw new IllegalArgumentException("Negative position");
+    if (dst.hasArray()) {
+      int n = read_(pos, dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+      if (n > 0) dst.position(dst.position() + n);
+      return n;
+    }
+    byte[] buff = new byte[dst.remaining()];
+    int n = read_(pos, buff, 0, buff.length);
+    if (n > 0) dst.put(buff, 0, n);
+    return n;
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    byte[] buff = new byte[(int) Math.min(nbytes, 64 * 1000)];
+    long done = 0;
+    while (done < nbytes) {
+      int n = read_(offset + done, buff, 0, (int) Math.min(buff.length, nbytes - done));
+      if (n < 0) break;
+      ByteBuffer bb = ByteBuffer.wrap(buff, 0, n);
+      while (bb.hasRemaining())
+        dest.write(bb);
+      done += n;
+    }
+    return done;
+  }
+
+  // last checkpoint at or before pos
+  private int findCheckpoint(long pos) {
+    int index = Arrays.binarySearch(checkpointPos, pos);
+    return (index >= 0) ? index : -index - 2;
+  }
+
+  private Decoder openDecoder(int index) throws IOException {
+    long bitPos = checkpointBits[index];
+    InputStream in = new ChannelInputStream(channel, bitPos / 8);
+    if (format == Format.bzip2)
+      return new Bzip2Decoder(new CBZip2InputStream(in, blockSize100k, (int) (bitPos % 8)));
+    return new DeflateDecoder(new RawInflater(in, bitPos / 8, (int) (bitPos % 8), checkpointWindow[index]), false);
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////
+  // index
+
+  private void makeIndex() throws IOException {
+    List<long[]> points = new ArrayList<>();  // pos, bitPos
+    List<byte[]> windows = new ArrayList<>();
+    Decoder indexer;
+
+    if (format == Format.bzip2) {
+      InputStream in = new ChannelInputStream(channel, 0);
+      if (in.read() != 'B' || in.read() != 'Z')
+        throw new IOException("Not a bzip2 file: " + location);
+      CBZip2InputStream bzin = new CBZip2InputStream();
+      bzin.setBlockListener((uncompressedPos, bitPos) -> points.add(new long[]{uncompressedPos, 16 + bitPos}));
+      try {
+        bzin.setStream(in);
+      } catch (BZip2ReadException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+      blockSize100k = bzin.getBlockSize100k();
+      indexer = new Bzip2Decoder(bzin);
+
+    } else {
+      long start = (format == Format.zip) ? readZipHeader() : readGzipHeader(0);
+      if (start < 0)
+        throw new IOException("Not a gzip file: " + location);
+      RawInflater inflater = new RawInflater(new ChannelInputStream(channel, start), start, 0, null);
+      DeflateDecoder deflater = new DeflateDecoder(inflater, true);
+      deflater.listener = inf -> {
+        long pos = deflater.memberStart + inf.getTotalOut();
+        if (points.isEmpty() || pos - points.get(points.size() - 1)[0] >= DEFAULT_SPAN) {
+          points.add(new long[]{pos, inf.getBitPosition()});
+          windows.add(inf.getWindow());
+        }
+      };
+      inflater.setBlockListener(deflater.listener);
+      indexer = deflater;
+    }
+
+    byte[] buff = new byte[64 * 1000];
+    long total = 0;
+    while (true) {
+      int n = indexer.read(buff, 0, buff.length);
+      if (n < 0) break;
+      total += n;
+    }
+
+    uncompressedLength = total;
+    int n = points.size();
+    checkpointPos = new long[n];
+    checkpointBits = new long[n];
+    checkpointWindow = new byte[n][];
+    for (int i = 0; i < n; i++) {
+      checkpointPos[i] = points.get(i)[0];
+      checkpointBits[i] = points.get(i)[1];
+      if (!windows.isEmpty())
+        checkpointWindow[i] = windows.get(i);
+    }
+    if (n == 0 && total > 0)
+      throw new IOException("No blocks found in " + location);
+    if (n == 0) { // empty, so never read
+      checkpointPos = new long[]{0};
+      checkpointBits = new long[]{0};
+      checkpointWindow = new byte[1][];
+    }
+  }
+
+  private boolean readIndex(File indexFile) {
+    if (!indexFile.exists())
+      return false;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(indexFile))))) {
+      if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) return false;
+      if (in.readByte() != format.ordinal()) return false;
+      if (in.readLong() != compressedLength || in.readLong() != compressedLastModified) return false;
+
+      uncompressedLength = in.readLong();
+      dataStart = in.readLong();
+      blockSize100k = in.readInt();
+      int n = in.readInt();
+      checkpointPos = new long[n];
+      checkpointBits = new long[n];
+      checkpointWindow = new byte[n][];
+      for (int i = 0; i < n; i++) {
+        checkpointPos[i] = in.readLong();
+        checkpointBits[i] = in.readLong();
+        int wlen = in.readInt();
+        if (wlen >= 0) {
+          checkpointWindow[i] = new byte[wlen];
+          in.readFully(checkpointWindow[i]);
+        }
+      }
+      return true;
+
+    } catch (IOException e) {
+      log.warn("Failed to read compressed file index {}, err= {}; will rebuild", indexFile, e.getMessage());
+      return false;
+    }
+  }
+
+  // write to a temp file and rename, so a partial index is never seen
+  private void writeIndex(File indexFile) {
+    File tempFile = new File(indexFile.getPath() + ".tmp" + Thread.currentThread().getId());
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(tempFile))))) {
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeByte(format.ordinal());
+        out.writeLong(compressedLength);
+        out.writeLong(compressedLastModified);
+        out.writeLong(uncompressedLength);
+        out.writeLong(dataStart);
+        out.writeInt(blockSize100k);
+        out.writeInt(checkpointPos.length);
+        for (int i = 0; i < checkpointPos.length; i++) {
+          out.writeLong(checkpointPos[i]);
+          out.writeLong(checkpointBits[i]);
+          byte[] window = checkpointWindow[i];
+          out.writeInt(window == null ? -1 : window.length);
+          if (window != null)
+            out.write(window);
+        }
+      }
+      Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    } catch (IOException e) {
+      log.warn("Failed to write compressed file index {}, err= {}", indexFile, e.getMessage());
+      if (tempFile.exists() && !tempFile.delete())
+        log.warn("Failed to delete {}", tempFile);
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////
+  // headers
+
+  // return start of the deflate data of the first entry
+  private long readZipHeader() throws IOException {
+    ByteBuffer bb = ByteBuffer.allocate(30).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+    channel.read(bb, 0);
+    if (bb.position() < 30 || bb.getInt(0) != 0x04034b50)
+      throw new IOException("Not a zip file: " + location);
+    int method = bb.getShort(8) & 0xffff;
+    if (method != 8)
+      throw new IOException("Zip entry is not deflated, method= " + method + ": " + location);
+    int nameLen = bb.getShort(26) & 0xffff;
+    int extraLen = bb.getShort(28) & 0xffff;
+    dataStart = 30 + nameLen + extraLen;
+    return dataStart;
+  }
+
+  // return start of the deflate data of the gzip member starting at pos, or -1 if there is no gzip member there
+  private long readGzipHeader(long pos) throws IOException {
+    DataInputStream in = new DataInputStream(new ChannelInputStream(channel, pos));
+    try {
+      if (in.read() != 0x1f || in.read() != 0x8b) return -1;
+      if (in.readUnsignedByte() != 8)
+        throw new IOException("Unknown gzip compression method at " + pos + ": " + location);
+      int flags = in.readUnsignedByte();
+      in.skipBytes(6); // mtime, xfl, os
+      long n = 10;
+      if ((flags & 4) != 0) { // FEXTRA
+        int xlen = in.readUnsignedByte() | (in.readUnsignedByte() << 8);
+        in.readFully(new byte[xlen]);
+        n += 2 + xlen;
+      }
+      if ((flags & 8) != 0) // FNAME
+        n += skipZeroTerminated(in);
+      if ((flags & 16) != 0) // FCOMMENT
+        n += skipZeroTerminated(in);
+      if ((flags & 2) != 0) { // FHCRC
+        in.readFully(new byte[2]);
+        n += 2;
+      }
+      return pos + n;
+
+    } catch (EOFException e) {
+      return -1;
+    }
+  }
+
+  private int skipZeroTerminated(InputStream in) throws IOException {
+    int n = 0;
+    while (true) {
+      int b = in.read();
+      if (b < 0) throw new EOFException();
+      n++;
+      if (b == 0) return n;
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////////
+  // decoders
+
+  private interface Decoder {
+    int read(byte[] b, int off, int len) throws IOException;
+  }
+
+  // raw deflate data; for gzip, continues on to the following members
+  private class DeflateDecoder implements Decoder {
+    RawInflater inflater;
+    RawInflater.BlockListener listener;
+    long memberStart;    // uncompressed position of the start of the current inflater
+    final CRC32 crc;     // check the gzip trailers, only when starting at the beginning
+
+    DeflateDecoder(RawInflater inflater, boolean check) {
+      this.inflater = inflater;
+      this.crc = (check && format == Format.gzip) ? new CRC32() : null;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+      while (true) {
+        int n = inflater.read(b, off, len);
+        if (n >= 0) {
+          if (crc != null) crc.update(b, off, n);
+          return n;
+        }
+        if (format != Format.gzip)
+          return -1;
+
+        // end of a gzip member: 8 byte trailer, then maybe another member
+        long trailer = (inflater.getBitPosition() + 7) / 8;
+        if (crc != null)
+          checkTrailer(trailer);
+        long start = readGzipHeader(trailer + 8);
+        if (start < 0)
+          return -1;
+        memberStart += inflater.getTotalOut();
+        inflater = new RawInflater(new ChannelInputStream(channel, start), start, 0, null);
+        inflater.setBlockListener(listener);
+        if (crc != null) crc.reset();
+      }
+    }
+
+    private void checkTrailer(long pos) throws IOException {
+      ByteBuffer bb = ByteBuffer.allocate(8).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+      channel.read(bb, pos);
+      if (bb.position() < 8)
+        throw new EOFException("gzip trailer is missing: " + location);
+      if ((bb.getInt(0) & 0xffffffffL) != crc.getValue() || bb.getInt(4) != (int) inflater.getTotalOut())
+        throw new IOException("gzip CRC or length does not match: " + location);
+    }
+  }
+
+  private static class Bzip2Decoder implements Decoder {
+    final CBZip2InputStream in;
+
+    Bzip2Decoder(CBZip2InputStream in) {
+      this.in = in;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        int n = 0;
+        while (n < len) {
+          int c = in.read();
+          if (c < 0) break;
+          b[off + n++] = (byte) c;
+        }
+        return (n == 0) ? -1 : n;
+      } catch (BZip2ReadException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+  }
+
+  // buffered InputStream over a FileChannel, using positional reads
+  private static class ChannelInputStream extends InputStream {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    private long pos;
+
+    ChannelInputStream(FileChannel channel, long pos) {
+      this.channel = channel;
+      this.pos = pos;
+      buffer.limit(0);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!buffer.hasRemaining() && !fill()) return -1;
+      return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (!buffer.hasRemaining() && !fill()) return -1;
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    private boolean fill() throws IOException {
+      buffer.clear();
+      int n = channel.read(buffer, pos);
+      buffer.flip();
+      if (n <= 0) return false;
+      pos += n;
+      return true;
+    }
+  }
+}
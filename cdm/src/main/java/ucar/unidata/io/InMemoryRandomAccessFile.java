@@ -56,6 +56,17 @@ public class InMemoryRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     return len;
   }
 
+  @Override
+  public int readAt(long pos, ByteBuffer dst) throws IOException {
+    if (pos < 0)
+      throw new IllegalArgumentException("Negative position");
+    if (pos >= buffer.length && dst.hasRemaining())
+      return -1;
+    int len = (int) Math.min(dst.remaining(), buffer.length - pos);
+    dst.put(buffer, (int) pos, len);
+    return len;
+  }
+
   @Override
   public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
     return dest.write(ByteBuffer.wrap(buffer, (int) offset, (int) nbytes));
@@ -5,93 +5,114 @@
 package ucar.unidata.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * Use NIO MappedByteBuffer to implement a RandomAccessFile.
- * Limited to 2G size. Not currently used - NOT UP TO DATE DO NOT USE
+ * Use NIO MappedByteBuffers to implement a read-only RandomAccessFile.
+ * The file is mapped in segments of up to 1 GB, so there is no 2 GB limit.
+ * <p>
+ * readAt() copies directly out of the mapped segments, using a duplicate of the segment so that no position is
+ * shared, and so may be called by any number of threads at once. Unlike FileChannel reads, it is not affected by
+ * thread interrupts. The other read methods go through the buffer as usual and are thread confined.
+ * <p>
+ * The mapping is released when the segments are garbage collected, not when the file is closed.
+ * The file must not be truncated while it is mapped.
+ *
  * @author john
  */
 public class MMapRandomAccessFile extends RandomAccessFile {
+  static private final int SEGMENT_SIZE = 1 << 30;
 
-  private MappedByteBuffer source;
+  private volatile MappedByteBuffer[] segments;
+  private final long size;
 
   /**
-    * Constructor for in-memory "files"
-    * @param location used as a name
-    * @param mode the open mode
-    * @throws java.io.IOException on error
-    */
+   * Constructor.
+   * @param location location of the file
+   * @param mode the open mode, must be "r"
+   * @throws java.io.IOException on error
+   */
   public MMapRandomAccessFile(String location, String mode) throws IOException {
-    super(location, mode, 1);
-    FileChannel channel = file.getChannel();
-    source = channel.map( readonly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, (long) 0, channel.size());
-    //channel.close();
-
-    bufferStart = 0;
-	  dataSize = (int) channel.size();
-	  dataEnd = channel.size();
-    filePosition = 0;
-    buffer = null;
-    endOfFile = false;
-  }
-
+    super(location, mode, defaultBufferSize);
+    if (!readonly) {
+      super.close();
+      throw new IllegalArgumentException("MMapRandomAccessFile is read only, mode must be 'r'");
+    }
 
-  public void flush() throws IOException {
-    if (bufferModified) {
-      source.force();
-      bufferModified = false;
+    FileChannel channel = file.getChannel();
+    size = channel.size();
+    int nsegs = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+    MappedByteBuffer[] segs = new MappedByteBuffer[nsegs];
+    for (int i = 0; i < nsegs; i++) {
+      long start = (long) i * SEGMENT_SIZE;
+      segs[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
     }
+    segments = segs;
   }
 
-  public long length( ) {
-    return dataEnd;
+  @Override
+  public long length() {
+    return size;
   }
 
-  public void seek( long pos ) {
-    filePosition = pos;
-    if( filePosition < dataEnd )
-      source.position((int) filePosition);
-    else
-      endOfFile = true;
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (file == null) // really closed, not just released to the FileCache
+      segments = null;
   }
 
-   public void unread( ) {
-     seek( filePosition-1);
-   }
-
-  public int read() throws IOException {
-    // If the file position is within the data, return the byte...
-    if( filePosition < dataEnd ) {
-      filePosition++;
-      return source.get() & 0xff;
-
-    } else {
-       return -1;
+  @Override
+  public int readAt(long pos, ByteBuffer dst) throws IOException {
+    if (pos < 0)
+      throw new IllegalArgumentException("Negative position");
+    MappedByteBuffer[] segs = segments;
+    if (segs == null)
+      throw new IOException("File is closed: " + location);
+    if (pos >= size)
+      return dst.hasRemaining() ? -1 : 0;
+
+    int total = 0;
+    while (dst.hasRemaining() && pos < size) {
+      int offset = (int) (pos % SEGMENT_SIZE);
+      ByteBuffer src = segs[(int) (pos / SEGMENT_SIZE)].duplicate();
+      int n = Math.min(src.limit() - offset, dst.remaining());
+      src.position(offset);
+      src.limit(offset + n);
+      dst.put(src);
+      pos += n;
+      total += n;
     }
+    return total;
   }
 
-   public int readBytes( byte dst[], int offset, int length ) throws IOException {
-     if( endOfFile ) return -1;
-
-     length = (int) Math.min( length, dataEnd - filePosition);
-     if (length > 0) {
-       source.get(dst, offset, length);
-       filePosition += length;
-     }
-     return length;
-   }
-
-  public void write( int b ) throws IOException {
-     source.put( (byte)b);
-     filePosition++;
-     bufferModified = true;
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    return readAt(pos, ByteBuffer.wrap(b, offset, len));
   }
 
-  public void writeBytes( byte dst[], int offset, int length ) throws IOException {
-    source.put(dst, offset, length);
-    filePosition += length;
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    MappedByteBuffer[] segs = segments;
+    if (segs == null)
+      throw new IOException("File is closed: " + location);
+
+    long done = 0;
+    while (done < nbytes && offset < size) {
+      int segOffset = (int) (offset % SEGMENT_SIZE);
+      ByteBuffer src = segs[(int) (offset / SEGMENT_SIZE)].duplicate();
+      int n = (int) Math.min(src.limit() - segOffset, nbytes - done);
+      src.position(segOffset);
+      src.limit(segOffset + n);
+      while (src.hasRemaining())
+        dest.write(src);
+      offset += n;
+      done += n;
+    }
+    return done;
   }
 
-}
\ No newline at end of file
+}
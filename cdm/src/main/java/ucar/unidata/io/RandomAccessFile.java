@@ -16,8 +16,14 @@ import ucar.unidata.util.StringUtil2;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -40,6 +46,8 @@ import java.util.concurrent.atomic.AtomicLong;
  * Freeware Java Classes</a>.
  * <p/>
  * Must be thread confined - that is, can only be used by a single thread at a time..
+ * The exception is readAt(), which does not use the file position or the buffer, and may be called by many threads
+ * at once, so that one open file can be shared.
  *
  * @author Alex McManus
  * @author Russ Rew
@@ -219,7 +227,9 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * The underlying java.io.RandomAccessFile.
    */
   protected java.io.RandomAccessFile file;
-  protected java.nio.channels.FileChannel fileChannel;
+  protected volatile java.nio.channels.FileChannel fileChannel;
+  private FileChannel readAtChannel;  // opened separately from file, so an interrupted readAt only closes this
+  private final Object readAtLock = new Object();
 
   /**
    * The offset in bytes from the file start, of the next read or
@@ -430,6 +440,12 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     // Close the underlying file object.
     file.close();
     file = null;  // help the gc
+    fileChannel = null;
+    synchronized (readAtLock) {
+      if (readAtChannel != null)
+        readAtChannel.close();
+      readAtChannel = null;
+    }
   }
 
   @Override
@@ -705,9 +721,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException if an I/O error occurs.
    */
   public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
-
-    if (fileChannel == null)
-      fileChannel = file.getChannel();
+    FileChannel fileChannel = getFileChannel();
 
     long need = nbytes;
     while (need > 0) {
@@ -720,9 +734,81 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   }
 
 
+  /**
+   * Read bytes starting at an absolute position in the file, without using or changing the file pointer or the buffer.
+   * This is the only read method that is thread safe: many threads may call it at the same time on one open file,
+   * using positional reads on the FileChannel. Writes that are still in the buffer are not seen.
+   * <p>
+   * Reads until dst is full or the end of file is reached.
+   * readAt uses its own FileChannel. Interrupting a thread blocked in readAt closes that channel, as for any
+   * InterruptibleChannel, and the interrupted thread gets a ClosedByInterruptException. The other methods, and other
+   * threads in readAt, are not affected: the channel is reopened and their reads retried.
+   *
+   * @param pos start here in the file
+   * @param dst read into this buffer, from its position up to its limit; its position is advanced past the bytes read
+   * @return number of bytes read, or -1 if pos is at or past the end of file
+   * @throws IOException on io error
+   */
+  public int readAt(long pos, ByteBuffer dst) throws IOException {
+    if (pos < 0)
+      throw new IllegalArgumentException("Negative position");
+    if (file == null)
+      throw new IOException("File is closed: " + location);
+
+    int total = 0;
+    while (dst.hasRemaining()) {
+      FileChannel channel = getReadAtChannel();
+      int n;
+      try {
+        n = channel.read(dst, pos + total);
+      } catch (ClosedByInterruptException e) {
+        resetReadAtChannel(channel);  // this thread was interrupted
+        throw e;
+      } catch (ClosedChannelException e) {  // another thread was interrupted, or the file was closed
+        resetReadAtChannel(channel);
+        continue;
+      }
+      if (n < 0) break;
+      total += n;
+    }
+    if (debugAccess) {
+      debug_nseeks.incrementAndGet();
+      debug_nbytes.addAndGet(total);
+    }
+    return (total == 0 && dst.hasRemaining()) ? -1 : total;
+  }
+
+  private FileChannel getReadAtChannel() throws IOException {
+    synchronized (readAtLock) {
+      if (file == null)
+        throw new IOException("File is closed: " + location);
+      if (readAtChannel == null)
+        readAtChannel = FileChannel.open(Paths.get(location), StandardOpenOption.READ);
+      return readAtChannel;
+    }
+  }
+
+  // the channel was closed by an interrupt; the next readAt opens a new one
+  private void resetReadAtChannel(FileChannel closed) {
+    synchronized (readAtLock) {
+      if (readAtChannel == closed)
+        readAtChannel = null;
+    }
+  }
+
+  // java.io.RandomAccessFile.getChannel() is synchronized and always returns the same channel, so the race is benign
+  private FileChannel getFileChannel() {
+    FileChannel result = fileChannel;
+    if (result == null) {
+      result = file.getChannel();
+      fileChannel = result;
+    }
+    return result;
+  }
+
   /**
    * Read directly from file, without going through the buffer.
-   * All reading goes through here or readToByteChannel;
+   * All reading goes through here, readAt or readToByteChannel;
    *
    * @param pos    start here in the file
    * @param b      put data into this buffer
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+
+/**
+ * Decoder for a raw deflate stream (RFC 1951), as found inside gzip and zip files.
+ * Unlike java.util.zip.Inflater, it can report the exact bit position of each block boundary, along with the last
+ * 32K of output, and start decoding again from such a point. That is what makes random access into a compressed
+ * file possible, see CompressedRandomAccessFile. Based on Mark Adler's puff.c, with a lookup table for short codes.
+ * <p>
+ * Not thread safe.
+ */
+class RawInflater {
+  static final int WINDOW_SIZE = 1 << 15;
+  static private final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+  static private final int MAXBITS = 15;
+  static private final int FASTBITS = 9;
+
+  // length and distance codes, RFC 1951 section 3.2.5
+  static private final short[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51, 59,
+          67, 83, 99, 115, 131, 163, 195, 227, 258};
+  static private final short[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4,
+          5, 5, 5, 5, 0};
+  static private final short[] DIST_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385, 513,
+          769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+  static private final short[] DIST_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10,
+          11, 11, 12, 12, 13, 13};
+  static private final byte[] CODELEN_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+  static private final Huffman fixedLencode, fixedDistcode;
+
+  static {
+    short[] lengths = new short[288];
+    int sym = 0;
+    for (; sym < 144; sym++) lengths[sym] = 8;
+    for (; sym < 256; sym++) lengths[sym] = 9;
+    for (; sym < 280; sym++) lengths[sym] = 7;
+    for (; sym < 288; sym++) lengths[sym] = 8;
+    fixedLencode = new Huffman(lengths, 0, 288);
+
+    for (sym = 0; sym < 30; sym++) lengths[sym] = 5;
+    fixedDistcode = new Huffman(lengths, 0, 30);
+  }
+
+  /** Called at each block boundary, before the block header is read. */
+  interface BlockListener {
+    void blockBoundary(RawInflater inflater) throws IOException;
+  }
+
+  private enum State {HEADER, STORED, CODES, DONE}
+
+  private final InputStream in;
+  private final long startBitPos;  // bit position of the start of in
+  private long bytesIn;            // bytes read from in
+  private int bitbuf;              // bits not yet used, low bits first
+  private int bitcnt;
+
+  private final byte[] window = new byte[WINDOW_SIZE];
+  private int wpos;                // next position to write in window
+  private long total;              // bytes written since this object was created
+  private long windowFill;         // number of valid bytes in the window, <= WINDOW_SIZE
+
+  private State state = State.HEADER;
+  private boolean lastBlock;
+  private int storedRemaining;
+  private Huffman lencode, distcode;
+  private int matchLen, matchDist;  // pending copy
+
+  private BlockListener listener;
+
+  /**
+   * Start decoding at a block boundary.
+   *
+   * @param in the compressed stream, starting at the byte containing the block boundary
+   * @param byteOffset the position of the first byte of in, in the compressed file
+   * @param skipBits skip this many bits (0-7) of the first byte
+   * @param dictionary the last (up to) 32K of output before the block boundary, may be null at the start of a stream
+   */
+  RawInflater(InputStream in, long byteOffset, int skipBits, byte[] dictionary) throws IOException {
+    this.in = in;
+    this.startBitPos = 8 * byteOffset;
+    if (skipBits > 0) {
+      needBits(skipBits);
+      dropBits(skipBits);
+    }
+    if (dictionary != null) {
+      int n = Math.min(dictionary.length, WINDOW_SIZE);
+      System.arraycopy(dictionary, dictionary.length - n, window, 0, n);
+      wpos = n & WINDOW_MASK;
+      windowFill = n;
+    }
+  }
+
+  void setBlockListener(BlockListener listener) {
+    this.listener = listener;
+  }
+
+  /** Position in the compressed file of the next bit to be read. */
+  long getBitPosition() {
+    return startBitPos + 8 * bytesIn - bitcnt;
+  }
+
+  /** Number of bytes of output so far. */
+  long getTotalOut() {
+    return total;
+  }
+
+  /** True after the last block has been decoded. */
+  boolean isFinished() {
+    return state == State.DONE;
+  }
+
+  /** The last (up to) 32K bytes of output, oldest first. */
+  byte[] getWindow() {
+    int n = (int) windowFill;
+    byte[] result = new byte[n];
+    int start = (wpos - n) & WINDOW_MASK;
+    int first = Math.min(n, WINDOW_SIZE - start);
+    System.arraycopy(window, start, result, 0, first);
+    System.arraycopy(window, 0, result, first, n - first);
+    return result;
+  }
+
+  /**
+   * Decompress into b.
+   *
+   * @return number of bytes decompressed, or -1 at the end of the deflate stream.
+   * @throws IOException on read error, or if the data is not valid deflate data
+   */
+  int read(byte[] b, int off, int len) throws IOException {
+    int n = 0;
+    while (n < len) {
+      if (matchLen > 0) {
+        int count = Math.min(matchLen, len - n);
+        for (int i = 0; i < count; i++) {
+          byte v = window[(wpos - matchDist) & WINDOW_MASK];
+          window[wpos] = v;
+          wpos = (wpos + 1) & WINDOW_MASK;
+          b[off + n++] = v;
+        }
+        matchLen -= count;
+        advance(count);
+        continue;
+      }
+
+      switch (state) {
+        case DONE:
+          return (n == 0) ? -1 : n;
+
+        case HEADER:
+          if (lastBlock) {
+            state = State.DONE;
+            break;
+          }
+          if (listener != null)
+            listener.blockBoundary(this);
+          readBlockHeader();
+          break;
+
+        case STORED:
+          if (storedRemaining == 0) {
+            state = State.HEADER;
+            break;
+          }
+          needBits(8);
+          byte v = (byte) bits(8);
+          storedRemaining--;
+          put(v);
+          b[off + n++] = v;
+          break;
+
+        case CODES:
+          int sym = decode(lencode);
+          if (sym < 256) {
+            put((byte) sym);
+            b[off + n++] = (byte) sym;
+
+          } else if (sym == 256) {
+            state = State.HEADER;
+
+          } else {
+            sym -= 257;
+            if (sym >= 29)
+              throw new IOException(new DataFormatException("invalid fixed length code"));
+            int length = LENGTH_BASE[sym] + bits(LENGTH_EXTRA[sym]);
+            int dsym = decode(distcode);
+            if (dsym >= 30)
+              throw new IOException(new DataFormatException("invalid distance code"));
+            int dist = DIST_BASE[dsym] + bits(DIST_EXTRA[dsym]);
+            if (dist > windowFill)
+              throw new IOException(new DataFormatException("invalid distance too far back"));
+            matchLen = length;
+            matchDist = dist;
+          }
+          break;
+      }
+    }
+    return n;
+  }
+
+  private void put(byte v) {
+    window[wpos] = v;
+    wpos = (wpos + 1) & WINDOW_MASK;
+    advance(1);
+  }
+
+  private void advance(int count) {
+    total += count;
+    if (windowFill < WINDOW_SIZE)
+      windowFill = Math.min(WINDOW_SIZE, windowFill + count);
+  }
+
+  private void readBlockHeader() throws IOException {
+    lastBlock = bits(1) == 1;
+    int type = bits(2);
+    switch (type) {
+      case 0:
+        dropBits(bitcnt & 7);  // go to byte boundary
+        int len = bits(16);
+        int nlen = bits(16);
+        if (len != (~nlen & 0xffff))
+          throw new IOException(new DataFormatException("stored block length did not match one's complement"));
+        storedRemaining = len;
+        state = State.STORED;
+        break;
+      case 1:
+        lencode = fixedLencode;
+        distcode = fixedDistcode;
+        state = State.CODES;
+        break;
+      case 2:
+        readDynamicTables();
+        state = State.CODES;
+        break;
+      default:
+        throw new IOException(new DataFormatException("invalid block type"));
+    }
+  }
+
+  private void readDynamicTables() throws IOException {
+    int nlen = bits(5) + 257;
+    int ndist = bits(5) + 1;
+    int ncode = bits(4) + 4;
+    if (nlen > 286 || ndist > 30)
+      throw new IOException(new DataFormatException("bad counts"));
+
+    short[] lengths = new short[320];
+    for (int i = 0; i < ncode; i++)
+      lengths[CODELEN_ORDER[i]] = (short) bits(3);
+    Huffman lencodeCodes = new Huffman(lengths, 0, 19);
+
+    int index = 0;
+    while (index < nlen + ndist) {
+      int sym = decode(lencodeCodes);
+      if (sym < 16) {
+        lengths[index++] = (short) sym;
+      } else {
+        int len = 0;
+        int repeat;
+        if (sym == 16) {
+          if (index == 0)
+            throw new IOException(new DataFormatException("repeat lengths with no first length"));
+          len = lengths[index - 1];
+          repeat = 3 + bits(2);
+        } else if (sym == 17) {
+          repeat = 3 + bits(3);
+        } else {
+          repeat = 11 + bits(7);
+        }
+        if (index + repeat > nlen + ndist)
+          throw new IOException(new DataFormatException("too many lengths"));
+        while (repeat-- > 0)
+          lengths[index++] = (short) len;
+      }
+    }
+    if (lengths[256] == 0)
+      throw new IOException(new DataFormatException("no end-of-block code"));
+
+    lencode = new Huffman(lengths, 0, nlen);
+    distcode = new Huffman(lengths, nlen, ndist);
+  }
+
+  ////////////////////////////////////////////////////////////////////////////
+  // bits
+
+  private void needBits(int need) throws IOException {
+    while (bitcnt < need) {
+      int v = in.read();
+      if (v < 0)
+        throw new EOFException("compressed stream ended before the end of the deflate data");
+      bytesIn++;
+      bitbuf |= v << bitcnt;
+      bitcnt += 8;
+    }
+  }
+
+  // fill the bit buffer up to need bits, but dont fail at the end of the input
+  private void tryBits(int need) throws IOException {
+    while (bitcnt < need) {
+      int v = in.read();
+      if (v < 0) return;
+      bytesIn++;
+      bitbuf |= v << bitcnt;
+      bitcnt += 8;
+    }
+  }
+
+  private void dropBits(int n) {
+    bitbuf >>>= n;
+    bitcnt -= n;
+  }
+
+  private int bits(int n) throws IOException {
+    if (n == 0) return 0;
+    needBits(n);
+    int val = bitbuf & ((1 << n) - 1);
+    dropBits(n);
+    return val;
+  }
+
+  private int decode(Huffman h) throws IOException {
+    tryBits(FASTBITS);
+    int entry = h.fast[bitbuf & ((1 << FASTBITS) - 1)];
+    if (entry != 0) {
+      int len = entry & 0xf;
+      if (len <= bitcnt) {
+        dropBits(len);
+        return entry >>> 4;
+      }
+    }
+
+    // slow way, one bit at a time
+    int code = 0, first = 0, index = 0;
+    for (int len = 1; len <= MAXBITS; len++) {
+      code |= bits(1);
+      int count = h.count[len];
+      if (code - count < first)
+        return h.symbol[index + (code - first)];
+      index += count;
+      first += count;
+      first <<= 1;
+      code <<= 1;
+    }
+    throw new IOException(new DataFormatException("ran out of codes"));
+  }
+
+  // canonical huffman code
+  private static class Huffman {
+    final short[] count = new short[MAXBITS + 1];  // number of symbols of each length
+    final short[] symbol;                          // symbols ordered by length, then value
+    final int[] fast = new int[1 << FASTBITS];     // (symbol << 4 | length) indexed by the next FASTBITS bits
+
+    Huffman(short[] lengths, int start, int n) {
+      symbol = new short[n];
+      for (int i = 0; i < n; i++)
+        count[lengths[start + i]]++;
+      count[0] = 0;
+
+      short[] offs = new short[MAXBITS + 1];
+      for (int len = 1; len < MAXBITS; len++)
+        offs[len + 1] = (short) (offs[len] + count[len]);
+      for (int i = 0; i < n; i++)
+        if (lengths[start + i] != 0)
+          symbol[offs[lengths[start + i]]++] = (short) i;
+
+      // assign canonical codes, and fill in the fast table for the short ones
+      int code = 0;
+      int index = 0;
+      for (int len = 1; len <= FASTBITS; len++) {
+        for (int i = 0; i < count[len]; i++) {
+          int reversed = Integer.reverse(code + i) >>> (32 - len);
+          int entry = (symbol[index + i] << 4) | len;
+          for (int fill = reversed; fill < fast.length; fill += (1 << len))
+            fast[fill] = entry;
+        }
+        index += count[len];
+        code = (code + count[len]) << 1;
+      }
+    }
+  }
+}
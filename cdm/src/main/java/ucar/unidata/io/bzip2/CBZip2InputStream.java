@@ -141,6 +141,21 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
   private int storedBlockCRC, storedCombinedCRC;
   private int computedBlockCRC, computedCombinedCRC;
 
+  // for random access, see setBlockListener()
+  private long bytesIn;   // bytes read from bsStream
+  private long nout;      // chars returned by read()
+  private boolean checkCombinedCRC = true;
+  private BlockListener blockListener;
+
+  /** Called at the start of each block. */
+  public interface BlockListener {
+    /**
+     * @param uncompressedPos position in the uncompressed stream of the first char of the block
+     * @param bitPos position of the block header, in bits from the start of the stream given to this object
+     */
+    void blockStart(long uncompressedPos, long bitPos);
+  }
+
   int i2, count, chPrev, ch2;
   int i, tPos;
   int rNToGo = 0;
@@ -165,6 +180,39 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     }
     setStream(zStream);
   }
+  /**
+   * Start decompressing at a block header in the middle of a bzip2 stream, eg one found by a BlockListener.
+   * The combined CRC at the end of the stream is not checked, since the earlier blocks are not read.
+   *
+   * @param zStream positioned at the byte containing the block header
+   * @param blockSize100k block size from the stream header, 1-9
+   * @param skipBits skip this many bits (0-7) of the first byte
+   */
+  public CBZip2InputStream(InputStream zStream, int blockSize100k, int skipBits) {
+    setStream(null);
+    bsSetStream(zStream);
+    checkCombinedCRC = false;
+    if (skipBits > 0)
+      bsR(skipBits);
+    setDecompressStructureSizes(blockSize100k);
+    initBlock();
+    if (!streamEnd)
+      setupBlock();
+  }
+
+  /**
+   * Get called at the start of each block. Must be set before the first block is read,
+   * so use the no-argument constructor, then setBlockListener(), then setStream().
+   */
+  public void setBlockListener(BlockListener blockListener) {
+    this.blockListener = blockListener;
+  }
+
+  /** @return the block size from the stream header, 1-9 */
+  public int getBlockSize100k() {
+    return blockSize100k;
+  }
+
   /**
    * Added 5-30-2006 to allow for resetting of the input used
    * by this object. This saves in memory allocation costs
@@ -190,7 +238,10 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     rTPos = 0;
     j2=0;
     z=0;
+    nout=0;
+    checkCombinedCRC = true;
 
+    if (zStream == null) return;
     bsSetStream(zStream);
     initialize();
     if (!streamEnd) { // Handle if initialize does not detect valid bz2 stream
@@ -210,6 +261,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     if (streamEnd) {
       return -1;
     } else {
+      nout++;
       int retChar = currentChar;
       switch (currentState) {
         case START_BLOCK_STATE:
@@ -254,6 +306,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
   private void initBlock() {
     char magic1, magic2, magic3, magic4;
     char magic5, magic6;
+    long bitPos = 8 * bytesIn - bsLive;
     magic1 = bsGetUChar();
     magic2 = bsGetUChar();
     magic3 = bsGetUChar();
@@ -273,6 +326,10 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       return;
     }
 
+    // nout includes the char being returned by read(), which is the last one of the previous block
+    if (blockListener != null)
+      blockListener.blockStart(nout, bitPos);
+
     storedBlockCRC = bsGetInt32();
 
     if (bsR(1) == 1) {
@@ -303,7 +360,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
   private void complete() {
     storedCombinedCRC = bsGetInt32();
-    if (storedCombinedCRC != computedCombinedCRC) {
+    if (checkCombinedCRC && storedCombinedCRC != computedCombinedCRC) {
       // crcError();
       cadvise("CRC error: storedCombinedCRC != computedCombinedCRC");
     }
@@ -341,6 +398,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     bsStream = f;
     bsLive = 0;
     bsBuff = 0;
+    bytesIn = 0;
   }
 
   private int bsR(int n) {
@@ -355,6 +413,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       if (zzi == -1) {
         compressedStreamEOF();
       }
+      bytesIn++;
       bsBuff = (bsBuff << 8) | (zzi & 0xff);
       bsLive += 8;
     }
@@ -575,6 +634,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
               if (zzi == -1) {
                 compressedStreamEOF();
               }
+              bytesIn++;
               bsBuff = (bsBuff << 8) | (zzi & 0xff);
               bsLive += 8;
             }
@@ -628,6 +688,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
                     if (zzi == -1) {
                       compressedStreamEOF();
                     }
+                    bytesIn++;
                     bsBuff = (bsBuff << 8) | (zzi & 0xff);
                     bsLive += 8;
                   }
@@ -708,6 +769,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
                     compressedStreamEOF();
                   }
                   zzi = thech;
+                  bytesIn++;
                   bsBuff = (bsBuff << 8) | (zzi & 0xff);
                   bsLive += 8;
                 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io.http;
+
+import com.google.common.cache.*;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Formatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of fixed size blocks of remote files read by HTTPRandomAccessFile.
+ * Keyed by url, file version and block number, and shared by all opens of the same url, so that
+ * reopening a remote file (eg to read its header again) does not go back to the server.
+ * <p>
+ * The version identifies the contents of the remote file, from the HEAD response: the ETag if there is one,
+ * else Last-Modified, else only the length. When a file is opened with a different version than the cached one,
+ * the blocks of the old version are dropped.
+ * <p>
+ * The size is bounded by the number of bytes held. Uses a guava cache, so eviction is approximately LRU.
+ * The block arrays are shared, and must not be modified.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class HTTPBlockCache {
+  static public final int defaultBlockSize = 64 * 1024;
+  static private HTTPBlockCache defaultCache;  // null means turned off
+
+  /**
+   * Turn on the cache used by all HTTPRandomAccessFiles opened from now on.
+   * @param maxBytes maximum number of bytes of data to keep; if <= 0, turn the cache off
+   * @param blockSize size of the blocks, ie the smallest range request; if <= 0, use defaultBlockSize
+   */
+  static public synchronized void initDefaultCache(long maxBytes, int blockSize) {
+    if (defaultCache != null)
+      defaultCache.clearCache();
+    defaultCache = (maxBytes > 0) ? new HTTPBlockCache(maxBytes, blockSize > 0 ? blockSize : defaultBlockSize) : null;
+  }
+
+  /** @return the shared cache, or null if it is turned off */
+  static public HTTPBlockCache getDefaultCache() {
+    return defaultCache;
+  }
+
+  static public void shutdown() {
+    initDefaultCache(0, 0);
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final Cache<Key, byte[]> cache;
+  private final ConcurrentMap<String, String> versions = new ConcurrentHashMap<>(); // url -> current version
+  private final long maxBytes;
+  private final int blockSize;
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong bytesRequested = new AtomicLong();
+
+  public HTTPBlockCache(long maxBytes, int blockSize) {
+    this.maxBytes = maxBytes;
+    this.blockSize = blockSize;
+    this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Weigher<Key, byte[]>) (key, value) -> value.length)
+            .removalListener((RemovalListener<Key, byte[]>) removal -> bytes.addAndGet(-removal.getValue().length))
+            .recordStats()
+            .build();
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Make a version of a remote file from its HEAD response.
+   * @param length length of the remote file
+   * @param etag ETag header, may be null
+   * @param lastModified Last-Modified header, may be null
+   * @return the version to use in get() and put()
+   */
+  static public String makeVersion(long length, String etag, String lastModified) {
+    if (etag != null)
+      return length + " " + etag;
+    if (lastModified != null)
+      return length + " " + lastModified;
+    return Long.toString(length);
+  }
+
+  /**
+   * Called when a remote file is opened. If the file has changed since its blocks were cached, drop them.
+   * @param url remote file
+   * @param version from makeVersion()
+   */
+  public void setVersion(String url, String version) {
+    String old = versions.put(url, version);
+    if (old != null && !old.equals(version))
+      cache.asMap().keySet().removeIf(key -> key.url.equals(url) && !key.version.equals(version));
+  }
+
+  /**
+   * Find a block.
+   * @param url remote file
+   * @param version version of the remote file, so a file that has changed is not read from old blocks
+   * @param block block number, ie starting position / blockSize
+   * @return the block data, or null if not in the cache. Do not modify.
+   */
+  public byte[] get(String url, String version, long block) {
+    return cache.getIfPresent(new Key(url, version, block));
+  }
+
+  /**
+   * Add a block. The data is kept, and must not be modified afterwards.
+   * Not added if the remote file has since been opened with another version.
+   * @param url remote file
+   * @param version version of the remote file
+   * @param block block number
+   * @param data block data, blockSize bytes except for the last block of the file
+   */
+  public void put(String url, String version, long block, byte[] data) {
+    if (!version.equals(versions.get(url)))
+      return;
+    bytes.addAndGet(data.length);
+    cache.put(new Key(url, version, block), data);
+  }
+
+  // count the range requests made to fill the cache
+  void addRequest(long nbytes) {
+    requests.incrementAndGet();
+    bytesRequested.addAndGet(nbytes);
+  }
+
+  public long getRequests() {
+    return requests.get();
+  }
+
+  public void clearCache() {
+    cache.invalidateAll();
+    versions.clear();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showCache(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("HTTPBlockCache: blocks=%d blockSize=%d bytes=%d maxBytes=%d%n", cache.size(), blockSize, bytes.get(), maxBytes);
+    f.format("  hits=%d misses=%d hitRate=%.3f evictions=%d%n", stats.hitCount(), stats.missCount(), stats.hitRate(),
+            stats.evictionCount());
+    f.format("  range requests=%d bytes=%d%n", requests.get(), bytesRequested.get());
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private static class Key {
+    final String url;
+    final String version;
+    final long block;
+
+    Key(String url, String version, long block) {
+      this.url = url;
+      this.version = version;
+      this.block = block;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return block == key.block && url.equals(key.url) && version.equals(key.version);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = url.hashCode();
+      result = 31 * result + version.hashCode();
+      result = 31 * result + Long.hashCode(block);
+      return result;
+    }
+  }
+}
@@ -16,12 +16,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Gives access to files over HTTP, using "Accept-Ranges" HTTP header to do random access.
  * This version uses a single instance of HttpClient, following performance guidelines at
  * http://jakarta.apache.org/commons/httpclient/performance.html
  * Plus other improvements.
+ * <p>
+ * If HTTPBlockCache.initDefaultCache() has been called, reads go through the shared block cache: missing blocks
+ * next to each other are fetched in one range request, long reads are split into several range requests which
+ * are made concurrently if setExecutor() has been called, and sequential reads also fetch the next few blocks.
  *
  * @author John Caron, based on work by Donald Denbo
  */
@@ -31,11 +45,41 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
   static public final int maxHTTPBufferSize = 10 * 1000 * 1000;     // 10 M
   static private final boolean debug = false, debugDetails = false;
 
+  static private ExecutorService executor;
+  static private int maxRequestsPerRead = 1;
+  static private int readAheadBlocks = 2;
+  static private int maxBlocksPerRequest = 16;
+
+  /**
+   * Make the range requests of one read concurrently, when using the HTTPBlockCache.
+   * @param exec use this executor, or null to make the requests one at a time
+   * @param maxRequests maximum concurrent range requests for one read
+   */
+  static public void setExecutor(ExecutorService exec, int maxRequests) {
+    executor = exec;
+    maxRequestsPerRead = Math.max(1, maxRequests);
+  }
+
+  /**
+   * Tune the range requests made when using the HTTPBlockCache.
+   * @param readAhead number of blocks past the end of a sequential read to also fetch
+   * @param maxBlocks maximum number of blocks in one range request
+   */
+  static public void setBlockRequests(int readAhead, int maxBlocks) {
+    readAheadBlocks = Math.max(0, readAhead);
+    maxBlocksPerRequest = Math.max(1, maxBlocks);
+  }
+
   ///////////////////////////////////////////////////////////////////////////////////
 
   private String url;
   private HTTPSession session = null;
   private long total_length = 0;
+  private String etag, lastModifiedHeader;     // from the HEAD response, may be null
+  private long lastModified = 0;
+  private HTTPBlockCache blockCache;      // may be null
+  private String version;                 // of the remote file, when using the blockCache
+  private volatile long nextSequentialPos = 0; // so the first read of the header also reads ahead
 
   public HTTPRandomAccessFile(String url) throws IOException {
     this(url, defaultHTTPBufferSize);
@@ -85,12 +129,26 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
         throw new IOException("Server has malformed Content-Length header");
       }
 
+      head = method.getResponseHeader("ETag");
+      if (head != null) etag = head.getValue();
+      head = method.getResponseHeader("Last-Modified");
+      if (head != null) {
+        lastModifiedHeader = head.getValue();
+        lastModified = parseHttpDate(lastModifiedHeader);
+      }
     }
 
     if (needtest && !rangeOk(url))
       throw new IOException("Server does not support byte Ranges");
 
-    if (total_length > 0) {
+    blockCache = HTTPBlockCache.getDefaultCache();
+    if (blockCache != null) {
+      // read through the cache a block at a time, instead of one large buffer
+      setBufferSize(blockCache.getBlockSize());
+      version = HTTPBlockCache.makeVersion(total_length, etag, lastModifiedHeader);
+      blockCache.setVersion(url, version);
+
+    } else if (total_length > 0) {
       // this means that we will read the file in one gulp then deal with it in memory
       int useBuffer = (int) Math.min(total_length, maxHTTPBufferSize); // entire file size if possible
       useBuffer = Math.max(useBuffer, defaultHTTPBufferSize); // minimum buffer
@@ -110,6 +168,15 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     }
   }
 
+  // 0 if not a valid HTTP date
+  private static long parseHttpDate(String value) {
+    try {
+      return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return 0;
+    }
+  }
+
   private boolean rangeOk(String url)
   {
     try {
@@ -170,6 +237,13 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
    */
   @Override
   protected int read_(long pos, byte[] buff, int offset, int len) throws IOException {
+    if (blockCache == null)
+      return readRange(pos, buff, offset, len);
+    return readBlocks(pos, buff, offset, len);
+  }
+
+  // one range request
+  private int readRange(long pos, byte[] buff, int offset, int len) throws IOException {
     long end = pos + len - 1;
     if (end >= total_length)
       end = total_length - 1;
@@ -199,6 +273,104 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     }
   }
 
+  // read through the block cache
+  private int readBlocks(long pos, byte[] buff, int offset, int len) throws IOException {
+    if (pos >= total_length)
+      return -1;
+    long end = Math.min(pos + len, total_length);  // exclusive
+    int blockSize = blockCache.getBlockSize();
+    long firstBlock = pos / blockSize;
+    long lastBlock = (end - 1) / blockSize;
+    long fetchLast = lastBlock;
+    if (pos == nextSequentialPos)
+      fetchLast = Math.min(lastBlock + readAheadBlocks, (total_length - 1) / blockSize);
+
+    byte[][] blocks = new byte[(int) (fetchLast - firstBlock + 1)][];
+    List<long[]> missing = new ArrayList<>();  // runs of missing blocks: {first, count}
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = blockCache.get(url, version, firstBlock + i);
+      if (blocks[i] != null) continue;
+      long[] run = missing.isEmpty() ? null : missing.get(missing.size() - 1);
+      if (run != null && run[0] + run[1] == firstBlock + i && run[1] < maxBlocksPerRequest)
+        run[1]++;
+      else
+        missing.add(new long[] {firstBlock + i, 1});
+    }
+    fetchBlocks(missing, blocks, firstBlock);
+
+    int done = 0;
+    for (long b = firstBlock; b <= lastBlock; b++) {
+      byte[] block = blocks[(int) (b - firstBlock)];
+      long start = Math.max(pos, b * blockSize);
+      long stop = Math.min(end, b * blockSize + block.length);
+      if (stop <= start) break;
+      int n = (int) (stop - start);
+      System.arraycopy(block, (int) (start - b * blockSize), buff, offset + done, n);
+      done += n;
+    }
+    nextSequentialPos = pos + done;
+    return done;
+  }
+
+  // make the range requests, concurrently if there's an executor
+  private void fetchBlocks(List<long[]> runs, byte[][] blocks, long firstBlock) throws IOException {
+    ExecutorService exec = executor;
+    if (exec == null || maxRequestsPerRead < 2 || runs.size() < 2) {
+      for (long[] run : runs)
+        fetchRun(run, blocks, firstBlock);
+      return;
+    }
+
+    ArrayDeque<Future<?>> futures = new ArrayDeque<>();
+    try {
+      // the first run is done in this thread
+      for (int i = 1; i < runs.size(); i++) {
+        if (futures.size() >= maxRequestsPerRead - 1)
+          futures.removeFirst().get();
+        long[] run = runs.get(i);
+        futures.add(exec.submit(() -> {
+          fetchRun(run, blocks, firstBlock);
+          return null;
+        }));
+      }
+      fetchRun(runs.get(0), blocks, firstBlock);
+      while (!futures.isEmpty())
+        futures.removeFirst().get();
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(url + " interrupted", e);
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      throw new IOException(url, cause);
+
+    } finally {
+      for (Future<?> f : futures)
+        f.cancel(true);
+    }
+  }
+
+  // one range request for a run of blocks, which are added to the cache
+  private void fetchRun(long[] run, byte[][] blocks, long firstBlock) throws IOException {
+    int blockSize = blockCache.getBlockSize();
+    long start = run[0] * blockSize;
+    int len = (int) Math.min(run[1] * blockSize, total_length - start);
+    byte[] data = new byte[len];
+    int done = readRange(start, data, 0, len);
+    if (done < len)
+      throw new IOException(url + " short read at " + start + ": wanted " + len + " got " + done);
+    blockCache.addRequest(len);
+
+    for (int i = 0; i < run[1]; i++) {
+      int from = i * blockSize;
+      byte[] block = (run[1] == 1) ? data : Arrays.copyOfRange(data, from, Math.min(from + blockSize, len));
+      blockCache.put(url, version, run[0] + i, block);
+      blocks[(int) (run[0] + i - firstBlock)] = block;
+    }
+  }
+
   private int copy(InputStream in, byte[] buff, int offset, int want) throws IOException {
     int done = 0;
     while (want > 0) {
@@ -219,6 +391,20 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
     return done;
   }
 
+  // each read_ is its own range request, so this is thread safe
+  @Override
+  public int readAt(long pos, ByteBuffer dst) throws IOException {
+    if (pos < 0)
+      throw new IllegalArgumentException("Negative position");
+    if (pos >= total_length)
+      return dst.hasRemaining() ? -1 : 0;
+    int n = (int) Math.min(dst.remaining(), total_length - pos);
+    byte[] buff = new byte[n];
+    int done = read_(pos, buff, 0, n);
+    dst.put(buff, 0, done);
+    return done;
+  }
+
   // override selected RandomAccessFile public methods
 
   @Override
@@ -231,13 +417,12 @@ public class HTTPRandomAccessFile extends ucar.unidata.io.RandomAccessFile {
   }
 
   /**
-   * Always returns {@code 0L}, as we cannot easily determine the last time that a remote file was modified.
+   * The Last-Modified header of the HEAD response when the file was opened.
    *
-   * @return  {@code 0L}, always.
+   * @return  last modified time in msecs since the epoch, or {@code 0L} if the server did not send a valid one.
    */
-  // LOOK: An idea of how we might implement this: https://github.com/Unidata/thredds/pull/479#issuecomment-194562614
   @Override
   public long getLastModified() {
-    return 0;
+    return lastModified;
   }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package thredds.inventory;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.constants.CDM;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Test the JournalChangeSource and FileInventory used to update collections from file changes. */
+public class TestFileInventory {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testParse() {
+    InventoryChangeSource.Change change = JournalChangeSource.parse("created /data/gfs/run.grib2");
+    Assert.assertNotNull(change);
+    Assert.assertEquals(InventoryChangeSource.Kind.created, change.getKind());
+    Assert.assertEquals("run.grib2", change.getPath().getFileName().toString());
+
+    change = JournalChangeSource.parse("overflow");
+    Assert.assertNotNull(change);
+    Assert.assertEquals(InventoryChangeSource.Kind.overflow, change.getKind());
+    Assert.assertNull(change.getPath());
+
+    Assert.assertNull(JournalChangeSource.parse("# comment"));
+    Assert.assertNull(JournalChangeSource.parse(""));
+    Assert.assertNull(JournalChangeSource.parse("renamed /data/x"));
+    Assert.assertNull(JournalChangeSource.parse("deleted"));
+  }
+
+  @Test
+  public void testJournal() throws IOException, InterruptedException {
+    Path journal = tempFolder.newFile("journal.txt").toPath();
+    JournalChangeSource source = new JournalChangeSource(journal, true);
+    Assert.assertEquals(0, source.poll(10, TimeUnit.MILLISECONDS).size());
+
+    // the partial last line waits for the next poll
+    append(journal, "created /data/a.grib2\nmodified /data/b.grib2\ndeleted /data/c");
+    List<InventoryChangeSource.Change> changes = source.poll(10, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(2, changes.size());
+    Assert.assertEquals(InventoryChangeSource.Kind.modified, changes.get(1).getKind());
+
+    append(journal, ".grib2\n");
+    changes = source.poll(10, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(1, changes.size());
+    Assert.assertEquals(InventoryChangeSource.Kind.deleted, changes.get(0).getKind());
+    Assert.assertEquals("c.grib2", changes.get(0).getPath().getFileName().toString());
+    long position = source.getPosition();
+    Assert.assertEquals(Files.size(journal), position);
+
+    // restart from a saved position
+    JournalChangeSource source2 = new JournalChangeSource(journal, false);
+    source2.setPosition(position);
+    Assert.assertEquals(0, source2.poll(10, TimeUnit.MILLISECONDS).size());
+
+    // rotated
+    Files.write(journal, "created /data/d.grib2\n".getBytes(CDM.utf8Charset));
+    changes = source.poll(10, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(2, changes.size());
+    Assert.assertEquals(InventoryChangeSource.Kind.overflow, changes.get(0).getKind());
+    Assert.assertEquals(InventoryChangeSource.Kind.created, changes.get(1).getKind());
+  }
+
+  @Test
+  public void testInventory() throws IOException {
+    Path dir = tempFolder.newFolder().toPath();
+    Path file = dir.resolve("a.grib2");
+    Files.write(file, new byte[100]);
+
+    FileInventory inventory = new FileInventory();
+    Assert.assertTrue(inventory.apply(new InventoryChangeSource.Change(InventoryChangeSource.Kind.created, file)));
+    Assert.assertFalse(inventory.apply(new InventoryChangeSource.Change(InventoryChangeSource.Kind.modified, file)));
+    Assert.assertTrue(inventory.apply(new InventoryChangeSource.Change(InventoryChangeSource.Kind.modified, dir)));
+    Assert.assertEquals(1, inventory.size());
+
+    Files.write(file, new byte[200]);
+    Assert.assertTrue(inventory.apply(new InventoryChangeSource.Change(InventoryChangeSource.Kind.modified, file)));
+
+    // saved and read back
+    inventory.setPosition(42);
+    Path saved = dir.resolve("fileInventory.txt");
+    inventory.save(saved);
+    FileInventory inventory2 = FileInventory.read(saved);
+    Assert.assertEquals(42, inventory2.getPosition());
+    Assert.assertEquals(1, inventory2.size());
+    Assert.assertFalse(inventory2.apply(new InventoryChangeSource.Change(InventoryChangeSource.Kind.modified, file)));
+
+    // deleting the directory removes its files
+    Files.delete(file);
+    Assert.assertTrue(inventory2.apply(new InventoryChangeSource.Change(InventoryChangeSource.Kind.deleted, dir)));
+    Assert.assertEquals(0, inventory2.size());
+    logger.debug("inventory {} files", inventory2.size());
+  }
+
+  private void append(Path journal, String s) throws IOException {
+    Files.write(journal, s.getBytes(CDM.utf8Charset), StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Random;
+
+/** Reading through the H5ChunkCache must give the same result as reading the file. */
+public class TestH5ChunkCache {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @After
+  public void cleanup() {
+    H5ChunkCache.shutdown();
+  }
+
+  @Test
+  public void testKeys() {
+    H5ChunkCache cache = new H5ChunkCache(1000);
+    int[] offset = new int[] {0, 10, 20};
+    cache.put("file", "var", offset, new byte[100]);
+    offset[0] = 99; // key is copied
+
+    Assert.assertNotNull(cache.get("file", "var", new int[] {0, 10, 20}));
+    Assert.assertNull(cache.get("file", "var", new int[] {0, 10, 21}));
+    Assert.assertNull(cache.get("file", "var2", new int[] {0, 10, 20}));
+    Assert.assertNull(cache.get("file2", "var", new int[] {0, 10, 20}));
+    Assert.assertEquals(100, cache.getBytes());
+
+    cache.clearCache();
+    Assert.assertEquals(0, cache.getBytes());
+  }
+
+  @Test
+  public void testBoundedByBytes() {
+    H5ChunkCache cache = new H5ChunkCache(10 * 1000);
+    for (int i = 0; i < 100; i++)
+      cache.put("file", "var", new int[] {i}, new byte[1000]);
+    Assert.assertTrue(cache.getBytes() <= 10 * 1000);
+    Assert.assertTrue(cache.getStats().evictionCount() >= 90);
+  }
+
+  @Test
+  public void testDefaultCache() throws IOException, InvalidRangeException {
+    H5ChunkCache.initDefaultCache(50 * 1000 * 1000);
+    compare(TestDir.cdmLocalTestDataDir + "chunked.h5");  // not filtered, so not cached
+    compare(TestDir.cdmLocalTestDataDir + "chunkedDeflate.h5");
+
+    H5ChunkCache cache = H5ChunkCache.getDefaultCache();
+    Assert.assertTrue(cache.getStats().missCount() > 0);
+    Assert.assertTrue(cache.getStats().hitCount() > 0);
+    Assert.assertTrue(cache.getBytes() > 0);
+
+    Formatter f = new Formatter();
+    cache.showCache(f);
+    logger.debug("{}", f);
+  }
+
+  @Test
+  public void testPerFileCache() throws IOException, InvalidRangeException {
+    H5ChunkCache.setPerFileMaxBytes(10 * 1000 * 1000, 50 * 1000 * 1000);
+    compare(TestDir.cdmLocalTestDataDir + "chunkedDeflate.h5");
+    Assert.assertNull(H5ChunkCache.getDefaultCache());
+    Assert.assertEquals(0, H5ChunkCache.getAllFilesBytes());
+
+    String filename = TestDir.cdmLocalTestDataDir + "chunkedDeflate.h5";
+    try (NetcdfFile ncfile1 = NetcdfFile.open(filename);
+         NetcdfFile ncfile2 = NetcdfFile.open(filename)) {
+      H5ChunkCache cache1 = ((H5iosp) ncfile1.getIosp()).getChunkCache();
+      H5ChunkCache cache2 = ((H5iosp) ncfile2.getIosp()).getChunkCache();
+      Assert.assertNotNull(cache1);
+      Assert.assertNotSame(cache1, cache2);
+
+      readAll(ncfile1);
+      readAll(ncfile1);
+      Assert.assertTrue(cache1.getBytes() > 0);
+      Assert.assertTrue(cache1.getStats().hitCount() > 0);
+      Assert.assertEquals(0, cache2.getBytes());  // not shared
+      Assert.assertEquals(cache1.getBytes(), H5ChunkCache.getAllFilesBytes());
+
+      readAll(ncfile2);
+      Assert.assertEquals(cache1.getBytes() + cache2.getBytes(), H5ChunkCache.getAllFilesBytes());
+      ncfile1.close();
+      Assert.assertEquals(0, cache1.getBytes());  // goes away with the file
+      Assert.assertEquals(cache2.getBytes(), H5ChunkCache.getAllFilesBytes());
+    }
+    Assert.assertEquals(0, H5ChunkCache.getAllFilesBytes());
+  }
+
+  // the per-file caches together stay within their bound
+  @Test
+  public void testAllFilesBound() throws IOException {
+    String filename = TestDir.cdmLocalTestDataDir + "chunkedDeflate.h5";
+    H5ChunkCache.setPerFileMaxBytes(10 * 1000 * 1000, 50 * 1000 * 1000);
+    long oneFile;
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      readAll(ncfile);
+      oneFile = H5ChunkCache.getAllFilesBytes();
+    }
+    Assert.assertTrue(oneFile > 0);
+
+    long bound = oneFile + oneFile / 2;  // room for one and a half files
+    H5ChunkCache.setPerFileMaxBytes(10 * 1000 * 1000, bound);
+    try (NetcdfFile ncfile1 = NetcdfFile.open(filename);
+         NetcdfFile ncfile2 = NetcdfFile.open(filename)) {
+      readAll(ncfile1);
+      readAll(ncfile2);
+      Assert.assertTrue(H5ChunkCache.getAllFilesBytes() <= bound);
+      H5ChunkCache cache2 = ((H5iosp) ncfile2.getIosp()).getChunkCache();
+      Assert.assertTrue(cache2.getBytes() < oneFile);  // some chunks were not added
+
+      ncfile1.close();  // makes room
+      readAll(ncfile2);
+      Assert.assertEquals(oneFile, cache2.getBytes());
+    }
+    Assert.assertEquals(0, H5ChunkCache.getAllFilesBytes());
+  }
+
+  private void readAll(NetcdfFile ncfile) throws IOException {
+    for (Variable v : ncfile.getVariables()) {
+      if (v.isVariableLength() || v.getSize() == 0) continue;
+      v.setCaching(false);
+      v.read();
+    }
+  }
+
+  // read each variable with no cache, then twice through the cache
+  private void compare(String filename) throws IOException, InvalidRangeException {
+    H5ChunkCache defaultCache = H5ChunkCache.getDefaultCache();
+    List<Array> expected = new ArrayList<>();
+    List<Section> sections = new ArrayList<>();
+
+    H5ChunkCache.shutdown();
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Random random = new Random(11);
+      for (Variable v : ncfile.getVariables()) {
+        if (v.isVariableLength() || v.getSize() == 0) continue;
+        sections.add(v.getShapeAsSection());
+        sections.add(randomSection(v.getShape(), random));
+        expected.add(v.read(sections.get(sections.size() - 2)));
+        expected.add(v.read(sections.get(sections.size() - 1)));
+      }
+    }
+
+    if (defaultCache != null)
+      H5ChunkCache.initDefaultCache(50 * 1000 * 1000);
+    else
+      H5ChunkCache.setPerFileMaxBytes(10 * 1000 * 1000, 50 * 1000 * 1000);
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      for (int pass = 0; pass < 2; pass++) {
+        int count = 0;
+        for (Variable v : ncfile.getVariables()) {
+          if (v.isVariableLength() || v.getSize() == 0) continue;
+          for (int i = 0; i < 2; i++) {
+            Section s = sections.get(count);
+            Assert.assertTrue(v.getFullName() + " " + s, MAMath.equals(expected.get(count), v.read(s)));
+            count++;
+          }
+        }
+      }
+    }
+  }
+
+  private Section randomSection(int[] shape, Random random) throws InvalidRangeException {
+    Section s = new Section();
+    for (int len : shape) {
+      int first = random.nextInt(len);
+      int last = first + random.nextInt(len - first);
+      s.appendRange(first, last);
+    }
+    return s;
+  }
+}
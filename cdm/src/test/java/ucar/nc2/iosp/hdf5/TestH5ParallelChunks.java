@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+/** Reading chunked HDF5 / netCDF-4 data with parallel decompression must give the same result as serial. */
+public class TestH5ParallelChunks {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static ExecutorService exec;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setup() {
+    exec = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void shutdown() {
+    H5iosp.setChunkExecutor(null, 1);
+    exec.shutdownNow();
+  }
+
+  @Test
+  public void testChunkedH5() throws IOException, InvalidRangeException {
+    compare(TestDir.cdmLocalTestDataDir + "chunked.h5");
+  }
+
+  @Test
+  public void testNetcdf4() throws IOException, InvalidRangeException {
+    compare(TestDir.cdmLocalTestDataDir + "testCFGridWriter.nc4");
+  }
+
+  // shuffle + deflate, and deflate only
+  @Test
+  public void testDeflate() throws IOException, InvalidRangeException {
+    H5tiledLayoutBB.resetStats();
+    compare(TestDir.cdmLocalTestDataDir + "chunkedDeflate.h5");
+    Formatter f = new Formatter();
+    H5iosp.showChunkStats(f);
+    Assert.assertFalse(f.toString(), f.toString().contains("bytes inflated=0"));
+  }
+
+  // a chunk whose deflate stream ends early must fail the read with an EOFException, serial or parallel, not give short data
+  @Test
+  public void testTruncatedChunk() throws IOException {
+    File copy = tempFolder.newFile("truncated.h5");
+    Files.copy(Paths.get(TestDir.cdmLocalTestDataDir + "chunkedDeflate.h5"), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    String varName = null;
+    long filePos = 0;
+    byte[] truncated = null;
+    try (NetcdfFile ncfile = NetcdfFile.open(copy.getPath())) {
+      for (Variable v : ncfile.getVariables()) {
+        H5header.Vinfo vinfo = (H5header.Vinfo) v.getSPobject();
+        if (vinfo == null || !vinfo.isChunked || vinfo.mfp == null) continue;
+        H5header.Filter[] filters = vinfo.mfp.getFilters();
+        if (filters.length != 1 || filters[0].id != 1) continue; // deflate only
+        DataBTree.DataChunk dc = vinfo.btree.getDataChunkIteratorFilter(v.getShapeAsSection()).next();
+
+        byte[] compressed = new byte[dc.size];
+        RandomAccessFile raf = (RandomAccessFile) ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_RANDOM_ACCESS_FILE);
+        raf.seek(dc.filePos);
+        raf.readFully(compressed);
+        byte[] uncompressed = H5tiledLayoutBB.inflate(compressed, 512);
+        if (uncompressed.length <= compressed.length) continue;
+
+        // the same data with no compression, cut off to fit in place of the original
+        Deflater deflater = new Deflater(Deflater.NO_COMPRESSION);
+        deflater.setInput(uncompressed);
+        deflater.finish();
+        truncated = new byte[dc.size];
+        deflater.deflate(truncated);
+        deflater.end();
+        varName = v.getFullName();
+        filePos = dc.filePos;
+        break;
+      }
+    }
+    Assert.assertNotNull("no compressed variable", varName);
+    try (java.io.RandomAccessFile out = new java.io.RandomAccessFile(copy, "rw")) {
+      out.seek(filePos);
+      out.write(truncated);
+    }
+
+    for (boolean parallel : new boolean[] {false, true}) {
+      H5iosp.setChunkExecutor(parallel ? exec : null, 3);
+      try (NetcdfFile ncfile = NetcdfFile.open(copy.getPath())) {
+        ncfile.findVariable(varName).read();
+        Assert.fail("read of truncated chunk did not fail, parallel=" + parallel);
+      } catch (IOException | RuntimeException e) {
+        // LayoutBBTiled.hasNext() wraps it in an IllegalStateException
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof EOFException))
+          cause = cause.getCause();
+        Assert.assertNotNull("parallel=" + parallel + " " + e, cause);
+        logger.debug("parallel={} {}", parallel, cause.getMessage());
+      } finally {
+        H5iosp.setChunkExecutor(null, 1);
+      }
+    }
+  }
+
+  private void compare(String filename) throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Random random = new Random(7);
+      for (Variable v : ncfile.getVariables()) {
+        if (v.isVariableLength() || v.getSize() == 0) continue;
+
+        List<Section> sections = new ArrayList<>();
+        sections.add(v.getShapeAsSection());
+        sections.add(randomSection(v.getShape(), random));
+
+        for (Section s : sections) {
+          H5iosp.setChunkExecutor(null, 1);
+          Array serial = v.read(s);
+
+          H5iosp.setChunkExecutor(exec, 3);
+          Array parallel = v.read(s);
+
+          Assert.assertTrue(v.getFullName() + " " + s, MAMath.equals(serial, parallel));
+        }
+      }
+    } finally {
+      H5iosp.setChunkExecutor(null, 1);
+    }
+
+    Formatter f = new Formatter();
+    H5iosp.showChunkStats(f);
+    logger.debug("{}", f);
+  }
+
+  private Section randomSection(int[] shape, Random random) throws InvalidRangeException {
+    Section s = new Section();
+    for (int len : shape) {
+      int first = random.nextInt(len);
+      int last = first + random.nextInt(len - first);
+      s.appendRange(first, last);
+    }
+    return s;
+  }
+}
@@ -4,6 +4,7 @@
  */
 package ucar.nc2.ncml;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +15,8 @@ import ucar.unidata.util.test.Assert2;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /** Test TestNcml - AggExisting  in the JUnit framework. */
 
@@ -51,6 +54,50 @@ public class TestAggExisting {
     ncfile.close();
   }
 
+  @Test
+  public void testNcmlDatasetParallel() throws IOException, InvalidRangeException {
+    String filename = "file:./"+TestNcML.topDir + "aggExisting.xml";
+
+    ExecutorService exec = Executors.newFixedThreadPool(2);
+    Aggregation.setExecutor(exec, 2);
+    try (NetcdfFile ncfile = NetcdfDataset.openDataset( filename, true, null)) {
+      logger.debug(" TestNcmlAggExisting.open parallel {}", filename);
+
+      testCoordVar(ncfile);
+      testAggCoordVar(ncfile);
+      testReadData(ncfile);
+      testReadSlice(ncfile);
+
+    } finally {
+      Aggregation.setExecutor(null, 4);
+      exec.shutdownNow();
+    }
+  }
+
+  // the nested aggregations read from the same pool as the outer one
+  @Test(timeout = 60 * 1000)
+  public void testNestedParallel() throws IOException {
+    String filename = "file:./"+TestNcML.topDir + "aggExistingNested.xml";
+
+    Array serial;
+    try (NetcdfFile ncfile = NetcdfDataset.openDataset( filename, true, null)) {
+      serial = ncfile.findVariable("T").read();
+      Assert.assertEquals(2 * 59, serial.getShape()[0]);
+    }
+
+    ExecutorService exec = Executors.newFixedThreadPool(1);
+    Aggregation.setExecutor(exec, 2);
+    try (NetcdfFile ncfile = NetcdfDataset.openDataset( filename, true, null)) {
+      Variable v = ncfile.findVariable("T");
+      v.setCaching(false);
+      Assert2.assertArrayNearlyEquals((float[]) serial.get1DJavaArray(float.class), (float[]) v.read().get1DJavaArray(float.class));
+
+    } finally {
+      Aggregation.setExecutor(null, 4);
+      exec.shutdownNow();
+    }
+  }
+
   @Test
   public void testNcmlDatasetNoProtocolInFilename() throws IOException, InvalidRangeException {
     String filename = "./"+TestNcML.topDir + "aggExisting.xml";
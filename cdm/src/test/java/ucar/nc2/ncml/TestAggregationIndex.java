@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.ncml;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+
+/** Test the persistent joinExisting index is appended to, and read back. */
+public class TestAggregationIndex {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File file = new File(tempFolder.newFolder(), "agg.ncml.aggx");
+    AggregationIndex index = new AggregationIndex(file);
+    Assert.assertFalse(index.read());
+
+    List<AggregationIndex.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++)
+      entries.add(makeEntry("file" + i, 1000 + i, i + 1));
+    index.update(entries);
+    Assert.assertTrue(index.write());
+    long size = file.length();
+
+    // nothing changed, nothing written
+    index.update(entries);
+    Assert.assertFalse(index.write());
+    Assert.assertEquals(size, file.length());
+
+    // one changed and one new dataset are appended
+    entries.set(3, makeEntry("file3", 2000, 7));
+    entries.add(makeEntry("file10", 1010, 2));
+    index.update(entries);
+    Assert.assertTrue(index.write());
+    Assert.assertTrue(file.length() > size);
+
+    AggregationIndex index2 = new AggregationIndex(file);
+    Assert.assertTrue(index2.read());
+    for (AggregationIndex.Entry entry : entries) {
+      AggregationIndex.Entry entry2 = index2.get(entry.id);
+      Assert.assertNotNull(entry.id, entry2);
+      Assert.assertTrue(entry.id, entry.sameAs(entry2));
+      Assert.assertArrayEquals((double[]) entry.data.get("time").get1DJavaArray(DataType.DOUBLE),
+          (double[]) entry2.data.get("time").get1DJavaArray(DataType.DOUBLE), 0.0);
+      Assert.assertEquals(entry.data.get("run").getObject(0), entry2.data.get("run").getObject(0));
+    }
+  }
+
+  @Test
+  public void testCompact() throws IOException {
+    File file = new File(tempFolder.newFolder(), "agg.ncml.aggx");
+    AggregationIndex index = new AggregationIndex(file);
+    index.read();
+
+    List<AggregationIndex.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 10; i++)
+      entries.add(makeEntry("file" + i, 1000 + i, 1));
+    index.update(entries);
+    index.write();
+    long size = file.length();
+
+    // every dataset changes twice, so the file must be rewritten
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 10; i++)
+        entries.set(i, makeEntry("file" + i, 2000 + round, 1));
+      index.update(entries);
+      index.write();
+    }
+    Assert.assertEquals(size, file.length());
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+    File file = new File(tempFolder.newFolder(), "agg.ncml.aggx");
+    AggregationIndex index = new AggregationIndex(file);
+    index.read();
+
+    List<AggregationIndex.Entry> entries = new ArrayList<>();
+    for (int i = 0; i < 3; i++)
+      entries.add(makeEntry("file" + i, 1000 + i, 2));
+    index.update(entries);
+    index.write();
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() - 5);
+    }
+
+    AggregationIndex index2 = new AggregationIndex(file);
+    Assert.assertTrue(index2.read());
+    Assert.assertNotNull(index2.get("file0"));
+    Assert.assertNotNull(index2.get("file1"));
+    Assert.assertNull(index2.get("file2"));
+
+    index2.update(entries);
+    Assert.assertTrue(index2.write());
+    AggregationIndex index3 = new AggregationIndex(file);
+    Assert.assertTrue(index3.read());
+    Assert.assertNotNull(index3.get("file2"));
+  }
+
+  private AggregationIndex.Entry makeEntry(String id, long lastModified, int ncoords) {
+    double[] times = new double[ncoords];
+    for (int i = 0; i < ncoords; i++)
+      times[i] = lastModified + i * .5;
+    Map<String, Array> data = new HashMap<>();
+    data.put("time", Array.factory(DataType.DOUBLE, new int[] {ncoords}, times));
+    data.put("run", Array.factory(DataType.STRING, new int[] {1}, new String[] {"run " + id}));
+    return new AggregationIndex.Entry(id, lastModified, 100 * ncoords, ncoords, data);
+  }
+}
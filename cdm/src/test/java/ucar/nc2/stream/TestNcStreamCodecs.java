@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Round trip data through the built-in NcStreamCodecs. */
+public class TestNcStreamCodecs {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final NcStreamProto.Compress[] types = {
+      NcStreamProto.Compress.DEFLATE, NcStreamProto.Compress.LZ4, NcStreamProto.Compress.SHUFFLE_DEFLATE};
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Random random = new Random(17);
+    byte[] noise = new byte[100 * 1000 + 3];
+    random.nextBytes(noise);
+
+    ByteBuffer bb = ByteBuffer.allocate(4 * 50 * 1000);
+    for (int i = 0; i < 50 * 1000; i++)
+      bb.putFloat((float) (273.15 + 10 * Math.sin(i / 100.0)));
+    byte[] floats = bb.array();
+
+    Map<NcStreamProto.Compress, Integer> floatSizes = new HashMap<>();
+    for (NcStreamProto.Compress type : types) {
+      NcStreamCodec codec = NcStreamCompression.getCodec(type);
+      Assert.assertNotNull(type.toString(), codec);
+      for (int len : new int[] {0, 1, 5, 13, 100, 65536 + 7})
+        roundTrip(codec, Arrays.copyOf(noise, len), 1);
+      roundTrip(codec, noise, 4);
+      byte[] zeros = roundTrip(codec, new byte[100 * 1000], 8);
+      Assert.assertTrue(type.toString(), zeros.length < 1000);
+      byte[] compressed = roundTrip(codec, floats, 4);
+      logger.debug("{} floats {} -> {}", type, floats.length, compressed.length);
+      floatSizes.put(type, compressed.length);
+    }
+    // the low mantissa bytes of the floats are noise, which LZ4 cannot compress; shuffling separates them out
+    Assert.assertTrue(floatSizes.get(NcStreamProto.Compress.SHUFFLE_DEFLATE) < floatSizes.get(NcStreamProto.Compress.DEFLATE));
+  }
+
+  @Test(expected = IOException.class)
+  public void testCorruptLz4() throws IOException {
+    NcStreamCodec codec = NcStreamCompression.getCodec(NcStreamProto.Compress.LZ4);
+    byte[] data = new byte[1000];
+    byte[] compressed = codec.encode(data, 1);
+    codec.decode(compressed, data.length + 1, 1);
+  }
+
+  @Test
+  public void testSetupStream() throws IOException {
+    byte[] data = new byte[4000];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) (i % 7);
+
+    for (String name : new String[] {"lz4", "shuffle", "SHUFFLE_DEFLATE"}) {
+      NcStreamCompression compress = NcStreamCompression.fromName(name, 5);
+      Assert.assertNotNull(name, compress);
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      OutputStream out = compress.setupStream(bout, data.length, 2);
+      out.write(data);
+      out.flush();
+
+      ByteBuffer result = ByteBuffer.wrap(bout.toByteArray());
+      int size = NcStream.readVInt(new ByteArrayInputStream(bout.toByteArray()));
+      byte[] compressed = new byte[size];
+      result.position(result.limit() - size);
+      result.get(compressed);
+      byte[] back = NcStreamCompression.getCodec(compress.getType()).decode(compressed, data.length, 2);
+      Assert.assertArrayEquals(name, data, back);
+    }
+    Assert.assertNull(NcStreamCompression.fromName("bzip2", -1));
+  }
+
+  private byte[] roundTrip(NcStreamCodec codec, byte[] data, int elemSize) throws IOException {
+    byte[] compressed = codec.encode(data, elemSize);
+    byte[] back = codec.decode(compressed, data.length, elemSize);
+    Assert.assertArrayEquals(codec.getType() + " len=" + data.length, data, back);
+    return compressed;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.stream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.*;
+import ucar.nc2.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Structure data with string members, written by NcStreamWriter in several messages and read back by NcStreamIosp. */
+public class TestNcStreamIospStructure {
+  private static final int nobs = 50;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private ArrayStructureW data;
+
+  private String makeName(int i) {
+    StringBuilder sb = new StringBuilder("station");
+    for (int k = 0; k < i % 7; k++)
+      sb.append('-').append(i);
+    return sb.toString();
+  }
+
+  // a structure that returns its data from memory, since structures are not cached
+  private NetcdfFile makeFile() {
+    NetcdfFile ncfile = new NetcdfFileSubclass();
+    ncfile.addDimension(null, new Dimension("obs", nobs));
+    Structure obs = new Structure(ncfile, null, null, "obs") {
+      @Override
+      public Array read(Section section) throws InvalidRangeException {
+        return data.sectionNoReduce(section.getRanges());
+      }
+    };
+    obs.setDimensions("obs");
+    obs.addMemberVariable(new Variable(ncfile, null, obs, "id", DataType.INT, ""));
+    obs.addMemberVariable(new Variable(ncfile, null, obs, "name", DataType.STRING, ""));
+    ncfile.addVariable(null, obs);
+    ncfile.finish();
+
+    StructureMembers sm = obs.makeStructureMembers();
+    data = new ArrayStructureW(sm, new int[] {nobs});
+    for (int i = 0; i < nobs; i++) {
+      StructureDataW sdata = new StructureDataW(sm);
+      sdata.setMemberData("id", Array.factory(DataType.INT, new int[0], new int[] {i}));
+      sdata.setMemberData("name", Array.factory(DataType.STRING, new int[0], new Object[] {makeName(i)}));
+      data.setStructureData(sdata, i);
+    }
+    return ncfile;
+  }
+
+  @Test
+  public void testStringMembers() throws IOException, InvalidRangeException {
+    testStringMembers(1000 * 1000);  // one message
+    testStringMembers(100);          // a few records in each message
+  }
+
+  private void testStringMembers(long maxChunk) throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile();
+    NcStreamWriter.setMaxChunk(maxChunk);
+    try (OutputStream out = new FileOutputStream(file)) {
+      new NcStreamWriter(makeFile(), file.getPath()).streamAll(out);
+    } finally {
+      NcStreamWriter.setMaxChunk(1000 * 1000);
+    }
+
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Structure obs = (Structure) ncfile.findVariable("obs");
+      Assert.assertNotNull(obs);
+      check((ArrayStructure) obs.read(), 0, nobs);
+      check((ArrayStructure) obs.read(new Section("20:29")), 20, 10);
+    }
+  }
+
+  private void check(ArrayStructure got, int first, int n) {
+    Assert.assertEquals(n, got.getSize());
+    for (int i = 0; i < n; i++) {
+      StructureData sdata = got.getStructureData(i);
+      Assert.assertEquals(first + i, sdata.getScalarInt("id"));
+      Assert.assertEquals(makeName(first + i), sdata.getScalarString("name"));
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Test FileCacheWeighted with FileCacheables that dont hold any resources. */
+public class TestFileCacheWeighted {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @AfterClass
+  public static void shutdown() {
+    FileCache.shutdown();
+  }
+
+  static class MyFile implements FileCacheable {
+    final String location;
+    FileCacheIF cache;
+    volatile boolean closed;
+    volatile long lastModified = 1;
+    long size = 1000;
+
+    MyFile(String location) {
+      this.location = location;
+    }
+
+    public String getLocation() {
+      return location;
+    }
+
+    public void close() throws IOException {
+      if (cache != null && cache.release(this)) return;
+      closed = true;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public void setFileCache(FileCacheIF fileCache) {
+      this.cache = fileCache;
+    }
+
+    public void release() {
+    }
+
+    public void reacquire() {
+    }
+  }
+
+  // the first hashCode() is when the cache adds the file to its map, so give an eject time to run then
+  static class SlowHashFile extends MyFile {
+    private final AtomicBoolean hashed = new AtomicBoolean();
+
+    SlowHashFile(String location) {
+      super(location);
+    }
+
+    public int hashCode() {
+      if (hashed.compareAndSet(false, true)) {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return super.hashCode();
+    }
+  }
+
+  static class MyFileFactory implements FileFactory {
+    final AtomicInteger opens = new AtomicInteger();
+
+    public FileCacheable open(DatasetUrl location, int buffer_size, CancelTask cancelTask, Object iospMessage) {
+      opens.incrementAndGet();
+      return new MyFile(location.trueurl);
+    }
+  }
+
+  private MyFile acquire(FileCacheIF cache, MyFileFactory factory, String location) throws IOException {
+    return (MyFile) cache.acquire(factory, new DatasetUrl(null, location));
+  }
+
+  @Test
+  public void testHitAndMiss() throws IOException {
+    FileCacheWeighted cache = new FileCacheWeighted("test", 100, 0, 0, null);
+    MyFileFactory factory = new MyFileFactory();
+
+    MyFile f1 = acquire(cache, factory, "file1");
+    MyFile f2 = acquire(cache, factory, "file1");  // first is locked, so open another
+    Assert.assertNotSame(f1, f2);
+    Assert.assertEquals(2, factory.opens.get());
+    f1.close();
+    f2.close();
+    Assert.assertFalse(f1.closed);
+
+    MyFile f3 = acquire(cache, factory, "file1");
+    Assert.assertTrue(f3 == f1 || f3 == f2);
+    Assert.assertEquals(2, factory.opens.get());
+    f3.close();
+
+    // changed files are reopened
+    f1.lastModified = 2;
+    f2.lastModified = 2;
+    MyFile f4 = acquire(cache, factory, "file1");
+    Assert.assertEquals(3, factory.opens.get());
+    Assert.assertTrue(f1.closed || f2.closed);
+    f4.close();
+
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(3, cache.getMisses());
+
+    cache.eject("file1");
+    Assert.assertEquals(0, cache.getOpenFiles());
+    Assert.assertTrue(f4.closed);
+  }
+
+  @Test
+  public void testEvictByCount() throws IOException {
+    FileCacheWeighted cache = new FileCacheWeighted("test", 10, 0, 0, null);
+    cache.setEvictInBackground(false);  // so the counts are exact
+    MyFileFactory factory = new MyFileFactory();
+    List<MyFile> all = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      MyFile f = acquire(cache, factory, "file" + i);
+      all.add(f);
+      if (i != 0) f.close();  // keep the first one locked
+    }
+    Assert.assertEquals(30, cache.getOpenFiles());
+
+    // down to 80% of the limit, least recently used first
+    cache.evict();
+    Assert.assertEquals(8, cache.getOpenFiles());
+    Assert.assertEquals(22, cache.getEvictions());
+    Assert.assertFalse(all.get(0).closed);     // locked
+    for (int i = 1; i < 30; i++)
+      Assert.assertEquals("file" + i, i <= 22, all.get(i).closed);
+
+    Formatter f = new Formatter();
+    cache.showCache(f);
+    logger.debug("{}", f);
+  }
+
+  @Test
+  public void testEvictByWeight() throws IOException {
+    FileCacheWeighted cache = new FileCacheWeighted("test", 0, 10 * 1000, 0, fc -> ((MyFile) fc).size);
+    cache.setEvictInBackground(false);
+    MyFileFactory factory = new MyFileFactory();
+    for (int i = 0; i < 20; i++)
+      acquire(cache, factory, "file" + i).close();
+
+    cache.evict();
+    Assert.assertEquals(8 * 1000, cache.getEstimatedBytes());
+    Assert.assertEquals(8, cache.getOpenFiles());
+    Assert.assertEquals(12, cache.getEvictions());
+
+    cache.clearCache(false);
+    Assert.assertEquals(0, cache.getEstimatedBytes());
+    Assert.assertEquals(0, cache.getOpenFiles());
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    FileCacheWeighted cache = new FileCacheWeighted("test", 50, 0, 0, null);
+    MyFileFactory factory = new MyFileFactory();
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int t = 0; t < 16; t++) {
+      final int seed = t;
+      futures.add(pool.submit(() -> {
+        Random random = new Random(seed);
+        for (int i = 0; i < 5000; i++) {
+          MyFile f = acquire(cache, factory, "file" + random.nextInt(200));
+          Assert.assertFalse(f.closed);
+          if (random.nextInt(500) == 0) cache.clearCache(false);  // only closes unlocked files
+          f.close();
+        }
+        return null;
+      }));
+    }
+    for (Future<?> f : futures)
+      f.get();
+    pool.shutdown();
+
+    cache.evict();
+    Assert.assertTrue(cache.getOpenFiles() <= 50);
+    Assert.assertEquals(16 * 5000, cache.getHits() + cache.getMisses());
+    Assert.assertEquals(factory.opens.get(), cache.getMisses());
+
+    cache.clearCache(true);
+    Assert.assertEquals(0, cache.getOpenFiles());
+  }
+
+  // files opened while their key is ejected must not be left in the counts
+  @Test
+  public void testConcurrentEject() throws Exception {
+    FileCacheWeighted cache = new FileCacheWeighted("test", 0, 0, 0, null);
+    Queue<MyFile> opened = new ConcurrentLinkedQueue<>();
+    FileFactory factory = (location, buffer_size, cancelTask, iospMessage) -> {
+      MyFile f = new SlowHashFile(location.trueurl);
+      opened.add(f);
+      return f;
+    };
+    ExecutorService pool = Executors.newFixedThreadPool(5);
+    AtomicBoolean done = new AtomicBoolean();
+    List<Future<?>> futures = new ArrayList<>();
+
+    for (int t = 0; t < 4; t++) {
+      final int seed = t;
+      futures.add(pool.submit(() -> {
+        Random random = new Random(seed);
+        for (int i = 0; i < 2000; i++)
+          cache.acquire(factory, new DatasetUrl(null, "file" + random.nextInt(4))).close();
+        return null;
+      }));
+    }
+    Future<?> ejector = pool.submit(() -> {
+      Random random = new Random();
+      while (!done.get())
+        cache.eject("file" + random.nextInt(4));
+    });
+    for (Future<?> f : futures)
+      f.get();
+    done.set(true);
+    ejector.get();
+    pool.shutdown();
+
+    cache.clearCache(true);
+    Assert.assertEquals(0, cache.getOpenFiles());
+    Assert.assertEquals(0, cache.showCache().size());
+    for (MyFile f : opened)
+      Assert.assertTrue(f.location, f.closed);
+  }
+}
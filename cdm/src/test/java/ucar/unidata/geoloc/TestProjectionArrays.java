@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.geoloc.projection.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Random;
+
+/** Test the array conversions give the same answers as converting one point at a time. */
+public class TestProjectionArrays {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  // GRIB grids usually give the central meridian in 0..360, so the array conversions must normalize the longitude
+  private final ProjectionImpl[] projections = new ProjectionImpl[] {
+      new LambertConformal(40, 265, 25, 25), new Stereographic(90, 255, .933), new Mercator(255, 20),
+      new LambertConformal(40, -105, 25, 25), new Mercator(180, 20),
+      new RotatedPole(37, 177), new LatLonProjection(), new Sinusoidal(0, 0, 0, 6371.229)
+  };
+
+  @Test
+  public void testProjToLatLon() {
+    for (ProjectionImpl proj : projections) {
+      double[][] latlon = makeLatLon(1000, 75);
+      double[][] xy = proj.latLonToProj(latlon);
+      double[][] result = proj.projToLatLon(xy);
+      float[][] resultF = proj.projToLatLon(toFloat(xy));
+
+      ProjectionPointImpl ppt = new ProjectionPointImpl();
+      LatLonPointImpl llpt = new LatLonPointImpl();
+      for (int i = 0; i < latlon[0].length; i++) {
+        proj.latLonToProj(new LatLonPointImpl(latlon[0][i], latlon[1][i]), ppt);
+        Assert.assertEquals(proj.getName(), ppt.getX(), xy[0][i], 1.0e-6);
+        Assert.assertEquals(proj.getName(), ppt.getY(), xy[1][i], 1.0e-6);
+
+        proj.projToLatLon(ppt, llpt);
+        Assert.assertEquals(proj.getName(), llpt.getLatitude(), result[0][i], 1.0e-6);
+        Assert.assertEquals(proj.getName(), llpt.getLongitude(), result[1][i], 1.0e-6);
+        Assert.assertEquals(proj.getName(), llpt.getLatitude(), resultF[0][i], 1.0e-3);
+        Assert.assertEquals(proj.getName(), llpt.getLongitude(), resultF[1][i], 1.0e-3);
+      }
+    }
+  }
+
+  // the threads may run the same code interpreted or compiled, and Math functions may then differ by an ulp
+  @Test
+  public void testParallel() {
+    int n = 3 * ProjectionImpl.PARALLEL_BLOCK_SIZE + 17;
+    for (ProjectionImpl proj : projections) {
+      double[][] xy = proj.latLonToProj(makeLatLon(n, 60));
+      double[][] serial = proj.projToLatLon(xy, new double[2][n]);
+      double[][] parallel = proj.projToLatLonParallel(xy, new double[2][n]);
+      logger.debug("{}: {} points", proj.getClassName(), n);
+
+      Assert.assertArrayEquals(proj.getName(), serial[0], parallel[0], 1.0e-9);
+      Assert.assertArrayEquals(proj.getName(), serial[1], parallel[1], 1.0e-9);
+    }
+  }
+
+  // the 2D lat/lon written by CFGridWriter2 and CFGridCoverageWriter2
+  @Test
+  public void testParallelLonNormal() {
+    for (int n : new int[] {1000, 2 * ProjectionImpl.PARALLEL_BLOCK_SIZE + 1}) {
+      for (ProjectionImpl proj : projections) {
+        double[][] latlon = makeLatLon(n, 60);
+        double[][] result = proj.projToLatLonParallel(proj.latLonToProj(latlon), new double[2][n]);
+        for (int i = 0; i < n; i++) {
+          Assert.assertTrue(proj.getName(), result[1][i] >= -180 && result[1][i] <= 180);
+          Assert.assertEquals(proj.getName(), latlon[1][i], result[1][i], 1.0e-6);
+        }
+      }
+    }
+  }
+
+  private float[][] toFloat(double[][] from) {
+    float[][] result = new float[2][from[0].length];
+    for (int i = 0; i < from[0].length; i++) {
+      result[0][i] = (float) from[0][i];
+      result[1][i] = (float) from[1][i];
+    }
+    return result;
+  }
+
+  private double[][] makeLatLon(int n, double maxLat) {
+    Random r = new Random(n);
+    double[][] latlon = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      latlon[0][i] = (2 * r.nextDouble() - 1) * maxLat;
+      latlon[1][i] = -150 + 100 * r.nextDouble();
+    }
+    return latlon;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** Random access into gzip, zip and bzip2 files must give the same bytes as the uncompressed file. */
+public class TestCompressedRandomAccessFile {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int SIZE = 3 * 1000 * 1000;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  // compressible, but not too much
+  private byte[] makeData(long seed) {
+    Random random = new Random(seed);
+    byte[] data = new byte[SIZE];
+    for (int i = 0; i < SIZE; i++)
+      data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 'a' + random.nextInt(8));
+    return data;
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    byte[] data = makeData(17);
+    File file = tempFolder.newFile("test.gz");
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write(data);
+    }
+    File index = new File(tempFolder.getRoot(), "test.gz" + CompressedRandomAccessFile.INDEX_SUFFIX);
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), index, 8092)) {
+      Assert.assertTrue(raf.getNumberOfCheckpoints() > 1);
+      check(raf, data);
+    }
+    Assert.assertTrue(index.exists());
+
+    // reuse the index
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), index, 8092)) {
+      check(raf, data);
+    }
+  }
+
+  @Test
+  public void testMultiMemberGzip() throws IOException {
+    byte[] data = makeData(19);
+    File file = tempFolder.newFile("multi.gz");
+    try (FileOutputStream fout = new FileOutputStream(file)) {
+      int half = SIZE / 2;
+      GZIPOutputStream out = new GZIPOutputStream(fout);
+      out.write(data, 0, half);
+      out.finish();
+      out = new GZIPOutputStream(fout);
+      out.write(data, half, SIZE - half);
+      out.finish();
+    }
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), null, 8092)) {
+      check(raf, data);
+    }
+  }
+
+  @Test
+  public void testZip() throws IOException {
+    byte[] data = makeData(23);
+    File file = tempFolder.newFile("test.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      out.putNextEntry(new ZipEntry("test.bin"));
+      out.write(data);
+      out.closeEntry();
+    }
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), null, 8092)) {
+      check(raf, data);
+    }
+  }
+
+  @Test
+  public void testBzip2() throws IOException {
+    String filename = TestDir.cdmLocalTestDataDir + "compressed/GFS_Puerto_Rico_191km_20090729_0000.nc.bz2";
+    byte[] data = Files.readAllBytes(new File(TestDir.cdmLocalTestDataDir + "ncml/fmrc/GFS_Puerto_Rico_191km_20090729_0000.nc").toPath());
+    File index = new File(tempFolder.getRoot(), "test.bz2" + CompressedRandomAccessFile.INDEX_SUFFIX);
+
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(filename, index, 8092)) {
+      Assert.assertTrue(raf.getNumberOfCheckpoints() > 1);
+      check(raf, data);
+    }
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(filename, index, 8092)) {
+      check(raf, data);
+    }
+  }
+
+  @Test
+  public void testStaleIndex() throws IOException {
+    File file = tempFolder.newFile("stale.gz");
+    File index = new File(tempFolder.getRoot(), "stale.gz" + CompressedRandomAccessFile.INDEX_SUFFIX);
+    byte[] data = makeData(29);
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write(data, 0, SIZE / 3);
+    }
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), index, 8092)) {
+      Assert.assertEquals(SIZE / 3, raf.length());
+    }
+
+    // rewrite the file, the index must be rebuilt
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+      out.write(data);
+    }
+    Assert.assertTrue(file.setLastModified(file.lastModified() + 10 * 1000));
+    try (CompressedRandomAccessFile raf = new CompressedRandomAccessFile(file.getPath(), index, 8092)) {
+      check(raf, data);
+    }
+  }
+
+  private void check(RandomAccessFile raf, byte[] data) throws IOException {
+    Assert.assertEquals(data.length, raf.length());
+    Random random = new Random(31);
+
+    for (int i = 0; i < 200; i++) {
+      int pos = random.nextInt(data.length);
+      int len = Math.min(data.length - pos, 1 + random.nextInt(10000));
+
+      byte[] b = new byte[len];
+      raf.seek(pos);
+      raf.readFully(b);
+      for (int j = 0; j < len; j++)
+        Assert.assertEquals(raf.getLocation() + " at " + (pos + j), data[pos + j], b[j]);
+
+      ByteBuffer bb = ByteBuffer.allocate(len);
+      Assert.assertEquals(len, raf.readAt(pos, bb));
+      for (int j = 0; j < len; j++)
+        Assert.assertEquals(raf.getLocation() + " readAt " + (pos + j), data[pos + j], bb.get(j));
+    }
+
+    raf.seek(0);
+    byte[] all = new byte[data.length];
+    raf.readFully(all);
+    Assert.assertArrayEquals(data, all);
+    Assert.assertEquals(-1, raf.read());
+    logger.debug("{} ok", raf.getLocation());
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.cache.FileCache;
+import ucar.nc2.util.cache.FileCacheIF;
+import ucar.nc2.util.cache.FileFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/** Test RandomAccessFile.readAt, for the FileChannel, mmap and in-memory implementations. */
+public class TestRandomAccessFileReadAt {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int SIZE = 100 * 1000;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private byte[] makeData() {
+    byte[] data = new byte[SIZE];
+    new Random(17).nextBytes(data);
+    return data;
+  }
+
+  private File makeFile(byte[] data) throws IOException {
+    File file = tempFolder.newFile();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data);
+    }
+    return file;
+  }
+
+  @Test
+  public void testReadAt() throws IOException {
+    byte[] data = makeData();
+    File file = makeFile(data);
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      checkReadAt(raf, data);
+    }
+    try (RandomAccessFile raf = new MMapRandomAccessFile(file.getPath(), "r")) {
+      checkReadAt(raf, data);
+    }
+    try (RandomAccessFile raf = new InMemoryRandomAccessFile("test", data)) {
+      checkReadAt(raf, data);
+    }
+  }
+
+  private void checkReadAt(RandomAccessFile raf, byte[] data) throws IOException {
+    raf.seek(1000);
+    long filePointer = raf.getFilePointer();
+
+    ByteBuffer bb = ByteBuffer.allocate(500);
+    Assert.assertEquals(500, raf.readAt(12345, bb));
+    Assert.assertEquals(500, bb.position());
+    for (int i = 0; i < 500; i++)
+      Assert.assertEquals(data[12345 + i], bb.get(i));
+
+    // file pointer is not changed
+    Assert.assertEquals(filePointer, raf.getFilePointer());
+    Assert.assertEquals(data[1000], (byte) raf.read());
+
+    // short read at the end of the file
+    bb = ByteBuffer.allocateDirect(100);
+    Assert.assertEquals(10, raf.readAt(SIZE - 10, bb));
+    for (int i = 0; i < 10; i++)
+      Assert.assertEquals(data[SIZE - 10 + i], bb.get(i));
+
+    // past the end
+    bb.clear();
+    Assert.assertEquals(-1, raf.readAt(SIZE, bb));
+  }
+
+  @Test
+  public void testStatefulReadsOnMMap() throws IOException {
+    byte[] data = makeData();
+    File file = makeFile(data);
+
+    try (RandomAccessFile raf = new MMapRandomAccessFile(file.getPath(), "r")) {
+      Assert.assertEquals(SIZE, raf.length());
+      byte[] b = new byte[20000];
+      raf.seek(5);
+      raf.readFully(b);
+      for (int i = 0; i < b.length; i++)
+        Assert.assertEquals(data[5 + i], b[i]);
+
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      raf.seek(SIZE - 4);
+      int val = raf.readInt();
+      int expect = ((data[SIZE - 4] & 0xff) << 24) | ((data[SIZE - 3] & 0xff) << 16) | ((data[SIZE - 2] & 0xff) << 8) | (data[SIZE - 1] & 0xff);
+      Assert.assertEquals(expect, val);
+      Assert.assertEquals(-1, raf.read());
+    }
+  }
+
+  @Test
+  public void testConcurrentReadAt() throws Exception {
+    byte[] data = makeData();
+    File file = makeFile(data);
+
+    ExecutorService exec = Executors.newFixedThreadPool(8);
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r");
+         RandomAccessFile mmap = new MMapRandomAccessFile(file.getPath(), "r")) {
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int t = 0; t < 16; t++) {
+        final RandomAccessFile shared = (t % 2 == 0) ? raf : mmap;
+        final int seed = t;
+        results.add(exec.submit(() -> {
+          Random random = new Random(seed);
+          ByteBuffer bb = ByteBuffer.allocate(1000);
+          int nbad = 0;
+          for (int i = 0; i < 500; i++) {
+            int pos = random.nextInt(SIZE - 1000);
+            bb.clear();
+            shared.readAt(pos, bb);
+            for (int j = 0; j < 1000; j++)
+              if (bb.get(j) != data[pos + j]) nbad++;
+          }
+          return nbad;
+        }));
+      }
+      for (Future<Integer> result : results)
+        Assert.assertEquals(0, (int) result.get());
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  // an interrupted readAt must not close the file for the other users of it
+  @Test
+  public void testInterruptedReadAt() throws Exception {
+    byte[] data = makeData();
+    File file = makeFile(data);
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      Assert.assertEquals(100, raf.readAt(0, ByteBuffer.allocate(100)));
+
+      ExecutorService exec = Executors.newSingleThreadExecutor();
+      try {
+        Future<Boolean> interrupted = exec.submit(() -> {
+          Thread.currentThread().interrupt();
+          try {
+            raf.readAt(0, ByteBuffer.allocate(100));
+            return false;
+          } catch (ClosedByInterruptException e) {
+            return true;
+          } finally {
+            Thread.interrupted(); // clear it
+          }
+        });
+        Assert.assertTrue(interrupted.get());
+      } finally {
+        exec.shutdownNow();
+      }
+
+      ByteBuffer bb = ByteBuffer.allocate(100);
+      Assert.assertEquals(100, raf.readAt(500, bb));
+      Assert.assertEquals(data[500], bb.get(0));
+      raf.seek(1000);
+      Assert.assertEquals(data[1000], (byte) raf.read());
+    }
+  }
+
+  // close() of a file in the FileCache only releases it, so it must still be usable when acquired again
+  @Test
+  public void testMMapReleasedToCache() throws IOException {
+    byte[] data = makeData();
+    File file = makeFile(data);
+    FileFactory mmapFactory = (durl, buffer_size, cancelTask, iospMessage) -> new MMapRandomAccessFile(durl.trueurl, "r");
+
+    FileCacheIF save = RandomAccessFile.getGlobalFileCache();
+    FileCache cache = new FileCache("TestMMap", 0, 10, 20, 0);
+    RandomAccessFile.setGlobalFileCache(cache);
+    try {
+      DatasetUrl durl = new DatasetUrl(null, file.getPath());
+      RandomAccessFile raf = (RandomAccessFile) cache.acquire(mmapFactory, durl);
+      raf.reacquire(); // as if it came from the cache
+      raf.close();     // released, not closed
+
+      RandomAccessFile raf2 = (RandomAccessFile) cache.acquire(mmapFactory, durl);
+      Assert.assertSame(raf, raf2);
+      ByteBuffer bb = ByteBuffer.allocate(100);
+      Assert.assertEquals(100, raf2.readAt(12345, bb));
+      Assert.assertEquals(data[12345], bb.get(0));
+      raf2.close();
+
+    } finally {
+      cache.clearCache(true);
+      RandomAccessFile.setGlobalFileCache(save);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadAtAfterClose() throws IOException {
+    File file = makeFile(makeData());
+    RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r");
+    raf.close();
+    raf.readAt(0, ByteBuffer.allocate(10));
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** HTTPRandomAccessFile through the HTTPBlockCache, against an embedded HTTP server that counts range requests. */
+public class TestHTTPBlockCache {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final Pattern rangePattern = Pattern.compile("bytes=(\\d+)-(\\d+)");
+  private static final int SIZE = 1000 * 1000;
+  private static final int BLOCK = 16 * 1024;
+
+  private HttpServer server;
+  private String url;
+  private volatile byte[] data;
+  private volatile String etag, lastModified;  // response headers, not sent if null
+  private final AtomicInteger rangeRequests = new AtomicInteger();
+
+  @Before
+  public void startServer() throws IOException {
+    data = new byte[SIZE];
+    new Random(37).nextBytes(data);
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/data.bin", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    url = "http://localhost:" + server.getAddress().getPort() + "/data.bin";
+  }
+
+  @After
+  public void stopServer() {
+    HTTPBlockCache.shutdown();
+    HTTPRandomAccessFile.setExecutor(null, 1);
+    HTTPRandomAccessFile.setBlockRequests(2, 16);
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    byte[] data = this.data;
+    exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+    if (etag != null)
+      exchange.getResponseHeaders().set("ETag", etag);
+    if (lastModified != null)
+      exchange.getResponseHeaders().set("Last-Modified", lastModified);
+    if (exchange.getRequestMethod().equals("HEAD")) {
+      exchange.getResponseHeaders().set("Content-Length", Integer.toString(SIZE));
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+      return;
+    }
+
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    Matcher m = (range == null) ? null : rangePattern.matcher(range);
+    if (m == null || !m.matches()) {
+      exchange.sendResponseHeaders(200, SIZE);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(data);
+      }
+      return;
+    }
+
+    rangeRequests.incrementAndGet();
+    int start = Integer.parseInt(m.group(1));
+    int end = Math.min(Integer.parseInt(m.group(2)), SIZE - 1);
+    exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + SIZE);
+    exchange.sendResponseHeaders(206, end - start + 1);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(data, start, end - start + 1);
+    }
+  }
+
+  @Test
+  public void testNoCache() throws IOException {
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      Assert.assertEquals(SIZE, raf.length());
+      checkRandomReads(raf, 50);
+    }
+  }
+
+  @Test
+  public void testSharedAcrossOpens() throws IOException {
+    HTTPBlockCache.initDefaultCache(10 * SIZE, BLOCK);
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      checkRandomReads(raf, 50);
+    }
+    int count = rangeRequests.get();
+    Assert.assertTrue(count > 0);
+
+    // all the blocks are now in the cache
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      checkRandomReads(raf, 50);
+    }
+    Assert.assertEquals(count, rangeRequests.get());
+
+    Formatter f = new Formatter();
+    HTTPBlockCache.getDefaultCache().showCache(f);
+    logger.debug("{}", f);
+  }
+
+  @Test
+  public void testReadAhead() throws IOException {
+    HTTPBlockCache.initDefaultCache(10 * SIZE, BLOCK);
+    HTTPRandomAccessFile.setBlockRequests(4, 16);
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      byte[] b = new byte[100];
+      raf.seek(0);
+      raf.readFully(b);
+      Assert.assertEquals(1, rangeRequests.get());
+
+      // the next blocks were read ahead
+      raf.seek(3 * BLOCK);
+      raf.readFully(b);
+      Assert.assertEquals(1, rangeRequests.get());
+      Assert.assertArrayEquals(Arrays.copyOfRange(data, 3 * BLOCK, 3 * BLOCK + 100), b);
+    }
+  }
+
+  @Test
+  public void testConcurrentRequests() throws IOException {
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      HTTPBlockCache.initDefaultCache(10 * SIZE, BLOCK);
+      HTTPRandomAccessFile.setExecutor(exec, 4);
+      HTTPRandomAccessFile.setBlockRequests(0, 8);
+
+      try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+        byte[] all = new byte[SIZE];
+        raf.seek(0);
+        raf.readFully(all);
+        Assert.assertArrayEquals(data, all);
+      }
+      // one large read is split into requests of at most 8 blocks, plus the first buffer fill
+      int nblocks = (SIZE + BLOCK - 1) / BLOCK;
+      Assert.assertTrue(rangeRequests.get() <= (nblocks + 7) / 8 + 1);
+
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  // the remote file is replaced by one of the same length
+  @Test
+  public void testReplacedETag() throws IOException {
+    etag = "\"v1\"";
+    checkReplaced(() -> etag = "\"v2\"");
+  }
+
+  @Test
+  public void testReplacedLastModified() throws IOException {
+    lastModified = "Sun, 18 Oct 2026 10:00:00 GMT";
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      Assert.assertEquals(ZonedDateTime.of(2026, 10, 18, 10, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli(),
+              raf.getLastModified());
+    }
+    checkReplaced(() -> lastModified = "Sun, 18 Oct 2026 10:05:00 GMT");
+  }
+
+  private void checkReplaced(Runnable changeVersion) throws IOException {
+    HTTPBlockCache.initDefaultCache(10 * SIZE, BLOCK);
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      checkRandomReads(raf, 20);
+    }
+    long cached = HTTPBlockCache.getDefaultCache().getBytes();
+    Assert.assertTrue(cached > 0);
+
+    byte[] replaced = new byte[SIZE];
+    new Random(43).nextBytes(replaced);
+    data = replaced;
+    changeVersion.run();
+
+    int count = rangeRequests.get();
+    try (HTTPRandomAccessFile raf = new HTTPRandomAccessFile(url)) {
+      checkRandomReads(raf, 20);
+    }
+    Assert.assertTrue(rangeRequests.get() > count);
+    // the old blocks were dropped, the same reads cached the same amount again
+    Assert.assertEquals(cached, HTTPBlockCache.getDefaultCache().getBytes());
+  }
+
+  private void checkRandomReads(HTTPRandomAccessFile raf, int n) throws IOException {
+    Random random = new Random(41);
+    for (int i = 0; i < n; i++) {
+      int pos = random.nextInt(SIZE);
+      int len = Math.min(SIZE - pos, 1 + random.nextInt(3 * BLOCK));
+      byte[] b = new byte[len];
+      raf.seek(pos);
+      raf.readFully(b);
+      Assert.assertArrayEquals("pos " + pos, Arrays.copyOfRange(data, pos, pos + len), b);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import thredds.inventory.CollectionUpdateType;
+import thredds.inventory.MFile;
+import ucar.nc2.grib.GribIndex;
+import ucar.nc2.util.CloseableIterator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Reads or creates the gbx9 index of each file of a collection, for the GribCollectionBuilders.
+ * With an executor, up to maxThreadsPerCollection files are indexed at once, so that a new model run
+ * of hundreds of files is indexed in parallel. The indexes are still returned in file order, so the collection
+ * built is the same as when the files are indexed one at a time.
+ * <p>
+ * Without an executor (default), each file is indexed on the calling thread when next() is called, as before.
+ *
+ * @since 10/18/2026
+ */
+public class GbxIndexIterator implements CloseableIterator<GbxIndexIterator.FileIndex> {
+  static private Executor executor;
+  static private int maxThreadsPerCollection = 1;
+
+  /**
+   * Index the files of a collection in parallel.
+   *
+   * @param exec                    worker threads, or null to index files serially on the calling thread (default)
+   * @param maxThreadsPerCollection maximum number of files of one collection indexed at once
+   */
+  static public void setExecutor(Executor exec, int maxThreadsPerCollection) {
+    GbxIndexIterator.executor = exec;
+    GbxIndexIterator.maxThreadsPerCollection = Math.max(1, maxThreadsPerCollection);
+  }
+
+  /** The gbx9 index of one file, or the reason it could not be read. */
+  static class FileIndex {
+    final MFile mfile;
+    final GribIndex index;      // may be null
+    final IOException failure;  // not null if reading or creating the index failed
+
+    FileIndex(MFile mfile, GribIndex index, IOException failure) {
+      this.mfile = mfile;
+      this.index = index;
+      this.failure = failure;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final Iterator<MFile> files;
+  private final boolean isGrib1;
+  private final Consumer<GribIndex> prepare;
+  private final org.slf4j.Logger logger;
+  private final Executor exec;
+  private final int maxAhead;
+  private final ArrayDeque<FutureTask<FileIndex>> pending = new ArrayDeque<>();
+  private MFile nextFile; // the MFile iterators advance in hasNext(), so call it once for each next()
+
+  /**
+   * @param files   the files of the collection, may be null
+   * @param isGrib1 GRIB1 or GRIB2
+   * @param prepare called with each index after it is read, on the worker thread; use to decode the record metadata
+   *                that the builder needs, may be null
+   * @param logger  log to this
+   */
+  GbxIndexIterator(Iterator<MFile> files, boolean isGrib1, Consumer<GribIndex> prepare, org.slf4j.Logger logger) {
+    this.files = files;
+    this.isGrib1 = isGrib1;
+    this.prepare = prepare;
+    this.logger = logger;
+    this.exec = executor;
+    this.maxAhead = maxThreadsPerCollection;
+  }
+
+  private FileIndex readIndex(MFile mfile) {
+    try {
+      GribIndex index;
+      if (Grib.debugGbxIndexOnly) {
+        index = GribIndex.open(isGrib1, mfile);
+      } else {
+        // this is where gbx9 files get recreated
+        index = GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+      }
+      if (index != null && prepare != null)
+        prepare.accept(index);
+      return new FileIndex(mfile, index, null);
+
+    } catch (IOException ioe) {
+      return new FileIndex(mfile, null, ioe);
+    }
+  }
+
+  private boolean moreFiles() {
+    if (nextFile == null && files != null && files.hasNext())
+      nextFile = files.next();
+    return nextFile != null;
+  }
+
+  private MFile takeFile() {
+    MFile result = nextFile;
+    nextFile = null;
+    return result;
+  }
+
+  private void fill() {
+    while (pending.size() < maxAhead && moreFiles()) {
+      MFile mfile = takeFile();
+      FutureTask<FileIndex> task = new FutureTask<>(() -> readIndex(mfile));
+      pending.add(task);
+      exec.execute(task);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return !pending.isEmpty() || moreFiles();
+  }
+
+  @Override
+  public FileIndex next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    if (exec == null || maxAhead <= 1)
+      return readIndex(takeFile());
+
+    fill();
+    FutureTask<FileIndex> task = pending.poll();
+    try {
+      FileIndex result = task.get();
+      fill(); // keep the workers busy while the caller uses this one
+      return result;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while indexing collection files", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new RuntimeException(cause);
+    }
+  }
+
+  /** Cancel any files not yet started. */
+  @Override
+  public void close() {
+    for (FutureTask<FileIndex> task : pending)
+      task.cancel(false);
+    pending.clear();
+  }
+}
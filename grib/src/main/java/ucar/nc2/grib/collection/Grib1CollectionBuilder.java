@@ -6,7 +6,6 @@
 package ucar.nc2.grib.collection;
 
 import thredds.featurecollection.FeatureCollectionConfig;
-import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
 import ucar.coord.*;
@@ -44,6 +43,12 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
     gribConfig = config.gribConfig;
   }
 
+  // decode what makeGroups needs from each record, on the thread that read the index
+  private static void prepareIndex(GribIndex index) {
+    for (Grib1Record gr : ((Grib1Index) index).getRecords())
+      gr.getGDS();
+  }
+
   // read all records in all files,
   // divide into groups based on GDS hash and optionally the runtime
   // each group has an arraylist of all records that belong to it.
@@ -59,27 +64,22 @@ public class Grib1CollectionBuilder extends GribCollectionBuilder {
     logger.debug(" dcm={}", dcm);
 
     // place each record into its group
-    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
+    try (CloseableIterator<MFile> iter = dcm.getFileIterator(); // not sorted
+         GbxIndexIterator indexes = new GbxIndexIterator(iter, true, Grib1CollectionBuilder::prepareIndex, logger)) {
       if (iter == null)
         return new ArrayList<>(); // empty
 
-      while (iter.hasNext()) {
-        MFile mfile = iter.next();
-        Grib1Index index;
-        try {
-          if (Grib.debugGbxIndexOnly) {
-            index = (Grib1Index) GribIndex.open(true, mfile);
-            if (index == null) continue;
-          } else {
-            // here is where gbx9 files get recreated
-            index = (Grib1Index) GribIndex.readOrCreateIndexFromSingleFile(true, mfile, CollectionUpdateType.test, logger);
-          }
-          allFiles.add(mfile);  // add on success
-
-        } catch (IOException ioe) {
-          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", ioe);
+      while (indexes.hasNext()) {
+        GbxIndexIterator.FileIndex fileIndex = indexes.next();  // gbx9 files may be created in parallel
+        MFile mfile = fileIndex.mfile;
+        Grib1Index index = (Grib1Index) fileIndex.index;
+        if (fileIndex.failure != null) {
+          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", fileIndex.failure);
           continue;
         }
+        if (Grib.debugGbxIndexOnly && index == null) continue;
+        allFiles.add(mfile);  // add on success
+
         if (index == null) {
           logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed");
           continue;
@@ -87,6 +87,19 @@ class Grib1CollectionWriter extends GribCollectionWriter {
   boolean writeIndex(String name, File idxFile, CoordinateRuntime masterRuntime, List<Group> groups,
       List<MFile> files,
       GribCollectionImmutable.Type type, CalendarDateRange dateRange) throws IOException {
+    try (GribRecordIndex.Writer recordWriter = GribRecordIndex.Writer.create(idxFile)) {
+      boolean ok = writeIndex(name, idxFile, masterRuntime, groups, files, type, dateRange, recordWriter);
+      if (ok && recordWriter != null)
+        recordWriter.finish(); // after the ncx4 file is closed
+      return ok;
+    }
+  }
+
+  // recordWriter may be null
+  private boolean writeIndex(String name, File idxFile, CoordinateRuntime masterRuntime, List<Group> groups,
+      List<MFile> files,
+      GribCollectionImmutable.Type type, CalendarDateRange dateRange,
+      GribRecordIndex.Writer recordWriter) throws IOException {
     Grib1Record first = null; // take global metadata from here
     boolean deleteOnClose = false;
 
@@ -121,6 +134,8 @@ class Grib1CollectionWriter extends GribCollectionWriter {
           vb.pos = raf.getFilePointer();
           vb.length = b.length;
           raf.write(b);
+          if (recordWriter != null)
+            recordWriter.add(vb.pos, vr);
           countBytes += b.length;
           countRecords += vb.coordND.getSparseArray().countNotMissing();
         }
@@ -6,7 +6,6 @@
 package ucar.nc2.grib.collection;
 
 import thredds.featurecollection.FeatureCollectionConfig;
-import thredds.inventory.CollectionUpdateType;
 import thredds.inventory.MCollection;
 import thredds.inventory.MFile;
 import ucar.coord.*;
@@ -43,6 +42,14 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
     gribConfig = config.gribConfig;
   }
 
+  // decode what makeGroups needs from each record, on the thread that read the index
+  private static void prepareIndex(GribIndex index) {
+    for (Grib2Record gr : ((Grib2Index) index).getRecords()) {
+      gr.getGDS();
+      gr.getPDS();
+    }
+  }
+
   // read all records in all files,
   // divide into groups based on GDS hash and runtime
   // each group has an arraylist of all records that belong to it.
@@ -59,27 +66,22 @@ class Grib2CollectionBuilder extends GribCollectionBuilder {
 
     // place each record into its group
     int totalRecords = 0;
-    try (CloseableIterator<MFile> iter = dcm.getFileIterator()) { // not sorted
+    try (CloseableIterator<MFile> iter = dcm.getFileIterator(); // not sorted
+         GbxIndexIterator indexes = new GbxIndexIterator(iter, false, Grib2CollectionBuilder::prepareIndex, logger)) {
       if (iter == null)
         return new ArrayList<>(); // empty
 
-      while (iter.hasNext()) {
-        MFile mfile = iter.next();
-        Grib2Index index;
+      while (indexes.hasNext()) {
+        GbxIndexIterator.FileIndex fileIndex = indexes.next();  // gbx9 files may be created in parallel
+        MFile mfile = fileIndex.mfile;
+        Grib2Index index = (Grib2Index) fileIndex.index;
 
-        try {
-          if (Grib.debugGbxIndexOnly) {
-             index = (Grib2Index) GribIndex.open(false, mfile);
-           } else {
-             // this is where gbx9 files get recreated
-             index = (Grib2Index) GribIndex.readOrCreateIndexFromSingleFile(false, mfile, CollectionUpdateType.test, logger);
-           }
-          allFiles.add(mfile);  // add on success
-
-        } catch (IOException ioe) {
-          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", ioe);
+        if (fileIndex.failure != null) {
+          logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed", fileIndex.failure);
           continue;
         }
+        allFiles.add(mfile);  // add on success
+
         if (index == null) {
           logger.error("Grib2CollectionBuilder " + name + " : reading/Creating gbx9 index for file " + mfile.getPath() + " failed");
           continue;
@@ -36,7 +36,9 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -93,6 +95,21 @@ public class GribCdmIndex implements IndexReader {
     if (gribCollectionCache != null) gribCollectionCache.clearCache(true);
   }
 
+  // see setAppendPartitions
+  static boolean appendPartitions;
+
+  /**
+   * Update partition indexes in append mode (default false).
+   * When a partition index is out of date because only its latest partitions were added or changed, as when files arrive
+   * in the newest directory of a rolling archive, rewrite it from the previous partition index and those partitions only,
+   * instead of opening every partition. Falls back to a full rebuild whenever that would not give the same coordinates.
+   *
+   * @param append true to turn on append mode
+   */
+  public static void setAppendPartitions(boolean append) {
+    appendPartitions = append;
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////////
 
   public static File getTopIndexFileFromConfig(FeatureCollectionConfig config) {
@@ -283,6 +300,19 @@ public class GribCdmIndex implements IndexReader {
    * @return true if the collection was updated
    */
   public static boolean updateGribCollection(FeatureCollectionConfig config, CollectionUpdateType updateType, Logger logger) throws IOException {
+    return updateGribCollection(config, updateType, null, logger);
+  }
+
+  /**
+   * Update Grib Collection if needed, checking only the partitions where files changed.
+   * Used by the Tdm when it gets CollectionUpdateEvents from an InventoryChangeFeed.
+   *
+   * @param changedDirs directories in which files changed; a directory partition whose root does not contain one of
+   *   these, and has an index, is not checked. null means check the whole collection. Ignored by other partition types.
+   * @return true if the collection was updated
+   */
+  public static boolean updateGribCollection(FeatureCollectionConfig config, CollectionUpdateType updateType,
+                                             Set<Path> changedDirs, Logger logger) throws IOException {
     if (logger == null) logger = classLogger;
 
     long start = System.currentTimeMillis();
@@ -313,7 +343,7 @@ public class GribCdmIndex implements IndexReader {
 
         try (DirectoryPartition dpart = new DirectoryPartition(config, rootPath, true, new GribCdmIndex(logger), NCX_SUFFIX, logger)) {
           dpart.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
-          changed = updateDirectoryCollectionRecurse(isGrib1, dpart, config, updateType, logger);
+          changed = updateDirectoryCollectionRecurse(isGrib1, dpart, config, updateType, normalize(changedDirs), logger);
         }
 
       } else { // otherwise its a leaf directory
@@ -425,9 +455,27 @@ public class GribCdmIndex implements IndexReader {
     return true;
   }
 
+  private static Set<Path> normalize(Set<Path> dirs) {
+    if (dirs == null) return null;
+    Set<Path> result = new HashSet<>();
+    for (Path dir : dirs)
+      result.add(dir.toAbsolutePath().normalize());
+    return result;
+  }
+
+  // true if nothing changed in the partition and it already has an index
+  private static boolean isUnchanged(MCollection part, Set<Path> changedDirs) {
+    if (changedDirs == null) return false;
+    Path root = Paths.get(part.getRoot()).toAbsolutePath().normalize();
+    for (Path dir : changedDirs)
+      if (dir.startsWith(root)) return false;
+    return GribIndexCache.getExistingFileOrCache(part.getIndexFilename(NCX_SUFFIX)) != null;
+  }
+
   private static boolean updateDirectoryCollectionRecurse(boolean isGrib1, DirectoryPartition dpart,
                                                           FeatureCollectionConfig config,
                                                           CollectionUpdateType updateType,
+                                                          Set<Path> changedDirs,
                                                           Logger logger) throws IOException {
 
     if (debug) System.out.printf("GribCdmIndex.updateDirectoryCollectionRecurse %s %s%n", dpart.getRoot(), updateType);
@@ -439,9 +487,10 @@ public class GribCdmIndex implements IndexReader {
     if (updateType != CollectionUpdateType.testIndexOnly) {   // skip children on testIndexOnly
       for (MCollection part : dpart.makePartitions(updateType)) {
         part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+        if (isUnchanged(part, changedDirs)) continue;  // use its existing index
         try {
           if (part instanceof DirectoryPartition) {   // LOOK if child partition fails, the parent partition doesnt know that - suckage
-            updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) part, config, updateType, logger);
+            updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) part, config, updateType, changedDirs, logger);
           } else {
             Path partPath = Paths.get(part.getRoot());
             updateLeafCollection(isGrib1, config, updateType, false, logger, partPath); // LOOK why not using part ??
@@ -454,8 +454,8 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     // stats
     final int ndups, nrecords, nmissing;
 
-    // read in on demand
-    private SparseArray<Record> sa;   // for GC only; lazily read; same array shape as variable, minus x and y
+    // read in on demand; may be released again by the GribRecordCache
+    private volatile SparseArray<Record> sa;   // for GC only; lazily read; same array shape as variable, minus x and y
 
     protected VariableIndex(GroupGC g, GribCollectionMutable.VariableIndex gcVar) {
       this.group = g;
@@ -471,11 +471,43 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       this.nmissing = gcVar.nmissing;
     }
 
-    public synchronized void readRecords() throws IOException {
-      if (this.sa != null) return;
+    public void readRecords() throws IOException {
+      GribRecordCache recordCache = GribRecordCache.getDefaultCache();
+      if (recordCache != null)
+        recordCache.touch(this);
+      getRecords();
+    }
+
+    // not synchronized on this, so the GribRecordCache can release other variables' records
+    private SparseArray<Record> getRecords() throws IOException {
+      SparseArray<Record> result = this.sa;
+      if (result != null || recordsLen == 0)
+        return result;
+
+      GribRecordCache recordCache = GribRecordCache.getDefaultCache();
+      synchronized (this) {
+        if (this.sa == null)
+          this.sa = makeRecords();
+        result = this.sa;
+      }
+      if (recordCache != null)
+        recordCache.add(this, result.getContent().size());
+      return result;
+    }
+
+    /** Release the records, which will be read again from the index if needed. */
+    void releaseRecords() {
+      this.sa = null;
+    }
+
+    private SparseArray<Record> makeRecords() throws IOException {
+      // use the memory-mapped record index if there is one
+      GribRecordIndex recordIndex = GribRecordIndex.open(indexFilename);
+      if (recordIndex != null) {
+        SparseArray<Record> result = recordIndex.getSparseArray(recordsPos);
+        if (result != null) return result;
+      }
 
-      if (recordsLen == 0)
-        return;
       byte[] b = new byte[recordsLen];
 
       try (RandomAccessFile indexRaf = RandomAccessFile.acquire(indexFilename)) {
@@ -503,14 +535,21 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
         for (int i = 0; i < ntrack; i++)
           track[i] = proto.getTrack(i);
 
+        // store as columns rather than one Record object per message
         int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
+        int[] fileno = new int[n];
+        long[] pos = new long[n];
+        int[] bmsOffset = new int[n];
+        int[] drsOffset = new int[n];
         for (int i = 0; i < n; i++) {
           GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
+          fileno[i] = pr.getFileno();
+          pos[i] = pr.getStartPos();
+          bmsOffset[i] = pr.getBmsOffset();
+          drsOffset[i] = pr.getDrsOffset();
         }
         int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
+        return new SparseArray<>(size, track, new RecordColumns(fileno, pos, bmsOffset, drsOffset), ndups);
 
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
         logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
@@ -518,17 +557,17 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       }
     }
 
-    synchronized Record getRecordAt(int sourceIndex) {
-      return sa.getContent(sourceIndex);
+    Record getRecordAt(int sourceIndex) throws IOException {
+      return getRecords().getContent(sourceIndex);
     }
 
-    synchronized Record getRecordAt(int[] sourceIndex) {
-      return sa.getContent(sourceIndex);
+    Record getRecordAt(int[] sourceIndex) throws IOException {
+      return getRecords().getContent(sourceIndex);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // coord based record finding. note only one record at a time
-    synchronized Record getRecordAt(SubsetParams coords) {
+    Record getRecordAt(SubsetParams coords) throws IOException {
       int[] want = new int[getRank()];
       int count = 0;
       int runIdx = -1;
@@ -604,7 +643,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
 
         want[count++] = idx;
       }
-      return sa.getContent(want);
+      return getRecords().getContent(want);
     }
 
     public List<Coordinate> getCoordinates() {
@@ -645,6 +684,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     }
 
     public int getNRecords() {
+      SparseArray<Record> sa = this.sa;
       return sa == null ? -1 : sa.countNotMissing();
     }
 
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.*;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of decoded GRIB records, shared by all GribDataReaders.
+ * Keyed by data file location, last modified time and length, and record position, so the same record is found no
+ * matter which collection or partition it was read through, and a data file that is rewritten in place is not
+ * served from old entries. The size is bounded by the number of bytes of data held, not the number of records.
+ * Uses a guava cache, so eviction is approximately LRU.
+ * <p>
+ * The data may be kept off-heap, in direct ByteBuffers. That memory is limited by -XX:MaxDirectMemorySize, not -Xmx.
+ * Then each get() copies the record into a new float array, so a hit saves the decoding but not the allocation.
+ * <p>
+ * On-heap, the arrays returned by get() are shared, and must not be modified.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribDataCache {
+  static private GribDataCache defaultCache;  // null means turned off
+
+  /**
+   * Turn on the shared cache.
+   * @param maxBytes maximum number of bytes of data to keep; if <= 0, turn the cache off
+   * @param offHeap keep the data in direct ByteBuffers instead of float arrays
+   */
+  static public synchronized void initDefaultCache(long maxBytes, boolean offHeap) {
+    if (defaultCache != null)
+      defaultCache.clearCache();
+    defaultCache = (maxBytes > 0) ? new GribDataCache(maxBytes, offHeap) : null;
+  }
+
+  /** @return the shared cache, or null if it is turned off */
+  static public GribDataCache getDefaultCache() {
+    return defaultCache;
+  }
+
+  static public synchronized void shutdown() {
+    initDefaultCache(0, false);
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final Cache<Key, Object> cache;   // value is float[] or FloatBuffer
+  private final long maxBytes;
+  private final boolean offHeap;
+  private final AtomicLong bytes = new AtomicLong();
+
+  public GribDataCache(long maxBytes, boolean offHeap) {
+    this.maxBytes = maxBytes;
+    this.offHeap = offHeap;
+    this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Weigher<Key, Object>) (key, value) -> weigh(value))
+            .removalListener((RemovalListener<Key, Object>) removal -> bytes.addAndGet(-weigh(removal.getValue())))
+            .recordStats()
+            .build();
+  }
+
+  private static int weigh(Object value) {
+    if (value instanceof float[]) return 4 * ((float[]) value).length;
+    if (value instanceof FloatBuffer) return 4 * ((FloatBuffer) value).capacity();
+    return 0;
+  }
+
+  /**
+   * Find a decoded record.
+   * @param location data file location
+   * @param lastModified data file last modified time
+   * @param length data file length
+   * @param record the record in that file
+   * @return the decoded data, or null if not in the cache. On-heap this is shared, so do not modify;
+   *   off-heap it is a copy.
+   */
+  public float[] get(String location, long lastModified, long length, GribCollectionImmutable.Record record) {
+    Object value = cache.getIfPresent(new Key(location, lastModified, length, record));
+    if (value == null) return null;
+    if (value instanceof float[]) return (float[]) value;
+
+    FloatBuffer fb = ((FloatBuffer) value).duplicate();  // independent position, so no locking needed
+    float[] data = new float[fb.capacity()];
+    fb.get(data);
+    return data;
+  }
+
+  /**
+   * Add a decoded record. If offHeap, the data is copied, otherwise it is kept, and must not be modified afterwards.
+   * @param location data file location
+   * @param lastModified data file last modified time
+   * @param length data file length
+   * @param record the record in that file
+   * @param data the decoded data
+   */
+  public void put(String location, long lastModified, long length, GribCollectionImmutable.Record record, float[] data) {
+    Object value;
+    if (offHeap) {
+      FloatBuffer fb = ByteBuffer.allocateDirect(4 * data.length).asFloatBuffer();
+      fb.put(data);
+      fb.rewind(); // get() reads from a duplicate, which starts at this position
+      value = fb;
+    } else {
+      value = data;
+    }
+    bytes.addAndGet(weigh(value));
+    cache.put(new Key(location, lastModified, length, record), value);
+  }
+
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showCache(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("GribDataCache %s: records=%d bytes=%d maxBytes=%d%n", offHeap ? "(offHeap)" : "", cache.size(), bytes.get(), maxBytes);
+    f.format("  hits=%d misses=%d hitRate=%.3f evictions=%d%n", stats.hitCount(), stats.missCount(), stats.hitRate(),
+            stats.evictionCount());
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  // drsOffset is needed because a GRIB2 message may contain more than one field
+  private static class Key {
+    final String location;
+    final long lastModified, length;
+    final long pos;
+    final int drsOffset;
+
+    Key(String location, long lastModified, long length, GribCollectionImmutable.Record record) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.pos = record.pos;
+      this.drsOffset = record.drsOffset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return pos == key.pos && drsOffset == key.drsOffset && lastModified == key.lastModified && length == key.length &&
+              location.equals(key.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = location.hashCode();
+      result = 31 * result + (int) (pos ^ (pos >>> 32));
+      result = 31 * result + drsOffset;
+      result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+      result = 31 * result + (int) (length ^ (length >>> 32));
+      return result;
+    }
+  }
+}
@@ -27,7 +27,10 @@ import ucar.unidata.io.RandomAccessFile;
 
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Grib Data Reader.
@@ -51,11 +54,36 @@ public abstract class GribDataReader {
   protected abstract float[] readData(RandomAccessFile rafData, DataRecord dr) throws IOException;
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
+  // read only the (x,y) window the receiver wants, directly into it. return false if not possible for this record.
+  protected boolean readDataWindow(RandomAccessFile rafData, DataRecord dr, DataReceiver dataReceiver) throws IOException {
+    return false;
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   public static GribCollectionImmutable.Record currentDataRecord;
   public static GribDataValidator validator;
   public static String currentDataRafFilename;
   static boolean show = false;   // debug
+  static boolean readWindow = true;   // read only the wanted (x,y) window when its a small part of the grid
+  static boolean countWindowReads = false;   // debug
+  static final AtomicInteger windowReads = new AtomicInteger(); // records read by window, if countWindowReads
+
+  // parallel reading of records, grouped by data file; default is to read serially on the calling thread
+  static private ExecutorService executor;
+  static private int maxThreadsPerRequest = 1;
+
+  /**
+   * Read the records of a single request in parallel, using the given executor.
+   * Records are grouped by data file, and each worker uses its own RandomAccessFile.
+   * The calling thread always does part of the work, so progress is made even when the executor is saturated.
+   *
+   * @param exec shared executor, or null to read serially (default)
+   * @param maxThreads maximum number of threads (including the calling thread) used by any one request
+   */
+  static public void setExecutor(ExecutorService exec, int maxThreads) {
+    executor = exec;
+    maxThreadsPerRequest = Math.max(1, maxThreads);
+  }
 
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
@@ -223,6 +251,10 @@ public abstract class GribDataReader {
    */
   private void read(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (useParallel()) {
+      readParallel(dataReceiver);
+      return;
+    }
 
     int currFile = -1;
     RandomAccessFile rafData = null;
@@ -253,9 +285,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        readRecord(rafData, dr, dataReceiver);
       }
 
     } finally {
@@ -263,6 +293,41 @@ public abstract class GribDataReader {
     }
   }
 
+  private void readRecord(RandomAccessFile rafData, DataRecord dr, DataReceiverIF dataReceiver) throws IOException {
+    float[] data = readRecordData(rafData, dr, dataReceiver);
+    if (data != null)
+      dataReceiver.addData(data, dr.resultIndex, dr.hcs.nx);
+  }
+
+  /*
+   Returns the full decoded record, from the GribDataCache if possible.
+   If there is no cache and only a window is wanted, it may be read directly into the dataReceiver; then return null.
+   */
+  private float[] readRecordData(RandomAccessFile rafData, DataRecord dr, DataReceiverIF dataReceiver) throws IOException {
+    GribDataCache dataCache = GribDataCache.getDefaultCache();
+    if (dataCache == null)
+      return readWindow(rafData, dr, dataReceiver) ? null : readData(rafData, dr);
+
+    // with a cache, always decode the full record, so it can be used for any window
+    String location = rafData.getLocation();
+    long lastModified = rafData.getLastModified();
+    long length = rafData.length();
+    float[] data = dataCache.get(location, lastModified, length, dr.record);
+    if (data == null) {
+      data = readData(rafData, dr);
+      dataCache.put(location, lastModified, length, dr.record, data);
+    }
+    return data;
+  }
+
+  private boolean readWindow(RandomAccessFile rafData, DataRecord dr, DataReceiverIF dataReceiver) throws IOException {
+    if (!readWindow || !(dataReceiver instanceof DataReceiver)) return false;
+    DataReceiver receiver = (DataReceiver) dataReceiver;
+    boolean ok = receiver.isSmallWindow(dr.hcs) && readDataWindow(rafData, dr, receiver);
+    if (ok && countWindowReads) windowReads.incrementAndGet();
+    return ok;
+  }
+
   private void show(SubsetParams validation) {
     if (validation == null) return;
     System.out.printf("Coords wanted%n %s", validation);
@@ -270,6 +335,10 @@ public abstract class GribDataReader {
 
   private void readPartitioned(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (useParallel()) {
+      readParallel(dataReceiver);
+      return;
+    }
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
@@ -299,9 +368,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        readRecord(rafData, dr, dataReceiver);
       }
 
     } finally {
@@ -309,6 +376,97 @@ public abstract class GribDataReader {
     }
   }
 
+  /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // parallel reading
+
+  private boolean useParallel() {
+    if (executor == null || maxThreadsPerRequest < 2 || records.size() < 2) return false;
+    // debugging and validation use static state, so always done serially
+    return !Grib.debugIndexOnly && !Grib.debugGbxIndexOnly && validator == null && !show;
+  }
+
+  /*
+   Records must already be sorted by file and position.
+   Divide them into groups that use the same data file, splitting large groups so the work is balanced.
+   Each worker takes groups off a shared queue, opens its own RandomAccessFile for the group, and reads the records in
+   file order. Decoding is done in parallel; the decoded data is handed to the dataReceiver one record at a time.
+   */
+  private void readParallel(DataReceiverIF dataReceiver) throws IOException {
+    int nthreads = Math.min(maxThreadsPerRequest, records.size());
+    int maxGroupSize = (records.size() + nthreads - 1) / nthreads;
+
+    ConcurrentLinkedQueue<List<DataRecord>> work = new ConcurrentLinkedQueue<>();
+    List<DataRecord> group = null;
+    DataRecord last = null;
+    for (DataRecord dr : records) {
+      if (dr.record.pos == GribCollectionMutable.MISSING_RECORD) continue;
+      if (group == null || !dr.usesSameFile(last) || group.size() >= maxGroupSize) {
+        group = new ArrayList<>();
+        work.add(group);
+      }
+      group.add(dr);
+      last = dr;
+    }
+    nthreads = Math.min(nthreads, work.size());
+
+    List<FutureTask<Void>> futures = new ArrayList<>(nthreads);
+    boolean ok = false;
+    try {
+      try {
+        for (int i = 1; i < nthreads; i++) {  // the calling thread is the first worker
+          FutureTask<Void> task = new FutureTask<>(() -> {
+            readGroups(work, dataReceiver);
+            return null;
+          });
+          executor.execute(task);
+          futures.add(task);
+        }
+      } catch (RejectedExecutionException e) {
+        logger.debug("GribDataReader executor rejected task, continue with {} workers", futures.size() + 1);
+      }
+      readGroups(work, dataReceiver);
+
+      for (FutureTask<Void> f : futures) {
+        f.run();  // if the pool has not started it yet, run it here; does nothing if already started
+        f.get();
+      }
+      ok = true;
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("GribDataReader interrupted");
+
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IOException(e.getCause());
+
+    } finally {
+      if (!ok) {
+        work.clear();  // the other workers stop after the group they are reading
+        for (FutureTask<Void> f : futures) f.cancel(false); // let a group that is being read finish
+      }
+    }
+  }
+
+  private void readGroups(Queue<List<DataRecord>> work, DataReceiverIF dataReceiver) throws IOException {
+    List<DataRecord> group;
+    while ((group = work.poll()) != null) {
+      if (Thread.currentThread().isInterrupted())
+        throw new InterruptedIOException("GribDataReader interrupted");
+
+      try (RandomAccessFile rafData = group.get(0).getRaf(gribCollection)) {
+        for (DataRecord dr : group) {
+          float[] data = readRecordData(rafData, dr, dataReceiver);
+          if (data == null) continue; // window was read directly, each record writes to its own part of the result
+          synchronized (dataReceiver) {  // DataReceiverIF is not required to be thread-safe
+            dataReceiver.addData(data, dr.resultIndex, dr.hcs.nx);
+          }
+        }
+      }
+    }
+  }
+
   public static class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     GribCollectionImmutable.Record record;
@@ -328,6 +486,14 @@ public abstract class GribDataReader {
       return Misc.compare(record.pos, o.record.pos);
     }
 
+    boolean usesSameFile(DataRecord o) {
+      return (o != null) && (record.fileno == o.record.fileno);
+    }
+
+    RandomAccessFile getRaf(GribCollectionImmutable gribCollection) throws IOException {
+      return gribCollection.getDataRaf(record.fileno);
+    }
+
     // debugging
     public void show(GribCollectionImmutable gribCollection) {
       String dataFilename = gribCollection.getFilename(record.fileno);
@@ -343,13 +509,17 @@ public abstract class GribDataReader {
 
   public static class DataReceiver implements DataReceiverIF {
     private Array dataArray;
+    private float[] data;       // backing storage of dataArray
     private RangeIterator yRange, xRange;
     private int horizSize;
+    private int[] rows, cols;   // yRange, xRange as indices, for readDataWindow
 
     DataReceiver(int[] shape, RangeIterator yRange, RangeIterator xRange) {
       this.yRange = yRange;
       this.xRange = xRange;
       this.horizSize = yRange.length() * xRange.length();
+      this.rows = toIndices(yRange);
+      this.cols = toIndices(xRange);
 
       long len = Section.computeSize(shape);
       if (len > 100 * 1000 * 1000*4) { // LOOK make configurable
@@ -357,11 +527,40 @@ public abstract class GribDataReader {
                 Throwables.getStackTraceAsString(new Throwable()));
         throw new IllegalArgumentException("RequestTooLarge: Len greater that 100M ");
       }
-      float[] data = new float[ (int) len];
+      data = new float[ (int) len];
       Arrays.fill(data, Float.NaN); // prefill primitive array
       dataArray = Array.factory(DataType.FLOAT, shape, data);
     }
 
+    // only worth reading the window by itself if its a small part of the grid
+    boolean isSmallWindow(GdsHorizCoordSys hcs) {
+      return 2L * horizSize < (long) hcs.nx * hcs.ny;
+    }
+
+    int[] getRows() {
+      return rows;
+    }
+
+    int[] getCols() {
+      return cols;
+    }
+
+    private static int[] toIndices(RangeIterator range) {
+      int[] result = new int[range.length()];
+      int count = 0;
+      for (int idx : range)
+        result[count++] = idx;
+      return result;
+    }
+
+    float[] getStorage() {
+      return data;
+    }
+
+    int getStart(int resultIndex) {
+      return resultIndex * horizSize;
+    }
+
     @Override
     public void addData(float[] data, int resultIndex, int nx) {
       int start = resultIndex * horizSize;
@@ -445,6 +644,16 @@ public abstract class GribDataReader {
               hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected boolean readDataWindow(RandomAccessFile rafData, DataRecord dr, DataReceiver dataReceiver) throws IOException {
+      GdsHorizCoordSys hcs = dr.hcs;
+      if (hcs.nptsInLine != null) return false; // thin grids are regridded from the full record
+      long dataPos = dr.record.pos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+      return Grib2Record.readDataWindow(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(), hcs.nxRaw,
+              dataReceiver.getRows(), dataReceiver.getCols(), dataReceiver.getStorage(), dataReceiver.getStart(dr.resultIndex));
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
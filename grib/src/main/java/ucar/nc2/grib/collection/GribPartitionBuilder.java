@@ -100,6 +100,14 @@ abstract class GribPartitionBuilder {
   boolean createPartitionedIndex(CollectionUpdateType forcePartition, Formatter errlog) throws IOException {
     if (errlog == null) errlog = new Formatter(); // info will be discarded
 
+    if (GribCdmIndex.appendPartitions && forcePartition != CollectionUpdateType.always) {
+      PartitionCollectionMutable empty = result;
+      result = new PartitionCollectionMutable(empty.name, empty.directory, empty.config, empty.isGrib1, logger);
+      if (appendPartitionedIndex(forcePartition, errlog))
+        return true;
+      result = empty; // rebuild from all of the partitions
+    }
+
     // create partitions from the partitionManager
     for (MCollection dcmp : partitionManager.makePartitions(forcePartition)) {
       dcmp.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, partitionManager.getAuxInfo(FeatureCollectionConfig.AUX_CONFIG));
@@ -151,6 +159,353 @@ abstract class GribPartitionBuilder {
     return writeIndex(result, errlog);
   }
 
+  ///////////////////////////////////////////////////
+  // append mode
+
+  /*
+   * Rewrite the partition index from the previous partition index, opening only the partitions that were added or
+   * whose index changed. This works when those are the last partitions, and the earlier ones are the same as before;
+   * the previous union coordinates are then unioned with the coordinates of the changed partitions.
+   * Return false, without writing anything, if the index has to be rebuilt from all of the partitions instead.
+   */
+  private boolean appendPartitionedIndex(CollectionUpdateType forcePartition, Formatter errlog) throws IOException {
+    long start = System.currentTimeMillis();
+    File idxFile = GribIndexCache.getExistingFileOrCache(partitionManager.getIndexFilename(GribCdmIndex.NCX_SUFFIX));
+    if (idxFile == null) return false;
+
+    FeatureCollectionConfig config = (FeatureCollectionConfig) partitionManager.getAuxInfo(FeatureCollectionConfig.AUX_CONFIG);
+    GribCollectionMutable prev = GribCdmIndex.openMutableGCFromIndex(idxFile.getPath(), config, false, false, logger);
+    if (prev == null) return false;
+
+    AppendStats stats;
+    try {
+      if (!(prev instanceof PartitionCollectionMutable)) return false;
+      stats = appendPartitions((PartitionCollectionMutable) prev, forcePartition, errlog);
+      if (stats == null) return false;
+    } finally {
+      prev.close();
+    }
+
+    try {
+      if (!writeIndex(result, errlog)) return false;
+    } catch (IOException | RuntimeException e) {
+      logger.warn("writing appended index failed on dataset {}; rebuilding partition index", name, e);
+      return false;
+    }
+
+    long took = System.currentTimeMillis() - start;
+    long saved = stats.nunchanged * stats.openMsecs * 2 / Math.max(1, stats.nopened); // full rebuild opens each partition twice
+    logger.info("{}: appended {} of {} partitions in {} msecs; skipped {} unchanged partitions, saving about {} msecs",
+            name, stats.nopened, stats.nopened + stats.nunchanged, took, stats.nunchanged, saved);
+    errlog.format(" INFO appended %d of %d partitions in %d msecs, saving about %d msecs%n",
+            stats.nopened, stats.nopened + stats.nunchanged, took, saved);
+    return true;
+  }
+
+  private static class AppendStats {
+    int nunchanged, nopened;
+    long openMsecs;
+  }
+
+  // each group in the appended index has one of these
+  private static class AppendGroup {
+    GribCollectionMutable.GroupGC resultGroup;
+    GribCollectionMutable.GroupGC prevGroup;         // may be null if group is new
+    GribCollectionMutable.GroupGC[] componentGroups; // one for each changed partition; may be null if group is not in the partition
+    int[] componentGroupIndex;
+
+    AppendGroup(GribCollectionMutable.GroupGC resultGroup, int nchanged) {
+      this.resultGroup = resultGroup;
+      this.componentGroups = new GribCollectionMutable.GroupGC[nchanged];
+      this.componentGroupIndex = new int[nchanged];
+    }
+  }
+
+  // return null if the index must be rebuilt from all of the partitions
+  private AppendStats appendPartitions(PartitionCollectionMutable prev, CollectionUpdateType forcePartition, Formatter errlog) throws IOException {
+    if (prev.isPartitionOfPartitions || prev.masterRuntime == null || prev.run2part == null || prev.dateRange == null)
+      return null;
+
+    // add the partitions, without opening the ones whose index has not changed
+    List<PartitionCollectionMutable.Partition> prevParts = prev.partitions;
+    Map<String, PartitionCollectionMutable.Partition> prevMap = new HashMap<>(2 * prevParts.size());
+    for (PartitionCollectionMutable.Partition part : prevParts)
+      prevMap.put(part.getName(), part);
+    if (prevMap.size() != prevParts.size()) return null;
+
+    Set<String> changed = new HashSet<>();
+    for (MCollection dcmp : partitionManager.makePartitions(forcePartition)) {
+      dcmp.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, partitionManager.getAuxInfo(FeatureCollectionConfig.AUX_CONFIG));
+      PartitionCollectionMutable.Partition prevPart = prevMap.get(dcmp.getCollectionName());
+      File partIndexFile = GribIndexCache.getExistingFileOrCache(dcmp.getIndexFilename(GribCdmIndex.NCX_SUFFIX));
+      if (prevPart != null && partIndexFile != null && partIndexFile.lastModified() == prevPart.lastModified
+              && partIndexFile.length() == prevPart.fileSize) {
+        result.addUnchangedPartition(dcmp, prevPart);
+      } else {
+        result.addPartition(dcmp);
+        changed.add(dcmp.getCollectionName());
+      }
+    }
+    result.sortPartitions();
+
+    // the unchanged partitions must be the previous ones, in the same order; only the last previous one may have changed
+    int npart = result.getPartitionSize();
+    int nprev = prevParts.size();
+    int firstChanged = 0;
+    while (firstChanged < npart && !changed.contains(result.getPartition(firstChanged).getName()))
+      firstChanged++;
+    if (firstChanged == 0 || firstChanged < nprev - 1) return null;
+    for (int partno = 0; partno < npart; partno++) {
+      String partName = result.getPartition(partno).getName();
+      if (partno < firstChanged && !partName.equals(prevParts.get(partno).getName())) return null;
+      if (partno >= firstChanged && !changed.contains(partName)) return null;
+      if (partno == nprev - 1 && !partName.equals(prevParts.get(partno).getName())) return null;
+      if (partno >= nprev && prevMap.containsKey(partName)) return null;
+    }
+    boolean lastChanged = (firstChanged == nprev - 1);
+
+    AppendStats stats = new AppendStats();
+    stats.nunchanged = firstChanged;
+    stats.nopened = npart - firstChanged;
+
+    List<GribCollectionMutable> components = new ArrayList<>();
+    try {
+      long startOpen = System.currentTimeMillis();
+      for (int partno = firstChanged; partno < npart; partno++) {
+        GribCollectionMutable gc = result.getPartition(partno).makeGribCollection();
+        if (gc == null) return null;
+        components.add(gc);
+        if (gc instanceof PartitionCollectionMutable) return null;
+      }
+      stats.openMsecs = System.currentTimeMillis() - startOpen;
+
+      if (!appendDataset2D(prev, firstChanged, lastChanged, components, errlog))
+        return null;
+
+    } finally {
+      for (GribCollectionMutable gc : components)
+        gc.close();
+    }
+
+    return stats;
+  }
+
+  private boolean appendDataset2D(PartitionCollectionMutable prev, int firstChanged, boolean lastChanged,
+                                  List<GribCollectionMutable> components, Formatter f) throws IOException {
+    FeatureCollectionConfig config = (FeatureCollectionConfig) partitionManager.getAuxInfo(FeatureCollectionConfig.AUX_CONFIG);
+    FeatureCollectionConfig.GribIntvFilter intvMap = (config != null) ? config.gribConfig.intvFilter : null;
+    int npart = result.getPartitionSize();
+    int nchanged = components.size();
+    int lastPrev = prev.getPartitionSize() - 1;
+
+    result.copyInfo(prev);
+    result.isPartitionOfPartitions = false;
+
+    // date ranges: the changed partitions must overlap the earlier ones exactly when the previous ones did, see makeDataset2D
+    GribCollectionMutable.Dataset prevDs = prev.getDatasetCanonical();
+    CalendarDateRange dateRangeAll = prev.dateRange;
+    if (lastChanged) {
+      try (GribCollectionMutable gc = result.getPartition(firstChanged - 1).makeGribCollection()) {
+        if (gc == null) return false;
+        dateRangeAll = CalendarDateRange.of(prev.dateRange.getStart(), gc.dateRange.getEnd());
+      }
+    }
+    boolean rangeOverlaps = false;
+    CalendarDateRange dateRange = prev.dateRange;
+    for (GribCollectionMutable gc : components) {
+      if (dateRangeAll.intersects(gc.dateRange)) rangeOverlaps = true;
+      dateRangeAll = dateRangeAll.extend(gc.dateRange);
+      dateRange = dateRange.extend(gc.dateRange);
+    }
+    if (prevDs.gctype == GribCollectionImmutable.Type.TwoD && lastChanged && !rangeOverlaps)
+      return false;  // overlap might have been with the previous version of the changed partition
+    boolean isTwoD = rangeOverlaps || prevDs.gctype == GribCollectionImmutable.Type.TwoD;
+    result.dateRange = dateRange;
+
+    // master runtime and run2part; the changed partition must not have lost any of its runtimes
+    CoordinateBuilder<?> runtimeAllBuilder = new CoordinateRuntime.Builder2(null);
+    runtimeAllBuilder.addAll(prev.masterRuntime);
+    for (GribCollectionMutable gc : components)
+      runtimeAllBuilder.addAll(gc.masterRuntime);
+    result.masterRuntime = (CoordinateRuntime) runtimeAllBuilder.finish();
+
+    result.run2part = new int[result.masterRuntime.getSize()];
+    List<?> prevRuntimes = prev.masterRuntime.getValues();
+    for (int runIdx = 0; runIdx < prevRuntimes.size(); runIdx++) {
+      int partno = prev.run2part[runIdx];
+      if (lastChanged && partno == lastPrev) {
+        if (components.get(0).masterRuntime.getIndex(prevRuntimes.get(runIdx)) < 0) {
+          f.format(" INFO runtime %s was removed from partition %s%n", prev.masterRuntime.getRuntimeDate(runIdx), result.getPartition(lastPrev).getName());
+          return false;
+        }
+        continue;
+      }
+      result.run2part[result.masterRuntime.getIndex(prevRuntimes.get(runIdx))] = partno;
+    }
+    for (int i = 0; i < nchanged; i++) {
+      for (Object val : components.get(i).masterRuntime.getValues())
+        result.run2part[result.masterRuntime.getIndex(val)] = firstChanged + i;
+    }
+
+    // the groups: previous ones first, then any new ones
+    PartitionCollectionMutable.Dataset ds2D = result.makeDataset(isTwoD ? GribCollectionImmutable.Type.TwoD : GribCollectionImmutable.Type.MRUTP);
+    Map<Object, AppendGroup> groupMap = new LinkedHashMap<>(40);  // gdsHashObject, AppendGroup
+    for (GribCollectionMutable.GroupGC g : prevDs.groups) {
+      AppendGroup ag = new AppendGroup(ds2D.addGroupCopy(g), nchanged);
+      ag.prevGroup = g;
+      groupMap.put(g.getGdsHash(), ag);
+    }
+    for (int i = 0; i < nchanged; i++) {
+      int groupIdx = 0;
+      for (GribCollectionMutable.GroupGC g : components.get(i).getDatasetCanonical().groups) {
+        AppendGroup ag = groupMap.get(g.getGdsHash());
+        if (ag == null) {
+          ag = new AppendGroup(ds2D.addGroupCopy(g), nchanged);
+          groupMap.put(g.getGdsHash(), ag);
+        }
+        ag.componentGroups[i] = g;
+        ag.componentGroupIndex[i] = groupIdx++;
+      }
+    }
+
+    for (AppendGroup ag : groupMap.values()) {
+      GribCollectionMutable.GroupGC resultGroup = ag.resultGroup;
+
+      // unique variables, using the last one found, as in makeVariableIndexPartitioned()
+      Map<GribCollectionMutable.VariableIndex, GribCollectionMutable.VariableIndex> varMap = new HashMap<>(2 * resultGroup.variList.size());
+      if (ag.prevGroup != null) {
+        for (GribCollectionMutable.VariableIndex vi : ag.prevGroup.variList)
+          varMap.put(vi, vi);
+      }
+      for (GribCollectionMutable.GroupGC group : ag.componentGroups) {
+        if (group == null) continue;
+        for (GribCollectionMutable.VariableIndex vi : group.variList)
+          varMap.put(vi, vi);
+      }
+      for (GribCollectionMutable.VariableIndex vi : varMap.values())
+        result.makeVariableIndexPartitioned(resultGroup, vi, npart, false);
+
+      // the unchanged partitions of each variable come from the previous index
+      GribCollectionMutable.GroupGC changedLast = lastChanged ? ag.componentGroups[0] : null;
+      for (GribCollectionMutable.VariableIndex viResult : resultGroup.variList) {
+        PartitionCollectionMutable.VariableIndexPartitioned vip = (PartitionCollectionMutable.VariableIndexPartitioned) viResult;
+        PartitionCollectionMutable.VariableIndexPartitioned prevVip = findPrevVariable(ag, vip);
+        if (prevVip == null) continue;
+        int count = prevVip.countPartitions();
+        int nrecords = 0;
+        for (int i = 0; i < count; i++) {
+          int partno = prevVip.partnoSA.get(i);
+          nrecords += prevVip.nrecordsSA.get(i);
+          if (partno < firstChanged) {
+            vip.addPartition(partno, prevVip.groupnoSA.get(i), prevVip.varnoSA.get(i),
+                    prevVip.ndupsSA.get(i), prevVip.nrecordsSA.get(i), prevVip.nmissingSA.get(i), null);
+            continue;
+          }
+          // the changed partition must still have all of its records for this variable
+          GribCollectionMutable.VariableIndex vi = (changedLast == null) ? null : changedLast.findVariableByHash(vip);
+          if (partno != lastPrev || vi == null || vi.nrecords < prevVip.nrecordsSA.get(i)) {
+            f.format(" INFO variable %s changed in partition %s%n", vip.id(), result.getPartition(partno).getName());
+            return false;
+          }
+        }
+        if (nrecords != prevVip.nrecords)
+          return false;  // index written before partition stats were kept
+      }
+
+      // then the changed partitions
+      for (int i = 0; i < nchanged; i++) {
+        GribCollectionMutable.GroupGC group = ag.componentGroups[i];
+        if (group == null) continue;
+        for (int varIdx = 0; varIdx < group.variList.size(); varIdx++) {
+          GribCollectionMutable.VariableIndex vi = group.variList.get(varIdx);
+          PartitionCollectionMutable.VariableIndexPartitioned vip = (PartitionCollectionMutable.VariableIndexPartitioned) resultGroup.findVariableByHash(vi);
+          vip.addPartition(firstChanged + i, ag.componentGroupIndex[i], varIdx, vi.ndups, vi.nrecords, vi.nmissing, vi);
+        }
+      }
+
+      // union of the previous coordinates with the changed partitions
+      CoordinateSharer<Object> sharify = new CoordinateSharer<>(false, logger);
+      for (GribCollectionMutable.VariableIndex viResult : resultGroup.variList) {
+        PartitionCollectionMutable.VariableIndexPartitioned vip = (PartitionCollectionMutable.VariableIndexPartitioned) viResult;
+        vip.finish();
+
+        CoordinatePartitionUnionizer unionizer = new CoordinatePartitionUnionizer(viResult, intvMap, logger);
+        PartitionCollectionMutable.VariableIndexPartitioned prevVip = findPrevVariable(ag, vip);
+        try {
+          if (prevVip != null)
+            unionizer.addCoords(prevVip.getCoordinates(), null);
+          for (int i = 0; i < nchanged; i++) {
+            GribCollectionMutable.GroupGC group = ag.componentGroups[i];
+            if (group == null) continue;
+            GribCollectionMutable.VariableIndex vi = group.findVariableByHash(viResult);
+            if (vi == null) continue;
+            unionizer.addCoords(vi.getCoordinates(), isTwoD ? result.getPartition(firstChanged + i) : null);
+          }
+        } catch (IllegalStateException e) {
+          logger.warn("{} on dataset {}; rebuilding partition index", e.getMessage(), name);
+          return false;
+        }
+        viResult.coords = unionizer.finish();
+        if (prevVip != null && !isTime2DSameAsRebuild(prevVip, viResult.coords)) {
+          f.format(" INFO variable %s has missing records, and its time2D is no longer orthogonal or regular%n", vip.id());
+          return false;
+        }
+        sharify.addCoords(viResult.coords);
+      }
+
+      sharify.finish();
+      resultGroup.coords = sharify.getUnionCoords();
+      for (GribCollectionMutable.VariableIndex viResult : resultGroup.variList) {
+        viResult.coordIndex = sharify.reindex2shared(viResult.coords);
+        viResult.coords = null;
+      }
+    }
+
+    if (ds2D.gctype == GribCollectionImmutable.Type.TwoD)
+      makeDatasetBest(ds2D, false);
+    return true;
+  }
+
+  /*
+   * A time2D written as orthogonal or regular does not keep the times of each runtime, so when read back from the previous
+   * index, each runtime has all of the times of its (hour of day) coordinate. The full rebuild does the same when the union
+   * is orthogonal, or regular like before, since CoordinateSharer unions the time2D again. But if the union now has to be
+   * stored in a more general form, the rebuild keeps the times of each runtime in the partitions, which may be fewer,
+   * and so makes a different time2D and Best time coordinate. That can only happen if the variable has missing records.
+   */
+  private boolean isTime2DSameAsRebuild(PartitionCollectionMutable.VariableIndexPartitioned prevVip, List<Coordinate> unionCoords) {
+    CoordinateTime2D prevTime2D = null;
+    long size = 1;
+    for (Coordinate coord : prevVip.getCoordinates()) {
+      if (coord instanceof CoordinateTime2D)
+        prevTime2D = (CoordinateTime2D) coord;
+      else if (coord.getType() != Coordinate.Type.runtime)
+        size *= coord.getSize();
+    }
+    if (prevTime2D == null || (!prevTime2D.isOrthogonal() && !prevTime2D.isRegular()))
+      return true;
+
+    for (Coordinate coord : unionCoords) {
+      if (coord instanceof CoordinateTime2D) {
+        CoordinateTime2D time2D = (CoordinateTime2D) coord;
+        if (time2D.isOrthogonal() || (time2D.isRegular() && prevTime2D.isRegular()))
+          return true;
+      }
+    }
+
+    int ntimes = 0;
+    for (int runIdx = 0; runIdx < prevTime2D.getNruns(); runIdx++)
+      ntimes += prevTime2D.getTimeCoordinate(runIdx).getSize();
+    return prevVip.nrecords == size * ntimes;
+  }
+
+  private PartitionCollectionMutable.VariableIndexPartitioned findPrevVariable(AppendGroup ag, GribCollectionMutable.VariableIndex want) {
+    if (ag.prevGroup == null) return null;
+    return (PartitionCollectionMutable.VariableIndexPartitioned) ag.prevGroup.findVariableByHash(want);
+  }
+
+  ///////////////////////////////////////////////////
+
   // each dataset / group has one of these, across all partitions
   private class GroupPartitions {
     GribCollectionMutable.GroupGC resultGroup;
@@ -676,7 +1031,8 @@ abstract class GribPartitionBuilder {
     // extensions
     if (vp.nparts > 0 && vp.partnoSA != null) {
       for (int i = 0; i < vp.nparts; i++) // PartitionCollection.PartitionForVariable2D pvar : vp.getPartitionForVariable2D())
-        b.addPartVariable(writePartitionVariableProto(vp.partnoSA.get(i), vp.groupnoSA.get(i), vp.varnoSA.get(i), vp.nrecords, vp.ndups, vp.nmissing));  // LOOK was it finished ??
+        b.addPartVariable(writePartitionVariableProto(vp.partnoSA.get(i), vp.groupnoSA.get(i), vp.varnoSA.get(i),
+                vp.nrecordsSA.get(i), vp.ndupsSA.get(i), vp.nmissingSA.get(i)));  // LOOK was it finished ??
     }
 
     return b.build();
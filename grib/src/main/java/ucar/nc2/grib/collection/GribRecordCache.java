@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.*;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Formatter;
+
+/**
+ * Limits the number of GRIB collection records held in memory.
+ * A VariableIndex reads its records from the ncx index the first time it is read from, and used to keep them
+ * for as long as the collection was open. With this cache turned on, the least recently read variables release
+ * their records when the total passes maxRecords, and read them again from the index if they are needed.
+ * Uses a guava cache with weak keys, so closed collections drop out by themselves. The cache has one segment, since
+ * guava divides the maximum weight among the segments, and a variable with more records than one segment's share would be
+ * evicted as soon as it was read. A variable with more than maxRecords records is not cached at all: it keeps its records
+ * for as long as the collection is open, as it would with the cache turned off.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribRecordCache {
+  static private GribRecordCache defaultCache;  // null means turned off
+
+  /**
+   * Turn on the shared cache.
+   * @param maxRecords maximum number of records to keep in memory, over all variables; if <= 0, turn the cache off
+   */
+  static public synchronized void initDefaultCache(long maxRecords) {
+    if (defaultCache != null)
+      defaultCache.clearCache();
+    defaultCache = (maxRecords > 0) ? new GribRecordCache(maxRecords) : null;
+  }
+
+  /** @return the shared cache, or null if it is turned off */
+  static public GribRecordCache getDefaultCache() {
+    return defaultCache;
+  }
+
+  static public synchronized void shutdown() {
+    initDefaultCache(0);
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final Cache<GribCollectionImmutable.VariableIndex, Integer> cache;   // value is the number of records
+  private final long maxRecords;
+
+  public GribRecordCache(long maxRecords) {
+    this.maxRecords = maxRecords;
+    this.cache = CacheBuilder.newBuilder()
+            .weakKeys()
+            .concurrencyLevel(1)
+            .maximumWeight(maxRecords)
+            .weigher((Weigher<GribCollectionImmutable.VariableIndex, Integer>) (key, value) -> value)
+            .removalListener((RemovalListener<GribCollectionImmutable.VariableIndex, Integer>) removal -> {
+              if (removal.getKey() != null && removal.getCause() != RemovalCause.REPLACED)
+                removal.getKey().releaseRecords();
+            })
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Note that a variable's records were read in.
+   * Must not be called while holding the variable's lock, since it may release the records of other variables.
+   */
+  void add(GribCollectionImmutable.VariableIndex vindex, int nrecords) {
+    if (nrecords > maxRecords)
+      return; // would be evicted straight away, then read again for every record
+    cache.put(vindex, Math.max(1, nrecords));
+  }
+
+  /** Note that a variable's records were used, so that they are kept in preference to others. */
+  void touch(GribCollectionImmutable.VariableIndex vindex) {
+    cache.getIfPresent(vindex);
+  }
+
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  public long getRecords() {
+    long total = 0;
+    for (Integer n : cache.asMap().values())
+      total += n;
+    return total;
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void showCache(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("GribRecordCache: variables=%d records=%d maxRecords=%d%n", cache.size(), getRecords(), maxRecords);
+    f.format("  hits=%d misses=%d hitRate=%.3f evictions=%d%n", stats.hitCount(), stats.missCount(), stats.hitRate(),
+            stats.evictionCount());
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import ucar.coord.SparseArray;
+import ucar.nc2.constants.CDM;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * The record tables (SparseArrays) of a GRIB collection index, written as fixed-width binary next to the ncx4 file,
+ * so they can be memory-mapped and used in place, instead of parsing the protobuf SparseArray message each time
+ * a variable's records are read.
+ * The ncx4 file is unchanged, and is still used if there is no record index, or it is out of date.
+ * <p>
+ * File layout (big endian), name = ncx4 file name + SUFFIX:
+ * <pre>
+ *   MAGIC_START (8 bytes), version (int), ncx4 length (long), ncx4 lastModified (long), directory position (long)
+ *   for each variable:
+ *     rank (int), shape (int[rank]), ndups (int), ntrack (int), nrecords (int), columns (int)
+ *     track (int[ntrack]), pos (long[nrecords]), then if present in columns: fileno, bmsOffset, drsOffset (int[nrecords])
+ *   directory: nvars (int), then for each variable in order of recordsPos: recordsPos in ncx4 (long), position (long)
+ * </pre>
+ * A directory position of 0 means the file was not finished, and is ignored.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribRecordIndex {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GribRecordIndex.class);
+
+  public static final String SUFFIX = ".ncr";
+  static final String MAGIC_START = "NcxRecs1";
+  static final int version = 1;
+
+  static private final int HEADER_SIZE = 8 + 4 + 8 + 8 + 8;
+  static private final int HAS_FILENO = 1, HAS_BMS = 2, HAS_DRS = 4;
+
+  static private boolean enabled;   // default off
+  static private final Cache<String, GribRecordIndex> openIndexes = CacheBuilder.newBuilder().maximumSize(500).build();
+
+  /**
+   * Write record indexes when GRIB collection indexes are written, and use them when reading records.
+   * @param enabled default is false
+   */
+  static public void setEnabled(boolean enabled) {
+    GribRecordIndex.enabled = enabled;
+    if (!enabled)
+      openIndexes.invalidateAll();
+  }
+
+  static public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Get the record index for a collection index, if it exists and is up to date.
+   * @param ncxFilename the ncx4 file
+   * @return the mapped record index, or null if not enabled or not usable
+   */
+  static GribRecordIndex open(String ncxFilename) {
+    if (!enabled) return null;
+    File ncxFile = new File(ncxFilename);
+
+    GribRecordIndex result = openIndexes.getIfPresent(ncxFilename);
+    if (result != null && result.isValidFor(ncxFile))
+      return result;
+
+    File recFile = new File(ncxFilename + SUFFIX);
+    if (!recFile.exists()) return null;
+    try {
+      result = new GribRecordIndex(recFile);
+      if (!result.isValidFor(ncxFile)) {
+        logger.debug("GribRecordIndex {} is out of date", recFile.getPath());
+        return null;
+      }
+      openIndexes.put(ncxFilename, result);
+      return result;
+
+    } catch (IOException e) {
+      logger.warn("GribRecordIndex cant open " + recFile.getPath(), e);
+      return null;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  private final ByteBuffer buffer;
+  private final long ncxLength, ncxLastModified;
+  private final long[] recordsPos;   // sorted
+  private final long[] blockPos;     // parallel to recordsPos
+
+  private GribRecordIndex(File recFile) throws IOException {
+    try (FileChannel channel = new FileInputStream(recFile).getChannel()) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+        throw new IOException("GribRecordIndex bad file size " + size);
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      this.buffer = mapped;   // default order is BIG_ENDIAN
+    }
+
+    byte[] magic = new byte[8];
+    buffer.duplicate().get(magic);
+    if (!MAGIC_START.equals(new String(magic, CDM.utf8Charset)))
+      throw new IOException("GribRecordIndex bad magic number");
+    int fileVersion = buffer.getInt(8);
+    if (fileVersion != version)
+      throw new IOException("GribRecordIndex version " + fileVersion + " not supported");
+    this.ncxLength = buffer.getLong(12);
+    this.ncxLastModified = buffer.getLong(20);
+    long dirPos = buffer.getLong(28);
+    if (dirPos <= 0)
+      throw new IOException("GribRecordIndex was not finished");
+
+    int nvars = buffer.getInt((int) dirPos);
+    this.recordsPos = new long[nvars];
+    this.blockPos = new long[nvars];
+    int pos = (int) dirPos + 4;
+    for (int i = 0; i < nvars; i++) {
+      recordsPos[i] = buffer.getLong(pos);
+      blockPos[i] = buffer.getLong(pos + 8);
+      pos += 16;
+    }
+  }
+
+  private boolean isValidFor(File ncxFile) {
+    return ncxFile.length() == ncxLength && ncxFile.lastModified() == ncxLastModified;
+  }
+
+  /**
+   * Get a variable's records, backed by the mapped file.
+   * @param varRecordsPos the VariableIndex recordsPos in the ncx4 file
+   * @return the SparseArray, or null if not in this index
+   */
+  SparseArray<GribCollectionImmutable.Record> getSparseArray(long varRecordsPos) {
+    int idx = Arrays.binarySearch(recordsPos, varRecordsPos);
+    if (idx < 0) return null;
+
+    int pos = (int) blockPos[idx];
+    int rank = buffer.getInt(pos);
+    pos += 4;
+    int[] shape = new int[rank];
+    for (int i = 0; i < rank; i++, pos += 4)
+      shape[i] = buffer.getInt(pos);
+    int ndups = buffer.getInt(pos);
+    int ntrack = buffer.getInt(pos + 4);
+    int nrecords = buffer.getInt(pos + 8);
+    int columns = buffer.getInt(pos + 12);
+    pos += 16;
+
+    ByteBuffer trackBytes = buffer.duplicate();
+    trackBytes.position(pos);
+    int[] track = new int[ntrack];
+    trackBytes.asIntBuffer().get(track);
+    pos += 4 * ntrack;
+
+    return new SparseArray<>(shape, track, new MappedRecords(buffer, pos, nrecords, columns), ndups);
+  }
+
+  // the records of one variable, read in place from the mapped file
+  @Immutable
+  private static class MappedRecords extends AbstractList<GribCollectionImmutable.Record> {
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int posStart, filenoStart, bmsStart, drsStart;  // -1 = all 0
+
+    MappedRecords(ByteBuffer buffer, int start, int size, int columns) {
+      this.buffer = buffer;
+      this.size = size;
+      this.posStart = start;
+      int next = start + 8 * size;
+      this.filenoStart = ((columns & HAS_FILENO) != 0) ? next : -1;
+      if (filenoStart >= 0) next += 4 * size;
+      this.bmsStart = ((columns & HAS_BMS) != 0) ? next : -1;
+      if (bmsStart >= 0) next += 4 * size;
+      this.drsStart = ((columns & HAS_DRS) != 0) ? next : -1;
+    }
+
+    private int getInt(int start, int index) {
+      return (start < 0) ? 0 : buffer.getInt(start + 4 * index);
+    }
+
+    @Override
+    public GribCollectionImmutable.Record get(int index) {
+      if (index < 0 || index >= size)
+        throw new IndexOutOfBoundsException("index " + index + " size " + size);
+      return new GribCollectionImmutable.Record(getInt(filenoStart, index), buffer.getLong(posStart + 8 * index),
+              getInt(bmsStart, index), getInt(drsStart, index));
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////
+
+  /**
+   * Writes the record index while the ncx4 file is written. Call add() for each SparseArray written to the ncx4,
+   * and finish() after the ncx4 file is closed. Written to a temporary file, which replaces the old record index
+   * only when finished.
+   */
+  static class Writer implements Closeable {
+    private final File ncxFile;
+    private final File tempFile;
+    private final DataOutputStream out;
+    private long written;
+    private long[] recordsPos = new long[100];
+    private long[] blockPos = new long[100];
+    private int nvars;
+    private boolean finished;
+
+    /** @return a Writer, or null if record indexes are not enabled */
+    static Writer create(File ncxFile) throws IOException {
+      if (!enabled) return null;
+      File old = new File(ncxFile.getPath() + SUFFIX);
+      openIndexes.invalidate(ncxFile.getPath());
+      if (old.exists() && !old.delete())
+        logger.warn("GribRecordIndex cant delete {}", old.getPath());
+      return new Writer(ncxFile);
+    }
+
+    private Writer(File ncxFile) throws IOException {
+      this.ncxFile = ncxFile;
+      this.tempFile = new File(ncxFile.getPath() + SUFFIX + ".tmp");
+      this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1000));
+      out.write(MAGIC_START.getBytes(CDM.utf8Charset));
+      out.writeInt(version);
+      out.writeLong(0);  // ncx length, lastModified, and directory position are written by finish()
+      out.writeLong(0);
+      out.writeLong(0);
+      written = HEADER_SIZE;
+    }
+
+    /**
+     * Add the records of one variable.
+     * @param varRecordsPos where the SparseArray was written in the ncx4 file
+     * @param proto the SparseArray written
+     */
+    void add(long varRecordsPos, GribCollectionProto.SparseArray proto) throws IOException {
+      if (nvars == recordsPos.length) {
+        recordsPos = Arrays.copyOf(recordsPos, 2 * nvars);
+        blockPos = Arrays.copyOf(blockPos, 2 * nvars);
+      }
+      recordsPos[nvars] = varRecordsPos;
+      blockPos[nvars] = written;
+      nvars++;
+
+      int n = proto.getRecordsCount();
+      int columns = 0;
+      for (int i = 0; i < n; i++) {
+        GribCollectionProto.Record r = proto.getRecords(i);
+        if (r.getFileno() != 0) columns |= HAS_FILENO;
+        if (r.getBmsOffset() != 0) columns |= HAS_BMS;
+        if (r.getDrsOffset() != 0) columns |= HAS_DRS;
+      }
+
+      int rank = proto.getSizeCount();
+      out.writeInt(rank);
+      for (int i = 0; i < rank; i++)
+        out.writeInt(proto.getSize(i));
+      out.writeInt(proto.getNdups());
+      out.writeInt(proto.getTrackCount());
+      out.writeInt(n);
+      out.writeInt(columns);
+      for (int i = 0; i < proto.getTrackCount(); i++)
+        out.writeInt(proto.getTrack(i));
+      for (int i = 0; i < n; i++)
+        out.writeLong(proto.getRecords(i).getStartPos());
+      if ((columns & HAS_FILENO) != 0)
+        for (int i = 0; i < n; i++) out.writeInt(proto.getRecords(i).getFileno());
+      if ((columns & HAS_BMS) != 0)
+        for (int i = 0; i < n; i++) out.writeInt(proto.getRecords(i).getBmsOffset());
+      if ((columns & HAS_DRS) != 0)
+        for (int i = 0; i < n; i++) out.writeInt(proto.getRecords(i).getDrsOffset());
+
+      written += 4 * (5 + rank + proto.getTrackCount()) + 8L * n + 4L * n * Integer.bitCount(columns);
+    }
+
+    /** Write the directory, and move the record index into place. Call after the ncx4 file is closed. */
+    void finish() throws IOException {
+      long dirPos = written;
+      // recordsPos increase as the ncx4 is written, but sort to be sure
+      Integer[] order = new Integer[nvars];
+      for (int i = 0; i < nvars; i++) order[i] = i;
+      Arrays.sort(order, (a, b) -> Long.compare(recordsPos[a], recordsPos[b]));
+      out.writeInt(nvars);
+      for (int i : order) {
+        out.writeLong(recordsPos[i]);
+        out.writeLong(blockPos[i]);
+      }
+      out.close();
+
+      try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+        raf.seek(12);
+        raf.writeLong(ncxFile.length());
+        raf.writeLong(ncxFile.lastModified());
+        raf.writeLong(dirPos);
+      }
+      File recFile = new File(ncxFile.getPath() + SUFFIX);
+      Files.move(tempFile.toPath(), recFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      finished = true;
+      logger.debug("GribRecordIndex wrote {} nvars={} size={}", recFile.getPath(), nvars, recFile.length());
+    }
+
+    /** If not finished, remove the partial file. */
+    @Override
+    public void close() throws IOException {
+      if (finished) return;
+      out.close();
+      if (tempFile.exists() && !tempFile.delete())
+        logger.warn("GribRecordIndex cant delete {}", tempFile.getPath());
+    }
+  }
+}
@@ -122,6 +122,11 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
     return partitions.size();
   }
 
+  /** @return for each runtime in the master runtime coordinate, the index of the partition that has it */
+  public int[] getRun2part() {
+    return run2part.clone();
+  }
+
   public List<Partition> getPartitionsSorted() {
     List<Partition> c = new ArrayList<>(partitions);
     Collections.sort(c);
@@ -711,8 +716,10 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       return Misc.compare(record.pos, o.record.pos);
     }
 
-    boolean usesSameFile(DataRecord o) {
-      if (o == null) return false;
+    @Override
+    boolean usesSameFile(GribDataReader.DataRecord od) {
+      if (od == null) return false;
+      DataRecord o = (DataRecord) od;
       int rp = usePartition.getName().compareTo(o.usePartition.getName());
       if (rp != 0) return false;
       int r = Misc.compare(partno, o.partno);
@@ -721,6 +728,11 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       return r == 0;
     }
 
+    @Override
+    RandomAccessFile getRaf(GribCollectionImmutable gribCollection) throws IOException {
+      return usePartition.getRaf(partno, record.fileno);
+    }
+
     //debugging
     public void show() throws IOException {
       String dataFilename = usePartition.getFilename(partno, record.fileno);
@@ -31,6 +31,7 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
 
   static class PartitionForVariable2D {
     int partno, groupno, varno; // , flag;     // what the hell is the flag used for ?
+    int ndups, nrecords, nmissing;                // stats for this partition only
     GribCollectionMutable.VariableIndex vi;
 
     PartitionForVariable2D(int partno, int groupno, int varno) {
@@ -45,6 +46,7 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
     SmartArrayInt partnoSA;
     SmartArrayInt groupnoSA;
     SmartArrayInt varnoSA;
+    SmartArrayInt ndupsSA, nrecordsSA, nmissingSA; // stats for each partition
 
     List<PartitionForVariable2D> partList; // used only when creating, then discarded in finish
 
@@ -57,16 +59,25 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
       int[] partno = new int[nparts];
       int[] groupno = new int[nparts];
       int[] varno = new int[nparts];
+      int[] ndups = new int[nparts];
+      int[] nrecords = new int[nparts];
+      int[] nmissing = new int[nparts];
       int count = 0;
       for (GribCollectionProto.PartitionVariable part : pvList) {
         partno[count] = part.getPartno();
         groupno[count] = part.getGroupno();
         varno[count] = part.getVarno();
+        ndups[count] = part.getNdups();
+        nrecords[count] = part.getNrecords();
+        nmissing[count] = part.getMissing();
         count++;
       }
       this.partnoSA =  new SmartArrayInt(partno);
       this.groupnoSA =  new SmartArrayInt(groupno);
       this.varnoSA =  new SmartArrayInt(varno);
+      this.ndupsSA =  new SmartArrayInt(ndups);
+      this.nrecordsSA =  new SmartArrayInt(nrecords);
+      this.nmissingSA =  new SmartArrayInt(nmissing);
 
       partList = null; // GC
     }
@@ -79,25 +90,50 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
       int[] partno = new int[nparts];
       int[] groupno = new int[nparts];
       int[] varno = new int[nparts];
+      int[] ndups = new int[nparts];
+      int[] nrecords = new int[nparts];
+      int[] nmissing = new int[nparts];
       int count = 0;
       for (PartitionForVariable2D part : partList) {
         partno[count] = part.partno;
         groupno[count] = part.groupno;
         varno[count] = part.varno;
+        ndups[count] = part.ndups;
+        nrecords[count] = part.nrecords;
+        nmissing[count] = part.nmissing;
         count++;
       }
       this.partnoSA =  new SmartArrayInt(partno);
       this.groupnoSA =  new SmartArrayInt(groupno);
       this.varnoSA =  new SmartArrayInt(varno);
+      this.ndupsSA =  new SmartArrayInt(ndups);
+      this.nrecordsSA =  new SmartArrayInt(nrecords);
+      this.nmissingSA =  new SmartArrayInt(nmissing);
 
       partList = null; // GC
     }
 
+    /**
+     * The number of partitions this variable is in, after finish() or setPartitions().
+     * The partition arrays have nparts entries, in increasing partno order, padded with zeros.
+     */
+    int countPartitions() {
+      if (partnoSA == null || nparts == 0) return 0;
+      int count = 1;
+      while (count < nparts && partnoSA.get(count) > partnoSA.get(count - 1))
+        count++;
+      return count;
+    }
+
     // only used by PartitionBuilder, not PartitionBuilderFromIndex
     void addPartition(int partno, int groupno, int varno, int ndups, int nrecords, int nmissing,
         GribCollectionMutable.VariableIndex vi) {
       if (partList == null) partList = new ArrayList<>(nparts);
-      partList.add(new PartitionForVariable2D(partno, groupno, varno));
+      PartitionForVariable2D part = new PartitionForVariable2D(partno, groupno, varno);
+      part.ndups = ndups;
+      part.nrecords = nrecords;
+      part.nmissing = nmissing;
+      partList.add(part);
       this.ndups += ndups;
       this.nrecords += nrecords;
       this.nmissing += nmissing;
@@ -325,6 +361,19 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
     return partition;
   }
 
+  /**
+   * Add a partition whose index has not changed since prev was read from the previous partition index.
+   * Unlike addPartition(MCollection), the partition's collection is not opened.
+   */
+  void addUnchangedPartition(MCollection dcm, Partition prev) {
+    Partition partition = new Partition(dcm);
+    partition.lastModified = prev.lastModified;
+    partition.fileSize = prev.fileSize;
+    if (prev.partitionDate != null)
+      partition.partitionDate = prev.partitionDate;
+    partitions.add(partition);
+  }
+
   public void addPartition(MCollection dcm) {
     Partition partition = new Partition(dcm);
     try (GribCollectionMutable gc = partition.makeGribCollection()) {  // make sure we can open the collection
@@ -357,10 +406,24 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
    */
   VariableIndexPartitioned makeVariableIndexPartitioned(GroupGC group,
       GribCollectionMutable.VariableIndex from, int nparts) {
+    return makeVariableIndexPartitioned(group, from, nparts, true);
+  }
+
+  /**
+   * Create a VariableIndexPartitioned, add it to the given group
+   *
+   * @param group  the new VariableIndexPartitioned is in this group
+   * @param from   copy info from here
+   * @param nparts size of partition list
+   * @param copyPartitions if from is a VariableIndexPartitioned, copy its partition list
+   * @return a new VariableIndexPartitioned
+   */
+  VariableIndexPartitioned makeVariableIndexPartitioned(GroupGC group,
+      GribCollectionMutable.VariableIndex from, int nparts, boolean copyPartitions) {
     VariableIndexPartitioned vip = new VariableIndexPartitioned(group, from, nparts);
     group.addVariable(vip);
 
-    if (from instanceof VariableIndexPartitioned && !isPartitionOfPartitions) {    // LOOK dont really understand this
+    if (copyPartitions && from instanceof VariableIndexPartitioned && !isPartitionOfPartitions) {    // LOOK dont really understand this
       VariableIndexPartitioned vipFrom = (VariableIndexPartitioned) from;
       assert vipFrom.partList == null; // // check if vipFrom has been finished
       for (int i=0; i<vipFrom.nparts; i++)
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.AbstractList;
+
+/**
+ * The records of a GRIB collection variable, stored as primitive arrays, one per Record field,
+ * instead of one Record object per GRIB message. get() makes the Record on demand.
+ * A column that is zero for every record (fileno for a single file collection, bmsOffset and drsOffset for GRIB1)
+ * is not stored at all. Used as the content of the variable's SparseArray.
+ *
+ * @since 10/18/2026
+ */
+@Immutable
+class RecordColumns extends AbstractList<GribCollectionImmutable.Record> {
+  private final int size;
+  private final int[] fileno;    // null if all 0
+  private final long[] pos;
+  private final int[] bmsOffset; // null if all 0
+  private final int[] drsOffset; // null if all 0
+
+  RecordColumns(int[] fileno, long[] pos, int[] bmsOffset, int[] drsOffset) {
+    this.size = pos.length;
+    this.fileno = allZero(fileno) ? null : fileno;
+    this.pos = pos;
+    this.bmsOffset = allZero(bmsOffset) ? null : bmsOffset;
+    this.drsOffset = allZero(drsOffset) ? null : drsOffset;
+  }
+
+  private static boolean allZero(int[] column) {
+    for (int v : column)
+      if (v != 0) return false;
+    return true;
+  }
+
+  @Override
+  public GribCollectionImmutable.Record get(int index) {
+    if (index < 0 || index >= size)
+      throw new IndexOutOfBoundsException("index " + index + " size " + size);
+    return new GribCollectionImmutable.Record(fileno == null ? 0 : fileno[index], pos[index],
+            bmsOffset == null ? 0 : bmsOffset[index], drsOffset == null ? 0 : drsOffset[index]);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** @return approximate bytes used by the columns */
+  long getMemoryUsed() {
+    long result = 8L * size;
+    if (fileno != null) result += 4L * size;
+    if (bmsOffset != null) result += 4L * size;
+    if (drsOffset != null) result += 4L * size;
+    return result;
+  }
+}
@@ -151,6 +151,341 @@ public class Grib2DataReader2 {
     return getData40raw(raf, (Grib2Drs.Type40) gdrs);
   }
 
+  /////////////////////////////////////////////////////////////////////////////////////////////
+  // read a window of the grid
+
+  /**
+   * Read only the points of the grid in the window rows x cols, without unpacking the entire grid.
+   * Only simple packing (template 0) and complex packing (templates 2, 3) are supported.
+   * The values are put into result in row major order starting at resultStart, with the scanning mode already
+   * applied, exactly as if getData() was called and the window then copied out of it.
+   *
+   * @param rows wanted row (y) indices, in the order wanted
+   * @param cols wanted column (x) indices, in the order wanted
+   * @return false if this record cannot be read by window. Then nothing has been written, and caller must use getData().
+   */
+  boolean getDataWindow(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs, int[] rows, int[] cols,
+      float[] result, int resultStart) throws IOException {
+    if (dataTemplate != 0 && dataTemplate != 2 && dataTemplate != 3)
+      return false;
+    if (nx <= 0 || totalNPoints % nx != 0)
+      return false;
+
+    this.bitmap = bitmapSection.getBitmap(raf);
+    this.bitmapIndicator = bitmapSection.getBitMapIndicator();
+    if (bitmap != null && bitmap.length * 8 < totalNPoints)
+      return false; // let getData() complain
+
+    // number of bitmap bits set before each byte
+    int[] rank = null;
+    if (bitmap != null) {
+      int nbytes = (totalNPoints + 7) / 8;
+      rank = new int[nbytes + 1];
+      for (int b = 0; b < nbytes; b++)
+        rank[b + 1] = rank[b] + Integer.bitCount(bitmap[b] & 0xff);
+    }
+
+    // for each point in the window, find its index in the packed data, then sort by it so we only read forward.
+    // packed as (dataIndex << 32 | slot); points not in the bitmap are missing.
+    int nwant = rows.length * cols.length;
+    long[] wanted = new long[nwant];
+    int[] missing = new int[nwant];
+    int nwanted = 0, nmissing = 0;
+    int slot = 0;
+    for (int row : rows) {
+      for (int col : cols) {
+        int gridIndex = row * nx + rawColumn(row, col);
+        if (rank == null) {
+          wanted[nwanted++] = ((long) gridIndex << 32) | slot;
+        } else if ((bitmap[gridIndex / 8] & GribNumbers.bitmask[gridIndex % 8]) != 0) {
+          int dataIndex = rank[gridIndex / 8] + Integer.bitCount((bitmap[gridIndex / 8] & 0xff) >>> (8 - gridIndex % 8));
+          wanted[nwanted++] = ((long) dataIndex << 32) | slot;
+        } else {
+          missing[nmissing++] = slot;
+        }
+        slot++;
+      }
+    }
+    Arrays.sort(wanted, 0, nwanted);
+
+    float mv;
+    switch (dataTemplate) {
+      case 0:
+        if (!getDataWindow0(raf, (Grib2Drs.Type0) gdrs, wanted, nwanted, result, resultStart))
+          return false;
+        mv = staticMissingValue;
+        break;
+      case 2:
+        if (!getDataWindow2(raf, (Grib2Drs.Type2) gdrs, wanted, nwanted, result, resultStart))
+          return false;
+        mv = getMissingValue((Grib2Drs.Type2) gdrs);
+        break;
+      default:
+        if (!getDataWindow3(raf, (Grib2Drs.Type3) gdrs, wanted, nwanted, result, resultStart))
+          return false;
+        mv = getMissingValue((Grib2Drs.Type3) gdrs);
+        break;
+    }
+
+    for (int i = 0; i < nmissing; i++)
+      result[resultStart + missing[i]] = mv;
+    return true;
+  }
+
+  // the column in the packed data for the column in the result; see scanningModeCheck()
+  private int rawColumn(int row, int col) {
+    if ((scanMode == 0) || (scanMode == 64))
+      return col;
+    if (!GribUtils.scanModeXisPositive(scanMode))
+      return nx - col - 1;
+    if (!GribUtils.scanModeSameDirection(scanMode) && (row % 2 != 0))
+      return nx - col - 1;
+    return col;
+  }
+
+  // simple packing: value n is at bit n * nb, so just position to it
+  private boolean getDataWindow0(RandomAccessFile raf, Grib2Drs.Type0 gdrs, long[] wanted, int nwanted,
+      float[] result, int resultStart) throws IOException {
+    int nb = gdrs.numberOfBits;
+    if ((long) totalNPoints * nb > Integer.MAX_VALUE)
+      return false;
+    float DD = (float) java.lang.Math.pow((double) 10, (double) gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) java.lang.Math.pow(2.0, (double) gdrs.binaryScaleFactor);
+
+    BitReader reader = new BitReader(raf, startPos + 5);
+    int next = 0; // the reader is positioned at this data index
+    for (int i = 0; i < nwanted; i++) {
+      int dataIndex = (int) (wanted[i] >>> 32);
+      int slot = (int) wanted[i];
+      if (dataIndex != next)
+        reader.setBitOffset(dataIndex * nb);
+      result[resultStart + slot] = (R + reader.bits2UInt(nb) * EE) / DD;
+      next = dataIndex + 1;
+    }
+    return true;
+  }
+
+  // complex packing: read the group descriptors, then position to the value within its group
+  private boolean getDataWindow2(RandomAccessFile raf, Grib2Drs.Type2 gdrs, long[] wanted, int nwanted,
+      float[] result, int resultStart) throws IOException {
+    int NG = gdrs.numberOfGroups;
+    if (NG == 0)
+      return false; // nGroups0, nothing to unpack anyway
+
+    int mvm = gdrs.missingValueManagement;
+    float mv = getMissingValue(gdrs);
+    float DD = (float) java.lang.Math.pow((double) 10, (double) gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) java.lang.Math.pow(2.0, (double) gdrs.binaryScaleFactor);
+
+    BitReader reader = new BitReader(raf, startPos + 5);
+
+    int[] X1 = new int[NG];
+    int nb = gdrs.numberOfBits;
+    if (nb != 0) {
+      for (int i = 0; i < NG; i++) {
+        X1[i] = (int) reader.bits2UInt(nb);
+      }
+    }
+
+    int[] NB = new int[NG];
+    nb = gdrs.bitsGroupWidths;
+    if (nb != 0) {
+      reader.incrByte();
+      for (int i = 0; i < NG; i++) {
+        NB[i] = (int) reader.bits2UInt(nb);
+      }
+    }
+
+    int[] L = new int[NG];
+    int ref = gdrs.referenceGroupLength;
+    int len_inc = gdrs.lengthIncrement;
+    nb = gdrs.bitsScaledGroupLength;
+    reader.incrByte();
+    for (int i = 0; i < NG; i++) {
+      L[i] = ref + (int) reader.bits2UInt(nb) * len_inc;
+    }
+    L[NG - 1] = gdrs.lengthLastGroup;
+
+    // starting data index and bit offset of each group
+    int[] groupStart = new int[NG + 1];
+    long[] groupBit = new long[NG + 1];
+    for (int i = 0; i < NG; i++) {
+      groupStart[i + 1] = groupStart[i] + L[i];
+      groupBit[i + 1] = groupBit[i] + (long) L[i] * NB[i];
+    }
+    if (groupBit[NG] > Integer.MAX_VALUE)
+      return false;
+    if (nwanted > 0 && (wanted[nwanted - 1] >>> 32) >= groupStart[NG])
+      return false; // past the end of the packed data
+
+    reader.incrByte();
+    BitReader packed = new BitReader(raf, raf.getFilePointer());
+    int group = 0;
+    long next = -1; // the packed reader is positioned at this bit offset
+    for (int i = 0; i < nwanted; i++) {
+      int dataIndex = (int) (wanted[i] >>> 32);
+      int slot = (int) wanted[i];
+      while (group < NG - 1 && dataIndex >= groupStart[group + 1])
+        group++;
+
+      float val;
+      if (NB[group] == 0) {
+        val = (mvm == 0) ? (R + X1[group] * EE) / DD : mv;
+      } else {
+        long bitOffset = groupBit[group] + (long) (dataIndex - groupStart[group]) * NB[group];
+        if (bitOffset != next)
+          packed.setBitOffset((int) bitOffset);
+        int X2 = (int) packed.bits2UInt(NB[group]);
+        next = bitOffset + NB[group];
+        if (mvm != 0 && X2 == bitsmv1[NB[group]]) {
+          val = mv;
+        } else {
+          val = (R + (X1[group] + X2) * EE) / DD;
+        }
+      }
+      result[resultStart + slot] = val;
+    }
+    return true;
+  }
+
+  // complex packing and spatial differencing: each value depends on the ones before it,
+  // so unpack sequentially, but only as far as the last wanted point, and keep only the wanted values.
+  private boolean getDataWindow3(RandomAccessFile raf, Grib2Drs.Type3 gdrs, long[] wanted, int nwanted,
+      float[] result, int resultStart) throws IOException {
+    int NG = gdrs.numberOfGroups;
+    if (NG == 0)
+      return false; // nGroups0, nothing to unpack anyway
+
+    int mvm = gdrs.missingValueManagement;
+    float mv = getMissingValue(gdrs);
+    float DD = (float) java.lang.Math.pow((double) 10, (double) gdrs.decimalScaleFactor);
+    float R = gdrs.referenceValue;
+    float EE = (float) java.lang.Math.pow(2.0, (double) gdrs.binaryScaleFactor);
+
+    BitReader reader = new BitReader(raf, startPos + 5);
+
+    int ival1;
+    int ival2 = 0;
+    int minsd;
+    int os = gdrs.orderSpatial;
+    int nbitsd = gdrs.descriptorSpatial * 8;
+    if (nbitsd <= 0)
+      return false; // all missing
+    int sign = (int) reader.bits2UInt(1);
+    ival1 = (int) reader.bits2UInt(nbitsd - 1);
+    if (sign == 1) {
+      ival1 = -ival1;
+    }
+    if (os == 2) {
+      sign = (int) reader.bits2UInt(1);
+      ival2 = (int) reader.bits2UInt(nbitsd - 1);
+      if (sign == 1) {
+        ival2 = -ival2;
+      }
+    }
+    sign = (int) reader.bits2UInt(1);
+    minsd = (int) reader.bits2UInt(nbitsd - 1);
+    if (sign == 1) {
+      minsd = -minsd;
+    }
+
+    int[] X1 = new int[NG];
+    int nb = gdrs.numberOfBits;
+    if (nb != 0) {
+      reader.incrByte();
+      for (int i = 0; i < NG; i++) {
+        X1[i] = (int) reader.bits2UInt(nb);
+      }
+    }
+
+    int[] NB = new int[NG];
+    nb = gdrs.bitsGroupWidths;
+    if (nb != 0) {
+      reader.incrByte();
+      for (int i = 0; i < NG; i++) {
+        NB[i] = (int) reader.bits2UInt(nb);
+      }
+    }
+    for (int i = 0; i < NG; i++) {
+      NB[i] += gdrs.referenceGroupWidths;
+    }
+
+    int[] L = new int[NG];
+    nb = gdrs.bitsScaledGroupLength;
+    if (nb != 0) {
+      reader.incrByte();
+      for (int i = 0; i < NG; i++) {
+        L[i] = (int) reader.bits2UInt(nb);
+      }
+    }
+    int totalL = 0;
+    for (int i = 0; i < NG; i++) {
+      L[i] = L[i] * gdrs.lengthIncrement + gdrs.referenceGroupLength;
+      totalL += L[i];
+    }
+    totalL -= L[NG - 1];
+    totalL += gdrs.lengthLastGroup;
+    L[NG - 1] = gdrs.lengthLastGroup;
+
+    if (totalL != ((mvm != 0) ? totalNPoints : dataNPoints))
+      return false; // getData() will warn and return all missing
+    if (nwanted > 0 && (wanted[nwanted - 1] >>> 32) >= totalL)
+      return false; // past the end of the packed data
+
+    // Same arithmetic as getData3(), done in float in the same order so the results are identical.
+    // count indexes the packed values, dataSize the non-missing ones that the differencing is applied to.
+    reader.incrByte();
+    int count = 0;
+    int dataSize = 0;
+    float prev1 = 0, prev2 = 0;   // F(dataSize-1), F(dataSize-2)
+    int w = 0;
+    for (int i = 0; i < NG && w < nwanted; i++) {
+      int msng1 = (mvm == 0) ? 0 : bitsmv1[NB[i] != 0 ? NB[i] : gdrs.numberOfBits];
+      int msng2 = msng1 - 1;
+      for (int j = 0; j < L[i] && w < nwanted; j++) {
+        float g;
+        boolean isMissing;
+        if (NB[i] != 0) {
+          int x2 = (int) reader.bits2UInt(NB[i]);
+          if (mvm == 0) {
+            isMissing = false;
+            g = x2 + X1[i];
+          } else {
+            float fx2 = x2;
+            isMissing = (fx2 == msng1 || mvm == 2 && fx2 == msng2);
+            g = fx2 + X1[i];
+          }
+        } else {
+          isMissing = (mvm != 0) && (X1[i] == msng1 || mvm == 2 && X1[i] == msng2);
+          g = X1[i];
+        }
+
+        float f = g;
+        if (!isMissing) {
+          if (os == 1) {
+            f = (dataSize == 0) ? ival1 : (g + minsd) + prev1;
+          } else if (os == 2) {
+            if (dataSize == 0) f = ival1;
+            else if (dataSize == 1) f = ival2;
+            else f = (g + minsd) + (2 * prev1) - prev2;
+          }
+          prev2 = prev1;
+          prev1 = f;
+          dataSize++;
+        }
+
+        while (w < nwanted && (int) (wanted[w] >>> 32) == count) {
+          result[resultStart + (int) wanted[w]] = isMissing ? mv : (R + (f * EE)) / DD;
+          w++;
+        }
+        count++;
+      }
+    }
+    return true;
+  }
+
   private static final boolean staticMissingValueInUse = true;
   private static final float staticMissingValue = Float.NaN;
 
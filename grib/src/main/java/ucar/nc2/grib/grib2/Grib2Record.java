@@ -330,6 +330,44 @@ public class Grib2Record {
     return data;
   }
 
+  /**
+   * Read only a window of the data array, directly into result. Use when you want to be independent of the GribRecord.
+   * Not possible for thin grids or for some data templates, then nothing is read and false is returned.
+   *
+   * @param raf             from this RandomAccessFile
+   * @param drsPos          Grib2SectionDataRepresentation starts here
+   * @param bmsPos          if non-zero, use the bms that starts here
+   * @param gdsNumberPoints gdss.getNumberPoints()
+   * @param scanMode        gds.scanMode
+   * @param nx              gds.nx
+   * @param rows            wanted y indices
+   * @param cols            wanted x indices
+   * @param result          put the rows x cols values here, in row major order
+   * @param resultStart     starting at this index
+   * @return true if the window was read
+   * @throws IOException on read error
+   */
+  public static boolean readDataWindow(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode, int nx,
+                                       int[] rows, int[] cols, float[] result, int resultStart) throws IOException {
+    raf.seek(drsPos);
+    Grib2SectionDataRepresentation drs = new Grib2SectionDataRepresentation(raf);
+    Grib2SectionBitMap bms = new Grib2SectionBitMap(raf);
+    Grib2SectionData dataSection = new Grib2SectionData(raf);
+
+    if (bmsPos > 0)
+      bms = Grib2SectionBitMap.factory(raf, bmsPos);
+
+    Grib2DataReader2 reader = new Grib2DataReader2(drs.getDataTemplate(), gdsNumberPoints, drs.getDataPoints(),
+            scanMode, nx, dataSection.getStartingPosition(), dataSection.getMsgLength());
+
+    Grib2Drs gdrs = drs.getDrs(raf);
+    boolean ok = reader.getDataWindow(raf, bms, gdrs, rows, cols, result, resultStart);
+
+    if (ok && getlastRecordRead)
+      lastRecordRead = Grib2RecordScanner.findRecordByDrspos(raf, drsPos);
+    return ok;
+  }
+
   public void check(RandomAccessFile raf, Formatter f) throws IOException {
     long messLen = is.getMessageLength();
     long startPos = is.getStartPos();
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.inventory.MFile;
+import thredds.inventory.MFileIterator;
+import thredds.filesystem.MFileOS7;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Indexing the files of a collection in parallel must give the indexes in file order. */
+public class TestGbxIndexIterator {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final String[] dataFiles = {"cosmo-eu.grib2", "rap-native.grib2", "MRMS_LowLevelCompositeReflectivity_00.50_20141207-072038.grib2"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void teardown() {
+    GbxIndexIterator.setExecutor(null, 1);
+  }
+
+  // copies of the test files, so the gbx9 indexes are written to the temporary folder
+  private List<MFile> makeFiles(String... names) throws IOException {
+    List<MFile> result = new ArrayList<>();
+    for (String name : names) {
+      File copy = new File(tempFolder.getRoot(), name);
+      File from = new File("../grib/src/test/data/" + name);
+      if (from.exists())
+        Files.copy(from.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      result.add(new MFileOS7(copy.getPath()));
+    }
+    return result;
+  }
+
+  @Test
+  public void testFileOrder() throws IOException {
+    List<MFile> files = makeFiles(dataFiles);
+    List<Integer> serial = new ArrayList<>();
+    try (GbxIndexIterator indexes = new GbxIndexIterator(new MFileIterator(files.iterator(), null), false, null, logger)) {
+      while (indexes.hasNext())
+        serial.add(indexes.next().index.getNRecords());
+    }
+
+    // the first files submitted finish last
+    AtomicInteger delay = new AtomicInteger(300);
+    AtomicInteger count = new AtomicInteger();
+    Executor exec = r -> {
+      int msecs = Math.max(0, delay.getAndAdd(-100));
+      count.incrementAndGet();
+      new Thread(() -> {
+        sleep(msecs);
+        r.run();
+      }).start();
+    };
+    GbxIndexIterator.setExecutor(exec, dataFiles.length);
+
+    List<MFile> got = new ArrayList<>();
+    List<Integer> parallel = new ArrayList<>();
+    try (GbxIndexIterator indexes = new GbxIndexIterator(new MFileIterator(files.iterator(), null), false, null, logger)) {
+      while (indexes.hasNext()) {
+        GbxIndexIterator.FileIndex fileIndex = indexes.next();
+        Assert.assertNull(fileIndex.failure);
+        got.add(fileIndex.mfile);
+        parallel.add(fileIndex.index.getNRecords());
+      }
+    }
+    Assert.assertEquals(files, got);
+    Assert.assertEquals(serial, parallel);
+    Assert.assertEquals(dataFiles.length, count.get());
+  }
+
+  @Test
+  public void testFailedFile() throws IOException {
+    List<MFile> files = makeFiles(dataFiles[0], dataFiles[2], dataFiles[1]);
+    Files.delete(new File(files.get(1).getPath()).toPath()); // removed after the collection was scanned
+    GbxIndexIterator.setExecutor(r -> new Thread(r).start(), 2);
+
+    List<GbxIndexIterator.FileIndex> got = new ArrayList<>();
+    try (GbxIndexIterator indexes = new GbxIndexIterator(new MFileIterator(files.iterator(), null), false, null, logger)) {
+      while (indexes.hasNext())
+        got.add(indexes.next());
+    }
+    Assert.assertEquals(3, got.size());
+    Assert.assertNull(got.get(0).failure);
+    Assert.assertNotNull(got.get(1).failure);
+    Assert.assertNull(got.get(1).index);
+    Assert.assertEquals(files.get(1), got.get(1).mfile);
+    Assert.assertNull(got.get(2).failure);
+    Assert.assertNotNull(got.get(2).index);
+  }
+
+  @Test
+  public void testCloseCancels() throws IOException {
+    List<MFile> files = makeFiles(dataFiles[0], dataFiles[0], dataFiles[0], dataFiles[0]);
+
+    // run the first file, hold the rest
+    List<Runnable> held = new ArrayList<>();
+    AtomicInteger count = new AtomicInteger();
+    Executor exec = r -> {
+      if (count.getAndIncrement() == 0)
+        r.run();
+      else
+        held.add(r);
+    };
+    GbxIndexIterator.setExecutor(exec, 3);
+
+    GbxIndexIterator indexes = new GbxIndexIterator(new MFileIterator(files.iterator(), null), false, null, logger);
+    Assert.assertNull(indexes.next().failure);
+    indexes.close();
+
+    Assert.assertEquals(3, held.size()); // two read ahead, then the fourth file after next()
+    for (Runnable r : held)
+      Assert.assertTrue(((Future) r).isCancelled());
+  }
+
+  private static void sleep(int msecs) {
+    try {
+      Thread.sleep(msecs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGribDataCache {
+
+  private GribCollectionImmutable.Record makeRecord(long pos) {
+    return new GribCollectionImmutable.Record(0, pos, 0, 16);
+  }
+
+  private void checkPutGet(boolean offHeap) {
+    GribDataCache cache = new GribDataCache(1000 * 1000, offHeap);
+    float[] data = new float[]{1, 2, 3, Float.NaN};
+    cache.put("file1", 1000, 5000, makeRecord(100), data);
+
+    Assert.assertArrayEquals(data, cache.get("file1", 1000, 5000, makeRecord(100)), 0.0f);
+    Assert.assertNull(cache.get("file2", 1000, 5000, makeRecord(100)));
+    Assert.assertNull(cache.get("file1", 1000, 5000, makeRecord(101)));
+    Assert.assertNull(cache.get("file1", 1000, 5000, new GribCollectionImmutable.Record(0, 100, 0, 32))); // second field in message
+    Assert.assertEquals(16, cache.getBytes());
+    Assert.assertEquals(1, cache.getStats().hitCount());
+    Assert.assertEquals(3, cache.getStats().missCount());
+  }
+
+  @Test
+  public void testPutGet() {
+    checkPutGet(false);
+  }
+
+  @Test
+  public void testPutGetOffHeap() {
+    checkPutGet(true);
+  }
+
+  // the data file was rewritten in place
+  @Test
+  public void testFileChanged() {
+    GribDataCache cache = new GribDataCache(1000 * 1000, false);
+    cache.put("file1", 1000, 5000, makeRecord(100), new float[]{1, 2, 3});
+
+    Assert.assertNull(cache.get("file1", 2000, 5000, makeRecord(100)));
+    Assert.assertNull(cache.get("file1", 1000, 6000, makeRecord(100)));
+    Assert.assertNotNull(cache.get("file1", 1000, 5000, makeRecord(100)));
+  }
+
+  @Test
+  public void testBoundedByBytes() {
+    GribDataCache cache = new GribDataCache(40 * 1000, false);  // room for 10 records of 1000 floats
+    for (int i = 0; i < 100; i++)
+      cache.put("file", 1000, 5000, makeRecord(i), new float[1000]);
+
+    Assert.assertTrue(cache.getBytes() <= 40 * 1000);
+    Assert.assertTrue(cache.getStats().evictionCount() >= 90);
+
+    cache.clearCache();
+    Assert.assertEquals(0, cache.getBytes());
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/** Parallel reading of GRIB records must give the same result as serial reading. */
+public class TestGribDataReaderParallel {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int nrecords = 12;
+  private static ExecutorService executor;
+  private static String multiRecordFile;
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setup() throws IOException {
+    executor = Executors.newFixedThreadPool(3);
+    multiRecordFile = makeMultiRecordFile("../grib/src/test/data/cosmo-eu.grib2", nrecords);
+  }
+
+  @AfterClass
+  public static void teardown() {
+    GribDataReader.setExecutor(null, 1);
+    executor.shutdownNow();
+  }
+
+  /*
+   The test files have one record each, which is always read serially.
+   So copy the one GRIB2 message, changing the forecast time and the reference value of each copy,
+   to get a variable with nrecords times and different data for each.
+   */
+  private static String makeMultiRecordFile(String filename, int n) throws IOException {
+    byte[] message = Files.readAllBytes(Paths.get(filename));
+    ByteBuffer out = ByteBuffer.allocate(n * message.length);
+    for (int k = 0; k < n; k++) {
+      ByteBuffer copy = ByteBuffer.wrap(message.clone());
+      int pos = 16; // skip section 0
+      while (pos < message.length - 4) {
+        int length = copy.getInt(pos);
+        int section = copy.get(pos + 4);
+        if (section == 4)
+          copy.putInt(pos + 18, k);              // forecast time, product template 4.0
+        else if (section == 5)
+          copy.putFloat(pos + 11, 100.0f * k);  // reference value, data template 5.0
+        pos += length;
+      }
+      out.put(copy.array());
+    }
+    File file = tempFolder.newFile("multiRecord.grib2");
+    Files.write(file.toPath(), out.array());
+    return file.getPath();
+  }
+
+  @Test
+  public void testGrib2() throws IOException {
+    try (NetcdfFile nc = NetcdfFile.open(multiRecordFile)) {
+      Variable v = nc.findVariable("Snow_depth_water_equivalent_surface");
+      Assert.assertNotNull(v);
+      Assert.assertEquals(nrecords, v.getShape(0));
+    }
+    compareSerialAndParallel(multiRecordFile);
+  }
+
+  @Test
+  public void testGrib1() throws IOException {
+    compareSerialAndParallel("../grib/src/test/data/HPPI89_KWBC.grb");
+  }
+
+  // all pool threads are busy: the caller must run the tasks that have not started, not wait for them
+  @Test(timeout = 60 * 1000)
+  public void testSaturatedPool() throws IOException, InterruptedException {
+    ThreadPoolExecutor busy = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+    CountDownLatch release = new CountDownLatch(1);
+    busy.execute(() -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    try {
+      compareSerialAndParallel(multiRecordFile, busy);
+      Assert.assertTrue("no read tasks were submitted", busy.getQueue().size() > 0);
+    } finally {
+      release.countDown();
+      busy.shutdownNow();
+    }
+  }
+
+  private void compareSerialAndParallel(String filename) throws IOException {
+    compareSerialAndParallel(filename, executor);
+  }
+
+  private void compareSerialAndParallel(String filename, ExecutorService executor) throws IOException {
+    Map<String, float[]> serial = new HashMap<>();
+
+    GribDataReader.setExecutor(null, 1);
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      for (Variable v : nc.getVariables()) {
+        if (v.getRank() < 3) continue; // coordinates
+        serial.put(v.getFullName(), (float[]) v.read().get1DJavaArray(float.class));
+      }
+    }
+    Assert.assertFalse(serial.isEmpty());
+
+    GribDataReader.setExecutor(executor, 4);
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      for (Variable v : nc.getVariables()) {
+        float[] want = serial.get(v.getFullName());
+        if (want == null) continue;
+        float[] got = (float[]) v.read().get1DJavaArray(float.class);
+        logger.debug("compare {} len={}", v.getFullName(), got.length);
+        Assert.assertArrayEquals(v.getFullName(), want, got, 0.0f);
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reading only the (x,y) window of a GRIB2 record must give the same result as reading the whole record. */
+public class TestGribDataReaderWindow {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @After
+  public void reset() {
+    GribDataReader.readWindow = true;
+    GribDataReader.countWindowReads = false;
+  }
+
+  @Test
+  public void testCosmo() throws IOException, InvalidRangeException {
+    GribDataReader.countWindowReads = true;
+    int before = GribDataReader.windowReads.get();
+    compareWindowAndFull("../grib/src/test/data/cosmo-eu.grib2");
+    Assert.assertTrue("window was not read", GribDataReader.windowReads.get() > before);
+  }
+
+  // template 41 (png) cannot be read by window, so the whole record is read
+  @Test
+  public void testNotWindowed() throws IOException, InvalidRangeException {
+    compareWindowAndFull("../grib/src/test/data/HLYA10");
+  }
+
+  private void compareWindowAndFull(String filename) throws IOException, InvalidRangeException {
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      int count = 0;
+      for (Variable v : nc.getVariables()) {
+        if (v.getRank() < 3) continue; // coordinates
+        v.setCaching(false); // small variables are otherwise read whole and cached
+        for (Section s : makeSections(v.getShapeAsSection())) {
+          GribDataReader.readWindow = false;
+          float[] full = (float[]) v.read(s).get1DJavaArray(float.class);
+          GribDataReader.readWindow = true;
+          float[] window = (float[]) v.read(s).get1DJavaArray(float.class);
+          logger.debug("compare {} section {}", v.getFullName(), s);
+          Assert.assertArrayEquals(v.getFullName() + " " + s, full, window, 0.0f);
+          count++;
+        }
+      }
+      Assert.assertTrue(count > 0);
+    }
+  }
+
+  // a point, a small box, and a strided box, all in the last two (y,x) dimensions
+  private List<Section> makeSections(Section shape) throws InvalidRangeException {
+    int rank = shape.getRank();
+    int ny = shape.getShape(rank - 2);
+    int nx = shape.getShape(rank - 1);
+
+    List<Section> result = new ArrayList<>();
+    result.add(replaceYX(shape, ny / 2, ny / 2, 1, nx / 3, nx / 3, 1));
+    result.add(replaceYX(shape, ny / 4, Math.min(ny - 1, ny / 4 + 9), 1, nx / 2, Math.min(nx - 1, nx / 2 + 12), 1));
+    result.add(replaceYX(shape, 1, ny - 2, 7, 0, nx - 1, 11));
+    return result;
+  }
+
+  private Section replaceYX(Section shape, int y0, int y1, int ystride, int x0, int x1, int xstride) throws InvalidRangeException {
+    int rank = shape.getRank();
+    Section result = new Section();
+    for (int i = 0; i < rank - 2; i++)
+      result.appendRange(shape.getRange(i));
+    result.appendRange(y0, y1, ystride);
+    result.appendRange(x0, x1, xstride);
+    return result;
+  }
+}
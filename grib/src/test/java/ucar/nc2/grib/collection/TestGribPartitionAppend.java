@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.featurecollection.FeatureCollectionType;
+import thredds.filesystem.MFileOS;
+import thredds.inventory.CollectionSpecParser;
+import thredds.inventory.CollectionSingleFile;
+import thredds.inventory.CollectionUpdateType;
+import thredds.inventory.MCollection;
+import thredds.inventory.filter.StreamFilter;
+import thredds.inventory.partition.FilePartition;
+import ucar.coord.Coordinate;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.time.CalendarPeriod;
+import ucar.nc2.util.Indent;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Formatter;
+
+/**
+ * Appending to the index of a file partition must give the same index as rebuilding it from all of the partitions,
+ * and must fall back to the rebuild when it can't.
+ */
+public class TestGribPartitionAppend {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final CalendarDate firstRuntime = CalendarDate.parseISOformat(null, "2014-10-24T00:00:00Z");
+  private static final CalendarDateFormatter fileDate = new CalendarDateFormatter("yyyyMMdd_HHmm");
+  private static final String name = "TestGribPartitionAppend";
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File dir;
+  private FeatureCollectionConfig config;
+
+  @Before
+  public void setup() throws IOException {
+    dir = tempFolder.newFolder();
+    config = new FeatureCollectionConfig(name, "append", FeatureCollectionType.GRIB2,
+            dir.getPath() + "/synth_#yyyyMMdd_HHmm#.grib2", null, null, null, "file", null);
+  }
+
+  @After
+  public void teardown() {
+    GribCdmIndex.setAppendPartitions(false);
+  }
+
+  @Test
+  public void testNewPartition() throws IOException {
+    writePartition(0, new int[] {0, 3, 6, 9});
+    writePartition(6, new int[] {0, 3, 6, 9});
+    writePartition(12, new int[] {0, 3, 6, 9});
+    build();
+
+    File added = writePartition(18, new int[] {0, 3, 6, 9});
+    String errs = append(added);
+    Assert.assertTrue(errs, errs.contains(" INFO appended 1 of 4 partitions"));
+    checkSameAsRebuild();
+  }
+
+  @Test
+  public void testLastPartitionChanged() throws IOException {
+    writePartition(0, new int[] {0, 3, 6, 9});
+    writePartition(6, new int[] {0, 3, 6, 9});
+    writePartition(12, new int[] {0, 3});
+    build();
+
+    File changed = writePartition(12, new int[] {0, 3, 6, 9});  // the rest of its forecast times arrive
+    File added = writePartition(18, new int[] {0, 3, 6, 9});
+    String errs = append(changed, added);
+    Assert.assertTrue(errs, errs.contains(" INFO appended 2 of 4 partitions"));
+    checkSameAsRebuild();
+  }
+
+  @Test
+  public void testRuntimeRemoved() throws IOException {
+    writePartition(0, new int[] {0, 3, 6, 9});
+    writePartition(6, new int[] {0, 3, 6, 9}, new int[] {0, 3, 6, 9});  // runtimes 6 and 12
+    build();
+
+    File changed = writePartition(6, new int[] {0, 3, 6, 9});
+    String errs = append(changed);
+    Assert.assertTrue(errs, errs.contains(" INFO runtime 2014-10-24T12:00:00Z was removed"));
+    checkRebuilt(errs);
+  }
+
+  @Test
+  public void testRecordsLost() throws IOException {
+    writePartition(0, new int[] {0, 3, 6, 9});
+    writePartition(6, new int[] {0, 3, 6, 9});
+    build();
+
+    File changed = writePartition(6, new int[] {0, 3});
+    String errs = append(changed);
+    Assert.assertTrue(errs, errs.contains(" INFO variable") && errs.contains(" changed in partition"));
+    checkRebuilt(errs);
+  }
+
+  // the union was a regular time2D, with the missing records of the 12Z run; the next day's 0Z run makes it general
+  @Test
+  public void testTime2DNoLongerRegular() throws IOException {
+    writePartition(0, new int[] {0, 3, 6, 9});
+    writePartition(6, new int[] {0, 3, 6, 9});
+    writePartition(12, new int[] {0, 3});
+    writePartition(18, new int[] {0, 3, 6, 9});
+    build();
+
+    File added = writePartition(24, new int[] {0, 12});
+    String errs = append(added);
+    Assert.assertTrue(errs, errs.contains("time2D is no longer orthogonal or regular"));
+    checkRebuilt(errs);
+  }
+
+  /*
+   Write the partition for the run runHour hours after firstRuntime, with a record of each of two variables at each
+   of its forecast hours. Further runs, 6 hours apart, go into the same file. The records are copies of the one
+   GRIB2 message of the test file, changing the reference time, parameter number and forecast time.
+   */
+  private File writePartition(int runHour, int[]... forecastHours) throws IOException {
+    byte[] message = Files.readAllBytes(Paths.get("../grib/src/test/data/cosmo-eu.grib2"));
+    int nrecords = 0;
+    for (int[] hours : forecastHours)
+      nrecords += 2 * hours.length;
+
+    ByteBuffer out = ByteBuffer.allocate(nrecords * message.length);
+    for (int run = 0; run < forecastHours.length; run++) {
+      CalendarDate runtime = firstRuntime.add(CalendarPeriod.of(runHour + 6 * run, CalendarPeriod.Field.Hour));
+      for (int v = 0; v < 2; v++) {
+        for (int hour : forecastHours[run]) {
+          ByteBuffer copy = ByteBuffer.wrap(message.clone());
+          int pos = 16; // skip section 0
+          while (pos < message.length - 4) {
+            int length = copy.getInt(pos);
+            int section = copy.get(pos + 4);
+            if (section == 1) {
+              copy.putShort(pos + 12, (short) runtime.getFieldValue(CalendarPeriod.Field.Year));  // reference time
+              copy.put(pos + 14, (byte) runtime.getFieldValue(CalendarPeriod.Field.Month));
+              copy.put(pos + 15, (byte) runtime.getFieldValue(CalendarPeriod.Field.Day));
+              copy.put(pos + 16, (byte) runtime.getFieldValue(CalendarPeriod.Field.Hour));
+              copy.put(pos + 17, (byte) 0);
+              copy.put(pos + 18, (byte) 0);
+            } else if (section == 4) {
+              copy.put(pos + 10, (byte) (200 + v));  // parameter number, local use
+              copy.putInt(pos + 18, hour);           // forecast time, product template 4.0
+            } else if (section == 5) {
+              copy.putFloat(pos + 11, 100.0f * v + hour + runHour);  // reference value, data template 5.0
+            }
+            pos += length;
+          }
+          out.put(copy.array());
+        }
+      }
+    }
+
+    File file = new File(dir, "synth_" + fileDate.toString(firstRuntime.add(CalendarPeriod.of(runHour, CalendarPeriod.Field.Hour))) + ".grib2");
+    Files.write(file.toPath(), out.array());
+    return file;
+  }
+
+  private void build() throws IOException {
+    Assert.assertTrue(GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger));
+    ageIndex();
+  }
+
+  // so that indexes written within the same clock tick are seen as newer
+  private void ageIndex() {
+    File idxFile = new File(dir, name + GribCdmIndex.NCX_SUFFIX);
+    Assert.assertTrue(idxFile.setLastModified(idxFile.lastModified() - 10 * 1000));
+  }
+
+  // index the new or changed files, then update the partition index in append mode, returning the errlog
+  private String append(File... files) throws IOException {
+    Formatter errlog = new Formatter();
+    for (File file : files) {
+      MCollection part = new CollectionSingleFile(new MFileOS(file), logger);
+      part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+      Assert.assertTrue(GribCdmIndex.updateGribCollection(false, part, CollectionUpdateType.always,
+              FeatureCollectionConfig.PartitionType.file, logger, errlog));
+    }
+
+    CollectionSpecParser specp = config.getCollectionSpecParser(errlog);
+    try (FilePartition partition = new FilePartition(name, dir.toPath(), true, null, logger)) {
+      partition.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+      partition.setStreamFilter(new StreamFilter(specp.getFilter(), specp.getFilterOnName()));
+      GribCdmIndex.setAppendPartitions(true);
+      Assert.assertTrue(GribCdmIndex.updateGribCollectionFromPCollection(false, partition, CollectionUpdateType.test, errlog, logger));
+    } finally {
+      GribCdmIndex.setAppendPartitions(false);
+    }
+    return errlog.toString();
+  }
+
+  private void checkRebuilt(String errs) throws IOException {
+    Assert.assertFalse(errs, errs.contains(" INFO appended"));
+    checkSameAsRebuild();
+  }
+
+  private void checkSameAsRebuild() throws IOException {
+    String updated = showIndex();
+    build();
+    Assert.assertEquals(showIndex(), updated);
+  }
+
+  // the coordinates, records and run2part of the partition index
+  private String showIndex() throws IOException {
+    Formatter f = new Formatter();
+    try (GribCollectionImmutable gc = GribCdmIndex.openCdmIndex(new File(dir, name + GribCdmIndex.NCX_SUFFIX).getPath(), config, false, logger)) {
+      Assert.assertTrue(gc instanceof PartitionCollectionImmutable);
+      PartitionCollectionImmutable pc = (PartitionCollectionImmutable) gc;
+      pc.getMasterRuntime().showCoords(f);
+      f.format("run2part=%s%n", Arrays.toString(pc.getRun2part()));
+
+      for (GribCollectionImmutable.Dataset ds : pc.getDatasets()) {
+        f.format("Dataset %s%n", ds.getType());
+        for (GribCollectionImmutable.GroupGC g : ds.getGroups()) {
+          f.format(" Group %s%n", g.getId());
+          for (Coordinate coord : g.getCoordinates())
+            coord.showInfo(f, new Indent(2));
+          for (GribCollectionImmutable.VariableIndex vi : g.getVariables()) {
+            f.format("  %s coords=%s%n", vi.toStringFrom(), vi.getCoordinateIndex());
+            ((PartitionCollectionImmutable.VariableIndexPartitioned) vi).show(f);
+          }
+        }
+      }
+    }
+    return f.toString();
+  }
+}
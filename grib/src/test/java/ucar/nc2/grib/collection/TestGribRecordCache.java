@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Variables evicted from the GribRecordCache release their records, and read them again from the index. */
+public class TestGribRecordCache {
+  private static final int nvars = 4;
+  private static final int ntimes = 30; // more than guava's share of the maximum weight, if the cache had 4 segments
+  private static String filename;
+
+  @ClassRule
+  public static TemporaryFolder tempFolder = new TemporaryFolder();
+
+  /*
+   Copy the one GRIB2 message of the test file, changing the parameter number to get nvars variables,
+   and the forecast time to get ntimes records in each.
+   */
+  @BeforeClass
+  public static void setup() throws IOException {
+    byte[] message = Files.readAllBytes(Paths.get("../grib/src/test/data/cosmo-eu.grib2"));
+    ByteBuffer out = ByteBuffer.allocate(nvars * ntimes * message.length);
+    for (int v = 0; v < nvars; v++) {
+      for (int k = 0; k < ntimes; k++) {
+        ByteBuffer copy = ByteBuffer.wrap(message.clone());
+        int pos = 16; // skip section 0
+        while (pos < message.length - 4) {
+          int length = copy.getInt(pos);
+          int section = copy.get(pos + 4);
+          if (section == 4) {
+            copy.put(pos + 10, (byte) (200 + v));  // parameter number, local use
+            copy.putInt(pos + 18, k);              // forecast time, product template 4.0
+          } else if (section == 5) {
+            copy.putFloat(pos + 11, 100.0f * v + k);  // reference value, data template 5.0
+          }
+          pos += length;
+        }
+        out.put(copy.array());
+      }
+    }
+    File file = tempFolder.newFile("cached.grib2");
+    Files.write(file.toPath(), out.array());
+    filename = file.getPath();
+  }
+
+  @After
+  public void teardown() {
+    GribRecordCache.initDefaultCache(0);
+  }
+
+  @Test
+  public void testEvictAndReload() throws IOException {
+    GribRecordCache.initDefaultCache(3 * ntimes); // room for three variables
+    GribRecordCache cache = GribRecordCache.getDefaultCache();
+
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      List<Variable> vars = getDataVariables(nc);
+      Assert.assertEquals(nvars, vars.size());
+
+      List<float[]> first = new ArrayList<>();
+      for (Variable v : vars)
+        first.add(read(v));
+
+      // the least recently read variable was evicted
+      Assert.assertEquals(-1, getVindex(vars.get(0)).getNRecords());
+      for (int i = 1; i < nvars; i++)
+        Assert.assertEquals(ntimes, getVindex(vars.get(i)).getNRecords());
+      Assert.assertEquals(3 * ntimes, cache.getRecords());
+      Assert.assertEquals(1, cache.getStats().evictionCount());
+
+      // read again from the index, evicting the next one
+      Assert.assertArrayEquals(first.get(0), read(vars.get(0)), 0.0f);
+      Assert.assertEquals(ntimes, getVindex(vars.get(0)).getNRecords());
+      Assert.assertEquals(-1, getVindex(vars.get(1)).getNRecords());
+      Assert.assertEquals(3 * ntimes, cache.getRecords());
+      Assert.assertEquals(2, cache.getStats().evictionCount());
+
+      // a hit keeps a variable, so the next least recently used goes
+      Assert.assertArrayEquals(first.get(2), read(vars.get(2)), 0.0f);
+      Assert.assertArrayEquals(first.get(1), read(vars.get(1)), 0.0f);
+      Assert.assertEquals(ntimes, getVindex(vars.get(2)).getNRecords());
+      Assert.assertEquals(-1, getVindex(vars.get(3)).getNRecords());
+      Assert.assertEquals(3, cache.getStats().evictionCount());
+    }
+  }
+
+  @Test
+  public void testVariableLargerThanCache() throws IOException {
+    GribRecordCache.initDefaultCache(ntimes - 1);
+    GribRecordCache cache = GribRecordCache.getDefaultCache();
+
+    try (NetcdfFile nc = NetcdfFile.open(filename)) {
+      Variable v = getDataVariables(nc).get(0);
+      float[] first = read(v);
+
+      // not cached, so the records are kept rather than read again for each record
+      Assert.assertEquals(ntimes, getVindex(v).getNRecords());
+      Assert.assertEquals(0, cache.getRecords());
+      Assert.assertEquals(0, cache.getStats().evictionCount());
+      Assert.assertArrayEquals(first, read(v), 0.0f);
+    }
+  }
+
+  private List<Variable> getDataVariables(NetcdfFile nc) {
+    List<Variable> result = new ArrayList<>();
+    for (Variable v : nc.getVariables()) {
+      if (v.getSPobject() instanceof GribCollectionImmutable.VariableIndex)
+        result.add(v);
+    }
+    return result;
+  }
+
+  private GribCollectionImmutable.VariableIndex getVindex(Variable v) {
+    return (GribCollectionImmutable.VariableIndex) v.getSPobject();
+  }
+
+  // not cached by the Variable, so each read goes to the iosp
+  private float[] read(Variable v) throws IOException {
+    v.setCaching(false);
+    return (float[]) v.read().get1DJavaArray(float.class);
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.coord.SparseArray;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+
+/** Test the memory-mapped record index gives the same records as the ncx4 SparseArray message. */
+public class TestGribRecordIndex {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Before
+  public void enable() {
+    GribRecordIndex.setEnabled(true);
+  }
+
+  @After
+  public void disable() {
+    GribRecordIndex.setEnabled(false);
+  }
+
+  private GribCollectionProto.SparseArray makeProto(int nrecords, boolean grib2) {
+    GribCollectionProto.SparseArray.Builder b = GribCollectionProto.SparseArray.newBuilder();
+    b.addSize(2);
+    b.addSize(nrecords);
+    for (int i = 0; i < nrecords; i++)
+      b.addTrack(i + 1);
+    for (int i = 0; i < nrecords; i++)
+      b.addTrack(0);  // second row missing
+    for (int i = 0; i < nrecords; i++) {
+      GribCollectionProto.Record.Builder br = GribCollectionProto.Record.newBuilder();
+      br.setFileno(i % 3);
+      br.setStartPos(5000000000L + 1000 * i);
+      if (grib2) br.setDrsOffset(100 + i);
+      b.addRecords(br);
+    }
+    b.setNdups(1);
+    return b.build();
+  }
+
+  private File makeNcxFile() throws IOException {
+    File ncxFile = tempFolder.newFile("test" + GribCdmIndex.NCX_SUFFIX);
+    try (FileOutputStream out = new FileOutputStream(ncxFile)) {
+      out.write(new byte[1000]);
+    }
+    return ncxFile;
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File ncxFile = makeNcxFile();
+    GribCollectionProto.SparseArray proto1 = makeProto(10, false);
+    GribCollectionProto.SparseArray proto2 = makeProto(7, true);
+    try (GribRecordIndex.Writer writer = GribRecordIndex.Writer.create(ncxFile)) {
+      writer.add(20, proto1);
+      writer.add(500, proto2);
+      writer.finish();
+    }
+
+    GribRecordIndex index = GribRecordIndex.open(ncxFile.getPath());
+    Assert.assertNotNull(index);
+    Assert.assertNull(index.getSparseArray(21));
+    check(proto1, index.getSparseArray(20));
+    check(proto2, index.getSparseArray(500));
+  }
+
+  private void check(GribCollectionProto.SparseArray proto, SparseArray<GribCollectionImmutable.Record> sa) {
+    Assert.assertNotNull(sa);
+    Assert.assertEquals(proto.getNdups(), sa.getNdups());
+    Assert.assertEquals(proto.getSize(1), sa.getShape()[1]);
+    Assert.assertEquals(proto.getTrackCount(), sa.getTotalSize());
+    Assert.assertEquals(proto.getRecordsCount(), sa.getContent().size());
+    for (int i = 0; i < proto.getRecordsCount(); i++) {
+      GribCollectionProto.Record pr = proto.getRecords(i);
+      GribCollectionImmutable.Record record = sa.getContent(new int[] {0, i});
+      Assert.assertEquals(pr.getFileno(), record.fileno);
+      Assert.assertEquals(pr.getStartPos(), record.pos);
+      Assert.assertEquals(pr.getBmsOffset(), record.bmsOffset);
+      Assert.assertEquals(pr.getDrsOffset(), record.drsOffset);
+      Assert.assertNull(sa.getContent(new int[] {1, i}));
+    }
+  }
+
+  @Test
+  public void testOutOfDate() throws IOException {
+    File ncxFile = makeNcxFile();
+    try (GribRecordIndex.Writer writer = GribRecordIndex.Writer.create(ncxFile)) {
+      writer.add(20, makeProto(3, true));
+      writer.finish();
+    }
+    Assert.assertNotNull(GribRecordIndex.open(ncxFile.getPath()));
+
+    try (FileOutputStream out = new FileOutputStream(ncxFile, true)) {
+      out.write(new byte[10]);  // ncx4 rewritten without the record index
+    }
+    Assert.assertNull(GribRecordIndex.open(ncxFile.getPath()));
+  }
+
+  @Test
+  public void testNotFinished() throws IOException {
+    File ncxFile = makeNcxFile();
+    try (GribRecordIndex.Writer writer = GribRecordIndex.Writer.create(ncxFile)) {
+      writer.add(20, makeProto(3, true));
+    }
+    Assert.assertNull(GribRecordIndex.open(ncxFile.getPath()));
+    Assert.assertFalse(new File(ncxFile.getPath() + GribRecordIndex.SUFFIX + ".tmp").exists());
+  }
+}
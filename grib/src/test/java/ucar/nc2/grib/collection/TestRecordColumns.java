@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.coord.SparseArray;
+
+import java.lang.invoke.MethodHandles;
+
+public class TestRecordColumns {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Test
+  public void testColumns() {
+    int n = 100;
+    int[] fileno = new int[n];
+    long[] pos = new long[n];
+    int[] bmsOffset = new int[n];
+    int[] drsOffset = new int[n];
+    for (int i = 0; i < n; i++) {
+      fileno[i] = i % 7;
+      pos[i] = 10L * Integer.MAX_VALUE + i;
+      drsOffset[i] = 16 * i;
+    }
+    RecordColumns records = new RecordColumns(fileno, pos, bmsOffset, drsOffset);
+    Assert.assertEquals(n, records.size());
+    Assert.assertEquals(16 * n, records.getMemoryUsed()); // no bmsOffset column
+
+    for (int i = 0; i < n; i++) {
+      GribCollectionImmutable.Record record = records.get(i);
+      Assert.assertEquals(fileno[i], record.fileno);
+      Assert.assertEquals(pos[i], record.pos);
+      Assert.assertEquals(0, record.bmsOffset);
+      Assert.assertEquals(drsOffset[i], record.drsOffset);
+    }
+  }
+
+  @Test
+  public void testSparseArray() {
+    // 2 x 3, with the middle of each row missing
+    int[] track = new int[] {1, 0, 2, 3, 0, 4};
+    RecordColumns records = new RecordColumns(new int[4], new long[] {100, 200, 300, 400}, new int[4], new int[4]);
+    Assert.assertEquals(8 * 4, records.getMemoryUsed());
+
+    SparseArray<GribCollectionImmutable.Record> sa = new SparseArray<>(new int[] {2, 3}, track, records, 0);
+    Assert.assertEquals(4, sa.countNotMissing());
+    Assert.assertNull(sa.getContent(new int[] {1, 1}));
+    Assert.assertEquals(300, sa.getContent(new int[] {1, 0}).pos);
+    Assert.assertEquals(400, sa.getContent(5).pos);
+  }
+}
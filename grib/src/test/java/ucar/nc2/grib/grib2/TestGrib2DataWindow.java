@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.grib.grib2;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.SyntheticGrib2;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Unpacking a window of a GRIB2 field must give the same values as unpacking all of it, for each data template. */
+@RunWith(Parameterized.class)
+public class TestGrib2DataWindow {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int nx = 97, ny = 61; // not a multiple of the group length
+
+  @Parameterized.Parameters(name = "template {0} scanMode {1}")
+  public static List<Object[]> getTestParameters() {
+    List<Object[]> result = new ArrayList<>();
+    for (int template : new int[]{0, 2, 3}) {
+      result.add(new Object[]{template, 0});
+      result.add(new Object[]{template, 128}); // x scans negatively
+    }
+    return result;
+  }
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final int template, scanMode;
+
+  public TestGrib2DataWindow(int template, int scanMode) {
+    this.template = template;
+    this.scanMode = scanMode;
+  }
+
+  @Test
+  public void testWindow() throws IOException {
+    File file = tempFolder.newFile("template" + template + ".grib2");
+    SyntheticGrib2.write(file, template, SyntheticGrib2.makeField(nx, ny));
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      float[] full = Grib2Record.readData(raf, 0, 0, nx * ny, scanMode, nx, ny, null);
+
+      checkWindow(raf, full, range(ny / 2, 1, 1), range(nx / 3, 1, 1));   // a point
+      checkWindow(raf, full, range(0, 12, 1), range(nx - 20, 20, 1));      // a corner
+      checkWindow(raf, full, range(1, 9, 7), range(0, 9, 11));             // strided, across groups
+      checkWindow(raf, full, new int[]{40, 3, 17}, new int[]{90, 5, 33}); // out of order
+    }
+  }
+
+  private void checkWindow(RandomAccessFile raf, float[] full, int[] rows, int[] cols) throws IOException {
+    float[] window = new float[rows.length * cols.length + 3];
+    Assert.assertTrue("not read by window", Grib2Record.readDataWindow(raf, 0, 0, nx * ny, scanMode, nx, rows, cols, window, 3));
+
+    int count = 3;
+    for (int row : rows) {
+      for (int col : cols) {
+        Assert.assertEquals("row " + row + " col " + col, full[row * nx + col], window[count++], 0.0f);
+      }
+    }
+    logger.debug("template {} scanMode {} window {} x {} ok", template, scanMode, rows.length, cols.length);
+  }
+
+  private int[] range(int start, int n, int stride) {
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++)
+      result[i] = start + i * stride;
+    return result;
+  }
+}
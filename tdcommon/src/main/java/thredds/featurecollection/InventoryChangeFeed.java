@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package thredds.featurecollection;
+
+import com.google.common.eventbus.EventBus;
+import thredds.inventory.*;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Sends CollectionUpdateEvents when the files of a collection change, as seen by an InventoryChangeSource,
+ * instead of rescanning the collection's directories on a schedule.
+ * Each event has the directories that changed, so only those partitions are checked.
+ * An event is sent once a collection has had no changes for quietMsecs, so that files being written are finished,
+ * and a burst of new files causes one update.
+ * The FileInventory is saved to disk along with the position in the feed, so changes to a file that don't change its
+ * size or last modified time are ignored, also after a restart.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class InventoryChangeFeed implements Closeable {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(InventoryChangeFeed.class);
+  static public final String SOURCE = "inventory"; // CollectionUpdateEvent.getSource()
+  static private final long pollMsecs = 1000;
+  static private final long saveEveryMsecs = 60 * 1000;
+  static private final String[] indexSuffixes = {".gbx9", ".ncx4", ".ncx3", ".ncx2", ".ncx", ".ncr", ".tmp"}; // written by the TDM
+
+  private static class Watched {
+    final String collectionName;
+    final Path root;
+    final Pattern filter;                   // may be null
+    final CollectionUpdateType updateType;
+    final Set<Path> changedDirs = new HashSet<>();
+    boolean all;                            // changes were lost, check the whole collection
+    long lastChange;
+
+    Watched(String collectionName, Path root, Pattern filter, CollectionUpdateType updateType) {
+      this.collectionName = collectionName;
+      this.root = root;
+      this.filter = filter;
+      this.updateType = updateType;
+    }
+  }
+
+  private final InventoryChangeSource source;
+  private final FileInventory inventory;
+  private final Path inventoryFile;  // may be null
+  private final EventBus eventBus;
+  private final long quietMsecs;
+  private final List<Watched> collections = new CopyOnWriteArrayList<>();
+  private volatile boolean running;
+  private Thread thread;
+
+  /**
+   * @param source        the changes
+   * @param inventoryFile save the inventory here, may be null to not save it
+   * @param eventBus      send events here
+   * @param quietMsecs    send a collection's event when it has not changed for this long
+   */
+  public InventoryChangeFeed(InventoryChangeSource source, Path inventoryFile, EventBus eventBus, long quietMsecs) {
+    this.source = source;
+    this.inventoryFile = inventoryFile;
+    this.eventBus = eventBus;
+    this.quietMsecs = quietMsecs;
+    this.inventory = (inventoryFile == null) ? new FileInventory() : FileInventory.read(inventoryFile);
+    if (inventory.getPosition() >= 0)
+      source.setPosition(inventory.getPosition());
+  }
+
+  /**
+   * Send events for this collection.
+   *
+   * @param config     the collection
+   * @param updateType the type of the events
+   * @throws IOException if the source cant watch the collection's directories
+   */
+  public void addCollection(FeatureCollectionConfig config, CollectionUpdateType updateType) throws IOException {
+    CollectionSpecParser specp = config.getCollectionSpecParser(new Formatter());
+    Path root = Paths.get(specp.getRootDir()).toAbsolutePath().normalize();
+    source.watch(root);
+    collections.add(new Watched(config.getCollectionName(), root, specp.getFilter(), updateType));
+    logger.info("InventoryChangeFeed watching {} for {}", root, config.getCollectionName());
+  }
+
+  public synchronized void start() {
+    if (running) return;
+    running = true;
+    thread = new Thread(this::run, "InventoryChangeFeed");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void run() {
+    long lastSave = System.currentTimeMillis();
+    boolean dirty = false;
+    while (running) {
+      try {
+        List<InventoryChangeSource.Change> changes = source.poll(pollMsecs, TimeUnit.MILLISECONDS);
+        long now = System.currentTimeMillis();
+        for (InventoryChangeSource.Change change : changes)
+          dirty |= process(change, now);
+
+        boolean sent = sendEvents(now);
+        if (sent || (dirty && now - lastSave > saveEveryMsecs)) {
+          save();
+          lastSave = now;
+          dirty = false;
+        }
+
+      } catch (InterruptedException e) {
+        break;
+
+      } catch (Throwable t) {
+        logger.error("InventoryChangeFeed failed", t);
+        try {
+          Thread.sleep(pollMsecs);
+        } catch (InterruptedException e) {
+          break;
+        }
+      }
+    }
+  }
+
+  // return true if the inventory changed
+  private boolean process(InventoryChangeSource.Change change, long now) {
+    Path path = (change.getPath() == null) ? null : change.getPath().toAbsolutePath().normalize();
+    if (path == null) { // lost changes, dont know where
+      for (Watched w : collections) {
+        w.all = true;
+        w.lastChange = now;
+      }
+      return true;
+    }
+
+    Watched w = findCollection(path);
+    if (w == null || isIgnored(w, path, change.getKind())) return false;
+    if (!inventory.apply(change)) return false;
+
+    synchronized (w) {
+      w.lastChange = now;
+      if (change.getKind() == InventoryChangeSource.Kind.overflow || Files.isDirectory(path))
+        w.changedDirs.add(path);
+      if (!path.equals(w.root))
+        w.changedDirs.add(path.getParent());
+    }
+    return true;
+  }
+
+  private Watched findCollection(Path path) {
+    Watched result = null;
+    for (Watched w : collections) {
+      if (path.startsWith(w.root) && (result == null || w.root.getNameCount() > result.root.getNameCount()))
+        result = w;
+    }
+    return result;
+  }
+
+  private boolean isIgnored(Watched w, Path path, InventoryChangeSource.Kind kind) {
+    if (kind == InventoryChangeSource.Kind.overflow) return false;
+    String name = path.getFileName().toString();
+    for (String suffix : indexSuffixes)
+      if (name.endsWith(suffix)) return true;
+    if (w.filter == null || w.filter.matcher(name).matches()) return false;
+    return !Files.isDirectory(path) && kind != InventoryChangeSource.Kind.deleted; // deleted may be a directory
+  }
+
+  // return true if any events were sent
+  private boolean sendEvents(long now) {
+    boolean sent = false;
+    for (Watched w : collections) {
+      CollectionUpdateEvent event = null;
+      synchronized (w) {
+        if ((w.all || !w.changedDirs.isEmpty()) && now - w.lastChange >= quietMsecs) {
+          event = new CollectionUpdateEvent(w.updateType, w.collectionName, SOURCE, w.all ? null : w.changedDirs);
+          w.changedDirs.clear();
+          w.all = false;
+        }
+      }
+      if (event != null) {
+        logger.debug("InventoryChangeFeed post {}", event);
+        eventBus.post(event);
+        sent = true;
+      }
+    }
+    return sent;
+  }
+
+  private void save() {
+    if (inventoryFile == null) return;
+    inventory.setPosition(source.getPosition());
+    try {
+      inventory.save(inventoryFile);
+    } catch (IOException e) {
+      logger.error("InventoryChangeFeed failed to save " + inventoryFile, e);
+    }
+  }
+
+  public FileInventory getInventory() {
+    return inventory;
+  }
+
+  @Override
+  public void close() throws IOException {
+    Thread t;
+    synchronized (this) {
+      running = false;
+      t = thread;
+    }
+    if (t != null) {
+      t.interrupt();
+      try {
+        t.join(10 * pollMsecs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    save();
+    source.close();
+  }
+}
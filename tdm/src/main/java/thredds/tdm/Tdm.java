@@ -17,8 +17,12 @@ import org.springframework.core.io.Resource;
 import thredds.featurecollection.CollectionUpdater;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.featurecollection.FeatureCollectionType;
+import thredds.featurecollection.InventoryChangeFeed;
+import thredds.filesystem.WatchServiceChangeSource;
 import thredds.inventory.CollectionUpdateEvent;
 import thredds.inventory.CollectionUpdateType;
+import thredds.inventory.InventoryChangeSource;
+import thredds.inventory.JournalChangeSource;
 import thredds.util.ThreddsConfigReader;
 import ucar.httpservices.HTTPException;
 import ucar.httpservices.HTTPFactory;
@@ -26,7 +30,9 @@ import ucar.httpservices.HTTPMethod;
 import ucar.httpservices.HTTPSession;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.grib.GribIndexCache;
+import ucar.nc2.grib.collection.GbxIndexIterator;
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribRecordIndex;
 import ucar.nc2.time.CalendarDate;
 import ucar.nc2.util.AliasTranslator;
 import ucar.nc2.util.DiskCache2;
@@ -73,6 +79,10 @@ public class Tdm {
   private List<Server> servers;
 
   private java.util.concurrent.ExecutorService executor;
+  private java.util.concurrent.ExecutorService fileIndexExecutor; // may be null
+  private InventoryChangeSource changeSource; // may be null
+  private InventoryChangeFeed changeFeed;     // may be null
+  private long changeQuietMsecs = 10 * 1000;
   private Resource catalog;
   private boolean showOnly = false; // if true, just show dirs and exit
 
@@ -111,6 +121,24 @@ public class Tdm {
     tdmLogger.info(" TDM nthreads= {}", n);
   }
 
+  // gbx9 files of one collection are created on this pool
+  public void setNThreadsPerCollection(int n) {
+    if (n <= 1) return;
+    fileIndexExecutor = Executors.newFixedThreadPool(n);
+    GbxIndexIterator.setExecutor(fileIndexExecutor, n);
+    tdmLogger.info(" TDM nthreadsPerCollection= {}", n);
+  }
+
+  // update collections from the changes, instead of rescanning them
+  public void setChangeSource(InventoryChangeSource changeSource) {
+    this.changeSource = changeSource;
+    tdmLogger.info(" TDM changeSource= {}", changeSource.getClass().getName());
+  }
+
+  public void setChangeQuietMsecs(long changeQuietMsecs) {
+    this.changeQuietMsecs = changeQuietMsecs;
+  }
+
   public void setForceOnStartup(boolean forceOnStartup) {
     this.forceOnStartup = forceOnStartup;
   }
@@ -177,6 +205,8 @@ public class Tdm {
     gribCache.setAlwaysUseCache(gribIndexAlwaysUse);
     gribCache.setNeverUseCache(gribIndexNeverUse);
     GribIndexCache.setDiskCache2(gribCache);
+    GribRecordIndex.setEnabled(reader.getBoolean("GribIndex.recordIndex", false)); // the TDM writes the indexes the TDS reads
+    GribCdmIndex.setAppendPartitions(reader.getBoolean("GribIndex.appendPartitions", false));
     tdmLogger.info("TDM initialized {}", gribCache);
 
     return true;
@@ -213,10 +243,17 @@ public class Tdm {
         System.out.printf(" %s%n", makeTriggerUrl(name));
 
       executor.shutdown();
+      if (fileIndexExecutor != null) fileIndexExecutor.shutdown();
+      if (changeSource != null) changeSource.close();
       collectionUpdater.shutdown();
       return;
     }
 
+    if (changeSource != null) {
+      Files.createDirectories(contentTdmDir);
+      changeFeed = new InventoryChangeFeed(changeSource, contentTdmDir.resolve("fileInventory.txt"), eventBus, changeQuietMsecs);
+    }
+
     for (FeatureCollectionConfig config : fcList) {
       if (config.type != FeatureCollectionType.GRIB1 && config.type != FeatureCollectionType.GRIB2) continue;
       System.out.printf("FeatureCollection %s scheduled %n", config.collectionName);
@@ -226,11 +263,21 @@ public class Tdm {
 
       detailLogger.info("FeatureCollection config=" + config);
 
+      // the change feed replaces the rescan; the startup scan still catches changes made while the TDM was down
+      FeatureCollectionConfig.UpdateConfig tdmConfig = config.tdmConfig;
+      if (changeFeed != null && tdmConfig.rescan != null && tdmConfig.updateType != CollectionUpdateType.never) {
+        changeFeed.addCollection(config, tdmConfig.updateType);
+        tdmConfig.rescan = null;
+      }
+
       // now wire for events
       fcMap.put(config.getCollectionName(), new Listener(config));
       collectionUpdater.scheduleTasks(config, null);
     }
 
+    if (changeFeed != null)
+      changeFeed.start();
+
      /* show whats up
      Formatter f = new Formatter();
      f.format("Feature Collections found:%n");
@@ -249,7 +296,7 @@ public class Tdm {
       tdmLogger.error("Unknown collection name from event bus " + event);
       return;
     }
-    fc.processEvent(event.getType());
+    fc.processEvent(event);
   }
 
   Map<String, Listener> fcMap = new HashMap<>();
@@ -261,17 +308,49 @@ public class Tdm {
     AtomicBoolean inUse = new AtomicBoolean(false);
     // org.slf4j.Logger logger;
 
+    // changes from the InventoryChangeFeed that came while working, so run again when done
+    private CollectionUpdateType pendingType;
+    private Set<Path> pendingDirs; // null means the whole collection
+
     private Listener(FeatureCollectionConfig config) {
       this.config = config;
     }
 
-    public void processEvent(CollectionUpdateType event) {
+    public synchronized void processEvent(CollectionUpdateEvent event) {
+      CollectionUpdateType type = event.getType();
       if (!inUse.compareAndSet(false, true)) {
-        detailLogger.debug("Tdm event type '{}' already in use on {}", event, config.getCollectionName());
+        if (InventoryChangeFeed.SOURCE.equals(event.getSource())) { // these are not sent again, so dont skip
+          boolean wasPending = (pendingType != null);
+          if (!wasPending || pendingDirs != null) {
+            if (event.getChangedDirs() == null)
+              pendingDirs = null;
+            else if (wasPending)
+              pendingDirs.addAll(event.getChangedDirs());
+            else
+              pendingDirs = new HashSet<>(event.getChangedDirs());
+          }
+          pendingType = type;
+          detailLogger.debug("Tdm event type '{}' pending on {}", type, config.getCollectionName());
+          return;
+        }
+        detailLogger.debug("Tdm event type '{}' already in use on {}", type, config.getCollectionName());
         return; // if already working, skip another execution
       }
-      detailLogger.debug("Tdm event type '{}' scheduled for {}", event, config.getCollectionName());
-      executor.execute(new IndexTask(config, this, event));
+      detailLogger.debug("Tdm event type '{}' scheduled for {}", type, config.getCollectionName());
+      executor.execute(new IndexTask(config, this, type, event.getChangedDirs()));
+    }
+
+    // called when an IndexTask is done
+    private synchronized void done() {
+      if (pendingType != null) {
+        detailLogger.debug("Tdm pending event type '{}' scheduled for {}", pendingType, config.getCollectionName());
+        executor.execute(new IndexTask(config, this, pendingType, pendingDirs));
+        pendingType = null;
+        pendingDirs = null;
+        return;
+      }
+      if (!inUse.getAndSet(false))
+        tdmLogger.warn("Listener InUse should have been set");
     }
   }
 
@@ -285,13 +364,15 @@ public class Tdm {
     String name;
     FeatureCollectionConfig config;
     CollectionUpdateType updateType;
+    Set<Path> changedDirs; // may be null
     Listener liz;
 
-    private IndexTask(FeatureCollectionConfig config, Listener liz, CollectionUpdateType updateType) {
+    private IndexTask(FeatureCollectionConfig config, Listener liz, CollectionUpdateType updateType, Set<Path> changedDirs) {
       this.name = config.collectionName;
       this.config = config;
       this.liz = liz;
       this.updateType = updateType;
+      this.changedDirs = changedDirs;
     }
 
     @Override
@@ -303,7 +384,7 @@ public class Tdm {
         long start = System.currentTimeMillis();
         int taskNo = indexTaskCount.getAndIncrement();
         tdmLogger.debug("{} start {}", taskNo, config.collectionName);
-        boolean changed = GribCdmIndex.updateGribCollection(config, updateType, null);
+        boolean changed = GribCdmIndex.updateGribCollection(config, updateType, changedDirs, null);
 
         long took = System.currentTimeMillis() - start;
         tdmLogger.debug("{} done {}: changed {} took {} ms", taskNo, config.collectionName, changed, took);
@@ -323,8 +404,7 @@ public class Tdm {
 
       } finally {
         // tell liz that task is done
-        if (!liz.inUse.getAndSet(false))
-          tdmLogger.warn("Listener InUse should have been set");
+        liz.done();
       }
 
       if (debugOpenFiles) {
@@ -425,6 +505,18 @@ public class Tdm {
     @Parameter(names = {"-nthreads"}, description = "number of threads", required = false)
     public int nthreads = 1;
 
+    @Parameter(names = {"-nthreadsPerCollection"}, description = "number of threads creating the gbx9 files of one collection", required = false)
+    public int nthreadsPerCollection = 1;
+
+    @Parameter(names = {"-watch"}, description = "update collections when their files change, instead of rescanning (local file systems only)", required = false)
+    public boolean watch;
+
+    @Parameter(names = {"-journal"}, description = "update collections from this file change journal, instead of rescanning", required = false)
+    public String journal;
+
+    @Parameter(names = {"-changeQuietSecs"}, description = "update a collection when its files have not changed for this long", required = false)
+    public int changeQuietSecs = 10;
+
     @Parameter(names = {"-showOnly"}, description = "show collections and exit", required = false)
     public boolean showOnly;
 
@@ -495,6 +587,15 @@ public class Tdm {
         if (cmdLine.nthreads != 0)
           app.setNThreads(cmdLine.nthreads);
 
+        if (cmdLine.nthreadsPerCollection > 1)
+          app.setNThreadsPerCollection(cmdLine.nthreadsPerCollection);
+
+        if (cmdLine.journal != null)
+          app.setChangeSource(new JournalChangeSource(Paths.get(cmdLine.journal), true));
+        else if (cmdLine.watch)
+          app.setChangeSource(new WatchServiceChangeSource());
+        app.setChangeQuietMsecs(1000L * cmdLine.changeQuietSecs);
+
         if (cmdLine.showOnly)
           app.setShowOnly(true);
 
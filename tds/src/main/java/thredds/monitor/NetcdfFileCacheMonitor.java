@@ -15,4 +15,13 @@ import java.util.List;
  */
 public interface NetcdfFileCacheMonitor {
   List<String> getCachedFiles();
+
+  // these are only kept by a FileCacheWeighted, otherwise 0
+  int getOpenFiles();
+  long getEstimatedBytes();
+  long getHits();
+  long getMisses();
+  double getHitRate();
+  double getAverageAcquireMillis();
+  long getEvictions();
 }
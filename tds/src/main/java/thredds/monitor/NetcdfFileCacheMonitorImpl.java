@@ -6,6 +6,8 @@
 package thredds.monitor;
 
 import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.util.cache.FileCacheIF;
+import ucar.nc2.util.cache.FileCacheWeighted;
 
 import java.util.List;
 import java.util.ArrayList;
@@ -24,4 +26,44 @@ public class NetcdfFileCacheMonitorImpl implements NetcdfFileCacheMonitor {
 
     return fc.showCache();
   }
+
+  private FileCacheWeighted getWeightedCache() {
+    FileCacheIF fc = NetcdfDataset.getNetcdfFileCache();
+    return (fc instanceof FileCacheWeighted) ? (FileCacheWeighted) fc : null;
+  }
+
+  public int getOpenFiles() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getOpenFiles();
+  }
+
+  public long getEstimatedBytes() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getEstimatedBytes();
+  }
+
+  public long getHits() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getHits();
+  }
+
+  public long getMisses() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getMisses();
+  }
+
+  public double getHitRate() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getHitRate();
+  }
+
+  public double getAverageAcquireMillis() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getAverageAcquireMillis();
+  }
+
+  public long getEvictions() {
+    FileCacheWeighted fc = getWeightedCache();
+    return (fc == null) ? 0 : fc.getEvictions();
+  }
 }
@@ -17,6 +17,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.ModelAndView;
 import thredds.server.exception.RequestTooLargeException;
+import thredds.server.exception.ServerBusyException;
 import thredds.server.exception.ServiceNotAllowed;
 import thredds.server.ncss.exception.NcssException;
 
@@ -34,6 +35,7 @@ import static org.springframework.web.util.HtmlUtils.htmlEscape;
 /**
  * Global Exception handling
  *   ServiceNotAllowed                      FORBIDDEN
+ *   ServerBusyException                    SERVICE_UNAVAILABLE
  *   FileNotFoundException                  NOT_FOUND
  *   IOException                            INTERNAL_SERVER_ERROR
  *   UnsupportedOperationException          BAD_REQUEST
@@ -68,6 +70,16 @@ public class TdsErrorHandling implements HandlerExceptionResolver {
     return new ResponseEntity<>("Request Too Large: " + htmlEscape(ex.getMessage()), responseHeaders, HttpStatus.FORBIDDEN);
   }
 
+  @ExceptionHandler(ServerBusyException.class)
+  public ResponseEntity<String> handle(ServerBusyException ex) {
+    logger.info("TDS Busy: {}", ex.getMessage());
+
+    HttpHeaders responseHeaders = new HttpHeaders();
+    responseHeaders.setContentType(MediaType.TEXT_PLAIN);
+    responseHeaders.set(HttpHeaders.RETRY_AFTER, "10");
+    return new ResponseEntity<>("Server Busy: " + htmlEscape(ex.getMessage()), responseHeaders, HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
   @ExceptionHandler(FileNotFoundException.class)
   public ResponseEntity<String> handle(FileNotFoundException ex) {
     logger.warn("TDS Error", ex);
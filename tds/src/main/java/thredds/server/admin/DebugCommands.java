@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import thredds.server.config.TdsContext;
+import thredds.server.ncss.controller.NcssResponseCache;
 import thredds.servlet.ServletUtil;
 import ucar.nc2.dataset.NetcdfDataset;
 
@@ -20,8 +21,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataCache;
+import ucar.nc2.grib.collection.GribRecordCache;
+import ucar.nc2.iosp.hdf5.H5ChunkCache;
+import ucar.nc2.iosp.hdf5.H5iosp;
 import ucar.nc2.util.cache.FileCacheIF;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.http.HTTPBlockCache;
 
 /**
  * A Singleton class instantiated by Spring, to populate the Debug methods in the
@@ -36,6 +42,9 @@ public class DebugCommands {
   @Autowired
   TdsContext tdsContext;
 
+  @Autowired
+  NcssResponseCache ncssResponseCache;
+
   private List<Category> dhList = new ArrayList<>();
 
   public List<Category> getCategories() {
@@ -135,6 +144,37 @@ public class DebugCommands {
           fc.showCache(f);
         }
 
+        GribDataCache dataCache = GribDataCache.getDefaultCache();
+        if (dataCache == null) f.format("%nGribDataCache : turned off%n");
+        else {
+          f.format("%n%n");
+          dataCache.showCache(f);
+        }
+
+        GribRecordCache recordCache = GribRecordCache.getDefaultCache();
+        if (recordCache == null) f.format("%nGribRecordCache : turned off%n");
+        else {
+          f.format("%n%n");
+          recordCache.showCache(f);
+        }
+
+        H5ChunkCache chunkCache = H5ChunkCache.getDefaultCache();
+        if (chunkCache == null) f.format("%nH5ChunkCache : turned off%n");
+        else {
+          f.format("%n%n");
+          chunkCache.showCache(f);
+        }
+
+        HTTPBlockCache httpCache = HTTPBlockCache.getDefaultCache();
+        if (httpCache == null) f.format("%nHTTPBlockCache : turned off%n");
+        else {
+          f.format("%n%n");
+          httpCache.showCache(f);
+        }
+
+        f.format("%n%n");
+        ncssResponseCache.showCache(f);
+
         e.pw.flush();
       }
     };
@@ -146,6 +186,15 @@ public class DebugCommands {
          RandomAccessFile.getGlobalFileCache().clearCache(false);
          FileCacheIF fc = GribCdmIndex.gribCollectionCache;
          if (fc != null) fc.clearCache(false);
+         GribDataCache dataCache = GribDataCache.getDefaultCache();
+         if (dataCache != null) dataCache.clearCache();
+         GribRecordCache recordCache = GribRecordCache.getDefaultCache();
+         if (recordCache != null) recordCache.clearCache();
+         H5ChunkCache chunkCache = H5ChunkCache.getDefaultCache();
+         if (chunkCache != null) chunkCache.clearCache();
+         HTTPBlockCache httpCache = HTTPBlockCache.getDefaultCache();
+         if (httpCache != null) httpCache.clearCache();
+         ncssResponseCache.clearCache();
          e.pw.println("  ClearCache ok");
        }
      };
@@ -233,6 +282,15 @@ public class DebugCommands {
       }
     };
     debugHandler.addAction(act);
+
+    act = new Action("showH5ChunkStats", "Show HDF5 chunk decompression stats") {
+      public void doAction(Event e) {
+        Formatter f = new Formatter(e.pw);
+        H5iosp.showChunkStats(f);
+        e.pw.flush();
+      }
+    };
+    debugHandler.addAction(act);
   }
 
 
@@ -19,12 +19,15 @@ import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.ModelAndView;
 import thredds.core.AllowedServices;
 import thredds.core.StandardService;
 import thredds.core.TdsRequestedDataset;
 import thredds.server.config.TdsContext;
 import thredds.server.exception.ServiceNotAllowed;
+import thredds.servlet.DataRequestExecutor;
 import thredds.servlet.ServletUtil;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
@@ -33,6 +36,8 @@ import ucar.nc2.NetcdfFile;
 import ucar.nc2.ParsedSectionSpec;
 import ucar.nc2.constants.FeatureType;
 import ucar.nc2.ft.FeatureDatasetFactoryManager;
+import ucar.nc2.stream.NcStreamCompression;
+import ucar.nc2.stream.NcStreamProto;
 import ucar.nc2.stream.NcStreamWriter;
 
 import javax.servlet.http.HttpServletRequest;
@@ -166,6 +171,7 @@ public class CdmRemoteController {
       response.addDateHeader("Last-Modified", TdsRequestedDataset.getLastModified(datasetPath));
 
       NcStreamWriter ncWriter = new NcStreamWriter(ncfile, ServletUtil.getRequestBase(request));
+      ncWriter.setChunkStructures(qb.isChunk());
       long size = ncWriter.sendHeader(out);
       out.flush();
 
@@ -175,9 +181,10 @@ public class CdmRemoteController {
   }
 
   @RequestMapping(value = "/**", method = RequestMethod.GET, params = "req=data")
-  public void handleDataRequest(HttpServletRequest request, HttpServletResponse response,
-                            @Valid CdmRemoteQueryBean qb, BindingResult validationResult, OutputStream out)
-          throws IOException, BindException, InvalidRangeException {
+  @ResponseBody
+  public WebAsyncTask<Void> handleDataRequest(HttpServletRequest request, HttpServletResponse response,
+                            @Valid CdmRemoteQueryBean qb, BindingResult validationResult)
+          throws Exception {
 
     if (!allowedServices.isAllowed(StandardService.cdmRemote))
       throw new ServiceNotAllowed(StandardService.cdmRemote.toString());
@@ -192,11 +199,20 @@ public class CdmRemoteController {
       System.out.printf("CdmRemoteController req=%s%n", absPath + "?" + request.getQueryString());
     if (debug)
       System.out.printf(" path=%s%n query=%s%n", datasetPath, request.getQueryString());
+
+    return DataRequestExecutor.submit(request, response, datasetPath,
+            dataResponse -> handleDataRequest(request, dataResponse, qb, datasetPath));
+  }
+
+  // may run on a data request worker thread
+  private void handleDataRequest(HttpServletRequest request, HttpServletResponse response, CdmRemoteQueryBean qb,
+                                 String datasetPath) throws IOException, InvalidRangeException {
     long start = System.currentTimeMillis();
 
     try (NetcdfFile ncfile = TdsRequestedDataset.getNetcdfFile(request, response, datasetPath)) {
       if (ncfile == null) return;
 
+      OutputStream out = response.getOutputStream();
       response.setContentType(ContentType.binary.getContentHeader());
       response.setHeader("Content-Description", "ncstream");
 
@@ -218,8 +234,12 @@ public class CdmRemoteController {
       StringTokenizer stoke = new StringTokenizer(query, ";"); // need UTF/%decode
       while (stoke.hasMoreTokens()) {
         ParsedSectionSpec cer = ParsedSectionSpec.parseVariableSection(ncfile, stoke.nextToken());
-        // size += ncWriter.sendData(cer.v, cer.section, out, qb.getCompression());
-        size += ncWriter.sendData2(cer.v, cer.section, out, qb.getCompression());
+        // sendData2 does not compress, so use the older data message when compression is wanted
+        NcStreamCompression compress = qb.getCompression();
+        if (compress.getType() != NcStreamProto.Compress.NONE && NcStreamWriter.canCompress(cer.v))
+          size += ncWriter.sendData(cer.v, cer.section, out, compress);
+        else
+          size += ncWriter.sendData2(cer.v, cer.section, out, compress);
         // size += ncWriter.sendData3(cer.v, cer.section, out, qb.getCompression());
       }
       out.flush();
@@ -27,6 +27,8 @@ public class CdmRemoteQueryBean {
   private String req;
   private String var;
   private int deflate = -1;
+  private String compress;  // none, deflate, lz4, shuffle
+  private boolean chunk;    // client can read structure data sent in several messages
 
   // type of compression
   private NcStreamCompression compressType = NcStreamCompression.none(); // default
@@ -59,17 +61,38 @@ public class CdmRemoteQueryBean {
   }
 
   NcStreamCompression getCompression() {
+    if (compress != null) {
+      NcStreamCompression result = NcStreamCompression.fromName(compress, deflate);
+      if (result != null) return result;
+    }
     return compressType;
   }
 
+  public String getCompress() {
+    return compress;
+  }
+
+  public void setCompress(String compress) {
+    this.compress = compress;
+  }
+
   public int getDeflate() {
     return deflate;
   }
 
   public void setDeflate(int level) {
+    this.deflate = level;
     compressType = NcStreamCompression.deflate(level);
   }
 
+  public boolean isChunk() {
+    return chunk;
+  }
+
+  public void setChunk(boolean chunk) {
+    this.chunk = chunk;
+  }
+
   private List<String> errs;
   public void addError(String mess) {
     if (errs == null) errs = new ArrayList<>();
@@ -7,6 +7,7 @@ package thredds.server.cdmremote;
 import org.springframework.validation.Errors;
 import org.springframework.validation.ValidationUtils;
 import org.springframework.validation.Validator;
+import ucar.nc2.stream.NcStreamCompression;
 
 /**
  * CdmRemoteQueryBean Validator
@@ -43,6 +44,9 @@ public class CdmRemoteQueryBeanValidator implements Validator {
     int deflateLevel = bean.getDeflate();
     if (deflateLevel >= 0)
       bean.setDeflate(deflateLevel);
+
+    if (bean.getCompress() != null && NcStreamCompression.fromName(bean.getCompress(), deflateLevel) == null)
+      errors.rejectValue("compress", "compress.unknown", "compress must be one of none, deflate, lz4, shuffle");
   }
 
 }
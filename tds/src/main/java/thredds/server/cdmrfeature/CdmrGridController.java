@@ -33,6 +33,7 @@ import ucar.nc2.ft2.coverage.remote.CdmrFeatureProto;
 import ucar.nc2.ft2.coverage.remote.CdmrfWriter;
 import ucar.nc2.iosp.IospHelper;
 import ucar.nc2.stream.NcStream;
+import ucar.nc2.stream.NcStreamCompression;
 import ucar.nc2.stream.NcStreamDataCol;
 import ucar.nc2.stream.NcStreamProto;
 
@@ -219,7 +220,9 @@ public class CdmrGridController {
         GeoReferencedArray array = grid.readData(params);
         arrays.add(array);
       }
-      sendDataResponse(arrays, out, false); // LOOK deflate ??
+      NcStreamCompression compress = NcStreamCompression.fromName(request.getParameter("compress"), -1);
+      if (compress == null) compress = NcStreamCompression.none();
+      sendDataResponse(arrays, out, compress);
       out.flush();
 
     } catch (Throwable t) {
@@ -230,7 +233,7 @@ public class CdmrGridController {
        System.out.printf(" that took %d msecs%n", System.currentTimeMillis() - start);
   }
 
-  private long sendDataResponse(List<GeoReferencedArray> arrays, OutputStream out, boolean deflate) throws IOException, InvalidRangeException {
+  private long sendDataResponse(List<GeoReferencedArray> arrays, OutputStream out, NcStreamCompression compress) throws IOException, InvalidRangeException {
 
     // turns List into a Set
     Set<CoverageCoordSys> sysSet = arrays.stream().map(GeoReferencedArray::getCoordSysForData).collect(Collectors.toSet());
@@ -245,7 +248,7 @@ public class CdmrGridController {
     CdmrfWriter cdmrfWriter = new CdmrfWriter();
     long size = 0;
     size += writeBytes(out, NcStream.MAGIC_DATACOV);
-    CdmrFeatureProto.CoverageDataResponse dataProto = cdmrfWriter.encodeDataResponse(axisSet, sysSet, transformSet, arrays, deflate);
+    CdmrFeatureProto.CoverageDataResponse dataProto = cdmrfWriter.encodeDataResponse(axisSet, sysSet, transformSet, arrays, compress);
     byte[] datab = dataProto.toByteArray();
     size += NcStream.writeVInt(out, datab.length); // dataProto len
     size += writeBytes(out, datab); // dataProto
@@ -24,13 +24,21 @@ import thredds.featurecollection.InvDatasetFeatureCollection;
 import thredds.server.catalog.ConfigCatalogCache;
 import thredds.server.catalog.DatasetScan;
 import thredds.server.ncss.controller.NcssDiskCache;
+import thredds.server.ncss.controller.NcssResponseCache;
 import thredds.server.ncss.format.FormatsAvailabilityService;
 import thredds.server.ncss.format.SupportedFormat;
 import thredds.server.notebook.JupyterNotebookServiceCache;
+import thredds.servlet.DataRequestExecutor;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataCache;
+import ucar.nc2.grib.collection.GribDataReader;
+import ucar.nc2.grib.collection.GribRecordCache;
+import ucar.nc2.grib.collection.GribRecordIndex;
+import ucar.nc2.iosp.hdf5.H5ChunkCache;
+import ucar.nc2.iosp.hdf5.H5iosp;
 import ucar.nc2.jni.netcdf.Nc4Iosp;
 import ucar.nc2.ncml.Aggregation;
 import ucar.nc2.stream.CdmRemote;
@@ -40,6 +48,8 @@ import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.DiskCache2;
 import ucar.nc2.util.cache.FileCache;
 import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.http.HTTPBlockCache;
+import ucar.unidata.io.http.HTTPRandomAccessFile;
 import ucar.util.prefs.PreferencesExt;
 import ucar.util.prefs.XMLStore;
 
@@ -50,6 +60,7 @@ import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * A Singleton class to initialize and shutdown the CDM/TDS
@@ -89,6 +100,12 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
   @Qualifier("fcTriggerExecutor")
   private ExecutorService executor;  // need this so we can shut it down
 
+  private ExecutorService gribReadExecutor;  // parallel grib record reading, may be null
+  private ExecutorService h5ChunkExecutor;   // parallel hdf5 chunk decompression, may be null
+  private ExecutorService httpReadExecutor;  // concurrent http range requests, may be null
+  private ExecutorService aggReadExecutor;   // parallel reads of aggregation nested datasets, may be null
+  private ExecutorService dataRequestExecutor; // async NCSS and cdmremote data requests, may be null
+
   @Autowired
   private AllowedServices allowedServices;
 
@@ -98,6 +115,9 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
   @Autowired
   private NcssDiskCache ncssDiskCache;
 
+  @Autowired
+  private NcssResponseCache ncssResponseCache;
+
   private Timer cdmDiskCacheTimer;
   private boolean wasInitialized;
 
@@ -283,6 +303,15 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     Aggregation.setTypicalDatasetMode(typicalDataset);
     startupLog.info("TdsInit: Aggregation.setTypicalDatasetMode= " + typicalDataset);
 
+    // read the nested datasets of joinExisting / joinNew aggregations in parallel. default is off
+    int aggPoolSize = ThreddsConfig.getInt("Aggregation.poolSize", 0);
+    int aggMaxThreads = ThreddsConfig.getInt("Aggregation.maxThreadsPerAggregation", 4);
+    if (aggPoolSize > 0 && aggMaxThreads > 1) {
+      aggReadExecutor = Executors.newFixedThreadPool(aggPoolSize);
+      Aggregation.setExecutor(aggReadExecutor, aggMaxThreads);
+      startupLog.info("TdsInit: Aggregation.setExecutor poolSize= " + aggPoolSize + " maxThreadsPerAggregation = " + aggMaxThreads);
+    }
+
     ////////////////////////////////////////////////////////////////
     // Disk Caching
     String dir;
@@ -295,6 +324,7 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     long maxSize = ThreddsConfig.getBytes("DiskCache.maxSize", (long) 1000 * 1000 * 1000);  // default 1 Gbyte
     DiskCache.setRootDirectory(dir);
     DiskCache.setCachePolicy(alwaysUse);
+    NetcdfFile.setCompressedRandomAccess(ThreddsConfig.getBoolean("DiskCache.compressedRandomAccess", false));
     startupLog.info("TdsInit: CdmCache= " + dir + " scour = " + scourSecs + " maxSize = " + maxSize);
     if (scourSecs > 0) {
       Calendar c = Calendar.getInstance(); // contains current startup time
@@ -326,9 +356,18 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     gribCache.setNeverUseCache(gribIndexNeverUse);
     GribIndexCache.setDiskCache2(gribCache);
     startupLog.info("TdsInit: GribIndex=" + gribCache);
+    boolean gribRecordIndex = ThreddsConfig.getBoolean("GribIndex.recordIndex", false);
+    GribRecordIndex.setEnabled(gribRecordIndex);
+    if (gribRecordIndex)
+      startupLog.info("TdsInit: GribRecordIndex enabled");
+    boolean gribAppendPartitions = ThreddsConfig.getBoolean("GribIndex.appendPartitions", false);
+    GribCdmIndex.setAppendPartitions(gribAppendPartitions);
+    if (gribAppendPartitions)
+      startupLog.info("TdsInit: GRIB partition indexes are updated in append mode");
 
     // LOOK just create the diskCache here and send it in
     ncssDiskCache.init();
+    ncssResponseCache.init();
 
     // LOOK is this used ??
     // 4.3.16
@@ -382,7 +421,11 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     min = ThreddsConfig.getInt("NetcdfFileCache.minFiles", 100);
     max = ThreddsConfig.getInt("NetcdfFileCache.maxFiles", 150);
     secs = ThreddsConfig.getSeconds("NetcdfFileCache.scour", 12 * 60);
-    if (max > 0) {
+    long maxBytes = ThreddsConfig.getBytes("NetcdfFileCache.maxSize", 0);  // if set, use FileCacheWeighted
+    if (maxBytes > 0) {
+      NetcdfDataset.initWeightedNetcdfFileCache(max, maxBytes, secs);
+      startupLog.info("TdsInit: NetcdfDataset.initWeightedNetcdfFileCache maxFiles= " + max + " maxSize= " + maxBytes + " scour = " + secs);
+    } else if (max > 0) {
       NetcdfDataset.initNetcdfFileCache(min, max, secs);
       startupLog.info("TdsInit: NetcdfDataset.initNetcdfFileCache= [" + min + "," + max + "] scour = " + secs);
     }
@@ -396,6 +439,80 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
       startupLog.info("TdsInit: GribCdmIndex.initDefaultCollectionCache= [" + min + "," + max + "] scour = " + secs);
     }
 
+    // GRIB data reading: records from different files are read in parallel. default is off
+    int gribReadPoolSize = ThreddsConfig.getInt("GribDataReader.poolSize", 0);
+    int gribReadMaxThreads = ThreddsConfig.getInt("GribDataReader.maxThreadsPerRequest", 4);
+    if (gribReadPoolSize > 0 && gribReadMaxThreads > 1) {
+      gribReadExecutor = Executors.newFixedThreadPool(gribReadPoolSize);
+      GribDataReader.setExecutor(gribReadExecutor, gribReadMaxThreads);
+      startupLog.info("TdsInit: GribDataReader.setExecutor poolSize= " + gribReadPoolSize + " maxThreadsPerRequest = " + gribReadMaxThreads);
+    }
+
+    // HDF5 / netCDF-4 chunk decompression in parallel. default is off
+    int h5PoolSize = ThreddsConfig.getInt("H5iosp.poolSize", 0);
+    int h5MaxThreads = ThreddsConfig.getInt("H5iosp.maxThreadsPerRequest", 4);
+    if (h5PoolSize > 0 && h5MaxThreads > 1) {
+      h5ChunkExecutor = Executors.newFixedThreadPool(h5PoolSize);
+      H5iosp.setChunkExecutor(h5ChunkExecutor, h5MaxThreads);
+      startupLog.info("TdsInit: H5iosp.setChunkExecutor poolSize= " + h5PoolSize + " maxThreadsPerRequest = " + h5MaxThreads);
+    }
+
+    // H5ChunkCache: decompressed hdf5 / netcdf4 chunks, per file or shared. default is off
+    long h5CacheBytes = ThreddsConfig.getBytes("H5ChunkCache.maxSize", 0);
+    long h5CachePerFileBytes = ThreddsConfig.getBytes("H5ChunkCache.perFileMaxSize", 0);
+    if (h5CachePerFileBytes > 0) { // then maxSize bounds all of the per-file caches together
+      long h5CacheAllFilesBytes = (h5CacheBytes > 0) ? h5CacheBytes : 10 * h5CachePerFileBytes;
+      H5ChunkCache.setPerFileMaxBytes(h5CachePerFileBytes, h5CacheAllFilesBytes);
+      startupLog.info("TdsInit: H5ChunkCache.setPerFileMaxBytes perFileMaxSize= " + h5CachePerFileBytes + " maxSize= " + h5CacheAllFilesBytes);
+    } else if (h5CacheBytes > 0) {
+      H5ChunkCache.initDefaultCache(h5CacheBytes);
+      startupLog.info("TdsInit: H5ChunkCache.initDefaultCache maxSize= " + h5CacheBytes);
+    }
+
+    // GribDataCache: decoded grib records, default is off
+    long gribDataCacheBytes = ThreddsConfig.getBytes("GribDataCache.maxSize", 0);
+    boolean gribDataCacheOffHeap = ThreddsConfig.getBoolean("GribDataCache.offHeap", false);
+    if (gribDataCacheBytes > 0) {
+      GribDataCache.initDefaultCache(gribDataCacheBytes, gribDataCacheOffHeap);
+      startupLog.info("TdsInit: GribDataCache.initDefaultCache maxSize= " + gribDataCacheBytes + " offHeap = " + gribDataCacheOffHeap);
+    }
+
+    // GribRecordCache: limit on collection records held in memory, default is no limit
+    long gribMaxRecords = ThreddsConfig.getLong("GribRecordCache.maxRecords", 0);
+    if (gribMaxRecords > 0) {
+      GribRecordCache.initDefaultCache(gribMaxRecords);
+      startupLog.info("TdsInit: GribRecordCache.initDefaultCache maxRecords= " + gribMaxRecords);
+    }
+
+    // HTTPBlockCache: blocks of remote files opened with HTTPRandomAccessFile, default is off
+    long httpCacheBytes = ThreddsConfig.getBytes("HTTPBlockCache.maxSize", 0);
+    int httpBlockSize = (int) ThreddsConfig.getBytes("HTTPBlockCache.blockSize", HTTPBlockCache.defaultBlockSize);
+    int httpPoolSize = ThreddsConfig.getInt("HTTPBlockCache.poolSize", 0);
+    int httpMaxRequests = ThreddsConfig.getInt("HTTPBlockCache.maxRequestsPerRead", 4);
+    if (httpCacheBytes > 0) {
+      HTTPBlockCache.initDefaultCache(httpCacheBytes, httpBlockSize);
+      startupLog.info("TdsInit: HTTPBlockCache.initDefaultCache maxSize= " + httpCacheBytes + " blockSize = " + httpBlockSize);
+      if (httpPoolSize > 0 && httpMaxRequests > 1) {
+        httpReadExecutor = Executors.newFixedThreadPool(httpPoolSize);
+        HTTPRandomAccessFile.setExecutor(httpReadExecutor, httpMaxRequests);
+        startupLog.info("TdsInit: HTTPRandomAccessFile.setExecutor poolSize= " + httpPoolSize + " maxRequestsPerRead = " + httpMaxRequests);
+      }
+    }
+
+    // DataRequests: run NCSS and cdmremote data requests on a pool of worker threads, default is off
+    int dataPoolSize = ThreddsConfig.getInt("DataRequests.poolSize", 0);
+    int dataQueueSize = ThreddsConfig.getInt("DataRequests.queueSize", 2 * dataPoolSize);
+    int dataMaxPerDataset = ThreddsConfig.getInt("DataRequests.maxPerDataset", 0);
+    if (dataPoolSize > 0) {
+      dataRequestExecutor = Executors.newFixedThreadPool(dataPoolSize);
+      DataRequestExecutor.setExecutor(dataRequestExecutor, dataPoolSize + dataQueueSize, dataMaxPerDataset);
+      int maxPendingBytes = (int) ThreddsConfig.getBytes("DataRequests.maxPendingBytes", 1000 * 1000);
+      int stallTimeoutSecs = ThreddsConfig.getSeconds("DataRequests.writeTimeout", 300);
+      DataRequestExecutor.setWriteLimits(maxPendingBytes, stallTimeoutSecs);
+      startupLog.info("TdsInit: DataRequestExecutor.setExecutor poolSize= " + dataPoolSize + " queueSize = " + dataQueueSize +
+              " maxPerDataset = " + dataMaxPerDataset);
+    }
+
     //RandomAccessFile.enableDefaultGlobalFileCache();
     //RandomAccessFile.setDebugLeaks(true);
 
@@ -461,6 +578,26 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     DiskCache2.exit();                // this handles background threads for all instances of DiskCache2
     thredds.inventory.bdb.MetadataManager.closeAll();
     executor.shutdownNow();
+    if (gribReadExecutor != null) {
+      GribDataReader.setExecutor(null, 1);
+      gribReadExecutor.shutdownNow();
+    }
+    if (h5ChunkExecutor != null) {
+      H5iosp.setChunkExecutor(null, 1);
+      h5ChunkExecutor.shutdownNow();
+    }
+    if (httpReadExecutor != null) {
+      HTTPRandomAccessFile.setExecutor(null, 1);
+      httpReadExecutor.shutdownNow();
+    }
+    if (aggReadExecutor != null) {
+      Aggregation.setExecutor(null, 1);
+      aggReadExecutor.shutdownNow();
+    }
+    if (dataRequestExecutor != null) {
+      DataRequestExecutor.setExecutor(null, 0, 0);
+      dataRequestExecutor.shutdownNow();
+    }
 
     /* try {
       catalogWatcher.close();
@@ -475,6 +612,10 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
 
     // memory caches
     GribCdmIndex.shutdown();
+    GribDataCache.shutdown();
+    GribRecordCache.shutdown();
+    H5ChunkCache.shutdown();
+    HTTPBlockCache.shutdown();
     datasetManager.setDatasetTracker(null); // closes the existing tracker
 
     collectionUpdater.shutdown();
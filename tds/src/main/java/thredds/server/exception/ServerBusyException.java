@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.server.exception;
+
+/**
+ * The server can not take on the request now; the client should try again later.
+ *
+ * @since 10/18/2026
+ */
+public class ServerBusyException extends RuntimeException {
+
+  public ServerBusyException(String message) {
+    super(message);
+  }
+
+}
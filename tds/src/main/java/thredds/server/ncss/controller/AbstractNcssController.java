@@ -47,6 +47,9 @@ public abstract class AbstractNcssController {
   @Autowired
   NcssDiskCache ncssDiskCache;
 
+  @Autowired
+  NcssResponseCache ncssResponseCache;
+
   //////////////////////////////////////////////////////////////////////////
   // common methods
 
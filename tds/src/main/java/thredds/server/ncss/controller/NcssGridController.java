@@ -12,6 +12,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.ModelAndView;
 import thredds.core.AllowedServices;
 import thredds.core.StandardService;
@@ -26,6 +28,7 @@ import thredds.server.ncss.params.NcssGridParamsBean;
 import thredds.server.ncss.params.NcssParamsBean;
 import thredds.server.ncss.view.dsg.DsgSubsetWriter;
 import thredds.server.ncss.view.dsg.DsgSubsetWriterFactory;
+import thredds.servlet.DataRequestExecutor;
 import thredds.util.Constants;
 import thredds.util.ContentType;
 import thredds.util.TdsPathUtils;
@@ -67,7 +70,8 @@ public class NcssGridController extends AbstractNcssController {
   }
 
   @RequestMapping("**")     // data request
-  public void handleRequest(HttpServletRequest req, HttpServletResponse res, @Valid NcssGridParamsBean params,
+  @ResponseBody
+  public WebAsyncTask<Void> handleRequest(HttpServletRequest req, HttpServletResponse res, @Valid NcssGridParamsBean params,
           BindingResult validationResult) throws Exception {
     if (!allowedServices.isAllowed(StandardService.netcdfSubsetGrid))
       throw new ServiceNotAllowed(StandardService.netcdfSubsetGrid.toString());
@@ -76,6 +80,13 @@ public class NcssGridController extends AbstractNcssController {
       throw new BindException(validationResult);
 
     String datasetPath = getDatasetPath(req);
+    return DataRequestExecutor.submit(req, res, datasetPath, dataRes -> ncssResponseCache.respond(req, dataRes,
+            datasetPath, params, cacheRes -> handleRequest(req, cacheRes, params, datasetPath)));
+  }
+
+  // may run on a data request worker thread
+  private void handleRequest(HttpServletRequest req, HttpServletResponse res, NcssGridParamsBean params,
+          String datasetPath) throws Exception {
     try (CoverageCollection gcd = TdsRequestedDataset.getCoverageCollection(req, res, datasetPath)) {
       if (gcd == null) return;
 
@@ -109,8 +120,8 @@ public class NcssGridController extends AbstractNcssController {
                 "Grid requests with vertCoord must have variables with same vertical levels.");
       }
 
-    String responseFile = getResponseFileName(datasetPath, version);
-    File netcdfResult = makeCFNetcdfFile(gcd, responseFile, params, version);
+    SubsetParams subset = params.makeSubset(gcd);
+    checkFileDownloadSize(gcd, params, subset, version);
 
     // filename download attachment
     String suffix = version.getSuffix();
@@ -125,22 +136,34 @@ public class NcssGridController extends AbstractNcssController {
     httpHeaders.set(ContentType.HEADER, sf.getMimeType());
     httpHeaders.set(Constants.Content_Disposition, Constants.setContentDispositionValue(filename));
 
-    // set content length
-    httpHeaders.set(Constants.Content_Length, Constants.getContentLengthValue(netcdfResult));
-
-    setResponseHeaders(res, httpHeaders);
-
-    IO.copyFileB(netcdfResult, res.getOutputStream(), 60000);
+    if (version == NetcdfFileWriter.Version.netcdf3) {
+      // stream directly to the client, the size is known as soon as the header is computed
+      Optional<Long> sizeo = CFGridCoverageWriter2.writeStream(gcd, params.getVar(), subset, params.isAddLatLon(),
+              fileSize -> {
+                httpHeaders.set(Constants.Content_Length, Long.toString(fileSize));
+                setResponseHeaders(res, httpHeaders);
+              }, res.getOutputStream());
+      if (!sizeo.isPresent())
+        throw new InvalidRangeException("Request contains no data: " + sizeo.getErrorMessage());
+
+    } else {
+      String responseFile = getResponseFileName(datasetPath, version);
+      File netcdfResult = makeCFNetcdfFile(gcd, responseFile, params, subset, version);
+
+      // set content length
+      httpHeaders.set(Constants.Content_Length, Constants.getContentLengthValue(netcdfResult));
+      setResponseHeaders(res, httpHeaders);
+
+      IO.copyFileB(netcdfResult, res.getOutputStream(), 60000);
+    }
     res.flushBuffer();
     res.getOutputStream().close();
     res.setStatus(HttpServletResponse.SC_OK);
   }
 
-  private File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, NcssGridParamsBean params,
+  // Test maxFileDownloadSize
+  private void checkFileDownloadSize(CoverageCollection gcd, NcssGridParamsBean params, SubsetParams subset,
           NetcdfFileWriter.Version version) throws InvalidRangeException, IOException {
-    SubsetParams subset = params.makeSubset(gcd);
-
-    // Test maxFileDownloadSize
     long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
     if (maxFileDownloadSize > 0) {
       Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(
@@ -156,7 +179,10 @@ public class NcssGridController extends AbstractNcssController {
         throw new RequestTooLargeException(
                 "NCSS response too large = " + estimatedSize + " max = " + maxFileDownloadSize);
     }
+  }
 
+  private File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, NcssGridParamsBean params,
+          SubsetParams subset, NetcdfFileWriter.Version version) throws InvalidRangeException, IOException {
     // write the file
     NetcdfFileWriter writer = NetcdfFileWriter.createNew(
             version, responseFilename, null);  // default chunking - let user control at some point
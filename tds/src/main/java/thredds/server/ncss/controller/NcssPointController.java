@@ -10,6 +10,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.web.servlet.ModelAndView;
 import thredds.core.StandardService;
 import thredds.core.TdsRequestedDataset;
@@ -19,6 +21,7 @@ import thredds.server.ncss.format.SupportedOperation;
 import thredds.server.ncss.params.NcssPointParamsBean;
 import thredds.server.ncss.view.dsg.DsgSubsetWriter;
 import thredds.server.ncss.view.dsg.DsgSubsetWriterFactory;
+import thredds.servlet.DataRequestExecutor;
 import ucar.nc2.constants.FeatureType;
 import ucar.nc2.ft.DsgFeatureCollection;
 import ucar.nc2.ft.FeatureDataset;
@@ -53,12 +56,20 @@ public class NcssPointController extends AbstractNcssController {
   }
 
   @RequestMapping("**")
-  public void handleRequest(HttpServletRequest req, HttpServletResponse res, @Valid NcssPointParamsBean params,
+  @ResponseBody
+  public WebAsyncTask<Void> handleRequest(HttpServletRequest req, HttpServletResponse res, @Valid NcssPointParamsBean params,
                             BindingResult validationResult) throws Exception {
     if (validationResult.hasErrors())
       throw new BindException(validationResult);
 
     String datasetPath = getDatasetPath(req);
+    return DataRequestExecutor.submit(req, res, datasetPath, dataRes -> ncssResponseCache.respond(req, dataRes,
+            datasetPath, params, cacheRes -> handleRequest(req, cacheRes, params, datasetPath)));
+  }
+
+  // may run on a data request worker thread
+  private void handleRequest(HttpServletRequest req, HttpServletResponse res, NcssPointParamsBean params,
+                             String datasetPath) throws Exception {
     try (FeatureDatasetPoint fdp = TdsRequestedDataset.getPointDataset(req, res, datasetPath)) {
       if (fdp == null) return;
 
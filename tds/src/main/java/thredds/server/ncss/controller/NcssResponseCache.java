@@ -0,0 +1,433 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.server.ncss.controller;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import thredds.core.DataRootManager;
+import thredds.core.TdsRequestedDataset;
+import thredds.inventory.CollectionUpdateEvent;
+import thredds.server.catalog.DataRoot;
+import thredds.server.config.ThreddsConfig;
+import thredds.server.ncss.params.NcssParamsBean;
+import thredds.servlet.DataRequestExecutor;
+import thredds.servlet.ServletUtil;
+import thredds.util.Constants;
+import ucar.nc2.util.IO;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Keeps the responses to NCSS data requests in files in the NcssDiskCache, so that repeated identical requests
+ * are answered without reading the dataset again.
+ * <p>
+ * A response is found by the dataset path and the canonical form of the request parameters
+ * (NcssParamsBean.getCacheKey()). It is used only while the dataset file has the same last modified time,
+ * and for a feature collection, until the collection is updated.
+ * The least recently used responses are deleted when the cache grows larger than maxSize bytes.
+ * <p>
+ * The response has an "X-Cache" header of HIT or MISS.
+ *
+ * @since 10/18/2026
+ */
+@Component
+public class NcssResponseCache {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(NcssResponseCache.class);
+  static public final String CACHE_HEADER = "X-Cache";
+
+  @Autowired
+  private NcssDiskCache ncssDiskCache;
+
+  @Autowired
+  private DataRootManager dataRootManager;
+
+  @Autowired
+  @Qualifier("fcTriggerEventBus")
+  private EventBus eventBus;
+
+  private long maxSize;       // 0 = off
+  private long maxFileSize;   // largest response kept
+  private long maxAgeMsecs;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(100, .75f, true); // LRU order
+  private long totalSize;
+  private long hits, misses;
+
+  // a cached response
+  private static class Entry {
+    final String key;
+    final File file;
+    final long size;
+    final long lastModified;      // of the dataset file, 0 for a feature collection
+    final String collectionName;  // feature collection, or null
+    final List<String[]> headers;
+    final long created = System.currentTimeMillis();
+
+    Entry(String key, File file, long lastModified, String collectionName, List<String[]> headers) {
+      this.key = key;
+      this.file = file;
+      this.size = file.length();
+      this.lastModified = lastModified;
+      this.collectionName = collectionName;
+      this.headers = headers;
+    }
+  }
+
+  public void init() {
+    maxSize = ThreddsConfig.getBytes("NetcdfSubsetService.responseCache.maxSize", 0);
+    maxFileSize = ThreddsConfig.getBytes("NetcdfSubsetService.responseCache.maxFileSize", maxSize / 10);
+    maxAgeMsecs = 1000L * ThreddsConfig.getSeconds("NetcdfSubsetService.responseCache.maxAge", 10 * 60);
+    if (maxSize > 0) {
+      eventBus.register(this);
+      ServletUtil.logServerStartup.info("NcssResponseCache maxSize= " + maxSize + " maxFileSize= " + maxFileSize +
+              " maxAgeSecs= " + maxAgeMsecs / 1000);
+    }
+  }
+
+  /**
+   * Send the cached response for this request if there is one, otherwise make the response and keep it if possible.
+   *
+   * @param req         the request
+   * @param res         the response
+   * @param datasetPath the dataset
+   * @param params      the validated request parameters
+   * @param producer    makes the response when it is not in the cache
+   */
+  public void respond(HttpServletRequest req, HttpServletResponse res, String datasetPath, NcssParamsBean params,
+                      DataRequestExecutor.DataRequest producer) throws Exception {
+    String paramsKey = (maxSize > 0) ? params.getCacheKey() : null;
+    if (paramsKey == null) {
+      producer.respond(res);
+      return;
+    }
+
+    String key = datasetPath + "?" + paramsKey;
+    String collectionName = getCollectionName(datasetPath);
+    long lastModified = 0;
+    if (collectionName == null) {
+      lastModified = TdsRequestedDataset.getLastModified(datasetPath);
+      if (lastModified <= 0) { // dont know when it changes
+        producer.respond(res);
+        return;
+      }
+    }
+
+    Entry entry = get(key, lastModified);
+    if (entry != null && sendCached(req, res, datasetPath, entry))
+      return;
+
+    synchronized (this) {
+      misses++;
+    }
+    res.setHeader(CACHE_HEADER, "MISS");
+    File file = ncssDiskCache.getDiskCache().createUniqueFile("ncssResponse", ".dat");
+    CachingResponse cachingRes = new CachingResponse(res, file, maxFileSize);
+    boolean ok = false;
+    try {
+      producer.respond(cachingRes);
+      ok = cachingRes.finish();
+      if (ok)
+        put(new Entry(key, file, lastModified, collectionName, cachingRes.headers));
+    } finally {
+      cachingRes.closeFile();
+      if (!ok && file.exists() && !file.delete())
+        logger.warn("NcssResponseCache failed to delete {}", file);
+    }
+  }
+
+  private String getCollectionName(String datasetPath) {
+    DataRootManager.DataRootMatch match = dataRootManager.findDataRootMatch(datasetPath);
+    if (match == null || match.dataRoot.getType() != DataRoot.Type.featureCollection) return null;
+    return match.dataRoot.getFeatureCollection().getCollectionName();
+  }
+
+  private boolean sendCached(HttpServletRequest req, HttpServletResponse res, String datasetPath, Entry entry)
+          throws IOException {
+    InputStream in;
+    try {
+      in = new FileInputStream(entry.file); // open before sending headers, in case it has been scoured
+    } catch (FileNotFoundException e) {
+      remove(entry);
+      return false;
+    }
+
+    try {
+      if (!TdsRequestedDataset.resourceControlOk(req, res, datasetPath))
+        return true; // error has been sent
+
+      synchronized (this) {
+        hits++;
+      }
+      for (String[] header : entry.headers)
+        res.setHeader(header[0], header[1]);
+      res.setHeader(Constants.Content_Length, Long.toString(entry.size));
+      res.setHeader(CACHE_HEADER, "HIT");
+      res.setHeader("Age", Long.toString((System.currentTimeMillis() - entry.created) / 1000));
+      IO.copyB(in, res.getOutputStream(), 60000);
+      res.flushBuffer();
+      return true;
+
+    } finally {
+      in.close();
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////
+  // the index
+
+  private synchronized Entry get(String key, long lastModified) {
+    Entry entry = entries.get(key);
+    if (entry == null) return null;
+    if (entry.lastModified != lastModified || System.currentTimeMillis() - entry.created > maxAgeMsecs) {
+      remove(entry);
+      return null;
+    }
+    return entry;
+  }
+
+  private synchronized void put(Entry entry) {
+    Entry old = entries.get(entry.key);
+    if (old != null)
+      remove(old);
+    entries.put(entry.key, entry);
+    totalSize += entry.size;
+
+    Iterator<Entry> iter = entries.values().iterator(); // least recently used first
+    while (totalSize > maxSize && iter.hasNext()) {
+      Entry lru = iter.next();
+      iter.remove();
+      deleteFile(lru);
+    }
+  }
+
+  private synchronized void remove(Entry entry) {
+    if (entries.get(entry.key) == entry) {
+      entries.remove(entry.key);
+      deleteFile(entry);
+    }
+  }
+
+  // call while synchronized
+  private void deleteFile(Entry entry) {
+    totalSize -= entry.size;
+    if (entry.file.exists() && !entry.file.delete())
+      logger.warn("NcssResponseCache failed to delete {}", entry.file);
+  }
+
+  /** Remove all the responses for a feature collection. */
+  public synchronized void invalidate(String collectionName) {
+    int count = 0;
+    Iterator<Entry> iter = entries.values().iterator();
+    while (iter.hasNext()) {
+      Entry entry = iter.next();
+      if (collectionName.equals(entry.collectionName)) {
+        iter.remove();
+        deleteFile(entry);
+        count++;
+      }
+    }
+    if (count > 0)
+      logger.debug("NcssResponseCache removed {} responses for {}", count, collectionName);
+  }
+
+  public synchronized void clearCache() {
+    for (Entry entry : entries.values())
+      deleteFile(entry);
+    entries.clear();
+  }
+
+  // feature collection has been updated
+  @Subscribe
+  public void processEvent(CollectionUpdateEvent event) {
+    invalidate(event.getCollectionName());
+  }
+
+  public synchronized void showCache(Formatter f) {
+    f.format("NcssResponseCache %d responses, %d bytes (max %d), hits=%d misses=%d%n",
+            entries.size(), totalSize, maxSize, hits, misses);
+  }
+
+  //////////////////////////////////////////////////////////////////
+
+  // records the headers, and copies the body to a file, as the response is sent
+  private static class CachingResponse extends HttpServletResponseWrapper {
+    private final List<String[]> headers = new ArrayList<>();
+    private final File file;
+    private final long maxFileSize;
+    private OutputStream fileOut;
+    private long size;
+    private boolean ok = true;   // status is OK, and the response is not too large
+    private TeeOutputStream stream;
+    private PrintWriter writer;
+
+    CachingResponse(HttpServletResponse response, File file, long maxFileSize) throws IOException {
+      super(response);
+      this.file = file;
+      this.maxFileSize = maxFileSize;
+      this.fileOut = new BufferedOutputStream(new FileOutputStream(file));
+    }
+
+    // a cached response may be sent after these have changed
+    private boolean isKept(String name) {
+      return !name.equalsIgnoreCase(Constants.Content_Length) && !name.equalsIgnoreCase("Date") &&
+              !name.equalsIgnoreCase("Set-Cookie") && !name.equalsIgnoreCase("Last-Modified");
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (isKept(name)) {
+        headers.removeIf(h -> h[0].equalsIgnoreCase(name));
+        headers.add(new String[] {name, value});
+      }
+      super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+      if (isKept(name))
+        headers.add(new String[] {name, value});
+      super.addHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+      setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setContentType(String type) {
+      if (type != null) {
+        headers.removeIf(h -> h[0].equalsIgnoreCase("Content-Type"));
+        headers.add(new String[] {"Content-Type", type});
+      }
+      super.setContentType(type);
+    }
+
+    @Override
+    public void setStatus(int sc) {
+      if (sc != SC_OK) ok = false;
+      super.setStatus(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+      ok = false;
+      super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+      ok = false;
+      super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+      ok = false;
+      super.sendRedirect(location);
+    }
+
+    @Override
+    public synchronized ServletOutputStream getOutputStream() throws IOException {
+      if (stream == null)
+        stream = new TeeOutputStream(super.getOutputStream());
+      return stream;
+    }
+
+    @Override
+    public synchronized PrintWriter getWriter() throws IOException {
+      if (writer == null)
+        writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+      return writer;
+    }
+
+    @Override
+    public synchronized void flushBuffer() throws IOException {
+      if (writer != null) writer.flush();
+      super.flushBuffer();
+    }
+
+    /** @return true if the response can be cached */
+    synchronized boolean finish() throws IOException {
+      if (writer != null) writer.flush();
+      if (!ok || fileOut == null) return false;
+      fileOut.close();
+      fileOut = null;
+      return size > 0;
+    }
+
+    synchronized void closeFile() throws IOException {
+      if (fileOut != null) {
+        fileOut.close();
+        fileOut = null;
+      }
+    }
+
+    private synchronized void copy(byte[] b, int off, int len) {
+      if (fileOut == null || !ok) return;
+      size += len;
+      try {
+        if (size > maxFileSize) {
+          ok = false; // too large to keep
+          return;
+        }
+        fileOut.write(b, off, len);
+      } catch (IOException e) {
+        logger.warn("NcssResponseCache failed to write {}: {}", file, e.getMessage());
+        ok = false;
+      }
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+      private final ServletOutputStream out;
+
+      TeeOutputStream(ServletOutputStream out) {
+        this.out = out;
+      }
+
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        copy(new byte[] {(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        copy(b, off, len);
+      }
+
+      @Override
+      public void flush() throws IOException {
+        out.flush();
+      }
+
+      @Override
+      public void close() throws IOException {
+        out.close();
+      }
+
+      @Override
+      public boolean isReady() {
+        return out.isReady();
+      }
+
+      @Override
+      public void setWriteListener(WriteListener writeListener) {
+        out.setWriteListener(writeListener);
+      }
+    }
+  }
+}
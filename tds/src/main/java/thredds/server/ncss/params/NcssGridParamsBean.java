@@ -16,6 +16,8 @@ import ucar.nc2.time.CalendarDateRange;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.ProjectionRect;
 
+import java.util.Formatter;
+
 /**
  * Parameters specific to ncss grid
  *
@@ -181,6 +183,28 @@ public class NcssGridParamsBean extends NcssParamsBean {
 
   ///////////////////////////////
 
+  @Override
+  public String getCacheKey() {
+    if ("present".equalsIgnoreCase(runtime)) return null;
+    return super.getCacheKey();
+  }
+
+  @Override
+  protected void addCacheKey(Formatter f) {
+    super.addCacheKey(f);
+    addCacheKey(f, "minx", minx);
+    addCacheKey(f, "maxx", maxx);
+    addCacheKey(f, "miny", miny);
+    addCacheKey(f, "maxy", maxy);
+    addCacheKey(f, "addLatLon", addLatLon);
+    addCacheKey(f, "horizStride", horizStride);
+    addCacheKey(f, "timeStride", timeStride);
+    addCacheKey(f, "vertCoord", vertCoord);
+    addCacheKey(f, "ensCoord", ensCoord);
+    addCacheKey(f, "runtime", runtime);
+    addCacheKey(f, "timeOffset", timeOffset);
+  }
+
   public SubsetParams makeSubset(CoverageCollection gcd) {
     Calendar cal = gcd.getCalendar();
     boolean isFmrc = gcd.getCoverageType() == FeatureType.FMRC;
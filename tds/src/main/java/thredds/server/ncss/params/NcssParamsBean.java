@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.Formatter;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * Ncss Parameters superclass, have common parameters for grid and point
@@ -307,6 +308,52 @@ public class NcssParamsBean {
     return true;
   }
 
+  ///////////////////////////////////////////////////////
+  // NcssResponseCache
+
+  /**
+   * A canonical form of the request parameters, the same for requests that ask for the same data
+   * in the same format. Used as the key of the NcssResponseCache.
+   *
+   * @return the key, or null if the response depends on the time of the request
+   */
+  public String getCacheKey() {
+    if (isPresent(time) || isPresent(time_start) || isPresent(time_end) || isPresent(temporal))
+      return null;
+    if (time_duration != null && time_start == null && time_end == null)
+      return null; // relative to now
+
+    Formatter f = new Formatter();
+    addCacheKey(f);
+    return f.toString();
+  }
+
+  protected void addCacheKey(Formatter f) {
+    f.format("accept=%s", accept == null ? "" : accept.toLowerCase());
+    f.format("&var=%s", var == null ? "" : String.join(",", new TreeSet<>(var)));
+    addCacheKey(f, "time", time);
+    addCacheKey(f, "time_start", time_start);
+    addCacheKey(f, "time_end", time_end);
+    addCacheKey(f, "time_duration", time_duration);
+    addCacheKey(f, "temporal", temporal);
+    addCacheKey(f, "time_window", time_window);
+    addCacheKey(f, "north", north);
+    addCacheKey(f, "south", south);
+    addCacheKey(f, "east", east);
+    addCacheKey(f, "west", west);
+    addCacheKey(f, "latitude", latitude);
+    addCacheKey(f, "longitude", longitude);
+  }
+
+  protected static void addCacheKey(Formatter f, String name, Object value) {
+    if (value != null)
+      f.format("&%s=%s", name, value);
+  }
+
+  private static boolean isPresent(String time) {
+    return "present".equalsIgnoreCase(time);
+  }
+
   public TimeDuration parseTimeDuration() throws NcssException {
     if (getTime_duration() == null) return null;
     try {
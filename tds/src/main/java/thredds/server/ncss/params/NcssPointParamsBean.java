@@ -11,7 +11,9 @@ import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarPeriod;
 import ucar.unidata.geoloc.LatLonPointImpl;
 
+import java.util.Formatter;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * Parameters specific to ncss point
@@ -44,6 +46,13 @@ public class NcssPointParamsBean extends NcssParamsBean {
 
   ///////////////////////////////
 
+  @Override
+  protected void addCacheKey(Formatter f) {
+    super.addCacheKey(f);
+    if (stns != null)
+      addCacheKey(f, "stns", String.join(",", new TreeSet<>(stns)));
+  }
+
   public SubsetParams makeSubset() {
 
     SubsetParams subset = new SubsetParams();
@@ -46,7 +46,6 @@ public class PointSubsetWriterNetcdf extends AbstractPointSubsetWriter {
         this.out = out;
         this.version = version;
 
-        this.netcdfResult = ncssDiskCache.getDiskCache().createUniqueFile("ncssTemp", ".nc");
         List<Attribute> attribs = new ArrayList<>();
         attribs.add(new Attribute(CDM.TITLE, "Extracted data from TDS Feature Collection " + fdPoint.getLocation()));
 
@@ -56,8 +55,16 @@ public class PointSubsetWriterNetcdf extends AbstractPointSubsetWriter {
         CalendarDateUnit timeUnit = fc.getTimeUnit();
         String altUnit = fc.getAltUnits();
 
-        this.cfWriter = new WriterCFPointCollection(netcdfResult.getAbsolutePath(), attribs, wantedVariables,
-                timeUnit, altUnit, new CFPointWriterConfig(version));
+        if (version == NetcdfFileWriter.Version.netcdf3) {
+            // stream the records to the client as they are read, no temp file needed
+            this.netcdfResult = null;
+            this.cfWriter = new WriterCFPointCollection(out, attribs, wantedVariables,
+                    timeUnit, altUnit, new CFPointWriterConfig(version));
+        } else {
+            this.netcdfResult = ncssDiskCache.getDiskCache().createUniqueFile("ncssTemp", ".nc");
+            this.cfWriter = new WriterCFPointCollection(netcdfResult.getAbsolutePath(), attribs, wantedVariables,
+                    timeUnit, altUnit, new CFPointWriterConfig(version));
+        }
     }
 
     @Override
@@ -92,7 +99,8 @@ public class PointSubsetWriterNetcdf extends AbstractPointSubsetWriter {
     @Override
     public void writeFooter() throws IOException {
         cfWriter.finish();
-        IO.copyFileB(netcdfResult, out, 60000);  // Copy the file in to the OutputStream.
+        if (netcdfResult != null)
+            IO.copyFileB(netcdfResult, out, 60000);  // Copy the file in to the OutputStream.
         out.flush();
     }
 }
@@ -47,7 +47,6 @@ public class StationSubsetWriterNetcdf extends AbstractStationSubsetWriter {
         this.out = out;
         this.version = version;
 
-        this.netcdfResult = ncssDiskCache.getDiskCache().createUniqueFile("ncssTemp", ".nc");
         List<Attribute> attribs = new ArrayList<>();
         attribs.add(new Attribute(CDM.TITLE, "Extracted data from TDS Feature Collection " + fdPoint.getLocation()));
 
@@ -57,8 +56,16 @@ public class StationSubsetWriterNetcdf extends AbstractStationSubsetWriter {
         CalendarDateUnit timeUnit = fc.getTimeUnit();
         String altUnit = fc.getAltUnits();
 
-        this.cfWriter = new WriterCFStationCollection( netcdfResult.getAbsolutePath(), attribs, wantedVariables,
-                timeUnit, altUnit, new CFPointWriterConfig(version) );
+        if (version == NetcdfFileWriter.Version.netcdf3) {
+            // stream the records to the client as they are read, no temp file needed
+            this.netcdfResult = null;
+            this.cfWriter = new WriterCFStationCollection(out, attribs, wantedVariables,
+                    timeUnit, altUnit, new CFPointWriterConfig(version));
+        } else {
+            this.netcdfResult = ncssDiskCache.getDiskCache().createUniqueFile("ncssTemp", ".nc");
+            this.cfWriter = new WriterCFStationCollection(netcdfResult.getAbsolutePath(), attribs, wantedVariables,
+                    timeUnit, altUnit, new CFPointWriterConfig(version));
+        }
     }
 
     @Override
@@ -94,7 +101,8 @@ public class StationSubsetWriterNetcdf extends AbstractStationSubsetWriter {
     @Override
     protected void writeFooter() throws Exception {
         cfWriter.finish();
-        IO.copyFileB(netcdfResult, out, 60000);  // Copy the file in to the OutputStream.
+        if (netcdfResult != null)
+            IO.copyFileB(netcdfResult, out, 60000);  // Copy the file in to the OutputStream.
         out.flush();
     }
 }
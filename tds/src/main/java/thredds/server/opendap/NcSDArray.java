@@ -5,7 +5,9 @@
 
 package thredds.server.opendap;
 
+import opendap.dap.BytePrimitiveVector;
 import opendap.dap.InvalidDimensionException;
+import opendap.dap.NoSuchVariableException;
 import ucar.ma2.*;
 import ucar.nc2.*;
 
@@ -17,12 +19,16 @@ import opendap.dap.PrimitiveVector;
 import java.io.IOException;
 import java.io.EOFException;
 import java.io.DataOutputStream;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Wraps a netcdf variable with rank > 0 as an SDArray.
  * For char arrays, use NcSDString (rank 0 or 1) or NcSDCharArray (rank > 1).
+ * <p>
+ * Numeric arrays whose constrained size is larger than the slab size are not read all at once;
+ * serialize() reads and writes them in slabs along the outer dimension.
  *
  * @author jcaron
  * @see NcSDCharArray
@@ -31,6 +37,17 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NcSDArray.class);
 
   private static final boolean debug = false, debugRead = false;
+  private static long slabSize = 16 * 1000 * 1000;
+
+  /**
+   * Set the maximum number of bytes read at once when serializing large arrays.
+   *
+   * @param bytes slab size in bytes; 0 reads the whole array at once
+   */
+  public static void setSlabSize(long bytes) {
+    slabSize = bytes;
+  }
+
   private Variable ncVar = null;
   //ignore protected BaseType elemType;
 
@@ -77,14 +94,8 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
       if (log.isDebugEnabled())
         log.debug(getRequestedRange());
 
-      // set up the netcdf read
-      int n = numDimensions();
-      List<Range> ranges = new ArrayList<>(n);
-      for (int i = 0; i < n; i++)
-        ranges.add(new Range(getStart(i), getStop(i), getStride(i)));
-
       try {
-        a = ncVar.read(ranges);
+        a = ncVar.read(makeRanges());
 
       } catch (java.lang.ArrayIndexOutOfBoundsException t) {
         log.error(getRequestedRange(), t);
@@ -116,6 +127,93 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
     return (false);
   }
 
+  // the netcdf ranges from the start, stop and stride values
+  private List<Range> makeRanges() throws InvalidDimensionException, InvalidRangeException {
+    int n = numDimensions();
+    List<Range> ranges = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      ranges.add(new Range(getStart(i), getStop(i), getStride(i)));
+    return ranges;
+  }
+
+  /**
+   * Serialize the constrained array. If its size is more than the slab size, read and write it a slab of
+   * outer dimension indices at a time, so that memory use per request is bounded by the slab size.
+   * The output is the same as SDArray.serialize().
+   */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+    DataType dataType = ncVar.getDataType();
+    if (isRead() || slabSize <= 0 || !dataType.isNumeric()) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+
+    List<Range> ranges;
+    try {
+      ranges = makeRanges();
+    } catch (InvalidDimensionException | InvalidRangeException e) {
+      log.error(getRequestedRange(), e);
+      throw new IllegalStateException("NcSDArray " + e.getMessage());
+    }
+    long size = new Section(ranges).computeSize();
+    if (size * dataType.getSize() <= slabSize) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+    if (!ce.evalClauses(specialO))
+      return;
+
+    long tstart = System.currentTimeMillis();
+    Range outer = ranges.get(0);
+    long rowBytes = (size / outer.length()) * dataType.getSize();
+    int nrows = (int) Math.max(1, Math.min(outer.length(), slabSize / rowBytes));
+
+    // XDR and DAP both write the length
+    sink.writeInt((int) size);
+    sink.writeInt((int) size);
+
+    PrimitiveVector pv = getPrimitiveVector();
+    int nslabs = 0;
+    try {
+      for (int first = 0; first < outer.length(); first += nrows) {
+        if (Thread.currentThread().isInterrupted())
+          throw new InterruptedIOException("NcSDArray serialize cancelled " + getRequestedRange());
+
+        int last = Math.min(first + nrows, outer.length()) - 1;
+        ranges.set(0, new Range(outer.getName(), outer.element(first), outer.element(last), outer.stride()));
+        Array slab = ncVar.read(ranges);
+        Object pa = slab.get1DJavaArray(slab.getElementType());
+        if (pv instanceof BytePrimitiveVector) {
+          sink.write((byte[]) pa);   // pad once at the end, not after each slab
+        } else {
+          pv.setInternalStorage(pa);
+          pv.externalize(sink);
+        }
+
+        // a client that has gone away fails here, before the next slab is read
+        sink.flush();
+        nslabs++;
+      }
+
+    } catch (InvalidRangeException e) {
+      log.error(getRequestedRange(), e);
+      throw new IllegalStateException("NcSDArray InvalidRangeException=" + e.getMessage());
+    }
+
+    if (pv instanceof BytePrimitiveVector) {
+      int modFour = (int) (size % 4);
+      for (int i = 0; modFour != 0 && i < 4 - modFour; i++)
+        sink.writeByte(0);
+    }
+
+    if (log.isDebugEnabled()) {
+      long tookTime = System.currentTimeMillis() - tstart;
+      log.debug("NcSDArray serialize " + getEncodedName() + " " + nslabs + " slabs: " + tookTime * .001 + " seconds");
+    }
+  }
+
   private String getRequestedRange() {
     try {
       StringBuilder sbuff = new StringBuilder();
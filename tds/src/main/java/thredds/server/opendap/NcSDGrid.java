@@ -13,6 +13,7 @@ import opendap.dap.BaseType;
 import opendap.dap.NoSuchVariableException;
 import ucar.nc2.Variable;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -48,4 +49,12 @@ public class NcSDGrid extends SDGrid {
     setRead(true);
     return(false);
   }
+
+  /** For binary responses the arrays are read as they are serialized, instead of all at once by read(). */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+    setRead(true);
+    super.serialize(dataset, sink, ce, specialO);
+  }
 }
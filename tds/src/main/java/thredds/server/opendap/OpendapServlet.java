@@ -78,7 +78,10 @@ public class OpendapServlet extends AbstractServlet {
     this.binLimit = ThreddsConfig.getInt("Opendap.binLimit", binLimit);
 
     this.odapVersionString = ThreddsConfig.get("Opendap.serverVersion", odapVersionString);
-    logServerStartup.info(getClass().getName() + " version= " + odapVersionString + " ascLimit = " + ascLimit + " binLimit = " + binLimit);
+    int slabSize = ThreddsConfig.getInt("Opendap.slabSize", 16); // Mbytes
+    NcSDArray.setSlabSize(slabSize * 1000L * 1000L);
+    logServerStartup.info(getClass().getName() + " version= " + odapVersionString + " ascLimit = " + ascLimit + " binLimit = " + binLimit
+            + " slabSize = " + slabSize);
 
     if (tdsContext != null) // LOOK not set in mock testing enviro ?
       setRootpath(tdsContext.getServletRootDirectory().getPath());
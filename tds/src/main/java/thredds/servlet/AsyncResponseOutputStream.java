@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * A blocking ServletOutputStream for the data worker threads, on top of the non-blocking output of an async request.
+ * Data is queued in chunks and handed to the container when it is ready for it (WriteListener.onWritePossible).
+ * When more than maxPending bytes are queued, the worker waits, so a slow client slows down the worker
+ * rather than using up memory.
+ * <p>
+ * The WriteListener is only set on the first real write, so a request that fails before it has written anything
+ * can still send an error with the usual blocking output.
+ *
+ * @since 10/18/2026
+ */
+class AsyncResponseOutputStream extends ServletOutputStream implements WriteListener {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncResponseOutputStream.class);
+  static private final int CHUNK_SIZE = 32 * 1024;
+
+  private final ServletOutputStream out; // the container's stream
+  private final int maxPending;          // bytes queued before the worker has to wait
+  private final long stallTimeoutMsecs;  // how long to wait for the client to accept more data
+
+  private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+  private int pendingBytes;
+  private byte[] chunk = new byte[CHUNK_SIZE];
+  private int count;                    // bytes used in chunk
+  private boolean started;              // WriteListener was set
+  private boolean closed;
+  private IOException failure;          // set from onError, or if the client stalls
+
+  AsyncResponseOutputStream(ServletOutputStream out, int maxPending, long stallTimeoutMsecs) {
+    this.out = out;
+    this.maxPending = Math.max(maxPending, CHUNK_SIZE);
+    this.stallTimeoutMsecs = stallTimeoutMsecs;
+  }
+
+  /** @return true if any data has been handed to the container, after which an error can no longer be sent */
+  synchronized boolean isStarted() {
+    return started;
+  }
+
+  //////////////////////////////////////////////////////////
+  // worker side
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == chunk.length)
+      enqueueChunk();
+    chunk[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == chunk.length)
+        enqueueChunk();
+      int n = Math.min(len, chunk.length - count);
+      System.arraycopy(b, off, chunk, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (count > 0)
+      enqueueChunk();
+  }
+
+  /** Queue what is left, and wait until all of it has been handed to the container. */
+  @Override
+  public void close() throws IOException {
+    if (closed) return;
+    flush();
+    synchronized (this) {
+      closed = true;
+      long deadline = System.currentTimeMillis() + stallTimeoutMsecs;
+      while (!pending.isEmpty() && failure == null)
+        waitUntil(deadline);
+      if (failure != null) throw failure;
+    }
+  }
+
+  private void enqueueChunk() throws IOException {
+    if (closed) throw new IOException("AsyncResponseOutputStream is closed");
+    byte[] b = (count == chunk.length) ? chunk : Arrays.copyOf(chunk, count);
+    chunk = new byte[CHUNK_SIZE];
+    count = 0;
+
+    synchronized (this) {
+      long deadline = System.currentTimeMillis() + stallTimeoutMsecs;
+      while (pendingBytes >= maxPending && failure == null)
+        waitUntil(deadline);
+      if (failure != null) throw failure;
+
+      pending.add(b);
+      pendingBytes += b.length;
+      if (!started) {
+        started = true;
+        out.setWriteListener(this); // container calls onWritePossible when ready
+      } else {
+        drain();
+      }
+    }
+  }
+
+  // call while holding the lock
+  private void waitUntil(long deadline) throws IOException {
+    long wait = deadline - System.currentTimeMillis();
+    if (wait <= 0) {
+      failure = new IOException("Client did not accept data for " + stallTimeoutMsecs + " msecs");
+      return;
+    }
+    try {
+      wait(wait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure = new InterruptedIOException("Interrupted while writing response");
+    }
+  }
+
+  // write as much as the container will take without blocking; call while holding the lock
+  private void drain() throws IOException {
+    try {
+      while (!pending.isEmpty() && out.isReady()) {
+        byte[] b = pending.poll();
+        pendingBytes -= b.length;
+        out.write(b);
+      }
+    } catch (IOException e) {
+      failure = e;
+      throw e;
+    } finally {
+      notifyAll();
+    }
+  }
+
+  //////////////////////////////////////////////////////////
+  // container side
+
+  @Override
+  public synchronized void onWritePossible() throws IOException {
+    if (failure == null)
+      drain();
+  }
+
+  @Override
+  public synchronized void onError(Throwable t) {
+    logger.debug("AsyncResponseOutputStream onError", t);
+    failure = (t instanceof IOException) ? (IOException) t : new IOException(t);
+    notifyAll();
+  }
+
+  //////////////////////////////////////////////////////////
+  // the worker sees a blocking stream
+
+  @Override
+  public boolean isReady() {
+    return true;
+  }
+
+  @Override
+  public void setWriteListener(WriteListener writeListener) {
+    throw new UnsupportedOperationException("AsyncResponseOutputStream does not support setWriteListener");
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.servlet;
+
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import thredds.server.exception.ServerBusyException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs data requests (NCSS, cdmremote) on a bounded pool of worker threads, using Servlet 3.1 async requests,
+ * so that the container thread is released while the data is read and written.
+ * <p>
+ * The worker writes to an AsyncResponseOutputStream, so a slow client holds back its worker rather than
+ * a container thread. Requests are admitted only while there is room in the pool and its queue, and while
+ * the dataset has fewer than maxPerDataset requests running; otherwise a ServerBusyException is thrown,
+ * which is returned to the client as 503 Service Unavailable.
+ * <p>
+ * With no executor (default), requests are run on the container thread, as before.
+ *
+ * @since 10/18/2026
+ */
+public class DataRequestExecutor {
+  static private final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataRequestExecutor.class);
+
+  /** Produces the response to a data request. */
+  public interface DataRequest {
+    void respond(HttpServletResponse res) throws Exception;
+  }
+
+  static private TaskExecutorAdapter taskExecutor;
+  static private Semaphore requestPermits;   // running and queued requests
+  static private int maxPerDataset;          // 0 = no limit
+  static private final ConcurrentMap<String, Integer> datasetRequests = new ConcurrentHashMap<>(); // removed when 0
+  static private int maxPendingBytes = 1024 * 1024;
+  static private long stallTimeoutMsecs = 5 * 60 * 1000;
+
+  /**
+   * Run data requests on the given executor.
+   *
+   * @param exec          worker threads, or null to run requests on the container thread (default)
+   * @param maxRequests   maximum number of running and queued requests; more are refused
+   * @param maxPerDataset maximum number of running and queued requests for one dataset, 0 for no limit
+   */
+  static public void setExecutor(Executor exec, int maxRequests, int maxPerDataset) {
+    DataRequestExecutor.taskExecutor = (exec == null) ? null : new TaskExecutorAdapter(exec);
+    DataRequestExecutor.requestPermits = new Semaphore(Math.max(1, maxRequests));
+    DataRequestExecutor.maxPerDataset = Math.max(0, maxPerDataset);
+    datasetRequests.clear();
+  }
+
+  /**
+   * Set the write side back-pressure.
+   *
+   * @param maxPendingBytes   bytes of a response held in memory before its worker has to wait for the client
+   * @param stallTimeoutSecs  a request fails if the client accepts no data for this long
+   */
+  static public void setWriteLimits(int maxPendingBytes, int stallTimeoutSecs) {
+    DataRequestExecutor.maxPendingBytes = maxPendingBytes;
+    DataRequestExecutor.stallTimeoutMsecs = stallTimeoutSecs * 1000L;
+  }
+
+  static public boolean isEnabled() {
+    return taskExecutor != null;
+  }
+
+  /**
+   * Run a data request. Return the result from the controller's request handler, which must be annotated
+   * with @ResponseBody: the response is written here, so there is no view to resolve when the async request
+   * is dispatched back to the handler.
+   *
+   * @param req         the request
+   * @param res         the response
+   * @param datasetPath used to limit the number of requests for one dataset
+   * @param request     produces the response
+   * @return the WebAsyncTask to run the request, or null if it has already been run on this thread
+   * @throws ServerBusyException if the request can not be admitted now
+   */
+  static public WebAsyncTask<Void> submit(HttpServletRequest req, HttpServletResponse res, String datasetPath,
+                                          DataRequest request) throws Exception {
+    TaskExecutorAdapter exec = taskExecutor;
+    if (exec == null || !req.isAsyncSupported() || isHead(req)) {
+      request.respond(res);
+      return null;
+    }
+
+    Permits permits = new Permits(datasetPath);
+    AsyncResponse asyncRes = new AsyncResponse(res);
+
+    WebAsyncTask<Void> task = new WebAsyncTask<>(0L, exec, () -> {
+      try {
+        request.respond(asyncRes);
+        asyncRes.close();
+
+      } catch (Exception e) {
+        if (!asyncRes.isStarted())
+          throw e; // nothing written yet, so the usual error handling can send the status
+        // too late to tell the client
+        String eName = e.getClass().getName(); // dont want compile time dependency on ClientAbortException
+        if (eName.equals("org.apache.catalina.connector.ClientAbortException"))
+          logger.debug("ClientAbortException while sending data: {}", e.getMessage());
+        else
+          logger.warn("Data request for " + datasetPath + " failed after response was started", e);
+
+      } finally {
+        permits.release();
+      }
+      return null;
+    });
+    task.onCompletion(permits::release); // in case the task never ran
+    return task;
+  }
+
+  // HttpHeadFilter makes HEAD requests look like GET, and counts the bytes written on the container thread
+  static private boolean isHead(ServletRequest req) {
+    while (req instanceof ServletRequestWrapper)
+      req = ((ServletRequestWrapper) req).getRequest();
+    return (req instanceof HttpServletRequest) && "HEAD".equals(((HttpServletRequest) req).getMethod());
+  }
+
+  // count a request for the dataset, unless it already has maxPerDataset
+  static private boolean acquireDataset(String datasetPath) {
+    AtomicBoolean ok = new AtomicBoolean();
+    datasetRequests.compute(datasetPath, (key, count) -> {
+      int n = (count == null) ? 0 : count;
+      if (n >= maxPerDataset) return count;
+      ok.set(true);
+      return n + 1;
+    });
+    return ok.get();
+  }
+
+  // datasets with no requests are removed, so the map only holds the datasets in use
+  static private void releaseDataset(String datasetPath) {
+    datasetRequests.computeIfPresent(datasetPath, (key, count) -> (count > 1) ? count - 1 : null);
+  }
+
+  // for testing
+  static int getAvailableRequests() {
+    return requestPermits.availablePermits();
+  }
+
+  // for testing
+  static int getDatasetsInUse() {
+    return datasetRequests.size();
+  }
+
+  // the request and dataset permits held by one request
+  static private class Permits {
+    private final Semaphore requests;
+    private final String datasetPath;  // null if not counted
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Permits(String datasetPath) {
+      Semaphore requests = requestPermits;
+      if (!requests.tryAcquire())
+        throw new ServerBusyException("Too many data requests, try again later");
+
+      if (maxPerDataset > 0 && datasetPath != null) {
+        if (!acquireDataset(datasetPath)) {
+          requests.release();
+          throw new ServerBusyException("Too many data requests for " + datasetPath + ", try again later");
+        }
+        this.datasetPath = datasetPath;
+      } else {
+        this.datasetPath = null;
+      }
+      this.requests = requests;
+    }
+
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        requests.release();
+        if (datasetPath != null)
+          releaseDataset(datasetPath);
+      }
+    }
+  }
+
+  // the response the worker sees: output goes through the AsyncResponseOutputStream
+  static private class AsyncResponse extends HttpServletResponseWrapper {
+    private AsyncResponseOutputStream stream;
+    private PrintWriter writer;
+
+    AsyncResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    // dont get the container's stream until needed, so that error handling may still use the writer
+    @Override
+    public synchronized ServletOutputStream getOutputStream() throws IOException {
+      if (stream == null)
+        stream = new AsyncResponseOutputStream(super.getOutputStream(), maxPendingBytes, stallTimeoutMsecs);
+      return stream;
+    }
+
+    @Override
+    public synchronized PrintWriter getWriter() throws IOException {
+      if (writer == null)
+        writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+      return writer;
+    }
+
+    @Override
+    public synchronized void flushBuffer() throws IOException {
+      if (writer != null) writer.flush();
+      if (stream != null) stream.flush();
+    }
+
+    synchronized boolean isStarted() {
+      return stream != null && stream.isStarted();
+    }
+
+    synchronized void close() throws IOException {
+      if (writer != null) writer.flush();
+      if (stream != null) stream.close();
+    }
+  }
+}
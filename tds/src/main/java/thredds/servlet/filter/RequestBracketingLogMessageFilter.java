@@ -12,6 +12,7 @@ import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * Wraps a request with the UsageLog.setup and UsageLog.closing log messages
@@ -52,6 +53,34 @@ public class RequestBracketingLogMessageFilter implements javax.servlet.Filter {
 
     filterChain.doFilter(request, response);
 
+    if (request.isAsyncStarted()) {
+      // the response is finished on another thread, see DataRequestExecutor
+      Map<String, String> context = MDC.getCopyOfContextMap();
+      request.getAsyncContext().addListener(new AsyncListener() {
+        public void onComplete(AsyncEvent event) {
+          closing(context, response);
+        }
+
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        public void onError(AsyncEvent event) {
+        }
+
+        public void onStartAsync(AsyncEvent event) {
+        }
+      });
+      MDC.clear();
+      return;
+    }
+
+    log.info(UsageLog.closingMessageForRequestContext(response.getHttpStatusCode(), response.getHttpResponseBodyLength()));
+    MDC.clear();
+  }
+
+  private void closing(Map<String, String> context, TdsServletResponseWrapper response) {
+    if (context != null)
+      MDC.setContextMap(context);
     log.info(UsageLog.closingMessageForRequestContext(response.getHttpStatusCode(), response.getHttpResponseBodyLength()));
     MDC.clear();
   }
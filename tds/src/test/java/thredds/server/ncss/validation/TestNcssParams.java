@@ -2,6 +2,7 @@ package thredds.server.ncss.validation;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -201,4 +202,27 @@ public class TestNcssParams {
 
 
 
+  @Test
+  public void testCacheKey() {
+    NcssGridParamsBean params = new NcssGridParamsBean();
+    params.setVar(Arrays.asList("var2", "var1"));
+    params.setNorth(43.0);
+    params.setAccept("NetCDF");
+    params.setTime("2012-03-27T00:00:00Z");
+
+    NcssGridParamsBean params2 = new NcssGridParamsBean();
+    params2.setVar(Arrays.asList("var1", "var2"));
+    params2.setNorth(43.0);
+    params2.setAccept("netcdf");
+    params2.setTime("2012-03-27T00:00:00Z");
+    assertEquals(params.getCacheKey(), params2.getCacheKey());
+
+    params2.setHorizStride(2);
+    assertTrue(!params.getCacheKey().equals(params2.getCacheKey()));
+
+    // depends on when the request is made
+    params2.setTime("present");
+    assertNull(params2.getCacheKey());
+  }
+
 }
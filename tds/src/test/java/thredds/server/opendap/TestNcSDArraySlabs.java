@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.server.opendap;
+
+import opendap.servers.CEEvaluator;
+import opendap.servers.ServerDDS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.NetcdfDataset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+
+/** NcSDArray.serialize gives the same bytes when the arrays are written in slabs. */
+public class TestNcSDArraySlabs {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String[] constraints = {"", "?t", "?t[0:2:3][3:4][4:5][0:2:6]", "?t.t,time", "?t[1:3][0:17][0:5][0:2:8]"};
+
+  private String testdir = "src/test/data/testdata2";
+
+  public TestNcSDArraySlabs() {
+    if (System.getProperty("user.dir").endsWith("tds"))
+      this.testdir = "../opendap/" + this.testdir;
+  }
+
+  @After
+  public void resetSlabSize() {
+    NcSDArray.setSlabSize(16 * 1000 * 1000);
+  }
+
+  @Test
+  public void testSlabsMatchWholeArray() throws Exception {
+    String path = testdir + "/temp_air_01082000.nc";
+    for (String constraint : constraints) {
+      NcSDArray.setSlabSize(0);
+      byte[] whole = serialize(path, constraint);
+
+      NcSDArray.setSlabSize(1); // one outer index per slab
+      byte[] slabs = serialize(path, constraint);
+
+      logger.debug("{}?{} size={}", path, constraint, whole.length);
+      Assert.assertTrue(constraint, whole.length > 0);
+      Assert.assertArrayEquals(constraint, whole, slabs);
+    }
+  }
+
+  private byte[] serialize(String path, String constraint) throws Exception {
+    try (NetcdfFile ncfile = NetcdfDataset.openFile(new File(path).getPath(), null)) {
+      GuardedDatasetCacheAndClone ds = new GuardedDatasetCacheAndClone(path, ncfile, false);
+      ServerDDS dds = ds.getDDS();
+      CEEvaluator ce = new CEEvaluator(dds);
+      ce.parseConstraint(constraint, null);
+
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      DataOutputStream sink = new DataOutputStream(bos);
+      ce.send(dds.getEncodedName(), sink, ds);
+      sink.flush();
+      return bos.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Test the data worker's blocking stream, on top of a container stream that only takes one write at a time. */
+public class TestAsyncResponseOutputStream {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  // ready for one write after each onWritePossible
+  private static class ContainerStream extends ServletOutputStream {
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    volatile WriteListener listener;
+    boolean ready = true;
+
+    @Override
+    public boolean isReady() {
+      boolean result = ready;
+      ready = false;
+      return result;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      this.listener = writeListener;
+    }
+
+    @Override
+    public void write(int b) {
+      received.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      received.write(b, off, len);
+    }
+  }
+
+  @Test
+  public void testSlowClient() throws Exception {
+    ContainerStream container = new ContainerStream();
+    AsyncResponseOutputStream out = new AsyncResponseOutputStream(container, 100 * 1000, 10 * 1000);
+    byte[] data = new byte[3 * 1000 * 1000];
+    new Random(17).nextBytes(data);
+
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> worker = exec.submit(() -> {
+        for (int pos = 0; pos < data.length; pos += 777)
+          out.write(data, pos, Math.min(777, data.length - pos));
+        out.close();
+        return null;
+      });
+
+      // the container lets the worker write one chunk at a time
+      while (!worker.isDone()) {
+        Thread.sleep(1);
+        if (container.listener != null) {
+          synchronized (out) {
+            container.ready = true;
+          }
+          container.listener.onWritePossible();
+        }
+      }
+      worker.get();
+    } finally {
+      exec.shutdownNow();
+    }
+
+    Assert.assertTrue(out.isStarted());
+    Assert.assertArrayEquals(data, container.received.toByteArray());
+  }
+
+  @Test
+  public void testStalledClient() {
+    ContainerStream container = new ContainerStream();
+    AsyncResponseOutputStream out = new AsyncResponseOutputStream(container, 40 * 1000, 200);
+    try {
+      for (int i = 0; i < 10; i++)
+        out.write(new byte[40 * 1000]);
+      out.close();
+      Assert.fail("should have timed out");
+    } catch (IOException e) {
+      logger.debug("expected: {}", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testNothingWritten() throws IOException {
+    ContainerStream container = new ContainerStream();
+    AsyncResponseOutputStream out = new AsyncResponseOutputStream(container, 40 * 1000, 200);
+    out.flush();
+    out.close();
+    Assert.assertFalse(out.isStarted());
+    Assert.assertNull(container.listener);
+  }
+}
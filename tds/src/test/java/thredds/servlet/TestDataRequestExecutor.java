@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.servlet;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.stereotype.Controller;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import thredds.server.TdsErrorHandling;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/** Data requests run by DataRequestExecutor through Spring MVC async request processing. */
+public class TestDataRequestExecutor {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final int maxRequests = 2;
+  private static final byte[] data = new byte[100 * 1000];
+
+  @Controller
+  public static class DataController {
+    @RequestMapping("/data/{dataset}/{action}")
+    @ResponseBody
+    public WebAsyncTask<Void> handle(@PathVariable("dataset") String dataset, @PathVariable("action") String action,
+                                     HttpServletRequest req, HttpServletResponse res) throws Exception {
+      return DataRequestExecutor.submit(req, res, dataset, dataResponse -> respond(action, dataResponse));
+    }
+
+    private void respond(String action, HttpServletResponse res) throws IOException {
+      switch (action) {
+        case "ok":
+          res.getOutputStream().write(data);
+          break;
+        case "failBefore":
+          throw new FileNotFoundException("no such dataset");
+        case "failAfter":
+          OutputStream out = res.getOutputStream();
+          out.write(data);
+          out.flush();
+          throw new IOException("failed while writing");
+      }
+    }
+  }
+
+  // the mock response has no non-blocking output, so give it a container stream that takes all writes at once
+  private static class NonBlockingOutputFilter implements Filter {
+    public void init(FilterConfig filterConfig) {
+    }
+
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+      chain.doFilter(request, new HttpServletResponseWrapper((HttpServletResponse) response) {
+        public ServletOutputStream getOutputStream() throws IOException {
+          ServletOutputStream out = super.getOutputStream();
+          return new ServletOutputStream() {
+            public boolean isReady() {
+              return true;
+            }
+
+            public void setWriteListener(WriteListener writeListener) {
+              try {
+                writeListener.onWritePossible();
+              } catch (IOException e) {
+                writeListener.onError(e);
+              }
+            }
+
+            public void write(int b) throws IOException {
+              out.write(b);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+              out.write(b, off, len);
+            }
+          };
+        }
+      });
+    }
+
+    public void destroy() {
+    }
+  }
+
+  private ExecutorService pool;
+  private MockMvc mockMvc;
+
+  @Before
+  public void setup() {
+    pool = Executors.newFixedThreadPool(maxRequests);
+    DataRequestExecutor.setExecutor(pool, maxRequests, 1);
+    mockMvc = MockMvcBuilders.standaloneSetup(new DataController())
+            .setControllerAdvice(new TdsErrorHandling())
+            .addFilter(new NonBlockingOutputFilter())
+            .build();
+  }
+
+  @After
+  public void teardown() {
+    DataRequestExecutor.setExecutor(null, 1, 0);
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testResponse() throws Exception {
+    MvcResult result = perform("/data/ds1/ok");
+    checkHandled(mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn());
+    Assert.assertArrayEquals(data, result.getResponse().getContentAsByteArray());
+    checkReleased();
+  }
+
+  // run on the container thread, the handler still resolves no view
+  @Test
+  public void testNoExecutor() throws Exception {
+    DataRequestExecutor.setExecutor(null, maxRequests, 1);
+    MvcResult result = mockMvc.perform(get("/data/ds1/ok")).andExpect(status().isOk()).andReturn();
+    Assert.assertFalse(result.getRequest().isAsyncStarted());
+    checkHandled(result);
+    Assert.assertArrayEquals(data, result.getResponse().getContentAsByteArray());
+  }
+
+  // nothing written yet, so the error handler sends the status
+  @Test
+  public void testErrorBeforeOutput() throws Exception {
+    MvcResult result = perform("/data/ds1/failBefore");
+    MvcResult error = mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound()).andReturn();
+    Assert.assertTrue(error.getResponse().getContentAsString().contains("no such dataset"));
+    checkReleased();
+  }
+
+  // too late to change the status, the client gets a short response
+  @Test
+  public void testErrorAfterOutput() throws Exception {
+    MvcResult result = perform("/data/ds1/failAfter");
+    checkHandled(mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn());
+    Assert.assertArrayEquals(data, result.getResponse().getContentAsByteArray());
+    checkReleased();
+  }
+
+  // the request completes (eg times out) before a worker runs it
+  @Test
+  public void testNeverRun() throws Exception {
+    List<Runnable> held = new ArrayList<>();
+    DataRequestExecutor.setExecutor(held::add, maxRequests, 1);
+
+    MvcResult result = mockMvc.perform(get("/data/ds1/ok")).andExpect(request().asyncStarted()).andReturn();
+    Assert.assertEquals(1, held.size());
+    Assert.assertEquals(maxRequests - 1, DataRequestExecutor.getAvailableRequests());
+    Assert.assertEquals(1, DataRequestExecutor.getDatasetsInUse());
+
+    // one request per dataset
+    mockMvc.perform(get("/data/ds1/ok")).andExpect(status().isServiceUnavailable());
+    Assert.assertEquals(maxRequests - 1, DataRequestExecutor.getAvailableRequests());
+
+    ((MockAsyncContext) result.getRequest().getAsyncContext()).complete();
+    checkReleased();
+  }
+
+  // the data requests have no timeout, so asyncDispatch() would not wait for the worker
+  private MvcResult perform(String path) throws Exception {
+    MvcResult result = mockMvc.perform(get(path)).andExpect(request().asyncStarted()).andReturn();
+    result.getAsyncResult(10 * 1000);
+    return result;
+  }
+
+  // the response was written by the worker, so there must be no view to render or forward to
+  private void checkHandled(MvcResult result) {
+    Assert.assertNull(result.getModelAndView());
+    Assert.assertNull(result.getResponse().getForwardedUrl());
+  }
+
+  private void checkReleased() {
+    Assert.assertEquals(maxRequests, DataRequestExecutor.getAvailableRequests());
+    Assert.assertEquals(0, DataRequestExecutor.getDatasetsInUse());
+  }
+}
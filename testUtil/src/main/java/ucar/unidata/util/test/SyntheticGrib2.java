@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.unidata.util.test;
+
+import java.io.*;
+
+/**
+ * Writes the data representation, bitmap and data sections (5, 6 and 7) of a GRIB2 field, packed with
+ * data template 0 (simple), 2 (complex) or 3 (complex with first order spatial differencing).
+ * That is all that ucar.nc2.grib.grib2.Grib2Record.readData() needs, so the file starts at drsPos = 0 and has no bitmap.
+ * <p>
+ * The field is a smooth surface plus a little noise, so the group widths come out roughly like real model output.
+ * Binary and decimal scale factors are 0 and the reference value is 0, so the decoded values are the packed integers.
+ * Used by the unpacking tests, and by the benchmarks module.
+ */
+public class SyntheticGrib2 {
+  private static final int GROUP_LENGTH = 32;
+
+  public static int[] makeField(int nx, int ny) {
+    java.util.Random random = new java.util.Random(17);
+    int[] field = new int[nx * ny];
+    for (int y = 0; y < ny; y++) {
+      for (int x = 0; x < nx; x++) {
+        double v = 2000 + 1000 * Math.sin(x / 20.0) * Math.cos(y / 30.0);
+        field[y * nx + x] = (int) v + random.nextInt(8);
+      }
+    }
+    return field;
+  }
+
+  /**
+   * Write a packed field to a file.
+   * @param file write to this file, overwriting it
+   * @param template data representation template: 0, 2 or 3
+   * @param field the values, all >= 0
+   */
+  public static void write(File file, int template, int[] field) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      switch (template) {
+        case 0:
+          writeSimple(out, field);
+          break;
+        case 2:
+          writeComplex(out, field, false);
+          break;
+        case 3:
+          writeComplex(out, field, true);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported DRS template = " + template);
+      }
+    }
+  }
+
+  private static void writeSimple(DataOutputStream out, int[] field) throws IOException {
+    int nbits = bitsNeeded(max(field, 0, field.length));
+
+    writeDrsHeader(out, 21, field.length, 0);
+    writeType0(out, nbits);
+    writeNoBitmap(out);
+
+    BitWriter bits = new BitWriter();
+    for (int v : field)
+      bits.write(v, nbits);
+    writeDataSection(out, bits.toByteArray());
+  }
+
+  private static void writeComplex(DataOutputStream out, int[] field, boolean spatialDifferencing) throws IOException {
+    int n = field.length;
+    int[] packed = field;
+    int ival1 = 0, minsd = 0;
+
+    if (spatialDifferencing) { // first order: G(i) = F(i) - F(i-1), stored as G(i) - min(G)
+      minsd = Integer.MAX_VALUE;
+      for (int i = 1; i < n; i++)
+        minsd = Math.min(minsd, field[i] - field[i - 1]);
+      packed = new int[n];
+      for (int i = 1; i < n; i++)
+        packed[i] = field[i] - field[i - 1] - minsd;
+      ival1 = field[0];
+    }
+
+    int ngroups = (n + GROUP_LENGTH - 1) / GROUP_LENGTH;
+    int lastGroupLength = n - (ngroups - 1) * GROUP_LENGTH;
+    int[] refs = new int[ngroups];
+    int[] widths = new int[ngroups];
+    for (int g = 0; g < ngroups; g++) {
+      int start = g * GROUP_LENGTH;
+      int end = Math.min(n, start + GROUP_LENGTH);
+      int min = Integer.MAX_VALUE;
+      for (int i = start; i < end; i++)
+        min = Math.min(min, packed[i]);
+      refs[g] = min;
+      widths[g] = bitsNeeded(max(packed, start, end) - min);
+    }
+    int nbitsRef = bitsNeeded(max(refs, 0, ngroups));
+    int nbitsWidth = bitsNeeded(max(widths, 0, ngroups));
+
+    writeDrsHeader(out, spatialDifferencing ? 49 : 47, n, spatialDifferencing ? 3 : 2);
+    writeType0(out, nbitsRef);
+    out.writeByte(1);           // splitting method
+    out.writeByte(0);           // no explicit missing values
+    out.writeFloat(0);          // primary missing value
+    out.writeFloat(0);          // secondary missing value
+    out.writeInt(ngroups);
+    out.writeByte(0);           // reference for group widths
+    out.writeByte(nbitsWidth);
+    out.writeInt(GROUP_LENGTH); // reference for group lengths
+    out.writeByte(1);           // length increment
+    out.writeInt(lastGroupLength);
+    out.writeByte(0);           // all groups but the last have the reference length
+    if (spatialDifferencing) {
+      out.writeByte(1);         // first order
+      out.writeByte(2);         // 2 octets for ival1 and minsd
+    }
+    writeNoBitmap(out);
+
+    BitWriter bits = new BitWriter();
+    if (spatialDifferencing) {
+      bits.writeSignMagnitude(ival1, 16);
+      bits.writeSignMagnitude(minsd, 16);
+      bits.align();
+    }
+    for (int ref : refs)
+      bits.write(ref, nbitsRef);
+    bits.align();
+    for (int width : widths)
+      bits.write(width, nbitsWidth);
+    bits.align();
+    for (int g = 0; g < ngroups; g++) {
+      int start = g * GROUP_LENGTH;
+      int end = Math.min(n, start + GROUP_LENGTH);
+      for (int i = start; i < end; i++)
+        bits.write(packed[i] - refs[g], widths[g]);
+    }
+    writeDataSection(out, bits.toByteArray());
+  }
+
+  private static void writeDrsHeader(DataOutputStream out, int length, int npoints, int template) throws IOException {
+    out.writeInt(length);
+    out.writeByte(5);
+    out.writeInt(npoints);
+    out.writeShort(template);
+  }
+
+  private static void writeType0(DataOutputStream out, int nbits) throws IOException {
+    out.writeFloat(0);          // reference value
+    out.writeShort(0);          // binary scale factor
+    out.writeShort(0);          // decimal scale factor
+    out.writeByte(nbits);
+    out.writeByte(0);           // floating point
+  }
+
+  private static void writeNoBitmap(DataOutputStream out) throws IOException {
+    out.writeInt(6);
+    out.writeByte(6);
+    out.writeByte(255);
+  }
+
+  private static void writeDataSection(DataOutputStream out, byte[] data) throws IOException {
+    out.writeInt(5 + data.length);
+    out.writeByte(7);
+    out.write(data);
+  }
+
+  private static int max(int[] values, int start, int end) {
+    int max = 0;
+    for (int i = start; i < end; i++)
+      max = Math.max(max, values[i]);
+    return max;
+  }
+
+  private static int bitsNeeded(int value) {
+    return 32 - Integer.numberOfLeadingZeros(value);
+  }
+
+  // big-endian bit packing, the inverse of ucar.nc2.iosp.BitReader
+  private static class BitWriter {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int buf, nbuf;
+
+    void write(long value, int nbits) {
+      for (int i = nbits - 1; i >= 0; i--) {
+        buf = (buf << 1) | (int) ((value >>> i) & 1);
+        if (++nbuf == 8) {
+          bytes.write(buf);
+          buf = nbuf = 0;
+        }
+      }
+    }
+
+    void writeSignMagnitude(int value, int nbits) {
+      write(value < 0 ? 1 : 0, 1);
+      write(Math.abs(value), nbits - 1);
+    }
+
+    void align() {
+      if (nbuf > 0)
+        write(0, 8 - nbuf);
+    }
+
+    byte[] toByteArray() {
+      align();
+      return bytes.toByteArray();
+    }
+  }
+}